@@ -16,7 +16,11 @@ create table if not exists friendship
     friend_id     int                          not null,
     status        enum ('pending', 'accepted') not null,
     foreign key (user_id) references user (user_id),
-    foreign key (friend_id) references user (user_id)
+    foreign key (friend_id) references user (user_id),
+    -- keyset pagination of friend lists seeks on friend_id within a user and status
+    index idx_friendship_user_status_friend (user_id, status, friend_id),
+    -- one row per pair, connect inserts with INSERT IGNORE against this key
+    unique key uq_friendship_pair (user_id, friend_id)
 );
 
 -- create the subscription table
@@ -26,7 +30,11 @@ create table if not exists subscription
     subscriber_id   int not null,
     target_id       int not null,
     foreign key (subscriber_id) references user (user_id),
-    foreign key (target_id) references user (user_id)
+    foreign key (target_id) references user (user_id),
+    -- keyset pagination of recipients seeks on subscriber_id within a target
+    index idx_subscription_target_subscriber (target_id, subscriber_id),
+    -- one row per pair, subscribe inserts with INSERT IGNORE against this key
+    unique key uq_subscription_pair (subscriber_id, target_id)
 );
 
 -- create the block table
@@ -36,9 +44,17 @@ create table if not exists block
     blocker_id int not null,
     blocked_id int not null,
     foreign key (blocker_id) references user (user_id),
-    foreign key (blocked_id) references user (user_id)
+    foreign key (blocked_id) references user (user_id),
+    -- one row per pair, block inserts with INSERT IGNORE against this key
+    unique key uq_block_pair (blocker_id, blocked_id)
 );
 
+-- On an existing database, remove the duplicate pairs before adding the unique keys:
+-- delete f1 from friendship f1 join friendship f2
+--     on f1.user_id = f2.user_id and f1.friend_id = f2.friend_id and f1.friendship_id > f2.friendship_id;
+-- alter table friendship add unique key uq_friendship_pair (user_id, friend_id);
+-- (and likewise for subscription (subscriber_id, target_id) and block (blocker_id, blocked_id))
+
 -- create the updatemention table
 create table if not exists updatemention
 (
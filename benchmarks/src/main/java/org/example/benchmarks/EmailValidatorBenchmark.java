@@ -0,0 +1,72 @@
+package org.example.benchmarks;
+
+import org.example.service.EmailValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * {@link EmailValidator} against the pattern it replaced, on addresses the service sees every
+ * request and on inputs that make the pattern backtrack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailValidatorBenchmark {
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^(?=.{1,64}@)[A-Za-z0-9_-]+(\\.[A-Za-z0-9_-]+)*@"
+            + "[^-][A-Za-z0-9-]+(\\.[A-Za-z0-9-]+)*(\\.[A-Za-z]{2,})$");
+
+    @Param({"valid", "valid-long", "invalid-local", "adversarial-domain", "adversarial-local"})
+    public String input;
+
+    private String email;
+
+    @Setup
+    public void setUp() {
+        switch (input) {
+            case "valid":
+                email = "andy@example.com";
+                break;
+            case "valid-long":
+                email = "first.middle.last_name-2024@mail.eu-west-1.internal.example.co.uk";
+                break;
+            case "invalid-local":
+                email = "andy.@example.com";
+                break;
+            case "adversarial-domain":
+                // Many labels and a digit in the last one, every split of the labels is tried
+                email = "andy@" + "a-1.".repeat(200) + "com1";
+                break;
+            case "adversarial-local":
+                // No '@' within the first 64 chars, a long local part of single char labels
+                email = "a.".repeat(500) + "a@example.com";
+                break;
+            default:
+                throw new IllegalArgumentException(input);
+        }
+    }
+
+    @Benchmark
+    public boolean pattern() {
+        return EMAIL_PATTERN.matcher(email).matches();
+    }
+
+    @Benchmark
+    public boolean validator() {
+        return EmailValidator.isValid(email);
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.benchmarks;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.benchmarks.stub.GraphData;
+import org.example.benchmarks.stub.InMemoryBlockRepository;
+import org.example.benchmarks.stub.InMemoryFriendshipBulkDao;
+import org.example.benchmarks.stub.InMemoryFriendshipDao;
+import org.example.benchmarks.stub.InMemoryRelationBulkDao;
+import org.example.benchmarks.stub.InMemorySubscriptionDao;
+import org.example.benchmarks.stub.InMemoryUserDao;
+import org.example.dto.BlockUpdateDTO;
+import org.example.dto.CommonFriendDTO;
+import org.example.dto.EligibleEmailAddressesDTO;
+import org.example.dto.FriendConnectionDTO;
+import org.example.dto.FriendListDTO;
+import org.example.dto.SubscribeUpdatesDTO;
+import org.example.graph.BlockIndex;
+import org.example.graph.FriendSetCache;
+import org.example.graph.FriendSuggestions;
+import org.example.graph.SocialGraph;
+import org.example.model.Response;
+import org.example.repository.UserBatchLoader;
+import org.example.repository.UserEmailCache;
+import org.example.service.FriendShipReactiveServiceImpl;
+import org.example.trace.PipelineTracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the six request pipelines of {@link FriendShipReactiveServiceImpl} over in-memory
+ * DAOs, so the numbers move with the operator chains and the in-process data structures and not
+ * with a database. Run with {@code -prof gc} for the allocation per operation.
+ * <p>
+ * {@code source=database} leaves the social graph and the block index unloaded, so the service
+ * takes its query path against the stub DAOs; {@code source=graph} loads both first. The write
+ * benchmarks pick random pairs, so most of them insert and the graph grows a little during a run.
+ * The user loader runs without a batching window, one request at a time has nothing to batch.
+ * <p>
+ * {@code sampleRate} is the share of requests traced by the {@link PipelineTracer}, 0 disables
+ * tracing; {@code -p sampleRate=0,0.01,1} shows what tracing costs unsampled, sampled and always on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FriendShipServiceBenchmark {
+    private static final int REQUESTS = 1 << 12;
+
+    @Param({"1000", "100000"})
+    public int users;
+
+    @Param({"10", "100"})
+    public int degree;
+
+    @Param({"database", "graph"})
+    public String source;
+
+    @Param({"0"})
+    public double sampleRate;
+
+    private FriendShipReactiveServiceImpl service;
+    private FriendSuggestions friendSuggestions;
+    private PipelineTracer pipelineTracer;
+    private String[] emails1;
+    private String[] emails2;
+    private String[] texts;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GraphData data = new GraphData(users, degree, 42L);
+        InMemoryUserDao userDao = new InMemoryUserDao(data);
+        InMemoryFriendshipDao friendshipDao = new InMemoryFriendshipDao(data);
+        InMemorySubscriptionDao subscriptionDao = new InMemorySubscriptionDao(data);
+        InMemoryBlockRepository blockRepository = new InMemoryBlockRepository(data);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        SocialGraph socialGraph = new SocialGraph(friendshipDao, subscriptionDao, blockRepository, false, Duration.ZERO);
+        BlockIndex blockIndex = new BlockIndex(blockRepository, false, Math.max(1000, users / 50), 0.01, Duration.ZERO);
+        if ("graph".equals(source)) {
+            socialGraph.rebuild().block();
+            blockIndex.rebuild().block();
+        }
+        FriendSetCache friendSetCache = new FriendSetCache(friendshipDao, socialGraph, meterRegistry, false, DataSize.ofMegabytes(64));
+        friendSuggestions = new FriendSuggestions(socialGraph, friendshipDao, blockRepository, Duration.ofMillis(200), 0);
+        UserBatchLoader userBatchLoader = new UserBatchLoader(userDao, new UserEmailCache(meterRegistry, 100000, Duration.ofMinutes(10)),
+                meterRegistry, Duration.ZERO, 1000);
+
+        pipelineTracer = new PipelineTracer(meterRegistry, sampleRate > 0, sampleRate, 1024);
+        service = new FriendShipReactiveServiceImpl(userDao, userBatchLoader, friendshipDao, subscriptionDao, blockRepository,
+                socialGraph, friendSetCache, blockIndex, friendSuggestions, null,
+                new InMemoryFriendshipBulkDao(data, socialGraph), new InMemoryRelationBulkDao(data, socialGraph, blockIndex), null,
+                pipelineTracer);
+
+        SplittableRandom random = new SplittableRandom(7L);
+        emails1 = new String[REQUESTS];
+        emails2 = new String[REQUESTS];
+        texts = new String[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            emails1[i] = GraphData.email(1 + random.nextInt(users));
+            emails2[i] = GraphData.email(1 + random.nextInt(users));
+            texts[i] = "Hello World! @" + emails2[i];
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        friendSuggestions.shutdown();
+        pipelineTracer.shutdown();
+    }
+
+    @Benchmark
+    public ResponseEntity<Response> getFriendsListByEmail() {
+        int i = next();
+        return service.getFriendsListByEmail(FriendListDTO.Request.builder().email(emails1[i]).build()).block();
+    }
+
+    @Benchmark
+    public ResponseEntity<Response> getCommonFriends() {
+        int i = next();
+        return service.getCommonFriends(CommonFriendDTO.Request.builder().email1(emails1[i]).email2(emails2[i]).build()).block();
+    }
+
+    @Benchmark
+    public ResponseEntity<Response> createFriendConnection() {
+        int i = next();
+        return service.createFriendConnection(FriendConnectionDTO.Request.builder().email1(emails1[i]).email2(emails2[i]).build()).block();
+    }
+
+    @Benchmark
+    public ResponseEntity<Response> subscribeToUpdates() {
+        int i = next();
+        return service.subscribeToUpdates(SubscribeUpdatesDTO.Request.builder().email1(emails1[i]).email2(emails2[i]).build()).block();
+    }
+
+    @Benchmark
+    public ResponseEntity<Response> blockUpdates() {
+        int i = next();
+        return service.blockUpdates(BlockUpdateDTO.Request.builder().email1(emails1[i]).email2(emails2[i]).build()).block();
+    }
+
+    @Benchmark
+    public ResponseEntity<Response> getEligibleEmailAddresses() {
+        int i = next();
+        return service.getEligibleEmailAddresses(EligibleEmailAddressesDTO.Request.builder()
+                .email(emails1[i])
+                .text(texts[i])
+                .build()).block();
+    }
+
+    private int next() {
+        // Benchmark scope state, one thread per fork by default
+        return next++ & (REQUESTS - 1);
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.controller.EndpointMetrics;
+import org.example.model.Response;
+import org.example.repository.UserReactiveDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsProperties;
+import org.springframework.boot.actuate.autoconfigure.metrics.PropertiesMeterFilter;
+import org.springframework.boot.actuate.metrics.AutoTimer;
+import org.springframework.boot.actuate.metrics.data.DefaultRepositoryTagsProvider;
+import org.springframework.boot.actuate.metrics.data.MetricsRepositoryMethodInvocationListener;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener.RepositoryMethodInvocation;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener.RepositoryMethodInvocationResult;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the request metrics add to a request: the {@code friendship.requests} timer around an
+ * endpoint and one {@code spring.data.repository.invocations} sample per repository call, recorded
+ * with the distribution settings of {@code application.yaml}. {@code baseline} is the same Mono
+ * without the timer, hidden on both sides so neither takes the scalar shortcut of {@code block()},
+ * and {@code endpoint - baseline} is the cost of the timer. Run with {@code -prof gc} for the
+ * allocation and with {@code -t} above 1 for contended timers.
+ * <p>
+ * {@code distribution=histogram} only fills the buckets a scraping registry reads,
+ * {@code percentiles} also computes the percentiles shown by the metrics endpoint, as configured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestMetricsBenchmark {
+    @Param({"histogram", "percentiles"})
+    public String distribution;
+
+    private EndpointMetrics endpointMetrics;
+    private MetricsRepositoryMethodInvocationListener repositoryListener;
+    private RepositoryMethodInvocation invocation;
+    private ResponseEntity<Response> response;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        MetricsProperties properties = new MetricsProperties();
+        properties.getDistribution().getPercentilesHistogram().put("friendship.requests", true);
+        properties.getDistribution().getPercentilesHistogram().put("spring.data.repository.invocations", true);
+        if ("percentiles".equals(distribution)) {
+            properties.getDistribution().getPercentiles().put("friendship.requests", new double[]{0.5, 0.9, 0.99});
+            properties.getDistribution().getPercentiles().put("spring.data.repository.invocations", new double[]{0.5, 0.9, 0.99});
+        }
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        meterRegistry.config().meterFilter(new PropertiesMeterFilter(properties));
+
+        endpointMetrics = new EndpointMetrics(meterRegistry);
+        repositoryListener = new MetricsRepositoryMethodInvocationListener(() -> meterRegistry,
+                new DefaultRepositoryTagsProvider(), "spring.data.repository.invocations", AutoTimer.ENABLED);
+        invocation = new RepositoryMethodInvocation(UserReactiveDao.class,
+                UserReactiveDao.class.getMethod("findByEmailIn", Collection.class), new SuccessResult(), 250_000);
+        response = ResponseEntity.ok(Response.builder().message("Common Friend list retrieved successfully.").result(List.of()).build());
+    }
+
+    @Benchmark
+    public ResponseEntity<Response> baseline() {
+        return Mono.just(response).hide().block();
+    }
+
+    @Benchmark
+    public ResponseEntity<Response> endpoint() {
+        return endpointMetrics.record("common", Mono.just(response).hide()).block();
+    }
+
+    @Benchmark
+    public void repositoryInvocation() {
+        repositoryListener.afterInvocation(invocation);
+    }
+
+    private static final class SuccessResult implements RepositoryMethodInvocationResult {
+        @Override
+        public State getState() {
+            return State.SUCCESS;
+        }
+
+        @Override
+        public Throwable getError() {
+            return null;
+        }
+    }
+}
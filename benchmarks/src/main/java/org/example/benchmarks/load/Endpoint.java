@@ -0,0 +1,43 @@
+package org.example.benchmarks.load;
+
+import java.util.function.BiFunction;
+
+/**
+ * The six {@code /v1/user/*} endpoints the load test drives, with the JSON body of a request
+ * between two users of the seeded graph.
+ */
+enum Endpoint {
+    FRIENDS("/v1/user/friends", (email1, email2) -> "{\"email\":\"" + email1 + "\"}"),
+    COMMON("/v1/user/common", Endpoint::pair),
+    CONNECT("/v1/user/connect", Endpoint::pair),
+    SUBSCRIBE("/v1/user/subscribe", Endpoint::pair),
+    BLOCK("/v1/user/block", Endpoint::pair),
+    UPDATABLE("/v1/user/updatable", (email1, email2) -> "{\"email\":\"" + email1 + "\",\"text\":\"Hello World! @" + email2 + "\"}");
+
+    private final String path;
+    private final BiFunction<String, String, String> body;
+
+    Endpoint(String path, BiFunction<String, String, String> body) {
+        this.path = path;
+        this.body = body;
+    }
+
+    String path() {
+        return path;
+    }
+
+    String body(String email1, String email2) {
+        return body.apply(email1, email2);
+    }
+
+    /**
+     * @param name Name in a {@code loadtest.mix} entry, case-insensitive
+     */
+    static Endpoint of(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+
+    private static String pair(String email1, String email2) {
+        return "{\"email1\":\"" + email1 + "\",\"email2\":\"" + email2 + "\"}";
+    }
+}
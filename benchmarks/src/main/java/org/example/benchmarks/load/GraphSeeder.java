@@ -0,0 +1,56 @@
+package org.example.benchmarks.load;
+
+import org.example.benchmarks.stub.GraphData;
+import org.example.benchmarks.stub.PairTable;
+import org.example.repository.FriendshipBulkDao;
+import org.example.repository.RelationBulkDao;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Writes a {@link GraphData} into the database of the booted application. Users go in with
+ * multi-row inserts, the relations through the bulk DAOs so the entity callbacks keep the
+ * in-memory structures of the application current.
+ */
+final class GraphSeeder {
+    private static final int USER_BATCH_SIZE = 500;
+
+    private final DatabaseClient databaseClient;
+    private final FriendshipBulkDao friendshipBulkDao;
+    private final RelationBulkDao relationBulkDao;
+
+    GraphSeeder(DatabaseClient databaseClient, FriendshipBulkDao friendshipBulkDao, RelationBulkDao relationBulkDao) {
+        this.databaseClient = databaseClient;
+        this.friendshipBulkDao = friendshipBulkDao;
+        this.relationBulkDao = relationBulkDao;
+    }
+
+    Mono<Void> seed(GraphData data) {
+        // Ids are assigned in insert order, user i gets id i like in GraphData
+        return Flux.range(1, data.users())
+                .buffer(USER_BATCH_SIZE)
+                .concatMap(this::insertUsers)
+                .then(friendshipBulkDao.insertFriendships(pairs(data.friendships()), GraphData.ACCEPTED))
+                .then(relationBulkDao.insertSubscriptions(pairs(data.subscriptions())))
+                .then(relationBulkDao.insertBlocks(pairs(data.blocks())))
+                .then();
+    }
+
+    private Mono<Long> insertUsers(List<Integer> userIds) {
+        String values = userIds.stream().map(userId -> "(:e" + userId + ")").collect(Collectors.joining(","));
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("INSERT INTO user (email) VALUES " + values);
+        for (Integer userId : userIds) {
+            spec = spec.bind("e" + userId, GraphData.email(userId));
+        }
+        return spec.fetch().rowsUpdated().map(Number::longValue);
+    }
+
+    private static List<Long> pairs(PairTable table) {
+        return Arrays.stream(table.pairs()).boxed().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,261 @@
+package org.example.benchmarks.load;
+
+import io.netty.channel.ChannelOption;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.example.App;
+import org.example.benchmarks.stub.GraphData;
+import org.example.repository.FriendshipBulkDao;
+import org.example.repository.RelationBulkDao;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.CommandLinePropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test of the whole WebFlux + R2DBC stack on one box. Boots the application
+ * against an embedded H2 database in MySQL mode, seeds a synthetic {@link GraphData} and drives
+ * the six {@code /v1/user/*} endpoints with an open-model arrival rate: requests are sent on
+ * schedule whether or not earlier ones completed, and latency is measured from the scheduled
+ * send time, so a stalled server shows up in the percentiles instead of slowing the load down.
+ * <p>
+ * Options, given as {@code --name=value} arguments and passed on to the application as well,
+ * so {@code --friendsmanagement.graph.enabled=true} and the like apply too:
+ * <ul>
+ *     <li>{@code loadtest.users} (10000), {@code loadtest.degree} (20): size of the seeded graph</li>
+ *     <li>{@code loadtest.rate} (500): requests per second</li>
+ *     <li>{@code loadtest.arrivals} (poisson): {@code poisson} or {@code constant} gaps between requests</li>
+ *     <li>{@code loadtest.mix} (friends:30,common:20,connect:10,subscribe:10,block:5,updatable:25): endpoint weights</li>
+ *     <li>{@code loadtest.warmup} (10s), {@code loadtest.duration} (30s): unrecorded and recorded phases</li>
+ *     <li>{@code loadtest.max-in-flight} (2000): requests beyond it are dropped and counted, not sent</li>
+ * </ul>
+ * Reports requests, errors, drops, throughput and latency percentiles per endpoint on stdout.
+ */
+public final class LoadTest {
+    private static final String SCHEMA = "classpath:loadtest/schema.sql";
+
+    private final Environment environment;
+    private final WebClient webClient;
+    private final int users;
+    private final double rate;
+    private final boolean poisson;
+    private final Endpoint[] mix;
+    private final int maxInFlight;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Endpoint, Stats> stats = new EnumMap<>(Endpoint.class);
+
+    private LoadTest(Environment environment, int port) {
+        this.environment = environment;
+        this.users = environment.getProperty("loadtest.users", Integer.class, 10000);
+        this.rate = environment.getProperty("loadtest.rate", Double.class, 500.0);
+        this.poisson = !"constant".equals(environment.getProperty("loadtest.arrivals", "poisson"));
+        this.mix = mix(environment.getProperty("loadtest.mix", "friends:30,common:20,connect:10,subscribe:10,block:5,updatable:25"));
+        this.maxInFlight = environment.getProperty("loadtest.max-in-flight", Integer.class, 2000);
+        ConnectionProvider connections = ConnectionProvider.builder("loadtest")
+                .maxConnections(maxInFlight)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)))
+                .build();
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new Stats());
+        }
+    }
+
+    public static void main(String[] args) {
+        ReactiveWebServerApplicationContext context = (ReactiveWebServerApplicationContext) new SpringApplicationBuilder(App.class)
+                .initializers(LoadTest::overrideDatabase)
+                .run(args);
+        try {
+            LoadTest loadTest = new LoadTest(context.getEnvironment(), context.getWebServer().getPort());
+            loadTest.seed(context);
+            loadTest.run();
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Points the application at the embedded database. The properties rank just below the
+     * command line, above {@code application.yaml} which names the MySQL server.
+     */
+    private static void overrideDatabase(ConfigurableApplicationContext context) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.r2dbc.url", "r2dbc:h2:mem:///loadtest;DB_CLOSE_DELAY=-1;MODE=MySQL;NON_KEYWORDS=USER");
+        properties.put("spring.r2dbc.username", "sa");
+        properties.put("spring.r2dbc.password", "");
+        properties.put("spring.sql.init.mode", "always");
+        properties.put("spring.sql.init.schema-locations", SCHEMA);
+        // The JPA starter is on the classpath but unused, the repositories are R2DBC ones
+        properties.put("spring.autoconfigure.exclude", "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration,"
+                + "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration");
+        MutablePropertySources sources = context.getEnvironment().getPropertySources();
+        MapPropertySource loadTest = new MapPropertySource("loadtest", properties);
+        if (sources.contains(CommandLinePropertySource.COMMAND_LINE_PROPERTY_SOURCE_NAME)) {
+            sources.addAfter(CommandLinePropertySource.COMMAND_LINE_PROPERTY_SOURCE_NAME, loadTest);
+        } else {
+            sources.addFirst(loadTest);
+        }
+    }
+
+    private void seed(ReactiveWebServerApplicationContext context) {
+        int degree = environment.getProperty("loadtest.degree", Integer.class, 20);
+        long started = System.nanoTime();
+        GraphData data = new GraphData(users, degree, 42L);
+        new GraphSeeder(context.getBean(DatabaseClient.class), context.getBean(FriendshipBulkDao.class), context.getBean(RelationBulkDao.class))
+                .seed(data)
+                .block();
+        System.out.printf("Seeded %d users, %d friendships, %d subscriptions, %d blocks in %d ms%n",
+                users, data.friendships().size(), data.subscriptions().size(), data.blocks().size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void run() {
+        Duration warmup = environment.getProperty("loadtest.warmup", Duration.class, Duration.ofSeconds(10));
+        Duration duration = environment.getProperty("loadtest.duration", Duration.class, Duration.ofSeconds(30));
+        SplittableRandom random = new SplittableRandom(7L);
+        System.out.printf("Warming up for %s at %.0f requests/s%n", warmup, rate);
+        drive(warmup, random, false);
+        stats.values().forEach(Stats::reset);
+        System.out.printf("Measuring for %s at %.0f requests/s%n", duration, rate);
+        long started = System.nanoTime();
+        drive(duration, random, true);
+        awaitInFlight(Duration.ofSeconds(30));
+        report(System.nanoTime() - started);
+    }
+
+    /**
+     * Sends requests on the arrival schedule from this thread, the responses are handled on
+     * the client event loops.
+     */
+    private void drive(Duration duration, SplittableRandom random, boolean record) {
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        double scheduled = start;
+        while (true) {
+            scheduled += poisson ? -Math.log(1.0 - random.nextDouble()) * meanGapNanos : meanGapNanos;
+            long sendAt = (long) scheduled;
+            if (sendAt >= end) {
+                return;
+            }
+            long wait = sendAt - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Endpoint endpoint = mix[random.nextInt(mix.length)];
+            String body = endpoint.body(GraphData.email(1 + random.nextInt(users)), GraphData.email(1 + random.nextInt(users)));
+            send(endpoint, body, sendAt, record);
+        }
+    }
+
+    private void send(Endpoint endpoint, String body, long sendAt, boolean record) {
+        Stats endpointStats = stats.get(endpoint);
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            endpointStats.dropped.incrementAndGet();
+            return;
+        }
+        webClient.post()
+                .uri(endpoint.path())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().is2xxSuccessful()))
+                .onErrorReturn(false)
+                .subscribe(success -> {
+                    if (record) {
+                        // From the scheduled send time, a late send counts against the server
+                        endpointStats.latency.recordValue(Math.max(0, System.nanoTime() - sendAt));
+                        if (!success) {
+                            endpointStats.errors.incrementAndGet();
+                        }
+                    }
+                }, error -> {
+                }, inFlight::decrementAndGet);
+    }
+
+    private void awaitInFlight(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%-10s %9s %7s %8s %10s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "dropped", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram all = new Histogram(3);
+        long errors = 0;
+        long dropped = 0;
+        for (Map.Entry<Endpoint, Stats> entry : stats.entrySet()) {
+            Stats endpointStats = entry.getValue();
+            all.add(endpointStats.latency);
+            errors += endpointStats.errors.get();
+            dropped += endpointStats.dropped.get();
+            print(entry.getKey().name().toLowerCase(), endpointStats.latency, endpointStats.errors.get(), endpointStats.dropped.get(), seconds);
+        }
+        print("all", all, errors, dropped, seconds);
+    }
+
+    private static void print(String name, Histogram latency, long errors, long dropped, double seconds) {
+        System.out.printf("%-10s %9d %7d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, latency.getTotalCount(), errors, dropped, latency.getTotalCount() / seconds,
+                millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+                millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+                millis(latency.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * @return One slot per unit of weight, so a uniform pick over the slots follows the mix
+     */
+    private static Endpoint[] mix(String weights) {
+        return Arrays.stream(weights.split(","))
+                .map(entry -> entry.split(":"))
+                .flatMap(entry -> Collections.nCopies(Integer.parseInt(entry[1].trim()), Endpoint.of(entry[0])).stream())
+                .toArray(Endpoint[]::new);
+    }
+
+    private static final class Stats {
+        // Nanoseconds, 3 significant digits up to an hour
+        private final ConcurrentHistogram latency = new ConcurrentHistogram(TimeUnit.HOURS.toNanos(1), 3);
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+
+        private void reset() {
+            latency.reset();
+            errors.set(0);
+            dropped.set(0);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.benchmarks.stub;
+
+import org.example.repository.UserBatchLoader;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * The tables behind the in-memory DAOs, and the graph the load test seeds into its database.
+ * Users have the ids {@code 1..users} and the emails {@code user<id>@example.com}. Every user
+ * gets about {@code degree} accepted friends, stored in both directions like the connect
+ * endpoint does, subscribes to {@code degree / 4} users and blocks one user in a hundred of its
+ * non-friends. The same seed gives the same graph.
+ */
+public final class GraphData {
+    public static final String ACCEPTED = "accepted";
+
+    final String[] emails;
+    final Map<String, Integer> userIds;
+    final PairTable friendships;
+    final PairTable subscriptions;
+    final PairTable blocks;
+    private int nextId;
+
+    public GraphData(int users, int degree, long seed) {
+        this.emails = new String[users + 1];
+        this.userIds = new HashMap<>(users * 2);
+        for (int userId = 1; userId <= users; userId++) {
+            emails[userId] = email(userId);
+            userIds.put(emails[userId], userId);
+        }
+        this.friendships = new PairTable(users);
+        this.subscriptions = new PairTable(users);
+        this.blocks = new PairTable(users);
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int userId = 1; userId <= users; userId++) {
+            // Half of the degree from each side of the friendship
+            for (int i = 0; i < degree / 2; i++) {
+                int friendId = 1 + random.nextInt(users);
+                if (friendId != userId) {
+                    friendships.add(userId, friendId);
+                    friendships.add(friendId, userId);
+                }
+            }
+            for (int i = 0; i < degree / 4; i++) {
+                int targetId = 1 + random.nextInt(users);
+                if (targetId != userId) {
+                    subscriptions.add(userId, targetId);
+                }
+            }
+            if (random.nextInt(100) == 0) {
+                int blockedId = 1 + random.nextInt(users);
+                if (blockedId != userId && !friendships.contains(userId, blockedId)) {
+                    blocks.add(userId, blockedId);
+                }
+            }
+        }
+    }
+
+    public static String email(int userId) {
+        return "user" + userId + "@example.com";
+    }
+
+    public int users() {
+        return emails.length - 1;
+    }
+
+    public PairTable friendships() {
+        return friendships;
+    }
+
+    public PairTable subscriptions() {
+        return subscriptions;
+    }
+
+    public PairTable blocks() {
+        return blocks;
+    }
+
+    Integer userId(String email) {
+        return userIds.get(UserBatchLoader.normalize(email));
+    }
+
+    synchronized int nextId() {
+        return ++nextId;
+    }
+}
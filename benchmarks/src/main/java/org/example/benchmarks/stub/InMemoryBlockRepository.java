@@ -0,0 +1,54 @@
+package org.example.benchmarks.stub;
+
+import org.example.graph.IntSets;
+import org.example.model.friends.Block;
+import org.example.repository.BlockReactiveRepository;
+import org.example.repository.UserPairs;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+public class InMemoryBlockRepository extends InMemoryRepository<Block> implements BlockReactiveRepository {
+
+    public InMemoryBlockRepository(GraphData data) {
+        super(data);
+    }
+
+    @Override
+    public Flux<Block> findAll() {
+        return Flux.fromStream(Arrays.stream(data.blocks.pairs()).boxed())
+                .map(pair -> block(UserPairs.first(pair), UserPairs.second(pair)));
+    }
+
+    @Override
+    public Mono<Block> findByBlockerIdAndBlockedId(Integer blockerId, Integer blockedId) {
+        return data.blocks.contains(blockerId, blockedId) ? Mono.just(block(blockerId, blockedId)) : Mono.empty();
+    }
+
+    @Override
+    public Mono<Block> findByBlockerId(Integer blockerId) {
+        int[] blocked = data.blocks.successors(blockerId);
+        return blocked.length == 0 ? Mono.empty() : Mono.just(block(blockerId, blocked[0]));
+    }
+
+    @Override
+    public Flux<Integer> findBlockPartnerIds(Integer userId) {
+        return Flux.fromArray(InMemoryUserDao.box(IntSets.union(data.blocks.successors(userId), data.blocks.predecessors(userId))));
+    }
+
+    @Override
+    public Mono<Integer> findBlockEitherWay(Integer userId1, Integer userId2) {
+        return data.blocks.contains(userId1, userId2) || data.blocks.contains(userId2, userId1) ? Mono.just(1) : Mono.empty();
+    }
+
+    @Override
+    public Flux<Integer> findBlockerIds(Integer blockedId, Collection<Integer> blockerIds) {
+        return Flux.fromIterable(blockerIds).filter(blockerId -> data.blocks.contains(blockerId, blockedId));
+    }
+
+    static Block block(int blockerId, int blockedId) {
+        return Block.builder().blockerId(blockerId).blockedId(blockedId).build();
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.benchmarks.stub;
+
+import org.example.graph.SocialGraph;
+import org.example.model.friends.Friendship;
+import org.example.repository.FriendshipBulkDao;
+import org.example.repository.UserPairs;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Writes into {@link GraphData} and keeps the {@link SocialGraph} current, as the entity
+ * callbacks do after a real insert.
+ */
+public class InMemoryFriendshipBulkDao extends FriendshipBulkDao {
+    private final GraphData data;
+    private final SocialGraph socialGraph;
+
+    public InMemoryFriendshipBulkDao(GraphData data, SocialGraph socialGraph) {
+        super(null, new NoTransactionManager(), new DefaultListableBeanFactory(), 500);
+        this.data = data;
+        this.socialGraph = socialGraph;
+    }
+
+    @Override
+    public Mono<Set<Long>> findExistingFriendships(Collection<Long> pairs) {
+        return Mono.fromSupplier(() -> pairs.stream()
+                .filter(pair -> data.friendships.contains(UserPairs.first(pair), UserPairs.second(pair)))
+                .collect(Collectors.toSet()));
+    }
+
+    @Override
+    public Mono<Set<Long>> findBlockedPairs(Collection<Long> pairs) {
+        return Mono.fromSupplier(() -> pairs.stream()
+                .filter(pair -> data.blocks.contains(UserPairs.first(pair), UserPairs.second(pair))
+                        || data.blocks.contains(UserPairs.second(pair), UserPairs.first(pair)))
+                .collect(Collectors.toSet()));
+    }
+
+    @Override
+    public Mono<Integer> insertFriendships(Collection<Long> pairs, String status) {
+        return Mono.fromSupplier(() -> (int) pairs.stream()
+                .filter(pair -> add(UserPairs.first(pair), UserPairs.second(pair)))
+                .count());
+    }
+
+    @Override
+    public Mono<Friendship> insertFriendshipIfAbsent(int userId, int friendId, String status) {
+        return Mono.fromSupplier(() -> add(userId, friendId)
+                ? Friendship.builder().friendshipId(data.nextId()).userId(userId).friendId(friendId).status(status).build()
+                : null);
+    }
+
+    private boolean add(int userId, int friendId) {
+        if (!data.friendships.add(userId, friendId)) {
+            return false;
+        }
+        socialGraph.addFriendship(userId, friendId);
+        return true;
+    }
+}
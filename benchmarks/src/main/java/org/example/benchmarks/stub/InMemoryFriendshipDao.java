@@ -0,0 +1,99 @@
+package org.example.benchmarks.stub;
+
+import org.example.graph.IntSets;
+import org.example.model.friends.Friendship;
+import org.example.model.friends.User;
+import org.example.repository.FriendshipReactiveDao;
+import org.example.repository.UserPairs;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Every stored friendship is accepted.
+ */
+public class InMemoryFriendshipDao extends InMemoryRepository<Friendship> implements FriendshipReactiveDao {
+
+    public InMemoryFriendshipDao(GraphData data) {
+        super(data);
+    }
+
+    @Override
+    public Flux<Friendship> findAll() {
+        return Flux.fromStream(Arrays.stream(data.friendships.pairs()).boxed())
+                .map(pair -> friendship(UserPairs.first(pair), UserPairs.second(pair)));
+    }
+
+    @Override
+    public Flux<Friendship> findByUserIdAndStatus(Integer userId, String status) {
+        return Flux.fromArray(InMemoryUserDao.box(friends(userId, status))).map(friendId -> friendship(userId, friendId));
+    }
+
+    @Override
+    public Mono<Friendship> findByUserIdAndFriendId(Integer userId, Integer friendId) {
+        return data.friendships.contains(userId, friendId) ? Mono.just(friendship(userId, friendId)) : Mono.empty();
+    }
+
+    @Override
+    public Flux<Friendship> findByUserId(Integer userId) {
+        return findByUserIdAndStatus(userId, GraphData.ACCEPTED);
+    }
+
+    @Override
+    public Flux<Friendship> findByStatus(String status) {
+        return GraphData.ACCEPTED.equals(status) ? findAll() : Flux.empty();
+    }
+
+    @Override
+    public Flux<String> findFriendEmailsByEmailAndStatus(String email, String status) {
+        Integer userId = data.userId(email);
+        return userId == null ? Flux.empty() : emails(friends(userId, status));
+    }
+
+    @Override
+    public Flux<String> findCommonFriendEmails(Integer userId1, Integer userId2, String status) {
+        return emails(IntSets.intersect(friends(userId1, status), friends(userId2, status)));
+    }
+
+    @Override
+    public Flux<Integer> findFriendIdsByUserIdAndStatus(Integer userId, String status) {
+        return Flux.fromArray(InMemoryUserDao.box(friends(userId, status)));
+    }
+
+    @Override
+    public Flux<Integer> findFriendIdsByUserIdInAndStatus(Collection<Integer> userIds, String status) {
+        return Flux.fromIterable(userIds).concatMap(userId -> findFriendIdsByUserIdAndStatus(userId, status));
+    }
+
+    @Override
+    public Flux<User> findFriendPageByEmailAndStatus(String email, String status, Integer afterId, Integer limit) {
+        Integer userId = data.userId(email);
+        return userId == null ? Flux.empty() : page(friends(userId, status), afterId, limit);
+    }
+
+    @Override
+    public Flux<User> findCommonFriendPage(Integer userId1, Integer userId2, String status, Integer afterId, Integer limit) {
+        return page(IntSets.intersect(friends(userId1, status), friends(userId2, status)), afterId, limit);
+    }
+
+    private int[] friends(int userId, String status) {
+        return GraphData.ACCEPTED.equals(status) ? data.friendships.successors(userId) : IntSets.EMPTY;
+    }
+
+    private Flux<String> emails(int[] userIds) {
+        return Flux.fromArray(InMemoryUserDao.box(userIds)).map(userId -> data.emails[userId]);
+    }
+
+    private Flux<User> page(int[] sortedUserIds, int afterId, int limit) {
+        int from = Arrays.binarySearch(sortedUserIds, afterId);
+        from = from >= 0 ? from + 1 : -from - 1;
+        return Flux.fromArray(InMemoryUserDao.box(Arrays.copyOfRange(sortedUserIds, from, Math.min(sortedUserIds.length, from + limit))))
+                .map(userId -> User.builder().userId(userId).email(data.emails[userId]).build());
+    }
+
+    static Friendship friendship(int userId, int friendId) {
+        return Friendship.builder().userId(userId).friendId(friendId).status(GraphData.ACCEPTED).build();
+    }
+}
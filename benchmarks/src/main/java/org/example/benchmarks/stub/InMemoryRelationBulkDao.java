@@ -0,0 +1,90 @@
+package org.example.benchmarks.stub;
+
+import org.example.graph.BlockIndex;
+import org.example.graph.SocialGraph;
+import org.example.model.friends.Block;
+import org.example.model.friends.Subscription;
+import org.example.repository.RelationBulkDao;
+import org.example.repository.UserPairs;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Writes into {@link GraphData} and keeps the {@link SocialGraph} and {@link BlockIndex}
+ * current, as the entity callbacks do after a real insert.
+ */
+public class InMemoryRelationBulkDao extends RelationBulkDao {
+    private final GraphData data;
+    private final SocialGraph socialGraph;
+    private final BlockIndex blockIndex;
+
+    public InMemoryRelationBulkDao(GraphData data, SocialGraph socialGraph, BlockIndex blockIndex) {
+        super(null, new NoTransactionManager(), new DefaultListableBeanFactory(), 500);
+        this.data = data;
+        this.socialGraph = socialGraph;
+        this.blockIndex = blockIndex;
+    }
+
+    @Override
+    public Mono<Set<Long>> findExistingSubscriptions(Collection<Long> pairs) {
+        return Mono.fromSupplier(() -> pairs.stream()
+                .filter(pair -> data.subscriptions.contains(UserPairs.first(pair), UserPairs.second(pair)))
+                .collect(Collectors.toSet()));
+    }
+
+    @Override
+    public Mono<Integer> insertSubscriptions(Collection<Long> pairs) {
+        return Mono.fromSupplier(() -> (int) pairs.stream()
+                .filter(pair -> addSubscription(UserPairs.first(pair), UserPairs.second(pair)))
+                .count());
+    }
+
+    @Override
+    public Mono<Subscription> insertSubscriptionIfAbsent(int subscriberId, int targetId) {
+        return Mono.fromSupplier(() -> addSubscription(subscriberId, targetId)
+                ? Subscription.builder().subscriptionId(data.nextId()).subscriberId(subscriberId).targetId(targetId).build()
+                : null);
+    }
+
+    @Override
+    public Mono<Set<Long>> findExistingBlocks(Collection<Long> pairs) {
+        return Mono.fromSupplier(() -> pairs.stream()
+                .filter(pair -> data.blocks.contains(UserPairs.first(pair), UserPairs.second(pair)))
+                .collect(Collectors.toSet()));
+    }
+
+    @Override
+    public Mono<Integer> insertBlocks(Collection<Long> pairs) {
+        return Mono.fromSupplier(() -> (int) pairs.stream()
+                .filter(pair -> addBlock(UserPairs.first(pair), UserPairs.second(pair)))
+                .count());
+    }
+
+    @Override
+    public Mono<Block> insertBlockIfAbsent(int blockerId, int blockedId) {
+        return Mono.fromSupplier(() -> addBlock(blockerId, blockedId)
+                ? Block.builder().blockId(data.nextId()).blockerId(blockerId).blockedId(blockedId).build()
+                : null);
+    }
+
+    private boolean addSubscription(int subscriberId, int targetId) {
+        if (!data.subscriptions.add(subscriberId, targetId)) {
+            return false;
+        }
+        socialGraph.addSubscription(subscriberId, targetId);
+        return true;
+    }
+
+    private boolean addBlock(int blockerId, int blockedId) {
+        if (!data.blocks.add(blockerId, blockedId)) {
+            return false;
+        }
+        socialGraph.addBlock(blockerId, blockedId);
+        blockIndex.onAfterSave(InMemoryBlockRepository.block(blockerId, blockedId), null, null);
+        return true;
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.benchmarks.stub;
+
+import org.reactivestreams.Publisher;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.FluentQuery;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * The generic repository methods the service does not call, they fail when called. The stubs
+ * extending this implement {@link #findAll()} and the methods of their own interface.
+ *
+ * @param <T> Entity type
+ */
+abstract class InMemoryRepository<T> implements R2dbcRepository<T, Integer> {
+    protected final GraphData data;
+
+    InMemoryRepository(GraphData data) {
+        this.data = data;
+    }
+
+    private static <R> R unsupported() {
+        throw new UnsupportedOperationException("Not stubbed");
+    }
+
+    @Override
+    public <S extends T> Mono<S> save(S entity) {
+        return unsupported();
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Iterable<S> entities) {
+        return unsupported();
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Publisher<S> entityStream) {
+        return unsupported();
+    }
+
+    @Override
+    public Mono<T> findById(Integer id) {
+        return unsupported();
+    }
+
+    @Override
+    public Mono<T> findById(Publisher<Integer> id) {
+        return unsupported();
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Integer id) {
+        return unsupported();
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<Integer> id) {
+        return unsupported();
+    }
+
+    @Override
+    public Flux<T> findAllById(Iterable<Integer> ids) {
+        return unsupported();
+    }
+
+    @Override
+    public Flux<T> findAllById(Publisher<Integer> idStream) {
+        return unsupported();
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return unsupported();
+    }
+
+    @Override
+    public Mono<Void> deleteById(Integer id) {
+        return unsupported();
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<Integer> id) {
+        return unsupported();
+    }
+
+    @Override
+    public Mono<Void> delete(T entity) {
+        return unsupported();
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends Integer> ids) {
+        return unsupported();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends T> entities) {
+        return unsupported();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends T> entityStream) {
+        return unsupported();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return unsupported();
+    }
+
+    @Override
+    public Flux<T> findAll(Sort sort) {
+        return unsupported();
+    }
+
+    @Override
+    public <S extends T> Mono<S> findOne(Example<S> example) {
+        return unsupported();
+    }
+
+    @Override
+    public <S extends T> Flux<S> findAll(Example<S> example) {
+        return unsupported();
+    }
+
+    @Override
+    public <S extends T> Flux<S> findAll(Example<S> example, Sort sort) {
+        return unsupported();
+    }
+
+    @Override
+    public <S extends T> Mono<Long> count(Example<S> example) {
+        return unsupported();
+    }
+
+    @Override
+    public <S extends T> Mono<Boolean> exists(Example<S> example) {
+        return unsupported();
+    }
+
+    @Override
+    public <S extends T, R, P extends Publisher<R>> P findBy(Example<S> example, Function<FluentQuery.ReactiveFluentQuery<S>, P> queryFunction) {
+        return unsupported();
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.benchmarks.stub;
+
+import org.example.model.friends.Subscription;
+import org.example.repository.SubscriptionReactiveDao;
+import org.example.repository.UserPairs;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+
+public class InMemorySubscriptionDao extends InMemoryRepository<Subscription> implements SubscriptionReactiveDao {
+
+    public InMemorySubscriptionDao(GraphData data) {
+        super(data);
+    }
+
+    @Override
+    public Flux<Subscription> findAll() {
+        return Flux.fromStream(Arrays.stream(data.subscriptions.pairs()).boxed())
+                .map(pair -> subscription(UserPairs.first(pair), UserPairs.second(pair)));
+    }
+
+    @Override
+    public Mono<Subscription> findBySubscriberIdAndTargetId(Integer subscriberId, Integer targetId) {
+        return data.subscriptions.contains(subscriberId, targetId) ? Mono.just(subscription(subscriberId, targetId)) : Mono.empty();
+    }
+
+    @Override
+    public Mono<Void> deleteBySubscriberIdAndTargetId(Integer subscriberId, Integer targetId) {
+        return Mono.fromRunnable(() -> data.subscriptions.remove(subscriberId, targetId));
+    }
+
+    @Override
+    public Flux<Subscription> findBySubscriberId(Integer userId) {
+        return Flux.fromArray(InMemoryUserDao.box(data.subscriptions.successors(userId)))
+                .map(targetId -> subscription(userId, targetId));
+    }
+
+    static Subscription subscription(int subscriberId, int targetId) {
+        return Subscription.builder().subscriberId(subscriberId).targetId(targetId).build();
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.benchmarks.stub;
+
+import org.example.graph.IntSets;
+import org.example.model.friends.User;
+import org.example.repository.UserReactiveDao;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+public class InMemoryUserDao extends InMemoryRepository<User> implements UserReactiveDao {
+
+    public InMemoryUserDao(GraphData data) {
+        super(data);
+    }
+
+    @Override
+    public Flux<User> findAll() {
+        return Flux.range(1, data.users()).map(this::user);
+    }
+
+    @Override
+    public Mono<User> findByEmail(String email) {
+        return Mono.justOrEmpty(data.userId(email)).map(this::user);
+    }
+
+    @Override
+    public Mono<User> findByUserId(Integer userId) {
+        return Mono.just(userId).filter(this::exists).map(this::user);
+    }
+
+    @Override
+    public Flux<User> findByUserIdIn(Collection<Integer> userIds) {
+        return Flux.fromIterable(userIds).filter(this::exists).map(this::user);
+    }
+
+    @Override
+    public Flux<User> findByEmailIn(Collection<String> emails) {
+        return Flux.fromIterable(emails).mapNotNull(data::userId).map(this::user);
+    }
+
+    @Override
+    public Flux<String> findEligibleRecipientEmails(Integer senderId, String status) {
+        return Flux.fromArray(box(eligibleRecipients(senderId, status))).map(userId -> data.emails[userId]);
+    }
+
+    @Override
+    public Flux<User> findEligibleRecipientPage(Integer senderId, String status, Integer afterId, Integer limit) {
+        int[] recipients = eligibleRecipients(senderId, status);
+        int from = Arrays.binarySearch(recipients, afterId);
+        from = from >= 0 ? from + 1 : -from - 1;
+        return Flux.fromArray(box(Arrays.copyOfRange(recipients, from, Math.min(recipients.length, from + limit))))
+                .map(this::user);
+    }
+
+    private int[] eligibleRecipients(int senderId, String status) {
+        int[] friends = GraphData.ACCEPTED.equals(status) ? data.friendships.successors(senderId) : IntSets.EMPTY;
+        int[] audience = IntSets.union(friends, data.subscriptions.predecessors(senderId));
+        return IntSets.without(IntSets.minus(audience, data.blocks.predecessors(senderId)), senderId);
+    }
+
+    private boolean exists(int userId) {
+        return userId > 0 && userId <= data.users();
+    }
+
+    private User user(int userId) {
+        return User.builder().userId(userId).email(data.emails[userId]).build();
+    }
+
+    static Integer[] box(int[] values) {
+        return Arrays.stream(values).boxed().toArray(Integer[]::new);
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.benchmarks.stub;
+
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import reactor.core.publisher.Mono;
+
+/**
+ * Satisfies the constructors of the bulk DAOs, the in-memory subclasses never open a transaction.
+ */
+final class NoTransactionManager implements ReactiveTransactionManager {
+
+    @Override
+    public Mono<ReactiveTransaction> getReactiveTransaction(TransactionDefinition definition) {
+        return Mono.error(new UnsupportedOperationException("No transactions in memory"));
+    }
+
+    @Override
+    public Mono<Void> commit(ReactiveTransaction transaction) {
+        return Mono.error(new UnsupportedOperationException("No transactions in memory"));
+    }
+
+    @Override
+    public Mono<Void> rollback(ReactiveTransaction transaction) {
+        return Mono.error(new UnsupportedOperationException("No transactions in memory"));
+    }
+}
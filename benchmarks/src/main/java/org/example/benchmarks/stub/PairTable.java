@@ -0,0 +1,103 @@
+package org.example.benchmarks.stub;
+
+import org.example.repository.UserPairs;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * One relation table held in memory: sorted successor and predecessor arrays per user id and
+ * a set of the pairs. Adds and removes copy one array of each side, reads return the arrays.
+ */
+public final class PairTable {
+    private static final int[] EMPTY = new int[0];
+
+    private final int[][] successors;
+    private final int[][] predecessors;
+    private final Set<Long> pairs = new HashSet<>();
+    private int size;
+
+    /**
+     * @param maxUserId Largest user id of either side
+     */
+    public PairTable(int maxUserId) {
+        this.successors = new int[maxUserId + 1][];
+        this.predecessors = new int[maxUserId + 1][];
+        Arrays.fill(successors, EMPTY);
+        Arrays.fill(predecessors, EMPTY);
+    }
+
+    /**
+     * @return False when the pair is already in the table
+     */
+    public synchronized boolean add(int first, int second) {
+        if (!pairs.add(UserPairs.pair(first, second))) {
+            return false;
+        }
+        successors[first] = insert(successors[first], second);
+        predecessors[second] = insert(predecessors[second], first);
+        size++;
+        return true;
+    }
+
+    public synchronized boolean remove(int first, int second) {
+        if (!pairs.remove(UserPairs.pair(first, second))) {
+            return false;
+        }
+        successors[first] = delete(successors[first], second);
+        predecessors[second] = delete(predecessors[second], first);
+        size--;
+        return true;
+    }
+
+    public synchronized boolean contains(int first, int second) {
+        return pairs.contains(UserPairs.pair(first, second));
+    }
+
+    /**
+     * @return Sorted ids paired with {@code first}, not to be modified
+     */
+    public synchronized int[] successors(int first) {
+        return first < successors.length ? successors[first] : EMPTY;
+    }
+
+    /**
+     * @return Sorted ids paired to {@code second}, not to be modified
+     */
+    public synchronized int[] predecessors(int second) {
+        return second < predecessors.length ? predecessors[second] : EMPTY;
+    }
+
+    public synchronized long[] pairs() {
+        long[] all = new long[size];
+        int i = 0;
+        for (int first = 0; first < successors.length; first++) {
+            for (int second : successors[first]) {
+                all[i++] = UserPairs.pair(first, second);
+            }
+        }
+        return all;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private static int[] insert(int[] sorted, int value) {
+        int at = -Arrays.binarySearch(sorted, value) - 1;
+        int[] copy = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(sorted, at, copy, at + 1, sorted.length - at);
+        return copy;
+    }
+
+    private static int[] delete(int[] sorted, int value) {
+        int at = Arrays.binarySearch(sorted, value);
+        int[] copy = new int[sorted.length - 1];
+        System.arraycopy(sorted, 0, copy, 0, at);
+        System.arraycopy(sorted, at + 1, copy, at, sorted.length - at - 1);
+        return copy;
+    }
+}
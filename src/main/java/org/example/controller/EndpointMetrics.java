@@ -0,0 +1,74 @@
+package org.example.controller;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.service.Outcome;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the requests of {@link FriendShipReactiveController} as the {@code friendship.requests}
+ * timer, tagged with the endpoint and the {@link Outcome} of the request, so its count per
+ * outcome doubles as the outcome counter. The timers are registered once per endpoint and a
+ * request only reads the clock twice and records into its timer.
+ * <p>
+ * A request is timed until the service emits its response. For the streaming endpoints that is
+ * when the status is known, before the rows are written.
+ */
+@Component
+public class EndpointMetrics {
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final Map<String, Timer[]> timers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EndpointMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.clock = meterRegistry.config().clock();
+    }
+
+    /**
+     * @param endpoint Value of the {@code endpoint} tag
+     * @param response Response of the service, timed from subscription
+     * @return The same response, recorded when it completes
+     */
+    public <T> Mono<ResponseEntity<T>> record(String endpoint, Mono<ResponseEntity<T>> response) {
+        Timer[] endpointTimers = timers(endpoint);
+        return Mono.defer(() -> {
+            long start = clock.monotonicTime();
+            return response
+                    .doOnSuccess(entity -> endpointTimers[Outcome.of(entity).ordinal()]
+                            .record(clock.monotonicTime() - start, TimeUnit.NANOSECONDS))
+                    .doOnError(error -> endpointTimers[Outcome.ERROR.ordinal()]
+                            .record(clock.monotonicTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    private Timer[] timers(String endpoint) {
+        Timer[] endpointTimers = timers.get(endpoint);
+        if (endpointTimers != null) {
+            return endpointTimers;
+        }
+        return timers.computeIfAbsent(endpoint, name -> {
+            Timer[] created = new Timer[OUTCOMES.length];
+            for (Outcome outcome : OUTCOMES) {
+                created[outcome.ordinal()] = Timer.builder("friendship.requests")
+                        .description("Requests to the friendship endpoints")
+                        .tag("endpoint", name)
+                        .tag("outcome", outcome.tag())
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+            }
+            return created;
+        });
+    }
+}
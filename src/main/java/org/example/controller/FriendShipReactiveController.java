@@ -4,23 +4,29 @@ import org.example.dto.*;
 import org.example.model.*;
 import org.example.service.FriendShipReactiveService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
 public class FriendShipReactiveController {
     private final FriendShipReactiveService friendShipReactiveService;
+    private final EndpointMetrics endpointMetrics;
     private static final String VERSION_API = "/v1";
     private static final String GET_FRIENDS = VERSION_API +  "/user/friends";
     private static final String GET_COMMON_FRIEND = VERSION_API+ "/user/common";
     private static final String CREATE_FRIEND = VERSION_API + "/user/connect";
+    private static final String CREATE_FRIENDS_BULK = VERSION_API + "/user/connect/bulk";
     private static final String GET_UPDATE_EMAIL = VERSION_API + "/user/updatable";
     private static final String SUBSCRIBE_TO_UPDATE = VERSION_API + "/user/subscribe";
     private static final String BLOCK_UPDATES = VERSION_API + "/user/block";
+    private static final String GET_SUGGESTIONS = VERSION_API + "/user/suggestions";
     @Autowired
-    public FriendShipReactiveController(FriendShipReactiveService friendShipReactiveService) {
+    public FriendShipReactiveController(FriendShipReactiveService friendShipReactiveService, EndpointMetrics endpointMetrics) {
         this.friendShipReactiveService = friendShipReactiveService;
+        this.endpointMetrics = endpointMetrics;
     }
 
     /**
@@ -32,7 +38,19 @@ public class FriendShipReactiveController {
      */
     @PostMapping(value = GET_FRIENDS)
     public Mono<ResponseEntity<Response>> getFriendList(@RequestBody FriendListDTO.Request request) {
-        return friendShipReactiveService.getFriendsListByEmail(request);
+        return endpointMetrics.record("friends", friendShipReactiveService.getFriendsListByEmail(request));
+    }
+
+    /**
+     * Streaming variant of {@link #getFriendList}, selected by an NDJSON or SSE Accept header.
+     * Emails are written as they are read from the database, one per line or event.
+     *
+     * @param request Email that wants to get the friend list of this email
+     * @return A stream of the friend emails
+     */
+    @PostMapping(value = GET_FRIENDS, produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Mono<ResponseEntity<Flux<EmailStreamDTO.Row>>> streamFriendList(@RequestBody FriendListDTO.Request request) {
+        return endpointMetrics.record("friends.stream", friendShipReactiveService.streamFriendsListByEmail(request));
     }
 
 
@@ -45,7 +63,7 @@ public class FriendShipReactiveController {
      */
     @PostMapping(value = GET_COMMON_FRIEND)
     public Mono<ResponseEntity<Response>> getCommonFriends(@RequestBody CommonFriendDTO.Request request) {
-        return friendShipReactiveService.getCommonFriends(request);
+        return endpointMetrics.record("common", friendShipReactiveService.getCommonFriends(request));
     }
 
 
@@ -58,7 +76,19 @@ public class FriendShipReactiveController {
      */
     @PostMapping(value = CREATE_FRIEND)
     public Mono<ResponseEntity<Response>> createConnectionFriend(@RequestBody FriendConnectionDTO.Request request) {
-        return friendShipReactiveService.createFriendConnection(request);
+        return endpointMetrics.record("connect", friendShipReactiveService.createFriendConnection(request));
+    }
+
+    /**
+     * Used to create many friend connections in one request, for onboarding and imports.
+     *
+     * @param request Contain the email pairs that want to make the connection
+     *
+     * @return A Mono&lt;ResponseEntity&lt;ResponseObject&gt&gt; with the outcome of every pair
+     */
+    @PostMapping(value = CREATE_FRIENDS_BULK)
+    public Mono<ResponseEntity<Response>> createConnectionFriends(@RequestBody BulkFriendConnectionDTO.Request request) {
+        return endpointMetrics.record("connect.bulk", friendShipReactiveService.createFriendConnections(request));
     }
 
 
@@ -70,7 +100,7 @@ public class FriendShipReactiveController {
      */
     @PostMapping(value = SUBSCRIBE_TO_UPDATE)
     public Mono<ResponseEntity<Response>> subscribeToUpdates(@RequestBody SubscribeUpdatesDTO.Request request) {
-        return friendShipReactiveService.subscribeToUpdates(request);
+        return endpointMetrics.record("subscribe", friendShipReactiveService.subscribeToUpdates(request));
     }
 
 
@@ -81,7 +111,7 @@ public class FriendShipReactiveController {
      */
     @PostMapping(value = BLOCK_UPDATES)
     public Mono<ResponseEntity<Response>> block(@RequestBody BlockUpdateDTO.Request request) {
-        return friendShipReactiveService.blockUpdates(request);
+        return endpointMetrics.record("block", friendShipReactiveService.blockUpdates(request));
     }
 
     /**
@@ -94,6 +124,30 @@ public class FriendShipReactiveController {
      */
     @PostMapping(value = GET_UPDATE_EMAIL)
     public Mono<ResponseEntity<Response>> getEligibleEmailAddresses(@RequestBody EligibleEmailAddressesDTO.Request request) {
-        return friendShipReactiveService.getEligibleEmailAddresses(request);
+        return endpointMetrics.record("updatable", friendShipReactiveService.getEligibleEmailAddresses(request));
+    }
+
+    /**
+     * Streaming variant of {@link #getEligibleEmailAddresses}, selected by an NDJSON or SSE Accept header.
+     *
+     * @param request contain the required email to retrieve all email addresses
+     *
+     * @return A stream of the recipient emails
+     */
+    @PostMapping(value = GET_UPDATE_EMAIL, produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Mono<ResponseEntity<Flux<EmailStreamDTO.Row>>> streamEligibleEmailAddresses(@RequestBody EligibleEmailAddressesDTO.Request request) {
+        return endpointMetrics.record("updatable.stream", friendShipReactiveService.streamEligibleEmailAddresses(request));
+    }
+
+    /**
+     * Suggests users who are not yet friends of an email address, ranked by mutual friends.
+     *
+     * @param request contain the email to suggest friends to and the maximum number of suggestions
+     *
+     * @return A Mono&lt;ResponseEntity&lt;ResponseObject&gt;&gt;
+     */
+    @PostMapping(value = GET_SUGGESTIONS)
+    public Mono<ResponseEntity<Response>> getSuggestions(@RequestBody SuggestionDTO.Request request) {
+        return endpointMetrics.record("suggestions", friendShipReactiveService.getSuggestions(request));
     }
 }
@@ -0,0 +1,83 @@
+package org.example.controller;
+
+import org.example.dto.TraceDTO;
+import org.example.model.Response;
+import org.example.trace.Span;
+import org.example.trace.SpanRecorder;
+import org.example.trace.SpanTrace;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Shows the span trees of the slowest recent requests kept by the {@link SpanRecorder}. The list
+ * is empty unless {@code friendsmanagement.spans.enabled} is set.
+ */
+@RestController
+public class TraceController {
+    private static final String RECENT_TRACES = "/internal/traces/recent";
+    private static final String RECENT_TRACES_RETRIEVED = "Slowest recent traces retrieved successfully.";
+    private static final int DEFAULT_LIMIT = 10;
+
+    private final SpanRecorder spanRecorder;
+
+    @Autowired
+    public TraceController(SpanRecorder spanRecorder) {
+        this.spanRecorder = spanRecorder;
+    }
+
+    /**
+     * @param limit Maximum number of traces, 10 by default
+     * @return A Mono&lt;ResponseEntity&lt;ResponseObject&gt;&gt; with the traces, slowest first
+     */
+    @GetMapping(value = RECENT_TRACES)
+    public Mono<ResponseEntity<Response>> getRecentTraces(@RequestParam(required = false) Integer limit) {
+        return Mono.fromSupplier(() -> {
+            List<TraceDTO.Trace> traces = spanRecorder.slowest(limit == null ? DEFAULT_LIMIT : limit).stream()
+                    .map(TraceController::toTrace)
+                    .collect(Collectors.toList());
+            return ResponseEntity.status(HttpStatus.OK).body(Response.builder()
+                    .method(HttpMethod.GET)
+                    .message(RECENT_TRACES_RETRIEVED)
+                    .result(TraceDTO.Response.builder().traces(traces).count(traces.size()).build())
+                    .build());
+        });
+    }
+
+    private static TraceDTO.Trace toTrace(SpanTrace trace) {
+        Span root = trace.root();
+        Map<Span, TraceDTO.SpanNode> nodes = new IdentityHashMap<>();
+        for (Span span : trace.spans()) {
+            TraceDTO.SpanNode node = TraceDTO.SpanNode.builder()
+                    .name(span.name())
+                    .startMicros(TimeUnit.NANOSECONDS.toMicros(span.startNanos() - root.startNanos()))
+                    .durationMicros(span.isEnded() ? TimeUnit.NANOSECONDS.toMicros(span.durationNanos()) : null)
+                    .error(span.isError())
+                    .children(new ArrayList<>())
+                    .build();
+            nodes.put(span, node);
+            // Spans are kept in start order, a parent is always added before its children
+            if (span.parent() != null && nodes.containsKey(span.parent())) {
+                nodes.get(span.parent()).getChildren().add(node);
+            }
+        }
+        return TraceDTO.Trace.builder()
+                .request(root.name())
+                .durationMicros(TimeUnit.NANOSECONDS.toMicros(trace.durationNanos()))
+                .droppedSpans(trace.droppedSpans())
+                .root(nodes.get(root))
+                .build();
+    }
+}
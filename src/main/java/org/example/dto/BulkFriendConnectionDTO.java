@@ -0,0 +1,47 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+public interface BulkFriendConnectionDTO {
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    @Builder
+    class Request {
+        private List<FriendConnectionDTO.Request> connections;
+    }
+
+    enum Status {
+        CREATED,
+        ALREADY_FRIENDS,
+        BLOCKED,
+        EMAIL_NOT_FOUND,
+        INVALID_EMAIL
+    }
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    @Builder
+    class Outcome {
+        private String email1;
+        private String email2;
+        private Status status;
+    }
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    @Builder
+    class Response {
+        // One outcome per requested connection, in request order
+        private List<Outcome> outcomes = null;
+        private Integer count = null;
+        private Integer created = null;
+    }
+}
@@ -15,6 +15,10 @@ public interface CommonFriendDTO {
     class Request {
         private String email1;
         private String email2;
+        // Page size, all rows are returned when absent
+        private Integer limit;
+        // nextCursor of the previous page, absent for the first page
+        private String cursor;
     }
 
     @NoArgsConstructor
@@ -24,5 +28,7 @@ public interface CommonFriendDTO {
     class Response {
         private List<String> friends = null;
         private Integer count = null;
+        // Cursor of the next page, null on the last page or when no limit was requested
+        private String nextCursor = null;
     }
 }
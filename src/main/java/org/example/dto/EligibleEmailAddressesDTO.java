@@ -14,6 +14,12 @@ public interface EligibleEmailAddressesDTO {
     @Builder
     class Request {
         private String email;
+        // Text of the update, the users it @mentions receive it too
+        private String text;
+        // Page size, all rows are returned when absent
+        private Integer limit;
+        // nextCursor of the previous page, absent for the first page
+        private String cursor;
     }
 
     @NoArgsConstructor
@@ -23,5 +29,7 @@ public interface EligibleEmailAddressesDTO {
     class Response {
         private List<String> friends = null;
         private Integer count = null;
+        // Cursor of the next page, null on the last page or when no limit was requested
+        private String nextCursor = null;
     }
 }
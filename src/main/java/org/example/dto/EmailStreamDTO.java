@@ -0,0 +1,19 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+public interface EmailStreamDTO {
+    /**
+     * One element of a streamed email list, written as one NDJSON line or one SSE event.
+     */
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    @Builder
+    class Row {
+        private String email;
+    }
+}
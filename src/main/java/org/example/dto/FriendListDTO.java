@@ -14,6 +14,10 @@ public interface FriendListDTO {
     @Builder
     class Request {
         private String email;
+        // Page size, all rows are returned when absent
+        private Integer limit;
+        // nextCursor of the previous page, absent for the first page
+        private String cursor;
     }
 
     @NoArgsConstructor
@@ -23,5 +27,7 @@ public interface FriendListDTO {
     class Response {
         private List<String> friends = null;
         private Integer count = null;
+        // Cursor of the next page, null on the last page or when no limit was requested
+        private String nextCursor = null;
     }
 }
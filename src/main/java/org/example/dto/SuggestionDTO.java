@@ -0,0 +1,39 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+public interface SuggestionDTO {
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    @Builder
+    class Request {
+        private String email;
+        private Integer limit;
+    }
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    @Builder
+    class Suggestion {
+        private String email;
+        private Integer mutualFriends;
+    }
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    @Builder
+    class Response {
+        private List<Suggestion> suggestions = null;
+        private Integer count = null;
+        // True when the time budget ran out and the ranking covers only part of the friends
+        private Boolean partial = null;
+    }
+}
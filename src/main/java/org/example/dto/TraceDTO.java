@@ -0,0 +1,48 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+public interface TraceDTO {
+    /**
+     * One span and the spans started below it, times in microseconds.
+     */
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    @Builder
+    class SpanNode {
+        private String name;
+        // From the start of the request
+        private Long startMicros;
+        // Null while the span is still running, a call cancelled late for instance
+        private Long durationMicros;
+        private Boolean error;
+        private List<SpanNode> children;
+    }
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    @Builder
+    class Trace {
+        private String request;
+        private Long durationMicros;
+        // Spans beyond the per-request maximum, counted but not kept
+        private Integer droppedSpans;
+        private SpanNode root;
+    }
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    @Builder
+    class Response {
+        private List<Trace> traces = null;
+        private Integer count = null;
+    }
+}
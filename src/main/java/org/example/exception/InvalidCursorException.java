@@ -0,0 +1,13 @@
+package org.example.exception;
+
+/**
+ * InvalidCursorException is thrown when a pagination cursor cannot be decoded.
+ */
+public class InvalidCursorException extends RuntimeException {
+    /**
+     * @param message the detail message
+     */
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
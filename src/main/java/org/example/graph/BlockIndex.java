@@ -0,0 +1,207 @@
+package org.example.graph;
+
+import org.example.model.friends.Block;
+import org.example.repository.BlockReactiveRepository;
+import org.reactivestreams.Publisher;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory index of the {@code block} table answering "does A block B" without a query.
+ * <p>
+ * A {@link LongBloomFilter} over the (blocker, blocked) pairs answers the common case, a pair
+ * that is not blocked, with a few bit probes. Only when the filter reports a possible hit is
+ * the exact per-blocker set consulted. The index is loaded from the table when the application
+ * is ready and every block saved through {@link BlockReactiveRepository} is added to it. Until
+ * the load completes, or when {@code friendsmanagement.block-index.enabled} is false, lookups
+ * fall back to the database.
+ * <p>
+ * Blocks written by another instance or directly in the table are only seen after the next
+ * rebuild, every {@code friendsmanagement.block-index.rebuild-interval}. The index is therefore
+ * off by default and meant for a single instance writing the block table.
+ */
+@Component
+public class BlockIndex implements AfterSaveCallback<Block> {
+    private final BlockReactiveRepository blockReactiveRepository;
+    private final boolean enabled;
+    private final long expectedBlocks;
+    private final double falsePositiveRate;
+    private final Duration rebuildInterval;
+
+    private final AtomicReference<Index> index = new AtomicReference<>();
+    private final Object writeLock = new Object();
+    // Blocks saved while a rebuild is loading, replayed onto the new index before the swap
+    private EdgeList journal;
+    private Disposable scheduledRebuilds;
+
+    // Lazy repository, this index is an entity callback of the template behind it
+    @Autowired
+    public BlockIndex(@Lazy BlockReactiveRepository blockReactiveRepository,
+                      @Value("${friendsmanagement.block-index.enabled:false}") boolean enabled,
+                      @Value("${friendsmanagement.block-index.expected-blocks:100000}") long expectedBlocks,
+                      @Value("${friendsmanagement.block-index.false-positive-rate:0.01}") double falsePositiveRate,
+                      @Value("${friendsmanagement.block-index.rebuild-interval:0s}") Duration rebuildInterval) {
+        this.blockReactiveRepository = blockReactiveRepository;
+        this.enabled = enabled;
+        this.expectedBlocks = expectedBlocks;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        rebuild().subscribe();
+        if (!rebuildInterval.isZero()) {
+            scheduledRebuilds = Flux.interval(rebuildInterval, rebuildInterval)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> rebuild().onErrorResume(ex -> Mono.empty()))
+                    .subscribe();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduledRebuilds != null) {
+            scheduledRebuilds.dispose();
+        }
+    }
+
+    public boolean isReady() {
+        return index.get() != null;
+    }
+
+    /**
+     * @return True when {@code blockerId} blocks {@code blockedId}
+     */
+    public Mono<Boolean> isBlocked(Integer blockerId, Integer blockedId) {
+        return Mono.defer(() -> {
+            Index current = index.get();
+            if (current != null) {
+                return Mono.just(current.contains(blockerId, blockedId));
+            }
+            return blockReactiveRepository.findByBlockerIdAndBlockedId(blockerId, blockedId).hasElement();
+        });
+    }
+
+    /**
+     * @return True when either user blocks the other one, checked with a single statement
+     * until the index is loaded
+     */
+    public Mono<Boolean> isBlockedEitherWay(Integer userId1, Integer userId2) {
+        return Mono.defer(() -> {
+            Index current = index.get();
+            if (current != null) {
+                return Mono.just(current.contains(userId1, userId2) || current.contains(userId2, userId1));
+            }
+            return blockReactiveRepository.findBlockEitherWay(userId1, userId2).hasElement();
+        });
+    }
+
+    /**
+     * Reloads the block table into a new index and swaps it in, lookups keep using the
+     * current index meanwhile. A rebuild requested while another one runs completes immediately.
+     *
+     * @return Completes once the new index is in place
+     */
+    public Mono<Void> rebuild() {
+        return Mono.defer(() -> {
+            synchronized (writeLock) {
+                if (journal != null) {
+                    return Mono.empty();
+                }
+                journal = new EdgeList();
+            }
+            return blockReactiveRepository.findAll()
+                    .collect(EdgeList::new, (edges, block) -> edges.add(block.getBlockerId(), block.getBlockedId()))
+                    .publishOn(Schedulers.parallel())
+                    .map(this::build)
+                    .doOnNext(fresh -> {
+                        synchronized (writeLock) {
+                            for (int i = 0; i < journal.size(); i++) {
+                                fresh.add(journal.from(i), journal.to(i));
+                            }
+                            journal = null;
+                            index.set(fresh);
+                        }
+                    })
+                    .doOnError(ex -> {
+                        synchronized (writeLock) {
+                            journal = null;
+                        }
+                    })
+                    .then();
+        });
+    }
+
+    @Override
+    public Publisher<Block> onAfterSave(Block entity, OutboundRow outboundRow, SqlIdentifier table) {
+        synchronized (writeLock) {
+            Index current = index.get();
+            if (current != null) {
+                current.add(entity.getBlockerId(), entity.getBlockedId());
+            }
+            if (journal != null) {
+                journal.add(entity.getBlockerId(), entity.getBlockedId());
+            }
+        }
+        return Mono.just(entity);
+    }
+
+    private Index build(EdgeList blocks) {
+        // Leave room for the blocks saved until the next rebuild
+        Index built = new Index(new LongBloomFilter(Math.max(expectedBlocks, 2L * blocks.size()), falsePositiveRate));
+        for (int i = 0; i < blocks.size(); i++) {
+            built.add(blocks.from(i), blocks.to(i));
+        }
+        return built;
+    }
+
+    private static final class Index {
+        private final LongBloomFilter filter;
+        // Bitmaps are replaced, never mutated, once they are visible to readers
+        private final Map<Integer, RoaringBitmap> blockedByBlocker = new ConcurrentHashMap<>();
+
+        private Index(LongBloomFilter filter) {
+            this.filter = filter;
+        }
+
+        private boolean contains(int blockerId, int blockedId) {
+            if (!filter.mightContain(key(blockerId, blockedId))) {
+                return false;
+            }
+            RoaringBitmap blocked = blockedByBlocker.get(blockerId);
+            return blocked != null && blocked.contains(blockedId);
+        }
+
+        private void add(int blockerId, int blockedId) {
+            blockedByBlocker.merge(blockerId, RoaringBitmap.bitmapOf(blockedId), (current, added) -> RoaringBitmap.or(current, added));
+            // The filter is updated last so a positive never precedes the exact entry
+            filter.put(key(blockerId, blockedId));
+        }
+
+        private static long key(int blockerId, int blockedId) {
+            return ((long) blockerId << 32) | (blockedId & 0xffffffffL);
+        }
+    }
+}
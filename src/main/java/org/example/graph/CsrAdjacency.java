@@ -0,0 +1,85 @@
+package org.example.graph;
+
+import java.util.Arrays;
+
+/**
+ * Immutable adjacency of one edge direction in compressed sparse row form: the sorted,
+ * distinct neighbours of vertex {@code v} are {@code targets[offsets[v] .. offsets[v + 1])}.
+ */
+public final class CsrAdjacency {
+    private final int[] offsets;
+    private final int[] targets;
+
+    private CsrAdjacency(int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Builds the adjacency of the edges {@code from[i] -> to[i]} with a counting sort.
+     * Duplicated edges are kept once.
+     *
+     * @param from        Source vertex of every edge
+     * @param to          Target vertex of every edge
+     * @param vertexCount One more than the largest vertex id
+     * @return The adjacency
+     */
+    public static CsrAdjacency build(int[] from, int[] to, int vertexCount) {
+        int[] offsets = new int[vertexCount + 1];
+        for (int source : from) {
+            offsets[source + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] targets = new int[from.length];
+        int[] cursor = Arrays.copyOf(offsets, vertexCount);
+        for (int i = 0; i < from.length; i++) {
+            targets[cursor[from[i]]++] = to[i];
+        }
+
+        // Sort every row and drop duplicates in place
+        int write = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            int start = offsets[v];
+            int end = offsets[v + 1];
+            Arrays.sort(targets, start, end);
+            offsets[v] = write;
+            for (int i = start; i < end; i++) {
+                if (i == start || targets[i] != targets[i - 1]) {
+                    targets[write++] = targets[i];
+                }
+            }
+        }
+        offsets[vertexCount] = write;
+        return new CsrAdjacency(offsets, write == targets.length ? targets : Arrays.copyOf(targets, write));
+    }
+
+    /**
+     * @return A sorted copy of the neighbours of {@code v}, empty for unknown vertices
+     */
+    public int[] neighbors(int v) {
+        if (v < 0 || v >= offsets.length - 1) {
+            return IntSets.EMPTY;
+        }
+        return Arrays.copyOfRange(targets, offsets[v], offsets[v + 1]);
+    }
+
+    public int degree(int v) {
+        if (v < 0 || v >= offsets.length - 1) {
+            return 0;
+        }
+        return offsets[v + 1] - offsets[v];
+    }
+
+    public boolean contains(int u, int v) {
+        if (u < 0 || u >= offsets.length - 1) {
+            return false;
+        }
+        return Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v) >= 0;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.graph;
+
+/**
+ * Edges collected from one table while a {@link GraphSnapshot} or {@link BlockIndex} is being built.
+ */
+final class EdgeList {
+    private final IntArrayList from = new IntArrayList(1024);
+    private final IntArrayList to = new IntArrayList(1024);
+    private int maxVertex;
+
+    void add(int u, int v) {
+        from.add(u);
+        to.add(v);
+        maxVertex = Math.max(maxVertex, Math.max(u, v));
+    }
+
+    int maxVertex() {
+        return maxVertex;
+    }
+
+    int size() {
+        return from.size();
+    }
+
+    int from(int i) {
+        return from.get(i);
+    }
+
+    int to(int i) {
+        return to.get(i);
+    }
+
+    Relation toRelation(int vertexCount) {
+        return new Relation(from.toArray(), to.toArray(), vertexCount);
+    }
+}
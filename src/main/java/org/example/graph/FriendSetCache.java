@@ -0,0 +1,174 @@
+package org.example.graph;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.model.friends.Friendship;
+import org.example.repository.FriendshipReactiveDao;
+import org.reactivestreams.Publisher;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Memory-bounded LRU cache of the accepted friends of each user as compressed
+ * {@link RoaringBitmap}s, so common friends of two high-degree users are one bitmap AND.
+ * <p>
+ * Friend sets are taken from the {@link SocialGraph} when it is loaded, otherwise from a
+ * friend-id projection query. The cache accounts for the serialized size of every bitmap
+ * and evicts the least recently used users once {@code friendsmanagement.friend-sets.maximum-memory}
+ * is exceeded. Cached bitmaps are never mutated: saving an accepted friendship replaces the
+ * bitmap of the user with an updated copy, so readers can intersect without locking.
+ */
+@Component
+public class FriendSetCache implements AfterSaveCallback<Friendship> {
+    private static final String ACCEPTED = "accepted";
+    // Map entry, boxed key and bitmap object headers, charged on top of the bitmap itself
+    static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    private final FriendshipReactiveDao friendshipReactiveDao;
+    private final SocialGraph socialGraph;
+    private final boolean enabled;
+    private final long maximumBytes;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    private final Map<Integer, RoaringBitmap> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    // Bumped on every write, a load that overlapped a write is returned but not cached
+    private long writes;
+
+    // Lazy repository, this cache is an entity callback of the template behind it
+    @Autowired
+    public FriendSetCache(@Lazy FriendshipReactiveDao friendshipReactiveDao,
+                          SocialGraph socialGraph,
+                          MeterRegistry meterRegistry,
+                          @Value("${friendsmanagement.friend-sets.enabled:false}") boolean enabled,
+                          @Value("${friendsmanagement.friend-sets.maximum-memory:64MB}") DataSize maximumMemory) {
+        this.friendshipReactiveDao = friendshipReactiveDao;
+        this.socialGraph = socialGraph;
+        this.enabled = enabled;
+        this.maximumBytes = maximumMemory.toBytes();
+        this.hits = Counter.builder("friend.sets.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("friend.sets.requests").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("friend.sets.evictions").register(meterRegistry);
+        Gauge.builder("friend.sets.memory", this, FriendSetCache::memoryBytes)
+                .description("Accounted size of the cached friend sets")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("friend.sets.size", this, FriendSetCache::size)
+                .description("Users with a cached friend set")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param userId Id of the user
+     * @return The accepted friends of the user, the bitmap must not be modified
+     */
+    public Mono<RoaringBitmap> friends(Integer userId) {
+        return Mono.defer(() -> {
+            long writesAtLoad;
+            synchronized (this) {
+                RoaringBitmap cached = entries.get(userId);
+                if (cached != null) {
+                    hits.increment();
+                    return Mono.just(cached);
+                }
+                writesAtLoad = writes;
+            }
+            misses.increment();
+            return load(userId).doOnNext(bitmap -> store(userId, bitmap, writesAtLoad));
+        });
+    }
+
+    /**
+     * @return Sorted ids of the accepted friends two users have in common
+     */
+    public Mono<int[]> commonFriends(Integer userId1, Integer userId2) {
+        return Mono.zip(friends(userId1), friends(userId2))
+                .map(sets -> RoaringBitmap.and(sets.getT1(), sets.getT2()).toArray());
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        bytes = 0;
+        writes++;
+    }
+
+    public synchronized long memoryBytes() {
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public Publisher<Friendship> onAfterSave(Friendship entity, OutboundRow outboundRow, SqlIdentifier table) {
+        if (ACCEPTED.equals(entity.getStatus())) {
+            synchronized (this) {
+                writes++;
+                RoaringBitmap cached = entries.get(entity.getUserId());
+                if (cached != null && !cached.contains(entity.getFriendId())) {
+                    RoaringBitmap updated = cached.clone();
+                    updated.add(entity.getFriendId().intValue());
+                    put(entity.getUserId(), updated);
+                }
+            }
+        }
+        return Mono.just(entity);
+    }
+
+    private Mono<RoaringBitmap> load(Integer userId) {
+        Mono<RoaringBitmap> bitmap = socialGraph.isReady()
+                ? Mono.fromCallable(() -> RoaringBitmap.bitmapOf(socialGraph.friends(userId)))
+                : friendshipReactiveDao.findFriendIdsByUserIdAndStatus(userId, ACCEPTED)
+                        .collect(RoaringBitmap::new, (friends, friendId) -> friends.add(friendId.intValue()));
+        return bitmap.doOnNext(RoaringBitmap::runOptimize);
+    }
+
+    private synchronized void store(Integer userId, RoaringBitmap bitmap, long writesAtLoad) {
+        if (writes == writesAtLoad) {
+            put(userId, bitmap);
+        }
+    }
+
+    private void put(Integer userId, RoaringBitmap bitmap) {
+        RoaringBitmap previous = entries.put(userId, bitmap);
+        if (previous != null) {
+            bytes -= weigh(previous);
+        }
+        bytes += weigh(bitmap);
+        // Evict the coldest users, always keeping the entry that was just stored
+        Iterator<Map.Entry<Integer, RoaringBitmap>> eldest = entries.entrySet().iterator();
+        while (bytes > maximumBytes && entries.size() > 1) {
+            Map.Entry<Integer, RoaringBitmap> entry = eldest.next();
+            if (entry.getKey().equals(userId)) {
+                continue;
+            }
+            bytes -= weigh(entry.getValue());
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static long weigh(RoaringBitmap bitmap) {
+        return bitmap.getSizeInBytes() + ENTRY_OVERHEAD_BYTES;
+    }
+}
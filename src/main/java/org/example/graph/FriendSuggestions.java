@@ -0,0 +1,282 @@
+package org.example.graph;
+
+import org.example.repository.BlockReactiveRepository;
+import org.example.repository.FriendshipReactiveDao;
+import org.example.repository.UserReactiveDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Friend-of-friend suggestions: the users who are not yet friends of a user, ranked by the
+ * number of friends they have in common with that user.
+ * <p>
+ * Counting runs on a dedicated fork-join pool, never on the event loop. When the
+ * {@link SocialGraph} is loaded, the friends of a high-degree user are split into ranges of
+ * {@link #SPLIT_THRESHOLD} that are counted in parallel into {@link IntIntHashMap}s and merged.
+ * Otherwise the friends of the friends are streamed from one projection query per chunk of
+ * friends. Counting stops once the time budget is spent, and the ranking of what was counted
+ * so far is returned flagged as partial.
+ */
+@Component
+public class FriendSuggestions {
+    static final int SPLIT_THRESHOLD = 256;
+    private static final String ACCEPTED = "accepted";
+
+    private final SocialGraph socialGraph;
+    private final FriendshipReactiveDao friendshipReactiveDao;
+    private final BlockReactiveRepository blockReactiveRepository;
+    private final Duration timeBudget;
+    private final Scheduler scheduler;
+
+    @Autowired
+    public FriendSuggestions(SocialGraph socialGraph,
+                             FriendshipReactiveDao friendshipReactiveDao,
+                             BlockReactiveRepository blockReactiveRepository,
+                             @Value("${friendsmanagement.suggestions.time-budget:200ms}") Duration timeBudget,
+                             @Value("${friendsmanagement.suggestions.parallelism:0}") int parallelism) {
+        this.socialGraph = socialGraph;
+        this.friendshipReactiveDao = friendshipReactiveDao;
+        this.blockReactiveRepository = blockReactiveRepository;
+        this.timeBudget = timeBudget;
+        ForkJoinPool pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.scheduler = Schedulers.fromExecutorService(pool, "suggestions");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+
+    /**
+     * @param userId Id of the user to suggest friends to
+     * @param limit  Maximum number of suggestions
+     * @return The best ranked candidates, most mutual friends first
+     */
+    public Mono<Ranking> suggest(int userId, int limit) {
+        return Mono.defer(() -> {
+            long deadline = System.nanoTime() + timeBudget.toNanos();
+            if (socialGraph.isReady()) {
+                return Mono.fromCallable(() -> {
+                    int[] friends = socialGraph.friends(userId);
+                    Counts counts = new CountTask(friends, 0, friends.length, deadline).invoke();
+                    return rank(counts, exclusions(userId, friends, socialGraph.blockPartners(userId)), limit);
+                }).subscribeOn(scheduler);
+            }
+            return Mono.zip(sortedIds(friendshipReactiveDao.findFriendIdsByUserIdAndStatus(userId, ACCEPTED)),
+                            sortedIds(blockReactiveRepository.findBlockPartnerIds(userId)))
+                    .flatMap(ids -> countFromDatabase(ids.getT1(), deadline)
+                            .map(counts -> rank(counts, exclusions(userId, ids.getT1(), ids.getT2()), limit)));
+        });
+    }
+
+    private Mono<Counts> countFromDatabase(int[] friends, long deadline) {
+        AtomicBoolean partial = new AtomicBoolean();
+        Duration remaining = Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+        int chunkSize = UserReactiveDao.USER_ID_CHUNK_SIZE;
+        return Flux.range(0, (friends.length + chunkSize - 1) / chunkSize)
+                .map(chunk -> Arrays.stream(friends, chunk * chunkSize, Math.min(friends.length, (chunk + 1) * chunkSize))
+                        .boxed()
+                        .collect(Collectors.toList()))
+                .flatMap(chunk -> friendshipReactiveDao.findFriendIdsByUserIdInAndStatus(chunk, ACCEPTED),
+                        UserReactiveDao.USER_ID_CHUNK_CONCURRENCY)
+                .takeUntilOther(Mono.delay(remaining).doOnNext(elapsed -> partial.set(true)))
+                .publishOn(scheduler)
+                .collect(IntIntHashMap::new, (counts, candidate) -> counts.increment(candidate))
+                .map(counts -> new Counts(counts, partial.get()));
+    }
+
+    private static Mono<int[]> sortedIds(Flux<Integer> ids) {
+        return ids.collect(IntArrayList::new, (list, id) -> list.add(id))
+                .map(list -> Arrays.stream(list.toArray()).sorted().distinct().toArray());
+    }
+
+    private static int[] exclusions(int userId, int[] friends, int[] blockPartners) {
+        return IntSets.with(IntSets.union(friends, blockPartners), userId);
+    }
+
+    /**
+     * Selects the {@code limit} candidates with the most mutual friends with a bounded min-heap,
+     * equal counts rank the smaller id first.
+     */
+    static Ranking rank(Counts counts, int[] excluded, int limit) {
+        TopK top = new TopK(limit);
+        counts.counts.forEach((candidate, mutualFriends) -> {
+            if (Arrays.binarySearch(excluded, candidate) < 0) {
+                top.offer(((long) mutualFriends << 32) | (~candidate & 0xffffffffL));
+            }
+        });
+        long[] best = top.sortedDescending();
+        int[] userIds = new int[best.length];
+        int[] mutualFriends = new int[best.length];
+        for (int i = 0; i < best.length; i++) {
+            userIds[i] = ~(int) best[i];
+            mutualFriends[i] = (int) (best[i] >>> 32);
+        }
+        return new Ranking(userIds, mutualFriends, counts.partial);
+    }
+
+    /**
+     * Ranked suggestions, {@link #getUserIds()} and {@link #getMutualFriends()} are parallel arrays.
+     */
+    public static final class Ranking {
+        private final int[] userIds;
+        private final int[] mutualFriends;
+        private final boolean partial;
+
+        public Ranking(int[] userIds, int[] mutualFriends, boolean partial) {
+            this.userIds = userIds;
+            this.mutualFriends = mutualFriends;
+            this.partial = partial;
+        }
+
+        public int[] getUserIds() {
+            return userIds;
+        }
+
+        public int[] getMutualFriends() {
+            return mutualFriends;
+        }
+
+        /**
+         * @return True when the time budget ran out before every friend was counted
+         */
+        public boolean isPartial() {
+            return partial;
+        }
+
+        public List<Integer> userIdList() {
+            return Arrays.stream(userIds).boxed().collect(Collectors.toList());
+        }
+    }
+
+    static final class Counts {
+        private final IntIntHashMap counts;
+        private final boolean partial;
+
+        Counts(IntIntHashMap counts, boolean partial) {
+            this.counts = counts;
+            this.partial = partial;
+        }
+
+        private Counts merge(Counts other) {
+            IntIntHashMap larger = counts.size() >= other.counts.size() ? counts : other.counts;
+            larger.addAll(larger == counts ? other.counts : counts);
+            return new Counts(larger, partial || other.partial);
+        }
+    }
+
+    private final class CountTask extends RecursiveTask<Counts> {
+        private final int[] friends;
+        private final int from;
+        private final int to;
+        private final long deadline;
+
+        private CountTask(int[] friends, int from, int to, long deadline) {
+            this.friends = friends;
+            this.from = from;
+            this.to = to;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected Counts compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                IntIntHashMap counts = new IntIntHashMap();
+                for (int i = from; i < to; i++) {
+                    if (System.nanoTime() - deadline > 0) {
+                        return new Counts(counts, true);
+                    }
+                    for (int candidate : socialGraph.friends(friends[i])) {
+                        counts.increment(candidate);
+                    }
+                }
+                return new Counts(counts, false);
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(friends, from, middle, deadline);
+            left.fork();
+            Counts right = new CountTask(friends, middle, to, deadline).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private static final class TopK {
+        private final long[] heap;
+        private int size;
+
+        private TopK(int capacity) {
+            this.heap = new long[Math.max(0, capacity)];
+        }
+
+        private void offer(long value) {
+            if (size < heap.length) {
+                heap[size] = value;
+                siftUp(size++);
+            } else if (size > 0 && value > heap[0]) {
+                heap[0] = value;
+                siftDown(0);
+            }
+        }
+
+        private long[] sortedDescending() {
+            long[] sorted = Arrays.copyOf(heap, size);
+            Arrays.sort(sorted);
+            for (int i = 0, j = sorted.length - 1; i < j; i++, j--) {
+                long swap = sorted[i];
+                sorted[i] = sorted[j];
+                sorted[j] = swap;
+            }
+            return sorted;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= heap[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && heap[left] < heap[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && heap[right] < heap[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            long swap = heap[i];
+            heap[i] = heap[j];
+            heap[j] = swap;
+        }
+    }
+}
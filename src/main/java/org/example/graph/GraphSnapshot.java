@@ -0,0 +1,17 @@
+package org.example.graph;
+
+/**
+ * The accepted friendships, subscriptions and blocks loaded by one (re)build of {@link SocialGraph}.
+ */
+final class GraphSnapshot {
+    final Relation friendships;
+    final Relation subscriptions;
+    final Relation blocks;
+
+    GraphSnapshot(EdgeList friendships, EdgeList subscriptions, EdgeList blocks) {
+        int vertexCount = Math.max(friendships.maxVertex(), Math.max(subscriptions.maxVertex(), blocks.maxVertex())) + 1;
+        this.friendships = friendships.toRelation(vertexCount);
+        this.subscriptions = subscriptions.toRelation(vertexCount);
+        this.blocks = blocks.toRelation(vertexCount);
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.graph;
+
+import java.util.Arrays;
+
+/**
+ * Set operations on sorted arrays of distinct ints, each a single linear merge.
+ */
+public final class IntSets {
+    public static final int[] EMPTY = new int[0];
+
+    private IntSets() {
+    }
+
+    public static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[k++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[k++] = b[j++];
+            } else {
+                result[k++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            result[k++] = a[i++];
+        }
+        while (j < b.length) {
+            result[k++] = b[j++];
+        }
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+
+    public static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[k++] = a[i++];
+                j++;
+            }
+        }
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+
+    public static int[] minus(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return a;
+        }
+        int[] result = new int[a.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length) {
+            if (j == b.length || a[i] < b[j]) {
+                result[k++] = a[i++];
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+
+    public static int[] with(int[] a, int value) {
+        int index = Arrays.binarySearch(a, value);
+        if (index >= 0) {
+            return a;
+        }
+        int insertAt = -index - 1;
+        int[] result = new int[a.length + 1];
+        System.arraycopy(a, 0, result, 0, insertAt);
+        result[insertAt] = value;
+        System.arraycopy(a, insertAt, result, insertAt + 1, a.length - insertAt);
+        return result;
+    }
+
+    public static int[] without(int[] a, int value) {
+        int index = Arrays.binarySearch(a, value);
+        if (index < 0) {
+            return a;
+        }
+        int[] result = new int[a.length - 1];
+        System.arraycopy(a, 0, result, 0, index);
+        System.arraycopy(a, index + 1, result, index, a.length - index - 1);
+        return result;
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.graph;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One directed edge type (friendship, subscription or block) with forward and reverse
+ * adjacency. The bulk of the edges lives in immutable {@link CsrAdjacency} arrays; edges
+ * written after the load are kept in a small copy-on-write overlay until the next rebuild.
+ * <p>
+ * Reads are lock-free. Writes must be serialized by the caller.
+ */
+final class Relation {
+    private final CsrAdjacency forward;
+    private final CsrAdjacency reverse;
+    private final Map<Integer, int[]> addedForward = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> addedReverse = new ConcurrentHashMap<>();
+    private final Set<Long> removed = ConcurrentHashMap.newKeySet();
+
+    Relation(int[] from, int[] to, int vertexCount) {
+        this.forward = CsrAdjacency.build(from, to, vertexCount);
+        this.reverse = CsrAdjacency.build(to, from, vertexCount);
+    }
+
+    /**
+     * @return Sorted targets of the edges leaving {@code v}
+     */
+    int[] successors(int v) {
+        return merge(v, forward.neighbors(v), addedForward.get(v), false);
+    }
+
+    /**
+     * @return Sorted sources of the edges entering {@code v}
+     */
+    int[] predecessors(int v) {
+        return merge(v, reverse.neighbors(v), addedReverse.get(v), true);
+    }
+
+    boolean contains(int u, int v) {
+        if (!removed.isEmpty() && removed.contains(key(u, v))) {
+            return false;
+        }
+        if (forward.contains(u, v)) {
+            return true;
+        }
+        int[] added = addedForward.get(u);
+        return added != null && Arrays.binarySearch(added, v) >= 0;
+    }
+
+    void add(int u, int v) {
+        removed.remove(key(u, v));
+        if (!forward.contains(u, v)) {
+            addedForward.merge(u, new int[]{v}, IntSets::union);
+            addedReverse.merge(v, new int[]{u}, IntSets::union);
+        }
+    }
+
+    void remove(int u, int v) {
+        addedForward.computeIfPresent(u, (k, targets) -> emptyToNull(IntSets.without(targets, v)));
+        addedReverse.computeIfPresent(v, (k, sources) -> emptyToNull(IntSets.without(sources, u)));
+        if (forward.contains(u, v)) {
+            removed.add(key(u, v));
+        }
+    }
+
+    long edgeCount() {
+        return forward.edgeCount();
+    }
+
+    private int[] merge(int v, int[] base, int[] added, boolean reversed) {
+        int[] neighbors = added == null ? base : IntSets.union(base, added);
+        if (removed.isEmpty()) {
+            return neighbors;
+        }
+        int[] kept = new int[neighbors.length];
+        int k = 0;
+        for (int w : neighbors) {
+            if (!removed.contains(reversed ? key(w, v) : key(v, w))) {
+                kept[k++] = w;
+            }
+        }
+        return k == kept.length ? kept : Arrays.copyOf(kept, k);
+    }
+
+    private static int[] emptyToNull(int[] values) {
+        return values.length == 0 ? null : values;
+    }
+
+    private static long key(int u, int v) {
+        return ((long) u << 32) | (v & 0xffffffffL);
+    }
+}
@@ -0,0 +1,207 @@
+package org.example.graph;
+
+import org.example.repository.BlockReactiveRepository;
+import org.example.repository.FriendshipReactiveDao;
+import org.example.repository.SubscriptionReactiveDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Optional in-process copy of the friendship, subscription and block tables, kept as
+ * primitive CSR arrays so the read-heavy endpoints can be answered from memory.
+ * <p>
+ * The graph is loaded when the application is ready and can be rebuilt online: a new
+ * snapshot is built next to the current one while readers keep using the current one,
+ * the writes made meanwhile are replayed onto it, and it is swapped in atomically.
+ * Writes made through the repositories reach the graph via {@link SocialGraphCallbacks}.
+ * <p>
+ * Until the first load completes, or when {@code friendsmanagement.graph.enabled} is false,
+ * {@link #isReady()} returns false and callers fall back to the database.
+ */
+@Component
+public class SocialGraph {
+    private static final String ACCEPTED = "accepted";
+
+    private final FriendshipReactiveDao friendshipReactiveDao;
+    private final SubscriptionReactiveDao subscriptionReactiveDao;
+    private final BlockReactiveRepository blockReactiveRepository;
+    private final boolean enabled;
+    private final Duration rebuildInterval;
+
+    private final AtomicReference<GraphSnapshot> snapshot = new AtomicReference<>();
+    private final Object writeLock = new Object();
+    // Writes made while a rebuild is loading, replayed onto the new snapshot before the swap
+    private List<Consumer<GraphSnapshot>> journal;
+    private Disposable scheduledRebuilds;
+
+    // The repositories are lazy proxies: the entity template collects the callbacks that feed this graph
+    // while it is created, and the repositories need that template
+    @Autowired
+    public SocialGraph(@Lazy FriendshipReactiveDao friendshipReactiveDao,
+                       @Lazy SubscriptionReactiveDao subscriptionReactiveDao,
+                       @Lazy BlockReactiveRepository blockReactiveRepository,
+                       @Value("${friendsmanagement.graph.enabled:false}") boolean enabled,
+                       @Value("${friendsmanagement.graph.rebuild-interval:0s}") Duration rebuildInterval) {
+        this.friendshipReactiveDao = friendshipReactiveDao;
+        this.subscriptionReactiveDao = subscriptionReactiveDao;
+        this.blockReactiveRepository = blockReactiveRepository;
+        this.enabled = enabled;
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        rebuild().subscribe();
+        if (!rebuildInterval.isZero()) {
+            scheduledRebuilds = Flux.interval(rebuildInterval, rebuildInterval)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> rebuild().onErrorResume(ex -> Mono.empty()))
+                    .subscribe();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduledRebuilds != null) {
+            scheduledRebuilds.dispose();
+        }
+    }
+
+    public boolean isReady() {
+        return snapshot.get() != null;
+    }
+
+    /**
+     * @return Sorted ids of the accepted friends of a user
+     */
+    public int[] friends(int userId) {
+        return current().friendships.successors(userId);
+    }
+
+    /**
+     * @return Sorted ids of the accepted friends two users have in common
+     */
+    public int[] commonFriends(int userId1, int userId2) {
+        GraphSnapshot graph = current();
+        return IntSets.intersect(graph.friendships.successors(userId1), graph.friendships.successors(userId2));
+    }
+
+    /**
+     * Same rule as {@code UserReactiveDao.findEligibleRecipientEmails}: the friends of the
+     * sender and the users subscribed to the sender, minus the users who blocked the sender.
+     *
+     * @return Sorted ids of the users that receive updates from the sender
+     */
+    public int[] eligibleRecipients(int senderId) {
+        GraphSnapshot graph = current();
+        int[] audience = IntSets.union(graph.friendships.successors(senderId), graph.subscriptions.predecessors(senderId));
+        int[] blockers = graph.blocks.predecessors(senderId);
+        return IntSets.without(IntSets.minus(audience, blockers), senderId);
+    }
+
+    /**
+     * @return Sorted ids of the users a user blocks or is blocked by
+     */
+    public int[] blockPartners(int userId) {
+        GraphSnapshot graph = current();
+        return IntSets.union(graph.blocks.successors(userId), graph.blocks.predecessors(userId));
+    }
+
+    public void addFriendship(int userId, int friendId) {
+        write(graph -> graph.friendships.add(userId, friendId));
+    }
+
+    public void addSubscription(int subscriberId, int targetId) {
+        write(graph -> graph.subscriptions.add(subscriberId, targetId));
+    }
+
+    public void removeSubscription(int subscriberId, int targetId) {
+        write(graph -> graph.subscriptions.remove(subscriberId, targetId));
+    }
+
+    public void addBlock(int blockerId, int blockedId) {
+        write(graph -> graph.blocks.add(blockerId, blockedId));
+    }
+
+    /**
+     * Reloads the three tables into a new snapshot and swaps it in. Readers are never
+     * blocked; a rebuild requested while another one is running completes immediately.
+     *
+     * @return Completes once the new snapshot is in place
+     */
+    public Mono<Void> rebuild() {
+        return Mono.defer(() -> {
+            synchronized (writeLock) {
+                if (journal != null) {
+                    return Mono.empty();
+                }
+                journal = new ArrayList<>();
+            }
+            return load()
+                    .doOnNext(fresh -> {
+                        synchronized (writeLock) {
+                            journal.forEach(change -> change.accept(fresh));
+                            journal = null;
+                            snapshot.set(fresh);
+                        }
+                    })
+                    .doOnError(ex -> {
+                        synchronized (writeLock) {
+                            journal = null;
+                        }
+                    })
+                    .then();
+        });
+    }
+
+    private Mono<GraphSnapshot> load() {
+        Mono<EdgeList> friendships = friendshipReactiveDao.findByStatus(ACCEPTED)
+                .collect(EdgeList::new, (edges, friendship) -> edges.add(friendship.getUserId(), friendship.getFriendId()));
+        Mono<EdgeList> subscriptions = subscriptionReactiveDao.findAll()
+                .collect(EdgeList::new, (edges, subscription) -> edges.add(subscription.getSubscriberId(), subscription.getTargetId()));
+        Mono<EdgeList> blocks = blockReactiveRepository.findAll()
+                .collect(EdgeList::new, (edges, block) -> edges.add(block.getBlockerId(), block.getBlockedId()));
+        return Mono.zip(friendships, subscriptions, blocks)
+                // Building the CSR arrays is CPU work, keep it off the I/O threads
+                .publishOn(Schedulers.parallel())
+                .map(edges -> new GraphSnapshot(edges.getT1(), edges.getT2(), edges.getT3()));
+    }
+
+    private void write(Consumer<GraphSnapshot> change) {
+        synchronized (writeLock) {
+            GraphSnapshot graph = snapshot.get();
+            if (graph != null) {
+                change.accept(graph);
+            }
+            if (journal != null) {
+                journal.add(change);
+            }
+        }
+    }
+
+    private GraphSnapshot current() {
+        GraphSnapshot graph = snapshot.get();
+        if (graph == null) {
+            throw new IllegalStateException("The social graph is not loaded");
+        }
+        return graph;
+    }
+}
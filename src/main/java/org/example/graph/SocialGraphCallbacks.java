@@ -0,0 +1,56 @@
+package org.example.graph;
+
+import org.example.model.friends.Block;
+import org.example.model.friends.Friendship;
+import org.example.model.friends.Subscription;
+import org.reactivestreams.Publisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import reactor.core.publisher.Mono;
+
+/**
+ * Forwards the rows saved through the friendship, subscription and block repositories
+ * to the {@link SocialGraph}.
+ */
+@Configuration
+public class SocialGraphCallbacks {
+    private static final String ACCEPTED = "accepted";
+
+    @Bean
+    public AfterSaveCallback<Friendship> friendshipGraphCallback(SocialGraph socialGraph) {
+        return new AfterSaveCallback<Friendship>() {
+            @Override
+            public Publisher<Friendship> onAfterSave(Friendship entity, OutboundRow outboundRow, SqlIdentifier table) {
+                if (ACCEPTED.equals(entity.getStatus())) {
+                    socialGraph.addFriendship(entity.getUserId(), entity.getFriendId());
+                }
+                return Mono.just(entity);
+            }
+        };
+    }
+
+    @Bean
+    public AfterSaveCallback<Subscription> subscriptionGraphCallback(SocialGraph socialGraph) {
+        return new AfterSaveCallback<Subscription>() {
+            @Override
+            public Publisher<Subscription> onAfterSave(Subscription entity, OutboundRow outboundRow, SqlIdentifier table) {
+                socialGraph.addSubscription(entity.getSubscriberId(), entity.getTargetId());
+                return Mono.just(entity);
+            }
+        };
+    }
+
+    @Bean
+    public AfterSaveCallback<Block> blockGraphCallback(SocialGraph socialGraph) {
+        return new AfterSaveCallback<Block>() {
+            @Override
+            public Publisher<Block> onAfterSave(Block entity, OutboundRow outboundRow, SqlIdentifier table) {
+                socialGraph.addBlock(entity.getBlockerId(), entity.getBlockedId());
+                return Mono.just(entity);
+            }
+        };
+    }
+}
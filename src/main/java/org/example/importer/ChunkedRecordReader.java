@@ -0,0 +1,143 @@
+package org.example.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the records of an import file through a {@link FileChannel} one chunk at a time.
+ * Lines are found and parsed inside the chunk buffer, a line cut by the end of a chunk is
+ * moved to the front of the buffer before the next read. Lines longer than a chunk are rejected.
+ * Not thread-safe.
+ */
+final class ChunkedRecordReader implements Closeable {
+    private final FileChannel channel;
+    private final RecordParser parser;
+    // Read mode, the unparsed bytes are [position, limit)
+    private final ByteBuffer buffer;
+    // File offset of the byte at the buffer position
+    private long offset;
+    private boolean endOfFile;
+
+    /**
+     * @param startOffset Offset of the first line to read, the end offset of a previous batch when resuming
+     */
+    ChunkedRecordReader(Path file, long startOffset, int chunkSize, RecordParser parser) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.parser = parser;
+        this.buffer = ByteBuffer.allocate(chunkSize);
+        this.buffer.flip();
+        this.offset = startOffset;
+        channel.position(startOffset);
+    }
+
+    /**
+     * @param maxRecords Maximum number of records in the batch
+     * @return The next records, or null at the end of the file
+     */
+    RecordBatch next(int maxRecords) throws IOException {
+        long startOffset = offset;
+        List<ImportRecord> records = new ArrayList<>(maxRecords);
+        int invalid = 0;
+        while (records.size() < maxRecords) {
+            int lineEnd = indexOfNewline();
+            int consumed;
+            if (lineEnd >= 0) {
+                consumed = lineEnd + 1 - buffer.position();
+            } else if (!endOfFile && fill()) {
+                continue;
+            } else if (buffer.hasRemaining()) {
+                // Last line without a terminator
+                lineEnd = buffer.limit();
+                consumed = lineEnd - buffer.position();
+            } else {
+                break;
+            }
+            ImportRecord record = parser.parse(buffer.array(), buffer.position(), lineEnd);
+            if (record == null) {
+                invalid++;
+            } else if (record != ImportRecord.SKIPPED) {
+                records.add(record);
+            }
+            buffer.position(buffer.position() + consumed);
+            offset += consumed;
+        }
+        if (offset == startOffset) {
+            return null;
+        }
+        return new RecordBatch(records, invalid, startOffset, offset);
+    }
+
+    private int indexOfNewline() {
+        byte[] bytes = buffer.array();
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the unparsed bytes to the front of the buffer and reads more after them.
+     *
+     * @return False at the end of the file
+     */
+    private boolean fill() throws IOException {
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            buffer.flip();
+            throw new IOException("Line at offset " + offset + " is longer than the chunk size of " + buffer.capacity() + " bytes");
+        }
+        int read = channel.read(buffer);
+        buffer.flip();
+        if (read < 0) {
+            endOfFile = true;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Records of consecutive lines, {@code endOffset} is where the next batch starts.
+     */
+    static final class RecordBatch {
+        private final List<ImportRecord> records;
+        private final int invalid;
+        private final long startOffset;
+        private final long endOffset;
+
+        RecordBatch(List<ImportRecord> records, int invalid, long startOffset, long endOffset) {
+            this.records = records;
+            this.invalid = invalid;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+        }
+
+        List<ImportRecord> getRecords() {
+            return records;
+        }
+
+        int getInvalid() {
+            return invalid;
+        }
+
+        long getStartOffset() {
+            return startOffset;
+        }
+
+        long getEndOffset() {
+            return endOffset;
+        }
+    }
+}
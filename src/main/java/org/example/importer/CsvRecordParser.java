@@ -0,0 +1,61 @@
+package org.example.importer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@code type,email1,email2} lines, where type is {@code subscribe} or {@code block}. Fields may
+ * be surrounded by spaces or double quotes, a first line starting with {@code type} is a header.
+ */
+final class CsvRecordParser implements RecordParser {
+    private static final byte[] HEADER = "type".getBytes(StandardCharsets.US_ASCII);
+
+    // Start and end of the three fields of the current line
+    private final int[] starts = new int[3];
+    private final int[] ends = new int[3];
+
+    @Override
+    public ImportRecord parse(byte[] line, int from, int to) {
+        if (RecordParser.isBlank(line, from, to)) {
+            return ImportRecord.SKIPPED;
+        }
+        int field = 0;
+        int start = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || line[i] == ',') {
+                if (field == 3) {
+                    return null;
+                }
+                trim(line, start, i, field++);
+                start = i + 1;
+            }
+        }
+        if (field != 3) {
+            return null;
+        }
+        if (RecordParser.matches(line, starts[0], ends[0], HEADER)) {
+            return ImportRecord.SKIPPED;
+        }
+        ImportRecord.Kind kind = RecordParser.kind(line, starts[0], ends[0]);
+        if (kind == null || starts[1] == ends[1] || starts[2] == ends[2]) {
+            return null;
+        }
+        return new ImportRecord(kind,
+                new String(line, starts[1], ends[1] - starts[1], StandardCharsets.UTF_8),
+                new String(line, starts[2], ends[2] - starts[2], StandardCharsets.UTF_8));
+    }
+
+    private void trim(byte[] line, int start, int end, int field) {
+        while (start < end && RecordParser.isWhitespace(line[start])) {
+            start++;
+        }
+        while (end > start && RecordParser.isWhitespace(line[end - 1])) {
+            end--;
+        }
+        if (end - start >= 2 && line[start] == '"' && line[end - 1] == '"') {
+            start++;
+            end--;
+        }
+        starts[field] = start;
+        ends[field] = end;
+    }
+}
@@ -0,0 +1,185 @@
+package org.example.importer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.repository.RelationBulkDao;
+import org.example.repository.UserBatchLoader;
+import org.example.repository.UserPairs;
+import org.example.repository.UserReactiveDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports subscriptions and blocks from a local CSV or NDJSON file, see {@link RecordParser}.
+ * <p>
+ * The file is read by a {@link ChunkedRecordReader} on a bounded elastic thread, one batch of
+ * records at a time, and the next batch is only read once the previous one is written. For each
+ * batch the emails are resolved with chunked {@code IN (...)} queries, pairs already stored are
+ * filtered out with set queries and the rest is inserted with multi-row statements. After each
+ * batch the end offset is written to a {@code .checkpoint} file next to the import file, and a
+ * later run of the same file resumes from there. Records of a batch that was written but not
+ * checkpointed are found again as duplicates, never inserted twice.
+ * <p>
+ * Blocks are inserted as they are; unlike {@code /v1/user/block} an import does not remove the
+ * subscriptions of the blocked pair.
+ */
+@Component
+public class GraphImporter {
+    static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    private final UserReactiveDao userReactiveDao;
+    private final RelationBulkDao relationBulkDao;
+    private final int batchSize;
+    private final int chunkSize;
+
+    private final Counter subscriptions;
+    private final Counter blocks;
+    private final Counter duplicates;
+    private final Counter notFound;
+    private final Counter invalid;
+    private final Counter bytes;
+
+    @Autowired
+    public GraphImporter(UserReactiveDao userReactiveDao,
+                         RelationBulkDao relationBulkDao,
+                         MeterRegistry meterRegistry,
+                         @Value("${friendsmanagement.import.batch-size:1000}") int batchSize,
+                         @Value("${friendsmanagement.import.chunk-size:1MB}") DataSize chunkSize) {
+        this.userReactiveDao = userReactiveDao;
+        this.relationBulkDao = relationBulkDao;
+        this.batchSize = batchSize;
+        this.chunkSize = (int) chunkSize.toBytes();
+        this.subscriptions = Counter.builder("import.records").tag("outcome", "subscription").register(meterRegistry);
+        this.blocks = Counter.builder("import.records").tag("outcome", "block").register(meterRegistry);
+        this.duplicates = Counter.builder("import.records").tag("outcome", "duplicate").register(meterRegistry);
+        this.notFound = Counter.builder("import.records").tag("outcome", "not_found").register(meterRegistry);
+        this.invalid = Counter.builder("import.records").tag("outcome", "invalid").register(meterRegistry);
+        this.bytes = Counter.builder("import.bytes").register(meterRegistry);
+    }
+
+    /**
+     * @param file CSV or NDJSON file, resumed from its checkpoint when there is one
+     * @return The counts of this run, completing once the whole file is imported
+     */
+    public Mono<ImportReport> importFile(Path file) {
+        Path checkpoint = checkpointOf(file);
+        return Mono.fromCallable(() -> readCheckpoint(checkpoint))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(startOffset -> Flux.using(
+                                () -> new ChunkedRecordReader(file, startOffset, chunkSize, RecordParser.of(file)),
+                                reader -> Flux.<ChunkedRecordReader.RecordBatch>generate(sink -> {
+                                    try {
+                                        ChunkedRecordReader.RecordBatch batch = reader.next(batchSize);
+                                        if (batch == null) {
+                                            sink.complete();
+                                        } else {
+                                            sink.next(batch);
+                                        }
+                                    } catch (IOException ex) {
+                                        sink.error(ex);
+                                    }
+                                }),
+                                this::closeQuietly)
+                        .subscribeOn(Schedulers.boundedElastic())
+                        // One batch in memory besides the one being written
+                        .concatMap(batch -> write(batch)
+                                .flatMap(report -> Mono.fromCallable(() -> writeCheckpoint(checkpoint, batch.getEndOffset()))
+                                        .subscribeOn(Schedulers.boundedElastic())
+                                        .thenReturn(report)), 1)
+                        .reduce(ImportReport.empty(startOffset), ImportReport::add));
+    }
+
+    static Path checkpointOf(Path file) {
+        return file.resolveSibling(file.getFileName() + CHECKPOINT_SUFFIX);
+    }
+
+    private Mono<ImportReport> write(ChunkedRecordReader.RecordBatch batch) {
+        Set<String> emails = new HashSet<>();
+        for (ImportRecord record : batch.getRecords()) {
+            emails.add(record.getEmail1());
+            emails.add(record.getEmail2());
+        }
+        return userReactiveDao.findUserIdsByEmails(emails)
+                .flatMap(userIds -> {
+                    Set<Long> subscriptionPairs = new LinkedHashSet<>();
+                    Set<Long> blockPairs = new LinkedHashSet<>();
+                    int unknown = 0;
+                    int repeated = 0;
+                    for (ImportRecord record : batch.getRecords()) {
+                        Long pair = pairOf(userIds, record);
+                        if (pair == null) {
+                            unknown++;
+                        } else if (!(record.getKind() == ImportRecord.Kind.SUBSCRIBE ? subscriptionPairs : blockPairs).add(pair)) {
+                            repeated++;
+                        }
+                    }
+                    int unknownRecords = unknown;
+                    int repeatedRecords = repeated;
+                    return Mono.zip(relationBulkDao.findExistingSubscriptions(subscriptionPairs), relationBulkDao.findExistingBlocks(blockPairs))
+                            .flatMap(existing -> {
+                                subscriptionPairs.removeAll(existing.getT1());
+                                blockPairs.removeAll(existing.getT2());
+                                int stored = existing.getT1().size() + existing.getT2().size();
+                                return relationBulkDao.insertSubscriptions(subscriptionPairs)
+                                        .flatMap(insertedSubscriptions -> relationBulkDao.insertBlocks(blockPairs)
+                                                .map(insertedBlocks -> new ImportReport(batch.getStartOffset(), batch.getEndOffset(),
+                                                        insertedSubscriptions, insertedBlocks, repeatedRecords + stored,
+                                                        unknownRecords, batch.getInvalid())));
+                            });
+                })
+                .doOnNext(this::record);
+    }
+
+    private static Long pairOf(Map<String, Integer> userIds, ImportRecord record) {
+        Integer userId1 = userIds.get(UserBatchLoader.normalize(record.getEmail1()));
+        Integer userId2 = userIds.get(UserBatchLoader.normalize(record.getEmail2()));
+        return userId1 == null || userId2 == null ? null : UserPairs.pair(userId1, userId2);
+    }
+
+    private void record(ImportReport report) {
+        subscriptions.increment(report.getSubscriptions());
+        blocks.increment(report.getBlocks());
+        duplicates.increment(report.getDuplicates());
+        notFound.increment(report.getNotFound());
+        invalid.increment(report.getInvalid());
+        bytes.increment(report.getEndOffset() - report.getStartOffset());
+    }
+
+    private static long readCheckpoint(Path checkpoint) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0L;
+        }
+        return Long.parseLong(new String(Files.readAllBytes(checkpoint), StandardCharsets.US_ASCII).trim());
+    }
+
+    private static long writeCheckpoint(Path checkpoint, long offset) throws IOException {
+        // Replaced atomically, so a crash leaves either the previous or the new offset
+        Path written = Files.write(checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp"),
+                Long.toString(offset).getBytes(StandardCharsets.US_ASCII));
+        Files.move(written, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return offset;
+    }
+
+    private void closeQuietly(ChunkedRecordReader reader) {
+        try {
+            reader.close();
+        } catch (IOException ex) {
+            // Nothing left to read, the import result stands
+        }
+    }
+}
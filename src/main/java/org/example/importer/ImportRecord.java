@@ -0,0 +1,39 @@
+package org.example.importer;
+
+/**
+ * One parsed line of an import file: {@code email1} subscribes to or blocks {@code email2},
+ * as in the {@code /v1/user/subscribe} and {@code /v1/user/block} requests.
+ */
+final class ImportRecord {
+    /**
+     * Returned by a {@link RecordParser} for blank lines and headers, which are neither records nor invalid.
+     */
+    static final ImportRecord SKIPPED = new ImportRecord(null, null, null);
+
+    enum Kind {
+        SUBSCRIBE,
+        BLOCK
+    }
+
+    private final Kind kind;
+    private final String email1;
+    private final String email2;
+
+    ImportRecord(Kind kind, String email1, String email2) {
+        this.kind = kind;
+        this.email1 = email1;
+        this.email2 = email2;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    String getEmail1() {
+        return email1;
+    }
+
+    String getEmail2() {
+        return email2;
+    }
+}
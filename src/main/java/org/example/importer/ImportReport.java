@@ -0,0 +1,88 @@
+package org.example.importer;
+
+/**
+ * Counts of an import run, or of one batch of it.
+ */
+public final class ImportReport {
+    private final long startOffset;
+    private final long endOffset;
+    private final int subscriptions;
+    private final int blocks;
+    private final int duplicates;
+    private final int notFound;
+    private final int invalid;
+
+    ImportReport(long startOffset, long endOffset, int subscriptions, int blocks, int duplicates, int notFound, int invalid) {
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.subscriptions = subscriptions;
+        this.blocks = blocks;
+        this.duplicates = duplicates;
+        this.notFound = notFound;
+        this.invalid = invalid;
+    }
+
+    static ImportReport empty(long offset) {
+        return new ImportReport(offset, offset, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * @param next The report of the batch following this one
+     */
+    ImportReport add(ImportReport next) {
+        return new ImportReport(startOffset, next.endOffset, subscriptions + next.subscriptions, blocks + next.blocks,
+                duplicates + next.duplicates, notFound + next.notFound, invalid + next.invalid);
+    }
+
+    /**
+     * @return The file offset the run started from, greater than 0 when it resumed a checkpoint
+     */
+    public long getStartOffset() {
+        return startOffset;
+    }
+
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    /**
+     * @return The number of subscriptions inserted
+     */
+    public int getSubscriptions() {
+        return subscriptions;
+    }
+
+    /**
+     * @return The number of blocks inserted
+     */
+    public int getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return The number of records already in the database or repeated in the file
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return The number of records naming an unknown email
+     */
+    public int getNotFound() {
+        return notFound;
+    }
+
+    /**
+     * @return The number of lines that could not be parsed
+     */
+    public int getInvalid() {
+        return invalid;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportReport{bytes " + startOffset + ".." + endOffset + ", subscriptions=" + subscriptions + ", blocks=" + blocks
+                + ", duplicates=" + duplicates + ", notFound=" + notFound + ", invalid=" + invalid + "}";
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.importer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Paths;
+
+/**
+ * Starts the {@link GraphImporter} on {@code friendsmanagement.import.file} once the application
+ * is ready, while the endpoints keep serving. Restarting with the same file resumes the import.
+ */
+@Component
+public class ImportRunner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImportRunner.class);
+
+    private final GraphImporter graphImporter;
+    private final String file;
+
+    @Autowired
+    public ImportRunner(GraphImporter graphImporter,
+                        @Value("${friendsmanagement.import.file:}") String file) {
+        this.graphImporter = graphImporter;
+        this.file = file;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (file.isEmpty()) {
+            return;
+        }
+        graphImporter.importFile(Paths.get(file))
+                .subscribe(report -> LOGGER.info("Imported {}: {}", file, report),
+                        ex -> LOGGER.error("Import of {} stopped, restart to resume from the last checkpoint", file, ex));
+    }
+}
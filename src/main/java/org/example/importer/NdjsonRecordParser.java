@@ -0,0 +1,165 @@
+package org.example.importer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One flat JSON object per line: {@code {"type":"subscribe","email1":"...","email2":"..."}},
+ * with the field names of the subscribe and block requests. Other fields are ignored, nested
+ * objects and arrays make the line invalid.
+ */
+final class NdjsonRecordParser implements RecordParser {
+    private static final byte[] TYPE = "type".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMAIL1 = "email1".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMAIL2 = "email2".getBytes(StandardCharsets.US_ASCII);
+
+    // Cursor over the current line
+    private byte[] line;
+    private int pos;
+    private int to;
+    // Bounds of the last string read, and whether it contains escapes
+    private int stringStart;
+    private int stringEnd;
+    private boolean escaped;
+
+    @Override
+    public ImportRecord parse(byte[] line, int from, int to) {
+        if (RecordParser.isBlank(line, from, to)) {
+            return ImportRecord.SKIPPED;
+        }
+        this.line = line;
+        this.pos = from;
+        this.to = to;
+        skipWhitespace();
+        if (!consume('{')) {
+            return null;
+        }
+        ImportRecord.Kind kind = null;
+        String email1 = null;
+        String email2 = null;
+        skipWhitespace();
+        while (!consume('}')) {
+            if (!readString()) {
+                return null;
+            }
+            int keyStart = stringStart;
+            int keyEnd = stringEnd;
+            skipWhitespace();
+            if (!consume(':')) {
+                return null;
+            }
+            skipWhitespace();
+            if (pos < to && line[pos] == '"') {
+                if (!readString()) {
+                    return null;
+                }
+                if (RecordParser.matches(line, keyStart, keyEnd, TYPE)) {
+                    kind = RecordParser.kind(line, stringStart, stringEnd);
+                } else if (RecordParser.matches(line, keyStart, keyEnd, EMAIL1)) {
+                    email1 = decode();
+                } else if (RecordParser.matches(line, keyStart, keyEnd, EMAIL2)) {
+                    email2 = decode();
+                }
+            } else if (!skipScalar()) {
+                return null;
+            }
+            skipWhitespace();
+            if (consume(',')) {
+                skipWhitespace();
+            } else if (pos >= to || line[pos] != '}') {
+                return null;
+            }
+        }
+        skipWhitespace();
+        if (pos != to || kind == null || email1 == null || email2 == null || email1.isEmpty() || email2.isEmpty()) {
+            return null;
+        }
+        return new ImportRecord(kind, email1, email2);
+    }
+
+    private boolean readString() {
+        if (!consume('"')) {
+            return false;
+        }
+        stringStart = pos;
+        escaped = false;
+        while (pos < to) {
+            byte b = line[pos];
+            if (b == '\\') {
+                escaped = true;
+                pos += 2;
+            } else if (b == '"') {
+                stringEnd = pos++;
+                return true;
+            } else {
+                pos++;
+            }
+        }
+        return false;
+    }
+
+    private boolean skipScalar() {
+        int start = pos;
+        while (pos < to && line[pos] != ',' && line[pos] != '}') {
+            if (line[pos] == '{' || line[pos] == '[' || line[pos] == '"') {
+                return false;
+            }
+            pos++;
+        }
+        return pos > start;
+    }
+
+    private String decode() {
+        if (!escaped) {
+            return new String(line, stringStart, stringEnd - stringStart, StandardCharsets.UTF_8);
+        }
+        // Rare in emails, unescaped through a builder
+        String raw = new String(line, stringStart, stringEnd - stringStart, StandardCharsets.UTF_8);
+        StringBuilder decoded = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c != '\\' || i + 1 >= raw.length()) {
+                decoded.append(c);
+                continue;
+            }
+            char next = raw.charAt(++i);
+            switch (next) {
+                case 'u':
+                    int code = 0;
+                    for (int j = 1; j <= 4 && code >= 0; j++) {
+                        int digit = i + j < raw.length() ? Character.digit(raw.charAt(i + j), 16) : -1;
+                        code = digit < 0 ? -1 : code << 4 | digit;
+                    }
+                    if (code >= 0) {
+                        decoded.append((char) code);
+                        i += 4;
+                    } else {
+                        decoded.append('\\').append(next);
+                    }
+                    break;
+                case 'n':
+                    decoded.append('\n');
+                    break;
+                case 't':
+                    decoded.append('\t');
+                    break;
+                default:
+                    decoded.append(next);
+            }
+        }
+        return decoded.toString();
+    }
+
+    private boolean consume(char expected) {
+        if (pos < to && line[pos] == expected) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (pos < to && RecordParser.isWhitespace(line[pos])) {
+            pos++;
+        }
+    }
+}
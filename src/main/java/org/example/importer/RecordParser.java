@@ -0,0 +1,78 @@
+package org.example.importer;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Parses one line of an import file in place, only the emails are decoded into Strings.
+ */
+interface RecordParser {
+    byte[] SUBSCRIBE = "subscribe".getBytes(StandardCharsets.US_ASCII);
+    byte[] SUBSCRIPTION = "subscription".getBytes(StandardCharsets.US_ASCII);
+    byte[] BLOCK = "block".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * @param line Bytes of the line, without the line terminator
+     * @param from Index of the first byte of the line
+     * @param to   Index after the last byte of the line
+     * @return The record, {@link ImportRecord#SKIPPED} for a blank line or header, null when the line is invalid
+     */
+    ImportRecord parse(byte[] line, int from, int to);
+
+    /**
+     * @return The parser matching the file extension: {@code .csv}, or {@code .ndjson} and {@code .jsonl}
+     */
+    static RecordParser of(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return new CsvRecordParser();
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return new NdjsonRecordParser();
+        }
+        throw new IllegalArgumentException("Unsupported import file " + file + ", expected .csv, .ndjson or .jsonl");
+    }
+
+    /**
+     * @return The kind named by the bytes, case-insensitively, or null
+     */
+    static ImportRecord.Kind kind(byte[] bytes, int from, int to) {
+        if (matches(bytes, from, to, SUBSCRIBE) || matches(bytes, from, to, SUBSCRIPTION)) {
+            return ImportRecord.Kind.SUBSCRIBE;
+        }
+        if (matches(bytes, from, to, BLOCK)) {
+            return ImportRecord.Kind.BLOCK;
+        }
+        return null;
+    }
+
+    static boolean matches(byte[] bytes, int from, int to, byte[] lowerCase) {
+        if (to - from != lowerCase.length) {
+            return false;
+        }
+        for (int i = 0; i < lowerCase.length; i++) {
+            byte b = bytes[from + i];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != lowerCase[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isBlank(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!isWhitespace(bytes[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.repository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces single-key lookups issued by concurrent requests into batched queries.
+ * <p>
+ * The first key of a batch opens a window of {@code window}; every key requested while
+ * the window is open joins the batch, and a key requested twice shares one result.
+ * When the window closes, or the batch reaches {@code maxBatchSize} keys, the batch
+ * function runs once for all keys and each subscriber receives the value for its key,
+ * or completes empty when the key was not found.
+ *
+ * @param <K> Type of the lookup key
+ * @param <V> Type of the loaded value
+ */
+public class BatchLoader<K, V> {
+    private final Function<Collection<K>, Flux<V>> batchFunction;
+    private final Function<V, K> keyExtractor;
+    private final Duration window;
+    private final int maxBatchSize;
+    private final Scheduler scheduler;
+    private final DistributionSummary batchSize;
+    private final Timer waitTime;
+
+    private final Object lock = new Object();
+    private Batch<K, V> current = new Batch<>();
+
+    /**
+     * @param name          Value of the {@code loader} tag on the metrics
+     * @param batchFunction Loads all values for a batch of keys in one query
+     * @param keyExtractor  Maps a loaded value back to its key
+     * @param window        How long a batch collects keys, {@link Duration#ZERO} disables coalescing
+     * @param maxBatchSize  Batch size that dispatches a batch before its window closes
+     * @param scheduler     Scheduler that closes the windows
+     * @param meterRegistry Registry for the batch size and wait time metrics
+     */
+    public BatchLoader(String name, Function<Collection<K>, Flux<V>> batchFunction, Function<V, K> keyExtractor,
+                       Duration window, int maxBatchSize, Scheduler scheduler, MeterRegistry meterRegistry) {
+        this.batchFunction = batchFunction;
+        this.keyExtractor = keyExtractor;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = scheduler;
+        this.batchSize = DistributionSummary.builder("user.loader.batch.size")
+                .description("Distinct keys per batched query")
+                .tag("loader", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.waitTime = Timer.builder("user.loader.wait")
+                .description("Time a key waits for its batch to be dispatched")
+                .tag("loader", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the value of a key as part of the next batch.
+     *
+     * @param key Key to look up
+     * @return The value, or an empty Mono when the batch function did not return it
+     */
+    public Mono<V> load(K key) {
+        return Mono.defer(() -> {
+            Pending<V> pending;
+            Batch<K, V> full = null;
+            boolean opened;
+            synchronized (lock) {
+                Batch<K, V> batch = current;
+                opened = batch.entries.isEmpty();
+                pending = batch.entries.computeIfAbsent(key, k -> new Pending<>(System.nanoTime()));
+                if (window.isZero() || batch.entries.size() >= maxBatchSize) {
+                    current = new Batch<>();
+                    full = batch;
+                } else if (opened) {
+                    Batch<K, V> scheduled = batch;
+                    scheduler.schedule(() -> closeWindow(scheduled), window.toNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
+            if (full != null) {
+                dispatch(full);
+            }
+            return pending.sink.asMono();
+        });
+    }
+
+    private void closeWindow(Batch<K, V> batch) {
+        synchronized (lock) {
+            if (current != batch) {
+                // Already dispatched because it filled up
+                return;
+            }
+            current = new Batch<>();
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(Batch<K, V> batch) {
+        long dispatchedAt = System.nanoTime();
+        batchSize.record(batch.entries.size());
+        batch.entries.values().forEach(pending -> waitTime.record(dispatchedAt - pending.enqueuedAt, TimeUnit.NANOSECONDS));
+
+        batchFunction.apply(batch.entries.keySet())
+                .subscribe(
+                        value -> {
+                            Pending<V> pending = batch.entries.get(keyExtractor.apply(value));
+                            if (pending != null) {
+                                pending.sink.tryEmitValue(value);
+                            }
+                        },
+                        error -> batch.entries.values().forEach(pending -> pending.sink.tryEmitError(error)),
+                        // Keys without a row complete empty, values already emitted ignore this
+                        () -> batch.entries.values().forEach(pending -> pending.sink.tryEmitEmpty())
+                );
+    }
+
+    private static class Batch<K, V> {
+        private final Map<K, Pending<V>> entries = new LinkedHashMap<>();
+    }
+
+    private static class Pending<V> {
+        private final Sinks.One<V> sink = Sinks.one();
+        private final long enqueuedAt;
+
+        private Pending(long enqueuedAt) {
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
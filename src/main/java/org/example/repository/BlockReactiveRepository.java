@@ -1,10 +1,43 @@
 package org.example.repository;
 
 import org.example.model.friends.Block;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 public interface BlockReactiveRepository extends R2dbcRepository<Block, Integer> {
     Mono<Block> findByBlockerIdAndBlockedId(Integer blockerId, Integer blockedId);
     Mono<Block> findByBlockerId(Integer blockerId);
+
+    /**
+     * @param userId Id of the user
+     * @return The ids of the users the user blocks or is blocked by
+     */
+    @Query("SELECT CASE WHEN b.blocker_id = :userId THEN b.blocked_id ELSE b.blocker_id END FROM block b "
+            + "WHERE b.blocker_id = :userId OR b.blocked_id = :userId")
+    Flux<Integer> findBlockPartnerIds(@Param("userId") Integer userId);
+
+    /**
+     * Checks a pair in both directions with one statement.
+     *
+     * @param userId1 Id of the first user
+     * @param userId2 Id of the second user
+     * @return A row when either user blocks the other one, empty otherwise
+     */
+    @Query("SELECT 1 FROM block b "
+            + "WHERE (b.blocker_id = :userId1 AND b.blocked_id = :userId2) OR (b.blocker_id = :userId2 AND b.blocked_id = :userId1) "
+            + "LIMIT 1")
+    Mono<Integer> findBlockEitherWay(@Param("userId1") Integer userId1, @Param("userId2") Integer userId2);
+
+    /**
+     * @param blockedId  Id of the blocked user
+     * @param blockerIds Ids of the candidate blockers
+     * @return The candidates that block the user
+     */
+    @Query("SELECT b.blocker_id FROM block b WHERE b.blocked_id = :blockedId AND b.blocker_id IN (:blockerIds)")
+    Flux<Integer> findBlockerIds(@Param("blockedId") Integer blockedId, @Param("blockerIds") Collection<Integer> blockerIds);
 }
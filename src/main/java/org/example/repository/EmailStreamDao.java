@@ -0,0 +1,54 @@
+package org.example.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+/**
+ * Streaming variants of the email list queries. Rows are fetched from the driver
+ * {@code fetchSize} at a time and requested with the same bound, so a slow client
+ * slows the query down instead of having the whole list buffered on the heap.
+ */
+@Repository
+public class EmailStreamDao {
+    private final DatabaseClient databaseClient;
+    private final int fetchSize;
+
+    @Autowired
+    public EmailStreamDao(DatabaseClient databaseClient,
+                          @Value("${friendsmanagement.streaming.fetch-size:256}") int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @see FriendshipReactiveDao#findFriendEmailsByEmailAndStatus
+     */
+    public Flux<String> streamFriendEmails(String email, String status) {
+        return stream(databaseClient.sql(FriendshipReactiveDao.FRIEND_EMAILS_BY_EMAIL_SQL)
+                .bind("email", email)
+                .bind("status", status));
+    }
+
+    /**
+     * @see UserReactiveDao#findEligibleRecipientEmails
+     */
+    public Flux<String> streamEligibleRecipientEmails(Integer senderId, String status) {
+        return stream(databaseClient.sql(UserReactiveDao.ELIGIBLE_RECIPIENT_EMAILS_SQL)
+                .bind("senderId", senderId)
+                .bind("status", status));
+    }
+
+    private Flux<String> stream(DatabaseClient.GenericExecuteSpec spec) {
+        return spec.filter(statement -> {
+                    // Keep the statement passed in, wrappers such as connection proxies may not return themselves
+                    statement.fetchSize(fetchSize);
+                    return statement;
+                })
+                .map(row -> row.get(0, String.class))
+                .all()
+                .limitRate(fetchSize);
+    }
+}
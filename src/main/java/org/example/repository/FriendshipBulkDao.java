@@ -0,0 +1,78 @@
+package org.example.repository;
+
+import org.example.model.friends.Friendship;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mapping.callback.ReactiveEntityCallbacks;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Set;
+
+import static org.example.repository.UserPairs.first;
+import static org.example.repository.UserPairs.second;
+
+/**
+ * Set-based reads and multi-row inserts of friendships for the bulk connect endpoint, and the
+ * single-statement insert of the connect endpoint, see {@link PairStatements}. Pairs are
+ * (user, friend) {@link UserPairs}.
+ */
+@Repository
+public class FriendshipBulkDao {
+    private final PairStatements statements;
+
+    @Autowired
+    public FriendshipBulkDao(DatabaseClient databaseClient,
+                             ReactiveTransactionManager transactionManager,
+                             BeanFactory beanFactory,
+                             @Value("${friendsmanagement.bulk.batch-size:500}") int batchSize) {
+        this(databaseClient, TransactionalOperator.create(transactionManager), ReactiveEntityCallbacks.create(beanFactory), batchSize);
+    }
+
+    FriendshipBulkDao(DatabaseClient databaseClient,
+                      TransactionalOperator transactionalOperator,
+                      ReactiveEntityCallbacks entityCallbacks,
+                      int batchSize) {
+        this.statements = new PairStatements(databaseClient, transactionalOperator, entityCallbacks, batchSize);
+    }
+
+    /**
+     * @param pairs (user, friend) pairs
+     * @return The pairs that already have a friendship row, whatever its status
+     */
+    public Mono<Set<Long>> findExistingFriendships(Collection<Long> pairs) {
+        return statements.findExisting("friendship", "user_id", "friend_id", pairs);
+    }
+
+    /**
+     * @param pairs User pairs
+     * @return The pairs where either user blocks the other one
+     */
+    public Mono<Set<Long>> findBlockedPairs(Collection<Long> pairs) {
+        return statements.findExistingEitherWay("block", "blocker_id", "blocked_id", pairs);
+    }
+
+    /**
+     * @param pairs  (user, friend) pairs to insert
+     * @param status Status of the new friendships
+     * @return The number of rows inserted
+     */
+    public Mono<Integer> insertFriendships(Collection<Long> pairs, String status) {
+        return statements.insert("friendship", "user_id", "friend_id", "status", status, pairs,
+                pair -> Friendship.builder().userId(first(pair)).friendId(second(pair)).status(status).build());
+    }
+
+    /**
+     * @return The new friendship, empty when the pair already has a friendship row
+     */
+    public Mono<Friendship> insertFriendshipIfAbsent(int userId, int friendId, String status) {
+        return statements.insertIfAbsent("friendship", "friendship_id", "user_id", "friend_id", "status", status,
+                UserPairs.pair(userId, friendId),
+                (id, pair) -> Friendship.builder().friendshipId(id).userId(first(pair)).friendId(second(pair)).status(status).build());
+    }
+}
@@ -1,12 +1,114 @@
 package org.example.repository;
 
 import org.example.model.friends.Friendship;
+import org.example.model.friends.User;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 public interface FriendshipReactiveDao extends R2dbcRepository<Friendship, Integer> {
+    /**
+     * Shared by {@link #findFriendEmailsByEmailAndStatus} and the streaming variant in {@link EmailStreamDao}.
+     */
+    String FRIEND_EMAILS_BY_EMAIL_SQL = "SELECT fu.email FROM user u "
+            + "INNER JOIN friendship f ON f.user_id = u.user_id "
+            + "INNER JOIN user fu ON fu.user_id = f.friend_id "
+            + "WHERE u.email = :email AND f.status = :status";
+
     Flux<Friendship> findByUserIdAndStatus(Integer userId, String status);
     Mono<Friendship> findByUserIdAndFriendId(Integer userId, Integer friendId);
     Flux<Friendship> findByUserId(Integer userId);
+    Flux<Friendship> findByStatus(String status);
+
+    /**
+     * Resolves the friend emails of a user in one round trip by joining
+     * user -> friendship -> user, instead of one lookup per friend.
+     *
+     * @param email  Email of the user whose friends are listed
+     * @param status Friendship status to match
+     * @return The emails of the friends, empty if the user does not exist
+     */
+    @Query(FRIEND_EMAILS_BY_EMAIL_SQL)
+    Flux<String> findFriendEmailsByEmailAndStatus(@Param("email") String email, @Param("status") String status);
+
+    /**
+     * Intersects the friend lists of two users in the database with a self-join on
+     * friendship and returns the emails of the common friends in one round trip.
+     *
+     * @param userId1 Id of the first user
+     * @param userId2 Id of the second user
+     * @param status  Friendship status to match on both sides
+     * @return The emails of the friends both users have in common
+     */
+    @Query("SELECT DISTINCT cu.email FROM friendship f1 "
+            + "INNER JOIN friendship f2 ON f2.friend_id = f1.friend_id "
+            + "INNER JOIN user cu ON cu.user_id = f1.friend_id "
+            + "WHERE f1.user_id = :userId1 AND f2.user_id = :userId2 "
+            + "AND f1.status = :status AND f2.status = :status")
+    Flux<String> findCommonFriendEmails(@Param("userId1") Integer userId1, @Param("userId2") Integer userId2, @Param("status") String status);
+
+    /**
+     * Projects only the friend ids of a user, without materializing {@link Friendship} entities.
+     *
+     * @param userId Id of the user whose friends are listed
+     * @param status Friendship status to match
+     * @return The ids of the friends
+     */
+    @Query("SELECT f.friend_id FROM friendship f WHERE f.user_id = :userId AND f.status = :status")
+    Flux<Integer> findFriendIdsByUserIdAndStatus(@Param("userId") Integer userId, @Param("status") String status);
+
+    /**
+     * Projects the friend ids of a batch of users, one row per friendship, so every
+     * occurrence of an id is one mutual friend of the batch.
+     *
+     * @param userIds Ids of the users whose friends are listed
+     * @param status  Friendship status to match
+     * @return The ids of the friends, repeated once per user of the batch they are a friend of
+     */
+    @Query("SELECT f.friend_id FROM friendship f WHERE f.user_id IN (:userIds) AND f.status = :status")
+    Flux<Integer> findFriendIdsByUserIdInAndStatus(@Param("userIds") Collection<Integer> userIds, @Param("status") String status);
+
+    /**
+     * One keyset page of {@link #findFriendEmailsByEmailAndStatus}: the friends with an id
+     * above {@code afterId}, in id order. Seeks on {@code (user_id, status, friend_id)}, so
+     * a deep page costs the same as the first one.
+     *
+     * @param email   Email of the user whose friends are listed
+     * @param status  Friendship status to match
+     * @param afterId Id of the last friend of the previous page, 0 for the first page
+     * @param limit   Maximum number of friends
+     * @return The ids and emails of the friends
+     */
+    @Query("SELECT fu.user_id, fu.email FROM user u "
+            + "INNER JOIN friendship f ON f.user_id = u.user_id "
+            + "INNER JOIN user fu ON fu.user_id = f.friend_id "
+            + "WHERE u.email = :email AND f.status = :status AND f.friend_id > :afterId "
+            + "ORDER BY f.friend_id LIMIT :limit")
+    Flux<User> findFriendPageByEmailAndStatus(@Param("email") String email, @Param("status") String status,
+                                              @Param("afterId") Integer afterId, @Param("limit") Integer limit);
+
+    /**
+     * One keyset page of {@link #findCommonFriendEmails}, in id order. Ordered by the friend id
+     * of the first user, so the page is read in the order of its friendship index, and without
+     * a DISTINCT since a pair has a single friendship row.
+     *
+     * @param userId1 Id of the first user
+     * @param userId2 Id of the second user
+     * @param status  Friendship status to match on both sides
+     * @param afterId Id of the last common friend of the previous page, 0 for the first page
+     * @param limit   Maximum number of common friends
+     * @return The ids and emails of the common friends
+     */
+    @Query("SELECT cu.user_id, cu.email FROM friendship f1 "
+            + "INNER JOIN friendship f2 ON f2.friend_id = f1.friend_id "
+            + "INNER JOIN user cu ON cu.user_id = f1.friend_id "
+            + "WHERE f1.user_id = :userId1 AND f2.user_id = :userId2 "
+            + "AND f1.status = :status AND f2.status = :status AND f1.friend_id > :afterId "
+            + "ORDER BY f1.friend_id LIMIT :limit")
+    Flux<User> findCommonFriendPage(@Param("userId1") Integer userId1, @Param("userId2") Integer userId2, @Param("status") String status,
+                                    @Param("afterId") Integer afterId, @Param("limit") Integer limit);
 }
@@ -0,0 +1,65 @@
+package org.example.repository;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.R2dbcTimeoutException;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link ConnectionPool} that times every acquire as the {@code r2dbc.pool.acquire} timer,
+ * tagged with its outcome: {@code success}, {@code timeout} when no connection was free within
+ * the maximum acquire time, {@code error} or {@code cancelled}. Under a burst the wait for a
+ * connection shows up here, next to the acquired, idle and pending gauges of the pool. Each
+ * acquire is recorded once, a cancel arriving after the connection counts as a success.
+ */
+public class MeteredConnectionPool extends ConnectionPool {
+    private final Clock clock;
+    private final Timer success;
+    private final Timer timeout;
+    private final Timer error;
+    private final Timer cancelled;
+
+    public MeteredConnectionPool(ConnectionPoolConfiguration configuration, String name, MeterRegistry meterRegistry) {
+        super(configuration);
+        this.clock = meterRegistry.config().clock();
+        this.success = acquireTimer(name, "success", meterRegistry);
+        this.timeout = acquireTimer(name, "timeout", meterRegistry);
+        this.error = acquireTimer(name, "error", meterRegistry);
+        this.cancelled = acquireTimer(name, "cancelled", meterRegistry);
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(() -> {
+            long start = clock.monotonicTime();
+            // A subscriber may cancel after it received the connection, within or after onNext
+            AtomicBoolean recorded = new AtomicBoolean();
+            return super.create()
+                    .doOnSuccess(connection -> record(connection == null ? cancelled : success, start, recorded))
+                    .doOnError(failure -> record(failure instanceof R2dbcTimeoutException ? timeout : error, start, recorded))
+                    .doOnCancel(() -> record(cancelled, start, recorded));
+        });
+    }
+
+    private void record(Timer timer, long start, AtomicBoolean recorded) {
+        if (recorded.compareAndSet(false, true)) {
+            timer.record(clock.monotonicTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer acquireTimer(String name, String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("r2dbc.pool.acquire")
+                .description("Time to acquire a connection from the pool")
+                .tag("name", name)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,214 @@
+package org.example.repository;
+
+import org.springframework.data.mapping.callback.ReactiveEntityCallbacks;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.BiFunction;
+import java.util.function.LongFunction;
+
+import static org.example.repository.UserPairs.first;
+import static org.example.repository.UserPairs.pair;
+import static org.example.repository.UserPairs.second;
+
+/**
+ * Set-based reads and inserts over a table keyed by a unique pair of user id columns, shared by
+ * the bulk DAOs. Each statement binds at most {@code batchSize} {@link UserPairs} and each
+ * insert statement commits in its own transaction. Inserts use {@code INSERT IGNORE}, so a pair
+ * that is already stored, or written concurrently, is skipped by the unique key instead of
+ * being duplicated. Rows inserted here bypass the repositories, so the {@link AfterSaveCallback}s
+ * of their entity are invoked for the rows actually inserted, once the insert has committed.
+ */
+final class PairStatements {
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final ReactiveEntityCallbacks entityCallbacks;
+    private final int batchSize;
+
+    PairStatements(DatabaseClient databaseClient, TransactionalOperator transactionalOperator,
+                   ReactiveEntityCallbacks entityCallbacks, int batchSize) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.entityCallbacks = entityCallbacks;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return The pairs that have a row in {@code table}, as (firstColumn, secondColumn)
+     */
+    Mono<Set<Long>> findExisting(String table, String firstColumn, String secondColumn, Collection<Long> pairs) {
+        return select(table, firstColumn, secondColumn, pairs, "(t." + firstColumn + ", t." + secondColumn + ") IN (%1$s)");
+    }
+
+    /**
+     * @return The pairs that have a row in {@code table} in either order
+     */
+    Mono<Set<Long>> findExistingEitherWay(String table, String firstColumn, String secondColumn, Collection<Long> pairs) {
+        return select(table, firstColumn, secondColumn, pairs, "(t." + firstColumn + ", t." + secondColumn + ") IN (%1$s) "
+                + "OR (t." + secondColumn + ", t." + firstColumn + ") IN (%1$s)")
+                .map(rows -> {
+                    Set<Long> found = new HashSet<>();
+                    for (Long pair : pairs) {
+                        if (rows.contains(pair) || rows.contains(UserPairs.reverse(pair))) {
+                            found.add(pair);
+                        }
+                    }
+                    return found;
+                });
+    }
+
+    private Mono<Set<Long>> select(String table, String firstColumn, String secondColumn, Collection<Long> pairs, String condition) {
+        return Flux.fromIterable(batches(pairs))
+                .concatMap(batch -> bindPairs(databaseClient.sql("SELECT t." + firstColumn + ", t." + secondColumn + " FROM " + table + " t "
+                                + "WHERE " + String.format(condition, rowValues(batch.size(), ""))), batch)
+                        .map(row -> pair(row.get(0, Integer.class), row.get(1, Integer.class)))
+                        .all())
+                .collect(HashSet::new, Set::add);
+    }
+
+    /**
+     * Inserts one row per pair with one multi-row {@code INSERT IGNORE} and one transaction per
+     * batch. Batches run one after the other; a failed batch stops the insert with the earlier
+     * batches committed. The callbacks run for the pairs inserted here only: a multi-row statement
+     * does not report which of its rows it skipped, so a batch that skipped any is rolled back and
+     * redone as a select of the stored pairs and an insert of the others. A pair stored by another
+     * writer between that select and the insert is still passed to the callbacks.
+     *
+     * @param constantColumn Optional column set to {@code constant} on every row
+     * @param entity         Entity of a pair, passed to the after-save callbacks
+     * @return The number of rows inserted, without the pairs already stored
+     */
+    <T> Mono<Integer> insert(String table, String firstColumn, String secondColumn,
+                             String constantColumn, Object constant,
+                             Collection<Long> pairs, LongFunction<T> entity) {
+        SqlIdentifier tableName = SqlIdentifier.unquoted(table);
+        return Flux.fromIterable(batches(pairs))
+                .concatMap(batch -> insertBatch(table, firstColumn, secondColumn, constantColumn, constant, batch, true)
+                        .onErrorResume(StoredPairsSkipped.class, skipped -> findExisting(table, firstColumn, secondColumn, batch)
+                                .flatMap(stored -> {
+                                    List<Long> absent = new ArrayList<>(batch);
+                                    absent.removeAll(stored);
+                                    return absent.isEmpty()
+                                            ? Mono.just(new Inserted(0, absent))
+                                            : insertBatch(table, firstColumn, secondColumn, constantColumn, constant, absent, false);
+                                }))
+                        .flatMap(inserted -> Flux.fromIterable(inserted.pairs)
+                                .concatMap(pair -> entityCallbacks.callback(AfterSaveCallback.class,
+                                        entity.apply(pair), new OutboundRow(), tableName))
+                                .then(Mono.just(inserted.rows))))
+                .reduce(0, Integer::sum);
+    }
+
+    /**
+     * @param failOnSkipped Roll back with {@link StoredPairsSkipped} when any pair was skipped
+     */
+    private Mono<Inserted> insertBatch(String table, String firstColumn, String secondColumn,
+                                       String constantColumn, Object constant,
+                                       List<Long> batch, boolean failOnSkipped) {
+        String columns = firstColumn + ", " + secondColumn + (constantColumn == null ? "" : ", " + constantColumn);
+        String extra = constantColumn == null ? "" : ", :constant";
+        DatabaseClient.GenericExecuteSpec spec = bindPairs(databaseClient.sql(
+                "INSERT IGNORE INTO " + table + " (" + columns + ") VALUES " + rowValues(batch.size(), extra)), batch);
+        if (constantColumn != null) {
+            spec = spec.bind("constant", constant);
+        }
+        return transactionalOperator.transactional(spec.fetch().rowsUpdated()
+                .flatMap(rows -> failOnSkipped && rows < batch.size()
+                        ? Mono.<Inserted>error(new StoredPairsSkipped())
+                        : Mono.just(new Inserted(rows, batch))));
+    }
+
+    /**
+     * Rows inserted by one batch and the pairs they were inserted for.
+     */
+    private static final class Inserted {
+        private final int rows;
+        private final List<Long> pairs;
+
+        private Inserted(int rows, List<Long> pairs) {
+            this.rows = rows;
+            this.pairs = pairs;
+        }
+    }
+
+    /**
+     * Rolls back a batch whose statement skipped stored pairs, without a stack trace.
+     */
+    private static final class StoredPairsSkipped extends RuntimeException {
+        private StoredPairsSkipped() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Inserts one row with a single {@code INSERT IGNORE}, so checking and writing the pair is
+     * one statement and concurrent duplicates cannot both insert.
+     *
+     * @param idColumn Generated key column
+     * @param entity   Entity of the generated id and the pair, passed to the after-save callbacks
+     * @return The saved entity, empty when the pair was already stored
+     */
+    <T> Mono<T> insertIfAbsent(String table, String idColumn, String firstColumn, String secondColumn,
+                               String constantColumn, Object constant,
+                               long pair, BiFunction<Integer, Long, T> entity) {
+        String columns = firstColumn + ", " + secondColumn + (constantColumn == null ? "" : ", " + constantColumn);
+        DatabaseClient.GenericExecuteSpec spec = bindPairs(databaseClient.sql("INSERT IGNORE INTO " + table + " (" + columns + ") VALUES "
+                + rowValues(1, constantColumn == null ? "" : ", :constant")), List.of(pair))
+                .filter(statement -> {
+                    // Keep the statement passed in, wrappers such as connection proxies may not return themselves
+                    statement.returnGeneratedValues(idColumn);
+                    return statement;
+                });
+        if (constantColumn != null) {
+            spec = spec.bind("constant", constant);
+        }
+        return spec.map(row -> row.get(0, Integer.class))
+                .first()
+                // MySQL reports a generated id of 0 for an ignored row
+                .filter(id -> id > 0)
+                .flatMap(id -> entityCallbacks.callback(AfterSaveCallback.class, entity.apply(id, pair),
+                        new OutboundRow(), SqlIdentifier.unquoted(table)));
+    }
+
+    private List<List<Long>> batches(Collection<Long> pairs) {
+        List<List<Long>> batches = new ArrayList<>();
+        List<Long> batch = new ArrayList<>(Math.min(batchSize, pairs.size()));
+        for (Long pair : pairs) {
+            batch.add(pair);
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private static String rowValues(int size, String extra) {
+        StringJoiner values = new StringJoiner(", ");
+        for (int i = 0; i < size; i++) {
+            values.add("(:u" + i + ", :f" + i + extra + ")");
+        }
+        return values.toString();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindPairs(DatabaseClient.GenericExecuteSpec spec, List<Long> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            spec = spec.bind("u" + i, first(batch.get(i))).bind("f" + i, second(batch.get(i)));
+        }
+        return spec;
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Option;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Builds the connection pool in place of the auto-configured one, from the same
+ * {@code spring.r2dbc} url, credentials and {@code spring.r2dbc.pool} settings, plus what those
+ * cannot express: a minimum of idle connections, the background eviction interval, acquire
+ * retries and a warmup that opens the initial connections before the first request. The pool
+ * is a {@link MeteredConnectionPool}, the acquired, idle and pending gauges of the actuator
+ * still apply to it.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.r2dbc.pool.enabled", havingValue = "true", matchIfMissing = true)
+public class PooledConnectionFactoryConfiguration {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledConnectionFactoryConfiguration.class);
+    // The name the actuator derives from the bean name for the tags of its pool gauges
+    private static final String POOL_NAME = "connectionFactory";
+
+    @Bean(name = POOL_NAME, destroyMethod = "dispose")
+    public ConnectionFactory connectionFactory(R2dbcProperties properties,
+                                               MeterRegistry meterRegistry,
+                                               @Value("${friendsmanagement.pool.min-idle:0}") int minIdle,
+                                               @Value("${friendsmanagement.pool.background-eviction-interval:0s}") Duration backgroundEvictionInterval,
+                                               @Value("${friendsmanagement.pool.acquire-retry:1}") int acquireRetry,
+                                               @Value("${friendsmanagement.pool.warmup:true}") boolean warmup,
+                                               @Value("${friendsmanagement.pool.warmup-timeout:10s}") Duration warmupTimeout) {
+        R2dbcProperties.Pool pool = properties.getPool();
+        ConnectionPoolConfiguration.Builder configuration = ConnectionPoolConfiguration.builder(connectionFactory(properties))
+                .name(POOL_NAME)
+                .initialSize(pool.getInitialSize())
+                .maxSize(pool.getMaxSize())
+                .minIdle(minIdle)
+                .maxIdleTime(pool.getMaxIdleTime())
+                .acquireRetry(acquireRetry)
+                .validationDepth(pool.getValidationDepth());
+        if (pool.getMaxLifeTime() != null) {
+            configuration.maxLifeTime(pool.getMaxLifeTime());
+        }
+        if (pool.getMaxAcquireTime() != null) {
+            configuration.maxAcquireTime(pool.getMaxAcquireTime());
+        }
+        if (pool.getMaxCreateConnectionTime() != null) {
+            configuration.maxCreateConnectionTime(pool.getMaxCreateConnectionTime());
+        }
+        if (pool.getValidationQuery() != null) {
+            configuration.validationQuery(pool.getValidationQuery());
+        }
+        // Without an interval idle and expired connections are only evicted when they are acquired
+        if (!backgroundEvictionInterval.isZero()) {
+            configuration.backgroundEvictionInterval(backgroundEvictionInterval);
+        }
+        ConnectionPool connectionPool = new MeteredConnectionPool(configuration.build(), POOL_NAME, meterRegistry);
+        if (warmup) {
+            warmup(connectionPool, warmupTimeout);
+        }
+        return connectionPool;
+    }
+
+    /**
+     * Opens the initial connections, so the first requests do not wait for them. A database that
+     * is not reachable yet does not fail the startup, the pool then opens its connections on demand.
+     */
+    private static void warmup(ConnectionPool connectionPool, Duration timeout) {
+        long start = System.nanoTime();
+        connectionPool.warmup()
+                .timeout(timeout)
+                .doOnNext(opened -> LOGGER.info("Warmed up {} pooled connections in {} ms", opened,
+                        Duration.ofNanos(System.nanoTime() - start).toMillis()))
+                .onErrorResume(ex -> {
+                    LOGGER.warn("Pool warmup failed, connections are opened on demand", ex);
+                    return Mono.empty();
+                })
+                .block();
+    }
+
+    private static ConnectionFactory connectionFactory(R2dbcProperties properties) {
+        if (properties.getUrl() == null) {
+            throw new IllegalStateException("spring.r2dbc.url must be set");
+        }
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(properties.getUrl());
+        if ("pool".equals(options.getValue(ConnectionFactoryOptions.DRIVER))) {
+            throw new IllegalStateException("spring.r2dbc.url must name the database driver, the pool is configured with spring.r2dbc.pool");
+        }
+        ConnectionFactoryBuilder builder = ConnectionFactoryBuilder.withUrl(properties.getUrl());
+        if (properties.getUsername() != null) {
+            builder.username(properties.getUsername());
+        }
+        if (properties.getPassword() != null) {
+            builder.password(properties.getPassword());
+        }
+        return builder.configure(option -> properties.getProperties()
+                        .forEach((key, value) -> option.option(Option.valueOf(key), value)))
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.repository;
+
+import org.example.model.friends.Block;
+import org.example.model.friends.Subscription;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mapping.callback.ReactiveEntityCallbacks;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Set;
+
+import static org.example.repository.UserPairs.first;
+import static org.example.repository.UserPairs.second;
+
+/**
+ * Batched counterparts of {@link SubscriptionReactiveDao} and {@link BlockReactiveRepository}
+ * saves for imports, and the single-statement inserts of the subscribe and block endpoints,
+ * see {@link PairStatements}. Subscription pairs are (subscriber, target)
+ * and block pairs (blocker, blocked) {@link UserPairs}.
+ */
+@Repository
+public class RelationBulkDao {
+    private final PairStatements statements;
+
+    @Autowired
+    public RelationBulkDao(DatabaseClient databaseClient,
+                           ReactiveTransactionManager transactionManager,
+                           BeanFactory beanFactory,
+                           @Value("${friendsmanagement.bulk.batch-size:500}") int batchSize) {
+        this(databaseClient, TransactionalOperator.create(transactionManager), ReactiveEntityCallbacks.create(beanFactory), batchSize);
+    }
+
+    RelationBulkDao(DatabaseClient databaseClient,
+                    TransactionalOperator transactionalOperator,
+                    ReactiveEntityCallbacks entityCallbacks,
+                    int batchSize) {
+        this.statements = new PairStatements(databaseClient, transactionalOperator, entityCallbacks, batchSize);
+    }
+
+    public Mono<Set<Long>> findExistingSubscriptions(Collection<Long> pairs) {
+        return statements.findExisting("subscription", "subscriber_id", "target_id", pairs);
+    }
+
+    public Mono<Integer> insertSubscriptions(Collection<Long> pairs) {
+        return statements.insert("subscription", "subscriber_id", "target_id", null, null, pairs,
+                pair -> Subscription.builder().subscriberId(first(pair)).targetId(second(pair)).build());
+    }
+
+    /**
+     * @return The new subscription, empty when the subscriber already subscribes to the target
+     */
+    public Mono<Subscription> insertSubscriptionIfAbsent(int subscriberId, int targetId) {
+        return statements.insertIfAbsent("subscription", "subscription_id", "subscriber_id", "target_id", null, null,
+                UserPairs.pair(subscriberId, targetId),
+                (id, pair) -> Subscription.builder().subscriptionId(id).subscriberId(first(pair)).targetId(second(pair)).build());
+    }
+
+    public Mono<Set<Long>> findExistingBlocks(Collection<Long> pairs) {
+        return statements.findExisting("block", "blocker_id", "blocked_id", pairs);
+    }
+
+    public Mono<Integer> insertBlocks(Collection<Long> pairs) {
+        return statements.insert("block", "blocker_id", "blocked_id", null, null, pairs,
+                pair -> Block.builder().blockerId(first(pair)).blockedId(second(pair)).build());
+    }
+
+    /**
+     * @return The new block, empty when the blocker already blocks the blocked user
+     */
+    public Mono<Block> insertBlockIfAbsent(int blockerId, int blockedId) {
+        return statements.insertIfAbsent("block", "block_id", "blocker_id", "blocked_id", null, null,
+                UserPairs.pair(blockerId, blockedId),
+                (id, pair) -> Block.builder().blockId(id).blockerId(first(pair)).blockedId(second(pair)).build());
+    }
+}
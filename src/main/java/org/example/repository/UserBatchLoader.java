@@ -0,0 +1,52 @@
+package org.example.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.model.friends.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Coalesces the {@link UserReactiveDao#findByUserId} and {@link UserReactiveDao#findByEmail}
+ * lookups of concurrent requests into {@code IN (...)} queries, see {@link BatchLoader}.
+ * Email lookups are served from {@link UserEmailCache} first.
+ */
+@Component
+public class UserBatchLoader {
+    private final BatchLoader<Integer, User> byUserId;
+    private final BatchLoader<String, User> byEmail;
+    private final UserEmailCache userEmailCache;
+
+    @Autowired
+    public UserBatchLoader(UserReactiveDao userReactiveDao,
+                           UserEmailCache userEmailCache,
+                           MeterRegistry meterRegistry,
+                           @Value("${friendsmanagement.user-loader.window:1ms}") Duration window,
+                           @Value("${friendsmanagement.user-loader.max-batch-size:" + UserReactiveDao.USER_ID_CHUNK_SIZE + "}") int maxBatchSize) {
+        this.byUserId = new BatchLoader<>("userId", userReactiveDao::findByUserIdIn, User::getUserId,
+                window, maxBatchSize, Schedulers.parallel(), meterRegistry);
+        this.byEmail = new BatchLoader<>("email", userReactiveDao::findByEmailIn, user -> normalize(user.getEmail()),
+                window, maxBatchSize, Schedulers.parallel(), meterRegistry);
+        this.userEmailCache = userEmailCache;
+    }
+
+    public Mono<User> findByUserId(Integer userId) {
+        return byUserId.load(userId);
+    }
+
+    public Mono<User> findByEmail(String email) {
+        return userEmailCache.get(normalize(email), byEmail::load);
+    }
+
+    /**
+     * Emails are matched case-insensitively by the database collation, so batch keys are too.
+     */
+    public static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.repository;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.model.friends.User;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Bounded, expiring cache of the email to user mapping that every endpoint resolves first.
+ * <p>
+ * Only found users are cached, so a user created after a miss is visible immediately.
+ * Saving a user through {@link UserReactiveDao} evicts its entries, the entry of its previous
+ * email found through a user id to email map kept next to the cache. Hit, miss and eviction
+ * statistics are published as the {@code cache.*} meters of the {@code user.email} cache.
+ */
+@Component
+public class UserEmailCache implements AfterSaveCallback<User> {
+    private final AsyncCache<String, User> cache;
+    // The cached email of each cached user, so a save evicts the old email without a scan
+    private final Map<Integer, String> emailsById = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UserEmailCache(MeterRegistry meterRegistry,
+                          @Value("${friendsmanagement.user-cache.maximum-size:100000}") long maximumSize,
+                          @Value("${friendsmanagement.user-cache.ttl:10m}") Duration ttl) {
+        this(meterRegistry, maximumSize, ttl, Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    UserEmailCache(MeterRegistry meterRegistry, long maximumSize, Duration ttl, Ticker ticker, Executor executor) {
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfterWrite(ttl)
+                        .ticker(ticker)
+                        .executor(executor)
+                        .recordStats()
+                        .removalListener(this::onRemoval)
+                        .buildAsync(),
+                "user.email");
+    }
+
+    /**
+     * Returns the cached user of an email, loading and caching it on a miss.
+     * Concurrent misses for the same email share one load.
+     *
+     * @param normalizedEmail Lower-cased email
+     * @param loader          Loads the user when it is not cached
+     * @return The user, or an empty Mono when the loader finds none
+     */
+    public Mono<User> get(String normalizedEmail, Function<String, Mono<User>> loader) {
+        return Mono.fromFuture(() -> cache.get(normalizedEmail, (email, executor) -> loader.apply(email)
+                .doOnNext(user -> emailsById.put(user.getUserId(), email))
+                .toFuture()));
+    }
+
+    public void invalidate(String normalizedEmail) {
+        cache.synchronous().invalidate(normalizedEmail);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+        emailsById.clear();
+    }
+
+    /**
+     * Runs on the executor of the cache, possibly after the same email was loaded again, so the
+     * mapping is only dropped while no entry of that email is cached.
+     */
+    private void onRemoval(String email, User user, RemovalCause cause) {
+        if (user != null) {
+            emailsById.computeIfPresent(user.getUserId(),
+                    (userId, cachedEmail) -> cachedEmail.equals(email) && !cache.asMap().containsKey(email) ? null : cachedEmail);
+        }
+    }
+
+    @Override
+    public Publisher<User> onAfterSave(User entity, OutboundRow outboundRow, SqlIdentifier table) {
+        // The email of a user may have changed, so drop the entry of its previous email as well
+        String cachedEmail = emailsById.remove(entity.getUserId());
+        if (cachedEmail != null) {
+            invalidate(cachedEmail);
+        }
+        if (entity.getEmail() != null) {
+            invalidate(UserBatchLoader.normalize(entity.getEmail()));
+        }
+        return Mono.just(entity);
+    }
+}
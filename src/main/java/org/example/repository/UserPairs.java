@@ -0,0 +1,29 @@
+package org.example.repository;
+
+/**
+ * Packs an ordered pair of user ids, such as (user, friend) or (blocker, blocked), into one
+ * {@code long} so that sets of pairs can be kept and compared without a pair object.
+ */
+public final class UserPairs {
+    private UserPairs() {
+    }
+
+    public static long pair(int first, int second) {
+        return ((long) first << 32) | (second & 0xffffffffL);
+    }
+
+    public static int first(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    public static int second(long pair) {
+        return (int) pair;
+    }
+
+    /**
+     * @return The same users in the other order
+     */
+    public static long reverse(long pair) {
+        return pair(second(pair), first(pair));
+    }
+}
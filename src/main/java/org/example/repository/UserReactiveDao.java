@@ -1,10 +1,158 @@
 package org.example.repository;
 
 import org.example.model.friends.User;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 public interface UserReactiveDao extends R2dbcRepository<User, Integer> {
+    /**
+     * Maximum number of ids bound into one {@code IN (...)} list.
+     */
+    int USER_ID_CHUNK_SIZE = 500;
+    /**
+     * Maximum number of chunk queries in flight for one batch lookup.
+     */
+    int USER_ID_CHUNK_CONCURRENCY = 4;
+
+    /**
+     * Shared by {@link #findEligibleRecipientEmails} and the streaming variant in {@link EmailStreamDao}.
+     */
+    String ELIGIBLE_RECIPIENT_EMAILS_SQL = "SELECT u.email FROM ("
+            + "SELECT f.friend_id AS recipient_id FROM friendship f WHERE f.user_id = :senderId AND f.status = :status "
+            + "UNION "
+            + "SELECT s.subscriber_id AS recipient_id FROM subscription s WHERE s.target_id = :senderId"
+            + ") r "
+            + "INNER JOIN user u ON u.user_id = r.recipient_id "
+            + "WHERE u.user_id <> :senderId "
+            + "AND NOT EXISTS (SELECT 1 FROM block b WHERE b.blocker_id = r.recipient_id AND b.blocked_id = :senderId)";
+
     Mono<User> findByEmail(String email);
     Mono<User> findByUserId(Integer userId);
+
+    @Query("SELECT u.user_id, u.email FROM user u WHERE u.user_id IN (:userIds)")
+    Flux<User> findByUserIdIn(@Param("userIds") Collection<Integer> userIds);
+
+    @Query("SELECT u.user_id, u.email FROM user u WHERE u.email IN (:emails)")
+    Flux<User> findByEmailIn(@Param("emails") Collection<String> emails);
+
+    /**
+     * Resolves everyone who can receive updates from a sender in one anti-join query:
+     * the sender's friends united with the users subscribed to the sender, minus the
+     * users who blocked the sender.
+     *
+     * @param senderId Id of the user sending the update
+     * @param status   Friendship status that counts as a friend connection
+     * @return The emails of the eligible recipients
+     */
+    @Query(ELIGIBLE_RECIPIENT_EMAILS_SQL)
+    Flux<String> findEligibleRecipientEmails(@Param("senderId") Integer senderId, @Param("status") String status);
+
+    /**
+     * One keyset page of {@link #findEligibleRecipientEmails}, in id order. The seek, the
+     * filters and the limit are pushed into both branches of the union, so each one reads at
+     * most one page from its index and a deep page costs the same as the first one.
+     *
+     * @param senderId Id of the user sending the update
+     * @param status   Friendship status that counts as a friend
+     * @param afterId  Id of the last recipient of the previous page, 0 for the first page
+     * @param limit    Maximum number of recipients
+     * @return The ids and emails of the recipients
+     */
+    @Query("SELECT u.user_id, u.email FROM ("
+            + "(SELECT f.friend_id AS recipient_id FROM friendship f "
+            + "WHERE f.user_id = :senderId AND f.status = :status AND f.friend_id > :afterId AND f.friend_id <> :senderId "
+            + "AND NOT EXISTS (SELECT 1 FROM block b WHERE b.blocker_id = f.friend_id AND b.blocked_id = :senderId) "
+            + "ORDER BY f.friend_id LIMIT :limit) "
+            + "UNION "
+            + "(SELECT s.subscriber_id AS recipient_id FROM subscription s "
+            + "WHERE s.target_id = :senderId AND s.subscriber_id > :afterId AND s.subscriber_id <> :senderId "
+            + "AND NOT EXISTS (SELECT 1 FROM block b WHERE b.blocker_id = s.subscriber_id AND b.blocked_id = :senderId) "
+            + "ORDER BY s.subscriber_id LIMIT :limit)"
+            + ") r "
+            + "INNER JOIN user u ON u.user_id = r.recipient_id "
+            + "ORDER BY u.user_id LIMIT :limit")
+    Flux<User> findEligibleRecipientPage(@Param("senderId") Integer senderId, @Param("status") String status,
+                                         @Param("afterId") Integer afterId, @Param("limit") Integer limit);
+
+    /**
+     * Resolves many users by id with a few {@code IN (...)} queries instead of one query per id.
+     * The ids are de-duplicated and split into chunks of {@code chunkSize}, and at most
+     * {@code concurrency} chunks are queried at the same time. Unknown ids are skipped.
+     *
+     * @param userIds       Ids to resolve
+     * @param preserveOrder Emit the users in the order of the incoming ids when true
+     * @param chunkSize     Maximum number of ids per query
+     * @param concurrency   Maximum number of queries in flight
+     * @return The users found
+     */
+    default Flux<User> findByUserIdInChunks(Flux<Integer> userIds, boolean preserveOrder, int chunkSize, int concurrency) {
+        Flux<List<Integer>> chunks = userIds.distinct().buffer(chunkSize);
+        if (!preserveOrder) {
+            return chunks.flatMap(this::findByUserIdIn, concurrency);
+        }
+        return chunks.flatMapSequential(chunk -> findByUserIdIn(chunk)
+                        .collectMap(User::getUserId, Function.identity())
+                        .flatMapIterable(usersById -> chunk.stream()
+                                .map(usersById::get)
+                                .filter(Objects::nonNull)
+                                .collect(Collectors.toList())),
+                concurrency);
+    }
+
+    default Flux<User> findByUserIdInChunks(Flux<Integer> userIds, boolean preserveOrder) {
+        return findByUserIdInChunks(userIds, preserveOrder, USER_ID_CHUNK_SIZE, USER_ID_CHUNK_CONCURRENCY);
+    }
+
+    /**
+     * Batch id to email resolution, see {@link #findByUserIdInChunks(Flux, boolean, int, int)}.
+     *
+     * @param userIds Ids to resolve
+     * @return An id to email map that iterates in the order of {@code userIds}
+     */
+    default Mono<Map<Integer, String>> findEmailsByUserIds(Flux<Integer> userIds) {
+        return findByUserIdInChunks(userIds, true)
+                .<Map<Integer, String>>collect(LinkedHashMap::new, (emailsById, user) -> emailsById.put(user.getUserId(), user.getEmail()));
+    }
+
+    default Mono<Map<Integer, String>> findEmailsByUserIds(Collection<Integer> userIds) {
+        return findEmailsByUserIds(Flux.fromIterable(userIds));
+    }
+
+    /**
+     * Batch email to id resolution with one {@code IN (...)} query per chunk of
+     * {@link #USER_ID_CHUNK_SIZE} distinct emails.
+     *
+     * @param emails Emails to resolve
+     * @return An email to id map keyed by {@link UserBatchLoader#normalize}d email, unknown emails are absent
+     */
+    default Mono<Map<String, Integer>> findUserIdsByEmails(Collection<String> emails) {
+        return findByEmailsInChunks(emails)
+                .collectMap(user -> UserBatchLoader.normalize(user.getEmail()), User::getUserId);
+    }
+
+    /**
+     * Batch email to user resolution with one {@code IN (...)} query per chunk of
+     * {@link #USER_ID_CHUNK_SIZE} distinct emails.
+     *
+     * @param emails Emails to resolve, compared after {@link UserBatchLoader#normalize}
+     * @return The users found, with their stored emails, in no particular order
+     */
+    default Flux<User> findByEmailsInChunks(Collection<String> emails) {
+        return Flux.fromIterable(emails)
+                .map(UserBatchLoader::normalize)
+                .distinct()
+                .buffer(USER_ID_CHUNK_SIZE)
+                .flatMap(this::findByEmailIn, USER_ID_CHUNK_CONCURRENCY);
+    }
 }
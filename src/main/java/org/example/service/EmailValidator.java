@@ -0,0 +1,96 @@
+package org.example.service;
+
+/**
+ * Hand-written check of the email syntax the service accepts. It accepts exactly the strings
+ * the former pattern accepted:
+ * <pre>
+ * ^(?=.{1,64}@)[A-Za-z0-9_-]+(\.[A-Za-z0-9_-]+)*@[^-][A-Za-z0-9-]+(\.[A-Za-z0-9-]+)*(\.[A-Za-z]{2,})$
+ * </pre>
+ * The chars are read once, left to right, with no allocation and no backtracking.
+ * <ul>
+ *     <li>Local part: 1 to 64 chars, labels of {@code [A-Za-z0-9_-]} separated by single dots.</li>
+ *     <li>Domain: one char that is not {@code -}, or one surrogate pair as the pattern matches code
+ *     points. Then labels of {@code [A-Za-z0-9-]} separated by single dots, at least two of them,
+ *     the last one made of 2 or more letters.</li>
+ * </ul>
+ */
+public final class EmailValidator {
+    static final int MAX_LOCAL_LENGTH = 64;
+
+    private EmailValidator() {
+    }
+
+    public static boolean isValid(CharSequence email) {
+        return email != null && isValid(email, 0, email.length());
+    }
+
+    /**
+     * @return True when the chars in {@code [from, to)} are a valid email
+     */
+    public static boolean isValid(CharSequence email, int from, int to) {
+        int i = from;
+        int label = 0;
+        for (; i < to; i++) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                break;
+            }
+            // The local part is too long, no need to read the rest
+            if (i - from == MAX_LOCAL_LENGTH) {
+                return false;
+            }
+            if (c == '.') {
+                if (label == 0) {
+                    return false;
+                }
+                label = 0;
+            } else if (isLetterOrDigit(c) || c == '_' || c == '-') {
+                label++;
+            } else {
+                return false;
+            }
+        }
+        if (i == to || label == 0) {
+            return false;
+        }
+        // Skip the '@', the first char of the domain may be anything but '-'
+        i++;
+        if (i == to || email.charAt(i) == '-') {
+            return false;
+        }
+        if (Character.isHighSurrogate(email.charAt(i)) && i + 1 < to && Character.isLowSurrogate(email.charAt(i + 1))) {
+            i++;
+        }
+        i++;
+        int dots = 0;
+        boolean letters = true;
+        label = 0;
+        for (; i < to; i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                if (label == 0) {
+                    return false;
+                }
+                dots++;
+                label = 0;
+                letters = true;
+            } else if (isLetter(c)) {
+                label++;
+            } else if ((c >= '0' && c <= '9') || c == '-') {
+                label++;
+                letters = false;
+            } else {
+                return false;
+            }
+        }
+        return dots > 0 && label >= 2 && letters;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isLetterOrDigit(char c) {
+        return isLetter(c) || (c >= '0' && c <= '9');
+    }
+}
@@ -5,13 +5,18 @@ import org.example.exception.InvalidEmailException;
 import org.example.model.*;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestBody;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface FriendShipReactiveService {
     Mono<ResponseEntity<Response>> getFriendsListByEmail(FriendListDTO.Request request) throws InvalidEmailException;
     Mono<ResponseEntity<Response>> getCommonFriends(CommonFriendDTO.Request request) throws InvalidEmailException;
     Mono<ResponseEntity<Response>> createFriendConnection(FriendConnectionDTO.Request request) throws InvalidEmailException;
+    Mono<ResponseEntity<Response>> createFriendConnections(BulkFriendConnectionDTO.Request request);
     Mono<ResponseEntity<Response>> subscribeToUpdates(SubscribeUpdatesDTO.Request request) throws InvalidEmailException;
     Mono<ResponseEntity<Response>> blockUpdates(@RequestBody BlockUpdateDTO.Request request) throws InvalidEmailException;
     Mono<ResponseEntity<Response>> getEligibleEmailAddresses(EligibleEmailAddressesDTO.Request request) throws InvalidEmailException;
+    Mono<ResponseEntity<Response>> getSuggestions(SuggestionDTO.Request request) throws InvalidEmailException;
+    Mono<ResponseEntity<Flux<EmailStreamDTO.Row>>> streamFriendsListByEmail(FriendListDTO.Request request);
+    Mono<ResponseEntity<Flux<EmailStreamDTO.Row>>> streamEligibleEmailAddresses(EligibleEmailAddressesDTO.Request request);
 }
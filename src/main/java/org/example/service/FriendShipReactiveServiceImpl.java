@@ -2,31 +2,53 @@ package org.example.service;
 
 import org.example.dto.*;
 import org.example.exception.InvalidEmailException;
+import org.example.graph.BlockIndex;
+import org.example.graph.FriendSetCache;
+import org.example.graph.FriendSuggestions;
+import org.example.graph.IntSets;
+import org.example.graph.SocialGraph;
 import org.example.model.*;
-import org.example.model.friends.Block;
-import org.example.model.friends.Friendship;
-import org.example.model.friends.Subscription;
 import org.example.model.friends.User;
 import org.example.repository.BlockReactiveRepository;
+import org.example.repository.EmailStreamDao;
+import org.example.repository.FriendshipBulkDao;
 import org.example.repository.FriendshipReactiveDao;
+import org.example.repository.RelationBulkDao;
 import org.example.repository.SubscriptionReactiveDao;
+import org.example.repository.UserBatchLoader;
+import org.example.repository.UserPairs;
 import org.example.repository.UserReactiveDao;
+import org.example.trace.PipelineTrace;
+import org.example.trace.PipelineTracer;
+import org.example.trace.Stage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
-import java.util.Objects;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
-@Transactional
+// No transaction around a whole request. User lookups go through the shared UserBatchLoader, whose
+// queries cannot join the transaction of any one request, so a request holding a transaction
+// connection while its lookup waits for a second one exhausts the pool under concurrency.
+// Writes are single statements, or commit batch by batch in the bulk DAOs.
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
 public class FriendShipReactiveServiceImpl implements FriendShipReactiveService {
     private static final String ACCEPTED;
     private static final String PENDING;
@@ -38,16 +60,23 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
     private static final String SUCCESSFULLY_ESTABLISH_FRIEND;
     private static final String ALREADY_SUBSCRIPTION;
     private static final String SUBSCRIBED_SUCCESSFULLY;
-    private static final String TARGET_USER_NOT_FOUND;
-    private static final String SUBSCRIBER_USER_NOT_FOUND;
+    static final String TARGET_USER_NOT_FOUND;
+    static final String SUBSCRIBER_USER_NOT_FOUND;
     private static final String RETRIEVE_LIST_SUCCESSFULLY;
     private static final String BLOCK_UPDATES;
     private static final String ALREADY_BLOCKED;
+    private static final String BLOCKED_CONNECTION;
+    private static final String SUGGESTIONS_RETRIEVED;
+    private static final String BULK_CONNECTIONS_PROCESSED;
+    private static final String TOO_MANY_CONNECTIONS;
+    private static final int DEFAULT_SUGGESTION_LIMIT = 10;
+    private static final int MAX_SUGGESTION_LIMIT = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BULK_CONNECTIONS = 10000;
+    private static final int MAX_MENTIONS = 1000;
 
-    private static final String INVALID_EMAIL_EXCEPTION;
-    private static final Pattern EMAIL_PATTERN = Pattern.compile("^(?=.{1,64}@)[A-Za-z0-9_-]+(\\.[A-Za-z0-9_-]+)*@"
-            + "[^-][A-Za-z0-9-]+(\\.[A-Za-z0-9-]+)*(\\.[A-Za-z]{2,})$");
-    private static final String EMAIL_NOT_FOUND = "Cannot find email {%s}. Please try another email";
+    static final String INVALID_EMAIL_EXCEPTION;
+    static final String EMAIL_NOT_FOUND = "Cannot find email {%s}. Please try another email";
 
     // Signal message
     static {
@@ -70,6 +99,10 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
         RETRIEVE_LIST_SUCCESSFULLY = "Retrieves the list successfully.";
         BLOCK_UPDATES = "{%s} blocks {%s} successfully.";
         ALREADY_BLOCKED = "{%s} already blocks {%s}.";
+        BLOCKED_CONNECTION = "{%s} and {%s} cannot be connected because one of them blocks the other.";
+        SUGGESTIONS_RETRIEVED = "Friend suggestions retrieved successfully.";
+        BULK_CONNECTIONS_PROCESSED = "Friend connections processed.";
+        TOO_MANY_CONNECTIONS = "Too many connections {%d}. Please send at most %d per request.";
     }
 
     // Exception message
@@ -78,16 +111,34 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
     }
 
     private final UserReactiveDao userReactiveDao;
+    private final UserBatchLoader userBatchLoader;
     private final FriendshipReactiveDao friendshipReactive;
     private final SubscriptionReactiveDao subscriptionReactiveDao;
     private final BlockReactiveRepository blockReactiveRepository;
+    private final SocialGraph socialGraph;
+    private final FriendSetCache friendSetCache;
+    private final BlockIndex blockIndex;
+    private final FriendSuggestions friendSuggestions;
+    private final EmailStreamDao emailStreamDao;
+    private final FriendshipBulkDao friendshipBulkDao;
+    private final RelationBulkDao relationBulkDao;
+    private final PipelineTracer pipelineTracer;
 
     @Autowired
-    public FriendShipReactiveServiceImpl(UserReactiveDao userRepository, FriendshipReactiveDao friendshipRepositoryReactive, SubscriptionReactiveDao subscriptionReactiveDao, BlockReactiveRepository blockReactiveRepository, DatabaseClient r2dbcDatabaseClient) {
+    public FriendShipReactiveServiceImpl(UserReactiveDao userRepository, UserBatchLoader userBatchLoader, FriendshipReactiveDao friendshipRepositoryReactive, SubscriptionReactiveDao subscriptionReactiveDao, BlockReactiveRepository blockReactiveRepository, SocialGraph socialGraph, FriendSetCache friendSetCache, BlockIndex blockIndex, FriendSuggestions friendSuggestions, EmailStreamDao emailStreamDao, FriendshipBulkDao friendshipBulkDao, RelationBulkDao relationBulkDao, DatabaseClient r2dbcDatabaseClient, PipelineTracer pipelineTracer) {
         this.userReactiveDao = userRepository;
+        this.userBatchLoader = userBatchLoader;
         this.friendshipReactive = friendshipRepositoryReactive;
         this.subscriptionReactiveDao = subscriptionReactiveDao;
         this.blockReactiveRepository = blockReactiveRepository;
+        this.socialGraph = socialGraph;
+        this.friendSetCache = friendSetCache;
+        this.blockIndex = blockIndex;
+        this.friendSuggestions = friendSuggestions;
+        this.emailStreamDao = emailStreamDao;
+        this.friendshipBulkDao = friendshipBulkDao;
+        this.relationBulkDao = relationBulkDao;
+        this.pipelineTracer = pipelineTracer;
     }
 
     /**
@@ -99,20 +150,19 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
      */
     @Override
     public Mono<ResponseEntity<Response>> getFriendsListByEmail(FriendListDTO.Request request) throws InvalidEmailException {
+        PipelineTrace trace = pipelineTracer.start("friends");
         return Mono.just(request.getEmail())
                 // to switch to the blocking context
 //                .publishOn(Schedulers.boundedElastic())
                 .filter(this::isValidEmail)
                 .switchIfEmpty(Mono.error(new InvalidEmailException(String.format(INVALID_EMAIL_EXCEPTION, request.getEmail()))))
-                .flatMap(email -> userReactiveDao.findByEmail(email).flux()
-                        .concatMap(user -> friendshipReactive.findByUserIdAndStatus(user.getUserId(), ACCEPTED))
-                        .concatMap(friendship -> userReactiveDao.findByUserId(friendship.getFriendId()))
-                        .map(User::getEmail)
-                        .collectList()
-                        .map(emails -> FriendListDTO.Response
+                .transform(trace.after(Stage.VALIDATION))
+                .flatMap(email -> findFriendEmails(email, request.getLimit(), request.getCursor(), trace)
+                        .map(page -> FriendListDTO.Response
                                         .builder()
-                                        .friends(emails)
-                                        .count(emails.size())
+                                        .friends(page.emails)
+                                        .count(page.emails.size())
+                                        .nextCursor(page.nextCursor)
                                         .build()
                         )
                         .map(friendList -> ResponseEntity.status(HttpStatus.OK).body(
@@ -122,7 +172,8 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
                                         .result(friendList)
                                         .build()
                         )))
-                .log()
+                // Before the fallback, so a failed request is traced as failed
+                .transform(trace.finish(Stage.SERIALIZATION))
                 .onErrorResume(ex -> Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
                         Response.builder()
                                 .method(HttpMethod.POST)
@@ -132,8 +183,7 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
     }
 
     /**
-     * Implement your email validation logic here and return true if the email is valid, false otherwise.
-     * Use regular expressions or any other validation mechanism.
+     * Checks the email with {@link EmailValidator}, a single pass over the chars without regular expressions.
      * Email addresses that will be valid via this email validation technique are:
      * <ul>
      *     <li>username@domain.com</li>
@@ -155,7 +205,7 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
      * @return True if email is valid and contrast
      */
     public boolean isValidEmail(String email) {
-        return Boolean.TRUE.equals(EMAIL_PATTERN.matcher(email).matches());
+        return EmailValidator.isValid(email);
     }
 
 
@@ -168,7 +218,7 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
      */
     @Override
     public Mono<ResponseEntity<Response>> getCommonFriends(CommonFriendDTO.Request request) throws InvalidEmailException {
-
+        PipelineTrace trace = pipelineTracer.start("common");
         return Mono.just(request)
                 //Possibly blocking call in non-blocking context could lead to thread starvation
 //                .publishOn(Schedulers.boundedElastic())
@@ -176,54 +226,41 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
                 .switchIfEmpty(Mono.error(new InvalidEmailException(String.format(INVALID_EMAIL_EXCEPTION, request.getEmail1()))))
                 .filter(email2 -> isValidEmail(request.getEmail2()))
                 .switchIfEmpty(Mono.error(new InvalidEmailException(String.format(INVALID_EMAIL_EXCEPTION, request.getEmail2()))))
-                .flatMap(req -> {
-                    Mono<User> user1 = userReactiveDao.findByEmail(req.getEmail1());
-                    Mono<User> user2 = userReactiveDao.findByEmail(req.getEmail2());
-                    // Perform the remaining logic here to retrieve the common friend list
-                    Flux<Response> response = user1.flatMapMany(u1 ->
-                                    user2.flatMapMany(u2 ->
-                                                    friendshipReactive.findByUserIdAndStatus(u1.getUserId(), ACCEPTED)
-                                                            .concatMap(friendship1 ->
-                                                                    friendshipReactive.findByUserIdAndStatus(u2.getUserId(), ACCEPTED)
-                                                                            .filter(friendship2 -> Objects.equals(friendship1.getFriendId(), friendship2.getFriendId()))
-                                                                            .concatMap(friendship2 ->
-                                                                                    userReactiveDao.findByUserId(friendship2.getFriendId())
-                                                                                            .map(User::getEmail)
-                                                                                            .flux()
-                                                                                            .collectList()
-                                                                                            .map(
-                                                                                                    emails -> CommonFriendDTO.Response.builder()
-                                                                                                            .friends(emails)
-                                                                                                            .count(emails.size())
-                                                                                                            .build())
-                                                                                            .map(
-                                                                                                    commonFriend -> Response.builder()
-                                                                                                            .method(HttpMethod.POST)
-                                                                                                            .message(GET_COMMON_FRIEND_LIST)
-                                                                                                            .result(commonFriend)
-                                                                                                            .build()
-                                                                                            )
-                                                                            )
-                                                            ))// In case of not founding user of email 2
-                                            .switchIfEmpty(Mono.defer(
-                                                    () -> Mono.just(
-                                                            Response.builder()
-                                                                    .method(HttpMethod.POST)
-                                                                    .message(String.format(EMAIL_NOT_FOUND, req.getEmail2()))
-                                                                    .build()
-                                                    )
-                                            ))
-                            ) // In case of not founding user of email 1
-                            .switchIfEmpty(Mono.defer(
-                                    () -> Mono.just(Response.builder()
-                                            .method(HttpMethod.POST)
-                                            .message(String.format(EMAIL_NOT_FOUND, req.getEmail1()))
-                                            .build()
-                                    ))
-                            );
-                    return response.next() // Get the first (and only) element from the Flux
-                            .map(respObj -> ResponseEntity.status(HttpStatus.OK).body(respObj));
-                })
+                .transform(trace.after(Stage.VALIDATION))
+                .flatMap(req -> userBatchLoader.findByEmail(req.getEmail1())
+                        .transform(trace.after(Stage.USER_RESOLUTION))
+                        .flatMap(u1 -> userBatchLoader.findByEmail(req.getEmail2())
+                                .transform(trace.after(Stage.USER_RESOLUTION))
+                                .flatMap(u2 -> findCommonFriendEmails(u1.getUserId(), u2.getUserId(), req.getLimit(), req.getCursor(), trace)
+                                        .map(page -> CommonFriendDTO.Response.builder()
+                                                .friends(page.emails)
+                                                .count(page.emails.size())
+                                                .nextCursor(page.nextCursor)
+                                                .build())
+                                        .map(commonFriend -> Response.builder()
+                                                .method(HttpMethod.POST)
+                                                .message(GET_COMMON_FRIEND_LIST)
+                                                .result(commonFriend)
+                                                .build())
+                                )
+                                // In case of not founding user of email 2
+                                .switchIfEmpty(Mono.defer(
+                                        () -> Mono.just(Response.builder()
+                                                .method(HttpMethod.POST)
+                                                .message(String.format(EMAIL_NOT_FOUND, req.getEmail2()))
+                                                .build())
+                                ))
+                        )
+                        // In case of not founding user of email 1
+                        .switchIfEmpty(Mono.defer(
+                                () -> Mono.just(Response.builder()
+                                        .method(HttpMethod.POST)
+                                        .message(String.format(EMAIL_NOT_FOUND, req.getEmail1()))
+                                        .build())
+                        ))
+                        .map(respObj -> ResponseEntity.status(HttpStatus.OK).body(respObj))
+                )
+                .transform(trace.finish(Stage.SERIALIZATION))
                 // In case of email is invalid, return normally ResponseEntity with a message from a throwable object
                 .onErrorResume(ex -> Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
                         Response.builder()
@@ -241,46 +278,34 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
      */
     @Override
     public Mono<ResponseEntity<Response>> createFriendConnection(FriendConnectionDTO.Request request) throws InvalidEmailException {
-
+        PipelineTrace trace = pipelineTracer.start("connect");
         return Mono.just(request)
                 .filter(email1 -> isValidEmail(request.getEmail1()))
                 .switchIfEmpty(Mono.error(new InvalidEmailException(String.format(INVALID_EMAIL_EXCEPTION, request.getEmail1()))))
                 .filter(email2 -> isValidEmail(request.getEmail2()))
                 .switchIfEmpty(Mono.error(new InvalidEmailException(String.format(INVALID_EMAIL_EXCEPTION, request.getEmail2()))))
+                .transform(trace.after(Stage.VALIDATION))
                 .flatMap(req -> {
                     // Perform the remaining logic here to create the connection bettwen 2 email
-                    Mono<User> user1 = userReactiveDao.findByEmail(req.getEmail1());
+                    Mono<User> user1 = userBatchLoader.findByEmail(req.getEmail1()).transform(trace.after(Stage.USER_RESOLUTION));
                     Flux<Response> response = user1.flux()
                             .concatMap(u1 -> {
-                                        Mono<User> user2 = userReactiveDao.findByEmail(req.getEmail2());
+                                        Mono<User> user2 = userBatchLoader.findByEmail(req.getEmail2()).transform(trace.after(Stage.USER_RESOLUTION));
                                         return user2
                                                 .flatMap(u2 -> {
                                                     int userId1 = u1.getUserId();
                                                     int userId2 = u2.getUserId();
 
-                                                    return friendshipReactive.findByUserIdAndFriendId(userId1, userId2)
-                                                            .flatMap(existingFriendship -> Mono.just(Response.builder()
-                                                                    .result(null)
-                                                                    // TODO: Need to split email by remove @ and get the name before @
-                                                                    .message(String.format(ALREADY_FRIEND, request.getEmail1(), request.getEmail2()))
+                                                    // A blocked pair cannot become friends, answered from the block index
+                                                    return blockIndex.isBlockedEitherWay(userId1, userId2)
+                                                            .filter(blocked -> blocked)
+                                                            .map(blocked -> Response.builder()
+                                                                    .success(UNSUCCESS)
+                                                                    .message(String.format(BLOCKED_CONNECTION, request.getEmail1(), request.getEmail2()))
                                                                     .method(HttpMethod.POST)
-                                                                    .build()))
-                                                            .switchIfEmpty(
-                                                                    Mono.defer(() -> friendshipReactive.save(
-                                                                            Friendship.builder()
-                                                                                    .userId(userId1)
-                                                                                    .friendId(userId2)
-                                                                                    .status(ACCEPTED)
-                                                                                    .build()
-                                                                    )).map(
-                                                                            friendship -> Response.builder()
-                                                                                    .result(friendship)
-                                                                                    .success(SUCCESS)
-                                                                                    .message(SUCCESSFULLY_ESTABLISH_FRIEND)
-                                                                                    .method(HttpMethod.POST)
-                                                                                    .build()
-                                                                    )
-                                                            );
+                                                                    .build())
+                                                            .switchIfEmpty(Mono.defer(() -> createFriendship(request, userId1, userId2)))
+                                                            .transform(trace.after(Stage.RELATIONSHIP_QUERY));
                                                 })
                                                 // In case of not founding user of email 2
                                                 .switchIfEmpty(
@@ -302,6 +327,82 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
                     return response.next() // Get the first (and only) element from the Flux
                             .map(resObject -> ResponseEntity.status(HttpStatus.OK).body(resObject));
                 })
+                .transform(trace.finish(Stage.SERIALIZATION))
+                .onErrorResume(ex -> Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                        Response.builder()
+                                .method(HttpMethod.POST)
+                                .message(ex.getMessage())
+                                .build())));
+    }
+
+    /**
+     * Establishes many friend connections at once. All emails are resolved with a few batched
+     * queries, existing and blocked pairs are filtered out with set queries, and the remaining
+     * pairs are inserted with multi-row statements committed batch by batch.
+     *
+     * @param request The email pairs to connect
+     * @return A Mono&lt;ResponseEntity&lt;ResponseObject&gt;&gt; reporting the outcome of every pair
+     */
+    @Override
+    public Mono<ResponseEntity<Response>> createFriendConnections(BulkFriendConnectionDTO.Request request) {
+        List<FriendConnectionDTO.Request> connections = request.getConnections() == null ? List.of() : request.getConnections();
+        if (connections.size() > MAX_BULK_CONNECTIONS) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    Response.builder()
+                            .method(HttpMethod.POST)
+                            .message(String.format(TOO_MANY_CONNECTIONS, connections.size(), MAX_BULK_CONNECTIONS))
+                            .build()));
+        }
+        Set<String> emails = new HashSet<>();
+        for (FriendConnectionDTO.Request connection : connections) {
+            if (isValidConnection(connection)) {
+                emails.add(connection.getEmail1());
+                emails.add(connection.getEmail2());
+            }
+        }
+        return userReactiveDao.findUserIdsByEmails(emails)
+                .flatMap(userIds -> {
+                    Long[] pairs = new Long[connections.size()];
+                    Set<Long> candidates = new LinkedHashSet<>();
+                    for (int i = 0; i < pairs.length; i++) {
+                        FriendConnectionDTO.Request connection = connections.get(i);
+                        if (isValidConnection(connection)) {
+                            Integer userId1 = userIds.get(UserBatchLoader.normalize(connection.getEmail1()));
+                            Integer userId2 = userIds.get(UserBatchLoader.normalize(connection.getEmail2()));
+                            if (userId1 != null && userId2 != null) {
+                                pairs[i] = UserPairs.pair(userId1, userId2);
+                                candidates.add(pairs[i]);
+                            }
+                        }
+                    }
+                    return Mono.zip(friendshipBulkDao.findExistingFriendships(candidates), findBlockedPairs(candidates))
+                            .flatMap(filters -> {
+                                List<BulkFriendConnectionDTO.Outcome> outcomes = new ArrayList<>(pairs.length);
+                                Set<Long> created = new LinkedHashSet<>();
+                                for (int i = 0; i < pairs.length; i++) {
+                                    // A null entry of the JSON array is reported as an invalid pair
+                                    FriendConnectionDTO.Request connection = connections.get(i);
+                                    outcomes.add(BulkFriendConnectionDTO.Outcome.builder()
+                                            .email1(connection == null ? null : connection.getEmail1())
+                                            .email2(connection == null ? null : connection.getEmail2())
+                                            .status(outcome(connection, pairs[i], filters.getT1(), filters.getT2(), created))
+                                            .build());
+                                }
+                                return friendshipBulkDao.insertFriendships(created, ACCEPTED)
+                                        .map(inserted -> BulkFriendConnectionDTO.Response.builder()
+                                                .outcomes(outcomes)
+                                                .count(outcomes.size())
+                                                .created(inserted)
+                                                .build());
+                            });
+                })
+                .map(bulkResponse -> ResponseEntity.status(HttpStatus.OK).body(
+                        Response.builder()
+                                .method(HttpMethod.POST)
+                                .message(BULK_CONNECTIONS_PROCESSED)
+                                .result(bulkResponse)
+                                .success(SUCCESS)
+                                .build()))
                 .onErrorResume(ex -> Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
                         Response.builder()
                                 .method(HttpMethod.POST)
@@ -309,53 +410,91 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
                                 .build())));
     }
 
+    private boolean isValidConnection(FriendConnectionDTO.Request connection) {
+        return connection != null
+                && connection.getEmail1() != null && isValidEmail(connection.getEmail1())
+                && connection.getEmail2() != null && isValidEmail(connection.getEmail2());
+    }
+
+    /**
+     * @param created Pairs to insert, a pair requested twice is only inserted for its first occurrence
+     */
+    private BulkFriendConnectionDTO.Status outcome(FriendConnectionDTO.Request connection, Long pair,
+                                                   Set<Long> existing, Set<Long> blocked, Set<Long> created) {
+        if (!isValidConnection(connection)) {
+            return BulkFriendConnectionDTO.Status.INVALID_EMAIL;
+        }
+        if (pair == null) {
+            return BulkFriendConnectionDTO.Status.EMAIL_NOT_FOUND;
+        }
+        if (blocked.contains(pair)) {
+            return BulkFriendConnectionDTO.Status.BLOCKED;
+        }
+        if (existing.contains(pair) || !created.add(pair)) {
+            return BulkFriendConnectionDTO.Status.ALREADY_FRIENDS;
+        }
+        return BulkFriendConnectionDTO.Status.CREATED;
+    }
+
+    /**
+     * Blocked pairs from the block index when it is loaded, otherwise from set queries.
+     */
+    private Mono<Set<Long>> findBlockedPairs(Set<Long> pairs) {
+        if (!blockIndex.isReady()) {
+            return friendshipBulkDao.findBlockedPairs(pairs);
+        }
+        return Flux.fromIterable(pairs)
+                .filterWhen(pair -> blockIndex.isBlockedEitherWay(UserPairs.first(pair), UserPairs.second(pair)))
+                .collect(HashSet::new, Set::add);
+    }
+
     /**
      * @param request Contain 2 emails to subscribe to receive the update.
      * @return A Mono&lt;ResponseEntity&lt;ResponseObject&gt&gt;
      * @throws InvalidEmailException When an email is invalid, throw an exception
      */
     public Mono<ResponseEntity<Response>> subscribeToUpdates(SubscribeUpdatesDTO.Request request) throws InvalidEmailException {
-
+        PipelineTrace trace = pipelineTracer.start("subscribe");
         return Mono.just(request)
                 // Possibly blocking call in non-blocking context could lead to thread starvation
                 .filter(email1 -> isValidEmail(request.getEmail1()))
                 .switchIfEmpty(Mono.error(new InvalidEmailException(String.format(INVALID_EMAIL_EXCEPTION, request.getEmail1()))))
                 .filter(email2 -> isValidEmail(request.getEmail2()))
                 .switchIfEmpty(Mono.error(new InvalidEmailException(String.format(INVALID_EMAIL_EXCEPTION, request.getEmail2()))))
+                .transform(trace.after(Stage.VALIDATION))
                 .flatMap(req -> {
-                    Flux<User> subscriberUser = userReactiveDao.findByEmail(req.getEmail1()).flux();
-                    Flux<User> targetUser = userReactiveDao.findByEmail(req.getEmail2()).flux();
+                    Flux<User> subscriberUser = userBatchLoader.findByEmail(req.getEmail1()).transform(trace.after(Stage.USER_RESOLUTION)).flux();
+                    Flux<User> targetUser = userBatchLoader.findByEmail(req.getEmail2()).transform(trace.after(Stage.USER_RESOLUTION)).flux();
                     Flux<Response> response = subscriberUser
                             .concatMap(subscriber -> targetUser
                                     .concatMap(target -> {
-                                        // Check if the subscription already exists
-                                        return subscriptionReactiveDao.findBySubscriberIdAndTargetId(subscriber.getUserId(), target.getUserId())
-                                                .flatMap(existingSubscription -> Mono.just(Response.builder()
+                                        // Create the subscription with a single insert, skipped by the unique
+                                        // pair key when the subscription already exists
+                                        return relationBulkDao.insertSubscriptionIfAbsent(subscriber.getUserId(), target.getUserId())
+                                                .map(
+                                                        savedSubscription -> SubscribeUpdatesDTO.Response.builder()
+                                                                .subscription(savedSubscription)
+                                                                .build()
+                                                )
+                                                .map(
+                                                        savedSubscription -> Response.builder()
+                                                                .message(SUBSCRIBED_SUCCESSFULLY)
+                                                                .result(savedSubscription)
+                                                                .success(SUCCESS)
+                                                                .method(HttpMethod.POST)
+                                                                .build()
+                                                )
+                                                // Already subscribed, read the existing subscription for the response
+                                                .switchIfEmpty(Mono.defer(() -> subscriptionReactiveDao.findBySubscriberIdAndTargetId(subscriber.getUserId(), target.getUserId())
+                                                        .map(existingSubscription -> Response.builder()
                                                                 .method(HttpMethod.POST)
                                                                 .success(SUCCESS)
                                                                 .result(existingSubscription)
                                                                 .message(ALREADY_SUBSCRIPTION)
                                                                 .build()
                                                         )
-                                                )
-                                                .switchIfEmpty(
-                                                        // In case of not founding a subscription between 2 emails.
-                                                        // Need to Create a new subscription
-                                                        subscriptionReactiveDao.save(new Subscription(subscriber.getUserId(), target.getUserId()))
-                                                                .map(
-                                                                        savedSubscription -> SubscribeUpdatesDTO.Response.builder()
-                                                                                .subscription(savedSubscription)
-                                                                                .build()
-                                                                )
-                                                                .map(
-                                                                        savedSubscription -> Response.builder()
-                                                                                .message(SUBSCRIBED_SUCCESSFULLY)
-                                                                                .result(savedSubscription)
-                                                                                .success(SUCCESS)
-                                                                                .method(HttpMethod.POST)
-                                                                                .build()
-                                                                )
-                                                );
+                                                ))
+                                                .transform(trace.after(Stage.RELATIONSHIP_QUERY));
                                     })
                                     // If the target user is not found
                                     .switchIfEmpty(
@@ -377,6 +516,7 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
                     return response.next() // Get the first (and only) element from the Flux
                             .map(resObject -> ResponseEntity.status(HttpStatus.OK).body(resObject));
                 })
+                .transform(trace.finish(Stage.SERIALIZATION))
                 .onErrorResume(ex -> Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
                         Response.builder()
                                 .method(HttpMethod.POST)
@@ -394,15 +534,17 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
      */
     @Override
     public Mono<ResponseEntity<Response>> blockUpdates(BlockUpdateDTO.Request request) {
+        PipelineTrace trace = pipelineTracer.start("block");
         return Mono.just(request)
                 // Possibly blocking call in non-blocking context could lead to thread starvation
                 .filter(email1 -> isValidEmail(request.getEmail1()))
                 .switchIfEmpty(Mono.error(new InvalidEmailException(String.format(INVALID_EMAIL_EXCEPTION, request.getEmail1()))))
                 .filter(email2 -> isValidEmail(request.getEmail2()))
                 .switchIfEmpty(Mono.error(new InvalidEmailException(String.format(INVALID_EMAIL_EXCEPTION, request.getEmail2()))))
+                .transform(trace.after(Stage.VALIDATION))
                 .flatMap(req -> {
-                    Flux<User> user1 = userReactiveDao.findByEmail(req.getEmail1()).flux();
-                    Flux<User> user2 = userReactiveDao.findByEmail(req.getEmail2()).flux();
+                    Flux<User> user1 = userBatchLoader.findByEmail(req.getEmail1()).transform(trace.after(Stage.USER_RESOLUTION)).flux();
+                    Flux<User> user2 = userBatchLoader.findByEmail(req.getEmail2()).transform(trace.after(Stage.USER_RESOLUTION)).flux();
                     Flux<Response> response = user1.concatMap(u1 ->
                                     user2.concatMap(u2 ->
                                             {
@@ -415,6 +557,8 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
                                                                     // They are friends, delete the subscription
                                                                     Mono<Void> subscriberIdAndTargetId = subscriptionReactiveDao.deleteBySubscriberIdAndTargetId(userId1, userId2);
                                                                     return subscriberIdAndTargetId
+                                                                            // Deletes have no entity callback, keep the in-memory graph in step here
+                                                                            .doOnSuccess(deleted -> socialGraph.removeSubscription(userId1, userId2))
                                                                             .then(Mono.just(Response.builder()
                                                                                     .success(SUCCESS)
                                                                                     .method(HttpMethod.POST)
@@ -423,25 +567,19 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
                                                                 }
                                                         )
                                                         .switchIfEmpty(Mono.defer(() -> {
-                                                            // They are not friends, add to the block table
-                                                            return blockReactiveRepository.findByBlockerIdAndBlockedId(userId1, userId2)
-                                                                    .flatMap(exist -> Mono.just(Response.builder()
+                                                            // They are not friends, add to the block table, a single insert that
+                                                            // is skipped by the unique pair key when the block already exists
+                                                            return relationBulkDao.insertBlockIfAbsent(userId1, userId2)
+                                                                    .map(block -> Response.builder()
+                                                                            .success(SUCCESS)
+                                                                            .method(HttpMethod.POST)
+                                                                            .message(String.format(BLOCK_UPDATES, req.getEmail1(), req.getEmail2()))
+                                                                            .build())
+                                                                    .switchIfEmpty(Mono.fromSupplier(() -> Response.builder()
                                                                             .success(SUCCESS)
                                                                             .method(HttpMethod.POST)
                                                                             .message(String.format(ALREADY_BLOCKED, req.getEmail1(), req.getEmail2()))
-                                                                            .build()))
-                                                                    .switchIfEmpty(Mono.defer(
-                                                                            () -> blockReactiveRepository.save(
-                                                                                    Block.builder()
-                                                                                            .blockerId(userId1)
-                                                                                            .blockedId(userId2)
-                                                                                            .build()
-                                                                            ).map(block -> Response.builder()
-                                                                                    .success(SUCCESS)
-                                                                                    .method(HttpMethod.POST)
-                                                                                    .message(String.format(BLOCK_UPDATES, req.getEmail1(), req.getEmail2()))
-                                                                                    .build())
-                                                                    ));
+                                                                            .build()));
 
 
                                                         }));
@@ -463,8 +601,10 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
                                     )));
                     return response
                             .next()
+                            .transform(trace.after(Stage.RELATIONSHIP_QUERY))
                             .map(resObject -> ResponseEntity.status(HttpStatus.OK).body(resObject));
                 })
+                .transform(trace.finish(Stage.SERIALIZATION))
                 .onErrorResume(ex -> Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
                         Response.builder()
                                 .method(HttpMethod.POST)
@@ -475,52 +615,46 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
     }
 
     /**
-     * Retrieves all email addresses that can receive updates from an email address.
+     * Retrieves all email addresses that can receive updates from an email address,
+     * including the users @mentioned in the text of the update who did not block the sender.
      *
      * @param request contain email that wants to receive the update
      * @return A Mono&lt;ResponseEntity&lt;ResponseObject&gt;&gt;
      */
     @Override
     public Mono<ResponseEntity<Response>> getEligibleEmailAddresses(EligibleEmailAddressesDTO.Request request) throws InvalidEmailException {
+        PipelineTrace trace = pipelineTracer.start("updatable");
         return Mono.just(request)
-                // Possibly blocking call in non-blocking context could lead to thread starvation
                 .filter(email -> isValidEmail(request.getEmail()))
                 .switchIfEmpty(Mono.error(new InvalidEmailException(String.format(INVALID_EMAIL_EXCEPTION, request.getEmail()))))
-                .flatMap(req -> {
-                            Mono<Response> response = userReactiveDao.findByEmail(req.getEmail())
-                                    .flatMapMany(senderUser -> Flux.concat(
-                                            friendshipReactive.findByUserId(senderUser.getUserId())
-                                                    .map(Friendship::getFriendId),
-                                            subscriptionReactiveDao.findBySubscriberId(senderUser.getUserId())
-                                                    .map(Subscription::getTargetId)
-                                    ))
-                                    .distinct()
-                                    .publishOn(Schedulers.boundedElastic())
-                                    .filter(
-                                            targetUserId -> blockReactiveRepository
-                                                    .findByBlockerId(targetUserId).blockOptional().isEmpty()
-                                    )
-                                    .flatMap(
-                                            userReactiveDao::findByUserId
-                                    )
-                                    .map(User::getEmail)
-                                    .collectList()
-                                    .map(emails -> EligibleEmailAddressesDTO.Response
-                                            .builder()
-                                            .friends(emails)
-                                            .count(emails.size())
-                                            .build())
-                                    .map(emails -> Response.builder()
-                                            .method(HttpMethod.POST)
-                                            .message(RETRIEVE_LIST_SUCCESSFULLY)
-                                            .result(emails)
-                                            .success(SUCCESS)
-                                            .build());
-                            return response.map(
-                                    emails -> ResponseEntity.status(HttpStatus.OK).body(emails)
-                            );
-                        }
+                .transform(trace.after(Stage.VALIDATION))
+                .flatMap(req -> userBatchLoader.findByEmail(req.getEmail())
+                        .transform(trace.after(Stage.USER_RESOLUTION))
+                        .flatMap(senderUser -> findEligibleRecipientEmails(senderUser.getUserId(), req.getText(), req.getLimit(), req.getCursor(), trace)
+                                .map(page -> EligibleEmailAddressesDTO.Response
+                                        .builder()
+                                        .friends(page.emails)
+                                        .count(page.emails.size())
+                                        .nextCursor(page.nextCursor)
+                                        .build())
+                                .map(emails -> Response.builder()
+                                        .method(HttpMethod.POST)
+                                        .message(RETRIEVE_LIST_SUCCESSFULLY)
+                                        .result(emails)
+                                        .success(SUCCESS)
+                                        .build())
+                        )
+                        // In case of not founding the sender
+                        .switchIfEmpty(Mono.defer(
+                                () -> Mono.just(Response.builder()
+                                        .method(HttpMethod.POST)
+                                        .success(SUCCESS)
+                                        .message(String.format(EMAIL_NOT_FOUND, req.getEmail()))
+                                        .build())
+                        ))
+                        .map(emails -> ResponseEntity.status(HttpStatus.OK).body(emails))
                 )
+                .transform(trace.finish(Stage.SERIALIZATION))
                 .onErrorResume(ex -> Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
                         Response.builder()
                                 .method(HttpMethod.POST)
@@ -528,4 +662,361 @@ public class FriendShipReactiveServiceImpl implements FriendShipReactiveService
                                 .build()))
                 );
     }
-}
\ No newline at end of file
+
+    /**
+     * Streams the friend list of an email address row by row instead of collecting it into one envelope.
+     *
+     * @param request Email that wants to get the friend list of this email
+     * @return 400 for an invalid email, 404 for an unknown email, otherwise the friend emails
+     */
+    @Override
+    public Mono<ResponseEntity<Flux<EmailStreamDTO.Row>>> streamFriendsListByEmail(FriendListDTO.Request request) {
+        if (request.getEmail() == null || !isValidEmail(request.getEmail())) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return userBatchLoader.findByEmail(request.getEmail())
+                .map(user -> ResponseEntity.ok(emailStreamDao.streamFriendEmails(request.getEmail(), ACCEPTED).map(this::toRow)))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Streams the email addresses that can receive updates from an email address row by row,
+     * followed by the users @mentioned in the text who are not among them, as the JSON form answers.
+     *
+     * @param request contain email that wants to receive the update
+     * @return 400 for an invalid email, 404 for an unknown email, otherwise the recipient emails
+     */
+    @Override
+    public Mono<ResponseEntity<Flux<EmailStreamDTO.Row>>> streamEligibleEmailAddresses(EligibleEmailAddressesDTO.Request request) {
+        if (request.getEmail() == null || !isValidEmail(request.getEmail())) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return userBatchLoader.findByEmail(request.getEmail())
+                .map(sender -> ResponseEntity.ok(streamEligibleRecipientEmails(sender.getUserId(), request.getText()).map(this::toRow)))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Only the mentioned recipients are held in memory, those seen in the stream are dropped
+     * from them and the rest are streamed after it.
+     */
+    private Flux<String> streamEligibleRecipientEmails(Integer senderId, String text) {
+        Flux<String> recipients = emailStreamDao.streamEligibleRecipientEmails(senderId, ACCEPTED);
+        List<String> mentions = MentionExtractor.extract(text, MAX_MENTIONS);
+        if (mentions.isEmpty()) {
+            return recipients;
+        }
+        return findMentionedRecipients(senderId, mentions).flatMapMany(mentioned -> {
+            Map<String, String> pending = new LinkedHashMap<>();
+            mentioned.forEach(user -> pending.putIfAbsent(UserBatchLoader.normalize(user.getEmail()), user.getEmail()));
+            return recipients.doOnNext(email -> pending.remove(UserBatchLoader.normalize(email)))
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(pending.values())));
+        });
+    }
+
+    private EmailStreamDTO.Row toRow(String email) {
+        return EmailStreamDTO.Row.builder().email(email).build();
+    }
+
+    /**
+     * Suggests the users who are not yet friends of an email address, ranked by the number
+     * of mutual friends. Existing friends and users blocking or blocked by the email are excluded.
+     *
+     * @param request contain the email to suggest friends to and the maximum number of suggestions
+     * @return A Mono&lt;ResponseEntity&lt;ResponseObject&gt;&gt;
+     */
+    @Override
+    public Mono<ResponseEntity<Response>> getSuggestions(SuggestionDTO.Request request) throws InvalidEmailException {
+        int limit = request.getLimit() == null
+                ? DEFAULT_SUGGESTION_LIMIT
+                : Math.max(1, Math.min(MAX_SUGGESTION_LIMIT, request.getLimit()));
+        return Mono.just(request)
+                .filter(email -> isValidEmail(request.getEmail()))
+                .switchIfEmpty(Mono.error(new InvalidEmailException(String.format(INVALID_EMAIL_EXCEPTION, request.getEmail()))))
+                .flatMap(req -> userBatchLoader.findByEmail(req.getEmail())
+                        .flatMap(user -> friendSuggestions.suggest(user.getUserId(), limit))
+                        .flatMap(ranking -> userReactiveDao.findEmailsByUserIds(ranking.userIdList())
+                                .map(emailsById -> {
+                                    List<SuggestionDTO.Suggestion> suggestions = new ArrayList<>();
+                                    for (int i = 0; i < ranking.getUserIds().length; i++) {
+                                        String email = emailsById.get(ranking.getUserIds()[i]);
+                                        if (email != null) {
+                                            suggestions.add(SuggestionDTO.Suggestion.builder()
+                                                    .email(email)
+                                                    .mutualFriends(ranking.getMutualFriends()[i])
+                                                    .build());
+                                        }
+                                    }
+                                    return SuggestionDTO.Response.builder()
+                                            .suggestions(suggestions)
+                                            .count(suggestions.size())
+                                            .partial(ranking.isPartial())
+                                            .build();
+                                })
+                                .map(suggestions -> Response.builder()
+                                        .method(HttpMethod.POST)
+                                        .message(SUGGESTIONS_RETRIEVED)
+                                        .result(suggestions)
+                                        .success(SUCCESS)
+                                        .build())
+                        )
+                        // In case of not founding the user
+                        .switchIfEmpty(Mono.defer(
+                                () -> Mono.just(Response.builder()
+                                        .method(HttpMethod.POST)
+                                        .success(SUCCESS)
+                                        .message(String.format(EMAIL_NOT_FOUND, req.getEmail()))
+                                        .build())
+                        ))
+                        .map(response -> ResponseEntity.status(HttpStatus.OK).body(response))
+                )
+                .onErrorResume(ex -> Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                        Response.builder()
+                                .method(HttpMethod.POST)
+                                .message(ex.getMessage())
+                                .build()))
+                );
+    }
+
+    /**
+     * Saves an accepted friendship unless the users are already friends.
+     */
+    private Mono<Response> createFriendship(FriendConnectionDTO.Request request, int userId1, int userId2) {
+        // A single insert, skipped by the unique pair key when the pair already has a friendship
+        return friendshipBulkDao.insertFriendshipIfAbsent(userId1, userId2, ACCEPTED)
+                .map(
+                        friendship -> Response.builder()
+                                .result(friendship)
+                                .success(SUCCESS)
+                                .message(SUCCESSFULLY_ESTABLISH_FRIEND)
+                                .method(HttpMethod.POST)
+                                .build()
+                )
+                .switchIfEmpty(Mono.fromSupplier(() -> Response.builder()
+                        .result(null)
+                        // TODO: Need to split email by remove @ and get the name before @
+                        .message(String.format(ALREADY_FRIEND, request.getEmail1(), request.getEmail2()))
+                        .method(HttpMethod.POST)
+                        .build()));
+    }
+
+    /**
+     * Friend emails of a user, from the in-memory graph when it is loaded,
+     * otherwise from a single join query instead of one lookup per friend.
+     * With a limit, only the page after the cursor is read.
+     */
+    private Mono<EmailPage> findFriendEmails(String email, Integer limit, String cursor, PipelineTrace trace) {
+        if (limit != null) {
+            int afterId = PageCursor.decode(cursor);
+            int size = pageSize(limit);
+            if (socialGraph.isReady()) {
+                return userBatchLoader.findByEmail(email)
+                        .transform(trace.after(Stage.USER_RESOLUTION))
+                        .flatMap(user -> pageOf(friendIds(user.getUserId(), trace), afterId, size))
+                        .transform(trace.after(Stage.EMAIL_RESOLUTION))
+                        .defaultIfEmpty(EmailPage.of(List.of()));
+            }
+            return pageOf(friendshipReactive.findFriendPageByEmailAndStatus(email, ACCEPTED, afterId, size + 1), size)
+                    .transform(trace.after(Stage.RELATIONSHIP_QUERY));
+        }
+        if (socialGraph.isReady()) {
+            return userBatchLoader.findByEmail(email)
+                    .transform(trace.after(Stage.USER_RESOLUTION))
+                    .flatMap(user -> findEmailsByUserIds(friendIds(user.getUserId(), trace)))
+                    .transform(trace.after(Stage.EMAIL_RESOLUTION))
+                    .defaultIfEmpty(List.of())
+                    .map(EmailPage::of);
+        }
+        return friendshipReactive.findFriendEmailsByEmailAndStatus(email, ACCEPTED).collectList().map(EmailPage::of)
+                .transform(trace.after(Stage.RELATIONSHIP_QUERY));
+    }
+
+    private int[] friendIds(int userId, PipelineTrace trace) {
+        int[] friendIds = socialGraph.friends(userId);
+        trace.mark(Stage.RELATIONSHIP_QUERY);
+        return friendIds;
+    }
+
+    /**
+     * Common friend emails of two users, intersected as cached friend bitmaps or in the
+     * in-memory graph when either is available, otherwise by one self-join query.
+     * With a limit, only the page after the cursor is read.
+     */
+    private Mono<EmailPage> findCommonFriendEmails(Integer userId1, Integer userId2, Integer limit, String cursor, PipelineTrace trace) {
+        if (limit != null) {
+            int afterId = PageCursor.decode(cursor);
+            int size = pageSize(limit);
+            if (friendSetCache.isEnabled()) {
+                return friendSetCache.commonFriends(userId1, userId2)
+                        .transform(trace.after(Stage.RELATIONSHIP_QUERY))
+                        .flatMap(userIds -> pageOf(userIds, afterId, size))
+                        .transform(trace.after(Stage.EMAIL_RESOLUTION));
+            }
+            if (socialGraph.isReady()) {
+                int[] commonFriendIds = socialGraph.commonFriends(userId1, userId2);
+                trace.mark(Stage.RELATIONSHIP_QUERY);
+                return pageOf(commonFriendIds, afterId, size).transform(trace.after(Stage.EMAIL_RESOLUTION));
+            }
+            return pageOf(friendshipReactive.findCommonFriendPage(userId1, userId2, ACCEPTED, afterId, size + 1), size)
+                    .transform(trace.after(Stage.RELATIONSHIP_QUERY));
+        }
+        if (friendSetCache.isEnabled()) {
+            return friendSetCache.commonFriends(userId1, userId2)
+                    .transform(trace.after(Stage.RELATIONSHIP_QUERY))
+                    .flatMap(this::findEmailsByUserIds)
+                    .transform(trace.after(Stage.EMAIL_RESOLUTION))
+                    .map(EmailPage::of);
+        }
+        if (socialGraph.isReady()) {
+            int[] commonFriendIds = socialGraph.commonFriends(userId1, userId2);
+            trace.mark(Stage.RELATIONSHIP_QUERY);
+            return findEmailsByUserIds(commonFriendIds).transform(trace.after(Stage.EMAIL_RESOLUTION)).map(EmailPage::of);
+        }
+        return friendshipReactive.findCommonFriendEmails(userId1, userId2, ACCEPTED).collectList().map(EmailPage::of)
+                .transform(trace.after(Stage.RELATIONSHIP_QUERY));
+    }
+
+    /**
+     * Friends and subscribers of the sender minus the users blocking the sender, from the
+     * in-memory graph when it is loaded, otherwise by one anti-join query.
+     * With a limit, only the page after the cursor is read.
+     */
+    private Mono<EmailPage> findEligibleRecipientEmails(Integer senderId, String text, Integer limit, String cursor, PipelineTrace trace) {
+        List<String> mentions = MentionExtractor.extract(text, MAX_MENTIONS);
+        if (mentions.isEmpty()) {
+            return findEligibleRecipientEmails(senderId, limit, cursor, trace);
+        }
+        return findMentionedRecipients(senderId, mentions).transform(trace.after(Stage.USER_RESOLUTION)).flatMap(mentioned -> {
+            if (socialGraph.isReady()) {
+                int[] recipientIds = IntSets.union(socialGraph.eligibleRecipients(senderId),
+                        mentioned.stream().mapToInt(User::getUserId).toArray());
+                trace.mark(Stage.RELATIONSHIP_QUERY);
+                if (limit != null) {
+                    return pageOf(recipientIds, PageCursor.decode(cursor), pageSize(limit)).transform(trace.after(Stage.EMAIL_RESOLUTION));
+                }
+                return findEmailsByUserIds(recipientIds).transform(trace.after(Stage.EMAIL_RESOLUTION)).map(EmailPage::of);
+            }
+            if (limit != null) {
+                int afterId = PageCursor.decode(cursor);
+                int size = pageSize(limit);
+                // The first size + 1 recipients of the union are among those of either side
+                return pageOf(userReactiveDao.findEligibleRecipientPage(senderId, ACCEPTED, afterId, size + 1)
+                        .concatWith(Flux.fromIterable(mentioned).filter(user -> user.getUserId() > afterId))
+                        .distinct(User::getUserId)
+                        .sort(Comparator.comparingInt(User::getUserId))
+                        .take(size + 1), size)
+                        .transform(trace.after(Stage.RELATIONSHIP_QUERY));
+            }
+            return userReactiveDao.findEligibleRecipientEmails(senderId, ACCEPTED)
+                    .concatWith(Flux.fromIterable(mentioned).map(User::getEmail))
+                    .distinct(UserBatchLoader::normalize)
+                    .collectList()
+                    .map(EmailPage::of)
+                    .transform(trace.after(Stage.RELATIONSHIP_QUERY));
+        });
+    }
+
+    /**
+     * Resolves the mentioned emails with one batch lookup and drops the sender and the users
+     * who block the sender, the same rule the friends and subscribers are held to.
+     *
+     * @return The mentioned recipients sorted by id
+     */
+    private Mono<List<User>> findMentionedRecipients(Integer senderId, List<String> mentions) {
+        Flux<User> users = userReactiveDao.findByEmailsInChunks(mentions)
+                .filter(user -> user.getUserId() != senderId);
+        Flux<User> recipients;
+        if (blockIndex.isReady()) {
+            recipients = users.filterWhen(user -> blockIndex.isBlocked(user.getUserId(), senderId).map(blocked -> !blocked));
+        } else {
+            recipients = users.collectList()
+                    .flatMapMany(candidates -> candidates.isEmpty()
+                            ? Flux.<User>empty()
+                            : blockReactiveRepository.findBlockerIds(senderId,
+                                            candidates.stream().map(User::getUserId).collect(Collectors.toList()))
+                                    .collect(Collectors.toSet())
+                                    .flatMapIterable(blockerIds -> candidates.stream()
+                                            .filter(user -> !blockerIds.contains(user.getUserId()))
+                                            .collect(Collectors.toList())));
+        }
+        return recipients.sort(Comparator.comparingInt(User::getUserId)).collectList();
+    }
+
+    private Mono<EmailPage> findEligibleRecipientEmails(Integer senderId, Integer limit, String cursor, PipelineTrace trace) {
+        if (limit != null) {
+            int afterId = PageCursor.decode(cursor);
+            int size = pageSize(limit);
+            if (socialGraph.isReady()) {
+                int[] recipientIds = socialGraph.eligibleRecipients(senderId);
+                trace.mark(Stage.RELATIONSHIP_QUERY);
+                return pageOf(recipientIds, afterId, size).transform(trace.after(Stage.EMAIL_RESOLUTION));
+            }
+            return pageOf(userReactiveDao.findEligibleRecipientPage(senderId, ACCEPTED, afterId, size + 1), size)
+                    .transform(trace.after(Stage.RELATIONSHIP_QUERY));
+        }
+        if (socialGraph.isReady()) {
+            int[] recipientIds = socialGraph.eligibleRecipients(senderId);
+            trace.mark(Stage.RELATIONSHIP_QUERY);
+            return findEmailsByUserIds(recipientIds).transform(trace.after(Stage.EMAIL_RESOLUTION)).map(EmailPage::of);
+        }
+        return userReactiveDao.findEligibleRecipientEmails(senderId, ACCEPTED).collectList().map(EmailPage::of)
+                .transform(trace.after(Stage.RELATIONSHIP_QUERY));
+    }
+
+    private Mono<List<String>> findEmailsByUserIds(int[] userIds) {
+        return userReactiveDao.findEmailsByUserIds(Arrays.stream(userIds).boxed().collect(Collectors.toList()))
+                .map(emailsById -> new ArrayList<>(emailsById.values()));
+    }
+
+    /**
+     * Seeks past {@code afterId} in the sorted ids and resolves the emails of one page. Whether
+     * another page follows is decided from the ids, so ids without a user row shorten the page
+     * but do not end the paging.
+     */
+    private Mono<EmailPage> pageOf(int[] sortedUserIds, int afterId, int size) {
+        int from = Arrays.binarySearch(sortedUserIds, afterId);
+        from = from >= 0 ? from + 1 : -from - 1;
+        int to = Math.min(sortedUserIds.length, from + size);
+        List<Integer> userIds = Arrays.stream(sortedUserIds, from, to)
+                .boxed()
+                .collect(Collectors.toList());
+        String nextCursor = to < sortedUserIds.length ? PageCursor.encode(sortedUserIds[to - 1]) : null;
+        return userReactiveDao.findEmailsByUserIds(userIds)
+                .map(emailsById -> new EmailPage(new ArrayList<>(emailsById.values()), nextCursor));
+    }
+
+    /**
+     * @param rows Up to {@code size + 1} users ordered by id
+     */
+    private static Mono<EmailPage> pageOf(Flux<User> rows, int size) {
+        return rows.collectList().map(users -> {
+            if (users.size() <= size) {
+                return EmailPage.of(users.stream().map(User::getEmail).collect(Collectors.toList()));
+            }
+            List<User> page = users.subList(0, size);
+            return new EmailPage(page.stream().map(User::getEmail).collect(Collectors.toList()),
+                    PageCursor.encode(page.get(size - 1).getUserId()));
+        });
+    }
+
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(MAX_PAGE_SIZE, limit));
+    }
+
+    /**
+     * One page of emails, {@link #nextCursor} is null on the last page.
+     */
+    private static final class EmailPage {
+        private final List<String> emails;
+        private final String nextCursor;
+
+        private EmailPage(List<String> emails, String nextCursor) {
+            this.emails = emails;
+            this.nextCursor = nextCursor;
+        }
+
+        private static EmailPage of(List<String> emails) {
+            return new EmailPage(emails, null);
+        }
+    }
+}
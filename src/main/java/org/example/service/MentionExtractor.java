@@ -0,0 +1,101 @@
+package org.example.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the email addresses mentioned in the text of an update, written with or without a
+ * leading {@code @}, e.g. {@code "Hello @kate@example.com, see john@example.com."}.
+ * <p>
+ * The text is scanned once, char by char, without regular expressions. A token is a run of
+ * the chars an email may contain; it ends at whitespace or punctuation such as {@code , ; ! ? ( ) " '}.
+ * Tokens containing any other char, e.g. {@code user+tag@example.com}, are dropped whole rather
+ * than cut down to a different address. Tokens with an {@code @} are checked in place by
+ * {@link EmailValidator}, only valid addresses are copied into Strings.
+ */
+final class MentionExtractor {
+    private static final byte FOREIGN = 0;
+    private static final byte EMAIL = 1;
+    private static final byte DELIMITER = 2;
+    private static final byte[] CLASSES = new byte[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            CLASSES[c] = EMAIL;
+            CLASSES[Character.toUpperCase(c)] = EMAIL;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CLASSES[c] = EMAIL;
+        }
+        for (char c : "_-.@".toCharArray()) {
+            CLASSES[c] = EMAIL;
+        }
+        for (char c = 0; c <= ' '; c++) {
+            CLASSES[c] = DELIMITER;
+        }
+        for (char c : ",;:!?()[]{}<>\"'".toCharArray()) {
+            CLASSES[c] = DELIMITER;
+        }
+    }
+
+    private MentionExtractor() {
+    }
+
+    /**
+     * @param text        Update text, may be null
+     * @param maxMentions Maximum number of addresses returned, later ones are ignored
+     * @return The mentioned addresses in text order, repeats included
+     */
+    static List<String> extract(String text, int maxMentions) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+        List<String> mentions = null;
+        int length = text.length();
+        int start = 0;
+        boolean at = false;
+        boolean foreign = false;
+        for (int i = 0; i <= length; i++) {
+            byte type = i == length ? DELIMITER : classOf(text.charAt(i));
+            if (type != DELIMITER) {
+                if (type == FOREIGN) {
+                    foreign = true;
+                } else if (text.charAt(i) == '@') {
+                    // A leading '@' marks the mention and is not part of the address
+                    if (i == start) {
+                        start++;
+                    } else {
+                        at = true;
+                    }
+                }
+                continue;
+            }
+            int end = i;
+            // The sentence may end right after the address
+            while (end > start && text.charAt(end - 1) == '.') {
+                end--;
+            }
+            if (at && !foreign && EmailValidator.isValid(text, start, end)) {
+                if (mentions == null) {
+                    mentions = new ArrayList<>();
+                }
+                mentions.add(text.substring(start, end));
+                if (mentions.size() == maxMentions) {
+                    break;
+                }
+            }
+            start = i + 1;
+            at = false;
+            foreign = false;
+        }
+        return mentions == null ? Collections.emptyList() : mentions;
+    }
+
+    private static byte classOf(char c) {
+        if (c < CLASSES.length) {
+            return CLASSES[c];
+        }
+        return Character.isWhitespace(c) || Character.isSpaceChar(c) ? DELIMITER : FOREIGN;
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.service;
+
+import org.example.model.Response;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * What became of a request, read from the response the service produced. The service answers
+ * most failures with a message rather than a status, so the messages are matched against the
+ * formats of {@link FriendShipReactiveServiceImpl}.
+ */
+public enum Outcome {
+    SUCCESS("success"),
+    NOT_FOUND("not_found"),
+    INVALID_EMAIL("invalid_email"),
+    ERROR("error");
+
+    private static final String INVALID_EMAIL_PREFIX = prefix(FriendShipReactiveServiceImpl.INVALID_EMAIL_EXCEPTION);
+    private static final String[] NOT_FOUND_PREFIXES = {
+            prefix(FriendShipReactiveServiceImpl.EMAIL_NOT_FOUND),
+            prefix(FriendShipReactiveServiceImpl.SUBSCRIBER_USER_NOT_FOUND),
+            prefix(FriendShipReactiveServiceImpl.TARGET_USER_NOT_FOUND)
+    };
+
+    private final String tag;
+
+    Outcome(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * @return Value of the {@code outcome} tag on the request metrics
+     */
+    public String tag() {
+        return tag;
+    }
+
+    /**
+     * A 400 without a {@link Response} body, as the streaming endpoints answer, is an invalid email.
+     *
+     * @param response Response of the service, null when it completed empty
+     */
+    public static Outcome of(ResponseEntity<?> response) {
+        if (response == null || response.getStatusCode().is5xxServerError()) {
+            return ERROR;
+        }
+        String message = response.getBody() instanceof Response ? ((Response) response.getBody()).getMessage() : null;
+        if (response.getStatusCode() == HttpStatus.NOT_FOUND) {
+            return NOT_FOUND;
+        }
+        if (response.getStatusCode().is4xxClientError()) {
+            return message == null || message.startsWith(INVALID_EMAIL_PREFIX) ? INVALID_EMAIL : ERROR;
+        }
+        if (message != null) {
+            for (String prefix : NOT_FOUND_PREFIXES) {
+                if (message.startsWith(prefix)) {
+                    return NOT_FOUND;
+                }
+            }
+        }
+        return SUCCESS;
+    }
+
+    private static String prefix(String format) {
+        return format.substring(0, format.indexOf('{'));
+    }
+}
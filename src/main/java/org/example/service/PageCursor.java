@@ -0,0 +1,45 @@
+package org.example.service;
+
+import org.example.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursors of the paginated list endpoints. A cursor carries the id of the
+ * last element of a page; clients only pass it back as {@code cursor} to get the next page.
+ */
+final class PageCursor {
+    private static final String PREFIX = "after:";
+    private static final String INVALID_CURSOR = "Invalid cursor {%s}. Please pass the nextCursor of a previous page.";
+
+    private PageCursor() {
+    }
+
+    static String encode(int lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor Cursor of a previous page, or null for the first page
+     * @return The id to continue after, 0 for the first page
+     * @throws InvalidCursorException When the cursor was not produced by {@link #encode}
+     */
+    static int decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (decoded.startsWith(PREFIX)) {
+                int lastId = Integer.parseInt(decoded.substring(PREFIX.length()));
+                if (lastId >= 0) {
+                    return lastId;
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            // Not base64 or not a number, reported below
+        }
+        throw new InvalidCursorException(String.format(INVALID_CURSOR, cursor));
+    }
+}
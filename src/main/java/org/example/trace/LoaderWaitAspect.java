@@ -0,0 +1,38 @@
+package org.example.trace;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Accounts the lookups of the user loader as queue time of the {@link RequestTiming} in the
+ * context. The query of a batch runs outside any request and serves several of them, so the
+ * wait for it is what a request sees of it.
+ * <p>
+ * Only registered with {@code friendsmanagement.server-timing.enabled}.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "friendsmanagement.server-timing.enabled", havingValue = "true")
+public class LoaderWaitAspect {
+
+    @Around("execution(public reactor.core.publisher.Mono org.example.repository.UserBatchLoader.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        return timed((Mono<?>) joinPoint.proceed());
+    }
+
+    private static <T> Mono<T> timed(Mono<T> lookup) {
+        return Mono.deferContextual(context -> {
+            RequestTiming timing = context.getOrDefault(RequestTiming.CONTEXT_KEY, null);
+            if (timing == null) {
+                return lookup;
+            }
+            long start = System.nanoTime();
+            return lookup.doOnSuccess(user -> timing.addQueue(System.nanoTime() - start))
+                    .doOnError(error -> timing.addQueue(System.nanoTime() - start));
+        });
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.trace;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Per-stage timings of one request through a service pipeline. A mark accounts the time since
+ * the previous mark, or the start, to a {@link Stage}; a stage marked twice adds up, as the two
+ * user lookups of a pair request do. The marks of one request are sequential, each step of the
+ * pipeline starts when the previous one emitted.
+ * <p>
+ * {@link #DISABLED} stands for every request that is not sampled. Its marks return at once and
+ * its operators are the identity, so an unsampled request allocates nothing and runs the same
+ * operator chain as without tracing.
+ */
+public final class PipelineTrace {
+    private static final Stage[] STAGES = Stage.values();
+    private static final Function<Mono<Object>, Mono<Object>> IDENTITY = mono -> mono;
+
+    // After STAGES, which the constructor reads
+    public static final PipelineTrace DISABLED = new PipelineTrace(null, null, 0L);
+
+    private final PipelineTracer tracer;
+    private final String pipeline;
+    private final long startNanos;
+    private final long[] stageNanos = new long[STAGES.length];
+    private int markedStages;
+    private long lastNanos;
+    private long totalNanos;
+    private boolean failed;
+
+    PipelineTrace(PipelineTracer tracer, String pipeline, long startNanos) {
+        this.tracer = tracer;
+        this.pipeline = pipeline;
+        this.startNanos = startNanos;
+        this.lastNanos = startNanos;
+    }
+
+    public boolean isSampled() {
+        return tracer != null;
+    }
+
+    /**
+     * Accounts the time since the previous mark to {@code stage}.
+     */
+    public void mark(Stage stage) {
+        if (tracer == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        stageNanos[stage.ordinal()] += now - lastNanos;
+        markedStages |= 1 << stage.ordinal();
+        lastNanos = now;
+    }
+
+    /**
+     * @return An operator marking {@code stage} when the Mono completes, with or without a value
+     */
+    public <T> Function<Mono<T>, Mono<T>> after(Stage stage) {
+        if (tracer == null) {
+            return identity();
+        }
+        return mono -> mono.doOnSuccess(value -> mark(stage));
+    }
+
+    /**
+     * @return An operator marking {@code stage} and handing the trace to the tracer when the
+     * pipeline completes or fails
+     */
+    public <T> Function<Mono<T>, Mono<T>> finish(Stage stage) {
+        if (tracer == null) {
+            return identity();
+        }
+        return mono -> mono
+                .doOnSuccess(value -> complete(stage, false))
+                .doOnError(error -> complete(stage, true));
+    }
+
+    private void complete(Stage stage, boolean failed) {
+        mark(stage);
+        this.failed = failed;
+        this.totalNanos = lastNanos - startNanos;
+        tracer.publish(this);
+    }
+
+    String pipeline() {
+        return pipeline;
+    }
+
+    long totalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return The time accounted to {@code stage}, -1 when the pipeline never marked it
+     */
+    long stageNanos(Stage stage) {
+        return (markedStages & 1 << stage.ordinal()) == 0 ? -1 : stageNanos[stage.ordinal()];
+    }
+
+    boolean failed() {
+        return failed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Function<Mono<T>, Mono<T>> identity() {
+        return (Function<Mono<T>, Mono<T>>) (Function<?, ?>) IDENTITY;
+    }
+
+    /**
+     * @return One line of {@code key=value} pairs in microseconds, the marked stages in pipeline order
+     */
+    @Override
+    public String toString() {
+        StringBuilder line = new StringBuilder(160)
+                .append("pipeline=").append(pipeline)
+                .append(" total_us=").append(TimeUnit.NANOSECONDS.toMicros(totalNanos));
+        for (Stage stage : STAGES) {
+            long nanos = stageNanos(stage);
+            if (nanos >= 0) {
+                line.append(' ').append(stage.label()).append("_us=").append(TimeUnit.NANOSECONDS.toMicros(nanos));
+            }
+        }
+        if (failed) {
+            line.append(" failed=true");
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.trace;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Samples requests of the service pipelines for a {@link PipelineTrace}. A sampled trace is
+ * queued when its pipeline completes and written as one log line by a background thread, so
+ * the request thread never formats or logs. The queue is bounded; when the writer falls behind
+ * traces are dropped and counted in {@code pipeline.traces.dropped} instead of holding requests.
+ * <p>
+ * With tracing disabled, or for a request that is not sampled, {@link #start} returns
+ * {@link PipelineTrace#DISABLED}.
+ */
+@Component
+public class PipelineTracer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineTracer.class);
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final BlockingQueue<PipelineTrace> buffer;
+    private final Counter dropped;
+    private final Thread writer;
+
+    @Autowired
+    public PipelineTracer(MeterRegistry meterRegistry,
+                          @Value("${friendsmanagement.tracing.enabled:false}") boolean enabled,
+                          @Value("${friendsmanagement.tracing.sample-rate:0.01}") double sampleRate,
+                          @Value("${friendsmanagement.tracing.buffer-size:1024}") int bufferSize) {
+        this(meterRegistry, enabled, sampleRate, bufferSize, trace -> LOGGER.info("{}", trace));
+    }
+
+    PipelineTracer(MeterRegistry meterRegistry, boolean enabled, double sampleRate, int bufferSize,
+                   Consumer<PipelineTrace> output) {
+        this.enabled = enabled && sampleRate > 0;
+        this.sampleRate = sampleRate;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+        this.dropped = Counter.builder("pipeline.traces.dropped")
+                .description("Sampled pipeline traces dropped because the trace buffer was full")
+                .register(meterRegistry);
+        if (this.enabled) {
+            this.writer = new Thread(() -> write(output), "pipeline-trace-writer");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        } else {
+            this.writer = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (writer != null) {
+            writer.interrupt();
+        }
+    }
+
+    /**
+     * @param pipeline Name of the pipeline, the first field of the trace line
+     * @return A trace to mark the stages of the request on, {@link PipelineTrace#DISABLED} when
+     * the request is not sampled
+     */
+    public PipelineTrace start(String pipeline) {
+        if (!enabled || sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return PipelineTrace.DISABLED;
+        }
+        return new PipelineTrace(this, pipeline, System.nanoTime());
+    }
+
+    void publish(PipelineTrace trace) {
+        if (!buffer.offer(trace)) {
+            dropped.increment();
+        }
+    }
+
+    private void write(Consumer<PipelineTrace> output) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                output.accept(buffer.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.trace;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps every reactive call on the repositories, DAOs and loaders in a child of the current
+ * {@link Span}, from subscription until the publisher terminates or is cancelled. A call made
+ * outside a traced request, a batch of the user loader or the graph rebuild, is passed through.
+ * <p>
+ * Only registered with {@code friendsmanagement.spans.enabled}, so the repositories are not
+ * proxied at all otherwise.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "friendsmanagement.spans.enabled", havingValue = "true")
+public class RepositorySpanAspect {
+    private final Map<Method, String> spanNames = new ConcurrentHashMap<>();
+
+    @Around("(within(org.example.repository..*) || target(org.springframework.data.repository.Repository))"
+            + " && (execution(reactor.core.publisher.Mono *(..)) || execution(reactor.core.publisher.Flux *(..)))")
+    public Object trace(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object publisher = joinPoint.proceed();
+        String name = spanName((MethodSignature) joinPoint.getSignature());
+        if (publisher instanceof Mono) {
+            return traced((Mono<?>) publisher, name);
+        }
+        return traced((Flux<?>) publisher, name);
+    }
+
+    private static <T> Mono<T> traced(Mono<T> mono, String name) {
+        return Mono.deferContextual(context -> {
+            Span parent = context.getOrDefault(Span.CONTEXT_KEY, null);
+            if (parent == null) {
+                return mono;
+            }
+            Span span = parent.child(name);
+            return mono.doFinally(signal -> span.end(signal == SignalType.ON_ERROR))
+                    .contextWrite(inner -> inner.put(Span.CONTEXT_KEY, span));
+        });
+    }
+
+    private static <T> Flux<T> traced(Flux<T> flux, String name) {
+        return Flux.deferContextual(context -> {
+            Span parent = context.getOrDefault(Span.CONTEXT_KEY, null);
+            if (parent == null) {
+                return flux;
+            }
+            Span span = parent.child(name);
+            return flux.doFinally(signal -> span.end(signal == SignalType.ON_ERROR))
+                    .contextWrite(inner -> inner.put(Span.CONTEXT_KEY, span));
+        });
+    }
+
+    /**
+     * @return {@code UserReactiveDao.findByEmailIn} and the like, inherited methods named after
+     * the interface declaring them
+     */
+    private String spanName(MethodSignature signature) {
+        Method method = signature.getMethod();
+        String name = spanNames.get(method);
+        if (name == null) {
+            name = spanNames.computeIfAbsent(method, key -> key.getDeclaringClass().getSimpleName() + "." + key.getName());
+        }
+        return name;
+    }
+}
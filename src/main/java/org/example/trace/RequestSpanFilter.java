@@ -0,0 +1,53 @@
+package org.example.trace;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Starts the root {@link Span} of every {@code /v1} request and puts it in the Reactor context
+ * of the exchange, so the repository calls of the endpoint, and of the body it streams, become
+ * its children. The finished trace goes to the {@link SpanRecorder}.
+ * <p>
+ * Only registered with {@code friendsmanagement.spans.enabled}.
+ */
+@Component
+@ConditionalOnProperty(name = "friendsmanagement.spans.enabled", havingValue = "true")
+public class RequestSpanFilter implements WebFilter {
+    private static final String TRACED_PATH = "/v1/";
+
+    private final SpanRecorder spanRecorder;
+    private final int maxSpans;
+
+    @Autowired
+    public RequestSpanFilter(SpanRecorder spanRecorder,
+                             @Value("${friendsmanagement.spans.max-spans:256}") int maxSpans) {
+        this.spanRecorder = spanRecorder;
+        this.maxSpans = maxSpans;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().value();
+        if (!path.startsWith(TRACED_PATH)) {
+            return chain.filter(exchange);
+        }
+        return Mono.defer(() -> {
+            SpanTrace trace = SpanTrace.start(exchange.getRequest().getMethodValue() + " " + path, maxSpans);
+            return chain.filter(exchange)
+                    .doFinally(signal -> {
+                        HttpStatus status = exchange.getResponse().getStatusCode();
+                        trace.root().end(signal == SignalType.ON_ERROR || status != null && status.is5xxServerError());
+                        spanRecorder.record(trace);
+                    })
+                    .contextWrite(context -> context.put(Span.CONTEXT_KEY, trace.root()));
+        });
+    }
+}
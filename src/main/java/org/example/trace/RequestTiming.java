@@ -0,0 +1,80 @@
+package org.example.trace;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Where the time of one request went, for its {@code Server-Timing} header. Travels in the
+ * Reactor context under {@link #CONTEXT_KEY} and is filled in by {@link TimedConnectionFactory}
+ * and {@link LoaderWaitAspect} from whichever threads the request runs on.
+ * <ul>
+ *     <li>db: statement execution until its rows are read, summed over the statements, so
+ *     statements running concurrently count more than once</li>
+ *     <li>queue: waiting for a pooled connection or for a batch of the user loader, which
+ *     includes the query of the batch since that query is shared with other requests</li>
+ *     <li>cpu: the rest of the request, an upper bound of its CPU time that also holds the
+ *     time spent runnable but not running</li>
+ * </ul>
+ */
+public final class RequestTiming {
+    public static final Class<RequestTiming> CONTEXT_KEY = RequestTiming.class;
+
+    private final long startNanos;
+    private final AtomicLong dbNanos = new AtomicLong();
+    private final AtomicLong queueNanos = new AtomicLong();
+    private final AtomicInteger statements = new AtomicInteger();
+    private final AtomicLong rows = new AtomicLong();
+
+    public RequestTiming() {
+        this.startNanos = System.nanoTime();
+    }
+
+    void addDb(long nanos) {
+        dbNanos.addAndGet(nanos);
+    }
+
+    void addQueue(long nanos) {
+        queueNanos.addAndGet(nanos);
+    }
+
+    void addStatements(int count) {
+        statements.addAndGet(count);
+    }
+
+    void addRow() {
+        rows.incrementAndGet();
+    }
+
+    public int statements() {
+        return statements.get();
+    }
+
+    public long rows() {
+        return rows.get();
+    }
+
+    public long dbNanos() {
+        return dbNanos.get();
+    }
+
+    public long queueNanos() {
+        return queueNanos.get();
+    }
+
+    /**
+     * @return The {@code Server-Timing} header value up to now, durations in milliseconds
+     */
+    public String serverTiming() {
+        long total = System.nanoTime() - startNanos;
+        long db = dbNanos.get();
+        long queue = queueNanos.get();
+        long cpu = Math.max(0, total - db - queue);
+        return metric("db", db) + ", " + metric("queue", queue) + ", " + metric("cpu", cpu) + ", " + metric("total", total);
+    }
+
+    private static String metric(String name, long nanos) {
+        return String.format(Locale.ROOT, "%s;dur=%.2f", name, nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.trace;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Puts a {@link TimedConnectionFactory} in front of the connection factory, so the database
+ * client and the repositories account their statements to the timed requests.
+ */
+@Configuration
+@ConditionalOnProperty(name = "friendsmanagement.server-timing.enabled", havingValue = "true")
+public class ServerTimingConfiguration {
+
+    // Static, a post-processor is created before the other beans of its configuration
+    @Bean
+    public static BeanPostProcessor timedConnectionFactoryPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof ConnectionFactory && !(bean instanceof TimedConnectionFactory)) {
+                    return new TimedConnectionFactory((ConnectionFactory) bean);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.trace;
+
+/**
+ * One timed operation of a traced request: the request itself for the root span, a repository
+ * call for the others. The current span travels in the Reactor context under {@link #CONTEXT_KEY}
+ * and the spans started below it become its children.
+ * <p>
+ * A span is started when its publisher is subscribed and ended when it terminates or is
+ * cancelled, possibly on another thread, so the end is published through a volatile flag. The
+ * flag is separate from the end time, {@link System#nanoTime()} may well be negative.
+ */
+public final class Span {
+    public static final Class<Span> CONTEXT_KEY = Span.class;
+
+    private final SpanTrace trace;
+    private final Span parent;
+    private final String name;
+    private final long startNanos;
+    private long endNanos;
+    private boolean error;
+    // Written last, publishes the end time and the error
+    private volatile boolean ended;
+
+    Span(SpanTrace trace, Span parent, String name, long startNanos) {
+        this.trace = trace;
+        this.parent = parent;
+        this.name = name;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * @return A started child of this span, not kept by the trace once it holds its maximum of spans
+     */
+    public Span child(String name) {
+        return trace.start(this, name);
+    }
+
+    public void end(boolean error) {
+        this.error = error;
+        this.endNanos = System.nanoTime();
+        this.ended = true;
+    }
+
+    public SpanTrace trace() {
+        return trace;
+    }
+
+    public Span parent() {
+        return parent;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long startNanos() {
+        return startNanos;
+    }
+
+    public boolean isEnded() {
+        return ended;
+    }
+
+    /**
+     * @return Time from start to end, -1 while the span is running
+     */
+    public long durationNanos() {
+        return ended ? endNanos - startNanos : -1;
+    }
+
+    public boolean isError() {
+        return ended && error;
+    }
+}
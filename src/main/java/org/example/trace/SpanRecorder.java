@@ -0,0 +1,87 @@
+package org.example.trace;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory exporter of the finished {@link SpanTrace}s, keeping the slowest ones of the recent
+ * requests. Traces go into the current window, a min-heap of the {@code slowest} longest traces,
+ * so recording a trace faster than all kept ones is a comparison. When a window has passed it
+ * becomes the previous window and a new one starts; {@link #slowest} reads both, so it always
+ * covers between one and two windows of requests.
+ */
+@Component
+public class SpanRecorder {
+    private static final Comparator<SpanTrace> BY_DURATION = Comparator.comparingLong(SpanTrace::durationNanos);
+
+    private final int slowest;
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+    private PriorityQueue<SpanTrace> current;
+    private PriorityQueue<SpanTrace> previous;
+    private long windowStart;
+
+    @Autowired
+    public SpanRecorder(@Value("${friendsmanagement.spans.slowest:20}") int slowest,
+                        @Value("${friendsmanagement.spans.window:1m}") Duration window) {
+        this(slowest, window, System::nanoTime);
+    }
+
+    SpanRecorder(int slowest, Duration window, LongSupplier nanoClock) {
+        this.slowest = Math.max(1, slowest);
+        this.windowNanos = window.toNanos();
+        this.nanoClock = nanoClock;
+        this.current = new PriorityQueue<>(this.slowest + 1, BY_DURATION);
+        this.previous = new PriorityQueue<>(this.slowest + 1, BY_DURATION);
+        this.windowStart = nanoClock.getAsLong();
+    }
+
+    public synchronized void record(SpanTrace trace) {
+        rotate();
+        if (current.size() < slowest) {
+            current.add(trace);
+        } else if (trace.durationNanos() > current.peek().durationNanos()) {
+            current.poll();
+            current.add(trace);
+        }
+    }
+
+    /**
+     * @param limit Maximum number of traces
+     * @return The slowest traces of the current and previous windows, slowest first
+     */
+    public synchronized List<SpanTrace> slowest(int limit) {
+        rotate();
+        List<SpanTrace> traces = new ArrayList<>(current.size() + previous.size());
+        traces.addAll(current);
+        traces.addAll(previous);
+        traces.sort(BY_DURATION.reversed());
+        return new ArrayList<>(traces.subList(0, Math.min(Math.max(0, limit), traces.size())));
+    }
+
+    private void rotate() {
+        long now = nanoClock.getAsLong();
+        if (now - windowStart < windowNanos) {
+            return;
+        }
+        // After two windows without a request the previous window is stale as well
+        PriorityQueue<SpanTrace> recycled = previous;
+        recycled.clear();
+        if (now - windowStart < 2 * windowNanos) {
+            previous = current;
+        } else {
+            current.clear();
+            previous = current;
+        }
+        current = recycled;
+        windowStart = now;
+    }
+}
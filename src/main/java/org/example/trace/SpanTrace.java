@@ -0,0 +1,64 @@
+package org.example.trace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The spans of one request, the root first and the others in start order. A request fanning out
+ * into many calls, a bulk connect for instance, keeps its first {@code maxSpans} spans and counts
+ * the rest.
+ */
+public final class SpanTrace {
+    private final Span root;
+    private final int maxSpans;
+    private final List<Span> spans = new ArrayList<>();
+    private int droppedSpans;
+
+    private SpanTrace(String name, int maxSpans) {
+        this.maxSpans = Math.max(1, maxSpans);
+        this.root = new Span(this, null, name, System.nanoTime());
+        this.spans.add(root);
+    }
+
+    /**
+     * @return A new trace, its root span started
+     */
+    public static SpanTrace start(String name, int maxSpans) {
+        return new SpanTrace(name, maxSpans);
+    }
+
+    Span start(Span parent, String name) {
+        Span span = new Span(this, parent, name, System.nanoTime());
+        synchronized (spans) {
+            if (spans.size() < maxSpans) {
+                spans.add(span);
+            } else {
+                droppedSpans++;
+            }
+        }
+        return span;
+    }
+
+    public Span root() {
+        return root;
+    }
+
+    public long durationNanos() {
+        return root.durationNanos();
+    }
+
+    /**
+     * @return A copy of the kept spans, the root first
+     */
+    public List<Span> spans() {
+        synchronized (spans) {
+            return new ArrayList<>(spans);
+        }
+    }
+
+    public int droppedSpans() {
+        synchronized (spans) {
+            return droppedSpans;
+        }
+    }
+}
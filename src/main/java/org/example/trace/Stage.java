@@ -0,0 +1,30 @@
+package org.example.trace;
+
+/**
+ * Stages of a service pipeline a {@link PipelineTrace} accounts time to.
+ */
+public enum Stage {
+    /** Email syntax checks of the request */
+    VALIDATION("validation"),
+    /** Email to user lookups */
+    USER_RESOLUTION("user_resolution"),
+    /**
+     * Reading or writing the friendships, subscriptions and blocks, from the database or the in-memory
+     * graph. A join query that returns the emails along with the relations is accounted here as a whole.
+     */
+    RELATIONSHIP_QUERY("relationship_query"),
+    /** User id to email lookups of the users found by the relationship query */
+    EMAIL_RESOLUTION("email_resolution"),
+    /** Building the response envelope, the JSON encoding by WebFlux follows */
+    SERIALIZATION("serialization");
+
+    private final String label;
+
+    Stage(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
@@ -0,0 +1,366 @@
+package org.example.trace;
+
+import io.r2dbc.spi.Batch;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.ConnectionMetadata;
+import io.r2dbc.spi.IsolationLevel;
+import io.r2dbc.spi.Readable;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
+import io.r2dbc.spi.TransactionDefinition;
+import io.r2dbc.spi.ValidationDepth;
+import io.r2dbc.spi.Wrapped;
+import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Decorates a {@link ConnectionFactory} to account the database work of a request to the
+ * {@link RequestTiming} in its Reactor context: the wait for a connection as queue time, and
+ * for every statement one execution per set of bindings, its rows and the time from execution
+ * until its rows were read. Without a {@link RequestTiming} in the context everything is passed through.
+ * <p>
+ * Wraps the pool, so {@link #unwrap()} still reaches it for the pool metrics, and
+ * {@link #dispose()} still closes it with the application context.
+ */
+public class TimedConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory>, Disposable {
+    private final ConnectionFactory delegate;
+
+    public TimedConnectionFactory(ConnectionFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Publisher<? extends Connection> create() {
+        Publisher<? extends Connection> connection = delegate.create();
+        return Mono.deferContextual(context -> {
+            RequestTiming timing = context.getOrDefault(RequestTiming.CONTEXT_KEY, null);
+            if (timing == null) {
+                return Mono.from(connection).map(TimedConnection::new);
+            }
+            long start = System.nanoTime();
+            return Mono.from(connection)
+                    .doOnNext(created -> timing.addQueue(System.nanoTime() - start))
+                    .map(TimedConnection::new);
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return delegate.getMetadata();
+    }
+
+    @Override
+    public ConnectionFactory unwrap() {
+        return delegate;
+    }
+
+    @Override
+    public void dispose() {
+        if (delegate instanceof Disposable) {
+            ((Disposable) delegate).dispose();
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return delegate instanceof Disposable && ((Disposable) delegate).isDisposed();
+    }
+
+    private static Publisher<? extends Result> execute(Publisher<? extends Result> results, int statements) {
+        return Flux.deferContextual(context -> {
+            RequestTiming timing = context.getOrDefault(RequestTiming.CONTEXT_KEY, null);
+            if (timing == null) {
+                return Flux.from(results);
+            }
+            timing.addStatements(statements);
+            StatementClock clock = new StatementClock(timing);
+            // Released before the completion travels downstream, where the response may be committed
+            return Flux.from(results)
+                    .<Result>map(result -> new TimedResult(result, timing, clock))
+                    .doOnTerminate(clock::release)
+                    .doOnCancel(clock::release);
+        });
+    }
+
+    /**
+     * Ends a statement once its results are emitted and every row stream read from them has
+     * terminated, whichever comes last. A row stream read after the statement ended is not timed.
+     */
+    private static final class StatementClock {
+        private final RequestTiming timing;
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        private StatementClock(RequestTiming timing) {
+            this.timing = timing;
+        }
+
+        private void acquire() {
+            pending.incrementAndGet();
+        }
+
+        private void release() {
+            if (pending.decrementAndGet() == 0 && ended.compareAndSet(false, true)) {
+                timing.addDb(System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    private static final class TimedResult implements Result {
+        private final Result delegate;
+        private final RequestTiming timing;
+        private final StatementClock clock;
+
+        private TimedResult(Result delegate, RequestTiming timing, StatementClock clock) {
+            this.delegate = delegate;
+            this.timing = timing;
+            this.clock = clock;
+        }
+
+        @Override
+        public Publisher<Integer> getRowsUpdated() {
+            return timed(delegate.getRowsUpdated());
+        }
+
+        @Override
+        public <T> Publisher<T> map(BiFunction<Row, RowMetadata, ? extends T> mappingFunction) {
+            return timed(delegate.map((row, metadata) -> {
+                timing.addRow();
+                return mappingFunction.apply(row, metadata);
+            }));
+        }
+
+        @Override
+        public <T> Publisher<T> map(Function<? super Readable, ? extends T> mappingFunction) {
+            return timed(delegate.map((Readable readable) -> {
+                timing.addRow();
+                return mappingFunction.apply(readable);
+            }));
+        }
+
+        @Override
+        public Result filter(Predicate<Segment> filter) {
+            return new TimedResult(delegate.filter(filter), timing, clock);
+        }
+
+        @Override
+        public <T> Publisher<T> flatMap(Function<Segment, ? extends Publisher<? extends T>> mappingFunction) {
+            return timed(delegate.flatMap(segment -> {
+                if (segment instanceof RowSegment) {
+                    timing.addRow();
+                }
+                return mappingFunction.apply(segment);
+            }));
+        }
+
+        private <T> Flux<T> timed(Publisher<T> rows) {
+            return Flux.defer(() -> {
+                clock.acquire();
+                return Flux.from(rows).doOnTerminate(clock::release).doOnCancel(clock::release);
+            });
+        }
+    }
+
+    private static final class TimedStatement implements Statement {
+        private final Statement delegate;
+        // Bindings completed by add(), and whether values were bound since the last one
+        private int bindings;
+        private boolean bound;
+
+        private TimedStatement(Statement delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Statement add() {
+            delegate.add();
+            bindings++;
+            bound = false;
+            return this;
+        }
+
+        @Override
+        public Statement bind(int index, Object value) {
+            delegate.bind(index, value);
+            bound = true;
+            return this;
+        }
+
+        @Override
+        public Statement bind(String name, Object value) {
+            delegate.bind(name, value);
+            bound = true;
+            return this;
+        }
+
+        @Override
+        public Statement bindNull(int index, Class<?> type) {
+            delegate.bindNull(index, type);
+            bound = true;
+            return this;
+        }
+
+        @Override
+        public Statement bindNull(String name, Class<?> type) {
+            delegate.bindNull(name, type);
+            bound = true;
+            return this;
+        }
+
+        @Override
+        public Statement returnGeneratedValues(String... columns) {
+            delegate.returnGeneratedValues(columns);
+            return this;
+        }
+
+        @Override
+        public Statement fetchSize(int rows) {
+            delegate.fetchSize(rows);
+            return this;
+        }
+
+        @Override
+        public Publisher<? extends Result> execute() {
+            // The driver runs the statement once per binding, a statement without parameters once
+            return TimedConnectionFactory.execute(delegate.execute(), bound || bindings == 0 ? bindings + 1 : bindings);
+        }
+    }
+
+    private static final class TimedBatch implements Batch {
+        private final Batch delegate;
+        private int statements;
+
+        private TimedBatch(Batch delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Batch add(String sql) {
+            delegate.add(sql);
+            statements++;
+            return this;
+        }
+
+        @Override
+        public Publisher<? extends Result> execute() {
+            return TimedConnectionFactory.execute(delegate.execute(), statements);
+        }
+    }
+
+    private static final class TimedConnection implements Connection, Wrapped<Connection> {
+        private final Connection delegate;
+
+        private TimedConnection(Connection delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Statement createStatement(String sql) {
+            return new TimedStatement(delegate.createStatement(sql));
+        }
+
+        @Override
+        public Batch createBatch() {
+            return new TimedBatch(delegate.createBatch());
+        }
+
+        @Override
+        public Publisher<Void> beginTransaction() {
+            return delegate.beginTransaction();
+        }
+
+        @Override
+        public Publisher<Void> beginTransaction(TransactionDefinition definition) {
+            return delegate.beginTransaction(definition);
+        }
+
+        @Override
+        public Publisher<Void> close() {
+            return delegate.close();
+        }
+
+        @Override
+        public Publisher<Void> commitTransaction() {
+            return delegate.commitTransaction();
+        }
+
+        @Override
+        public Publisher<Void> createSavepoint(String name) {
+            return delegate.createSavepoint(name);
+        }
+
+        @Override
+        public boolean isAutoCommit() {
+            return delegate.isAutoCommit();
+        }
+
+        @Override
+        public ConnectionMetadata getMetadata() {
+            return delegate.getMetadata();
+        }
+
+        @Override
+        public IsolationLevel getTransactionIsolationLevel() {
+            return delegate.getTransactionIsolationLevel();
+        }
+
+        @Override
+        public Publisher<Void> releaseSavepoint(String name) {
+            return delegate.releaseSavepoint(name);
+        }
+
+        @Override
+        public Publisher<Void> rollbackTransaction() {
+            return delegate.rollbackTransaction();
+        }
+
+        @Override
+        public Publisher<Void> rollbackTransactionToSavepoint(String name) {
+            return delegate.rollbackTransactionToSavepoint(name);
+        }
+
+        @Override
+        public Publisher<Void> setAutoCommit(boolean autoCommit) {
+            return delegate.setAutoCommit(autoCommit);
+        }
+
+        @Override
+        public Publisher<Void> setLockWaitTimeout(Duration timeout) {
+            return delegate.setLockWaitTimeout(timeout);
+        }
+
+        @Override
+        public Publisher<Void> setStatementTimeout(Duration timeout) {
+            return delegate.setStatementTimeout(timeout);
+        }
+
+        @Override
+        public Publisher<Void> setTransactionIsolationLevel(IsolationLevel isolationLevel) {
+            return delegate.setTransactionIsolationLevel(isolationLevel);
+        }
+
+        @Override
+        public Publisher<Boolean> validate(ValidationDepth depth) {
+            return delegate.validate(depth);
+        }
+
+        @Override
+        public Connection unwrap() {
+            return delegate;
+        }
+    }
+}
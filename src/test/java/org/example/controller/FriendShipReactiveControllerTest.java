@@ -1,5 +1,7 @@
 package org.example.controller;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.example.dto.*;
 import org.example.model.Response;
 import org.example.model.friends.Friendship;
@@ -10,25 +12,32 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.BodyInserters;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(FriendShipReactiveController.class)
+@Import({EndpointMetrics.class, SimpleMeterRegistry.class})
 @RunWith(SpringRunner.class)
 public class FriendShipReactiveControllerTest {
     @Autowired
     private WebTestClient webClient;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockBean
     private FriendShipReactiveService friendShipReactiveService;
 
@@ -294,4 +303,163 @@ public class FriendShipReactiveControllerTest {
                 .jsonPath("$.result.friends[1]").isEqualTo("john@example.com");
     }
 
+
+    @Test
+    public void getSuggestions() {
+        // Prepare for Data
+
+        SuggestionDTO.Response expectSuggestions = SuggestionDTO.Response.builder()
+                .suggestions(List.of(SuggestionDTO.Suggestion.builder().email("kate@example.com").mutualFriends(3).build()))
+                .count(1)
+                .partial(false)
+                .build();
+
+        Response expectResponse = new Response();
+        expectResponse.setMessage("Friend suggestions retrieved successfully.");
+        expectResponse.setSuccess("true");
+        expectResponse.setResult(expectSuggestions);
+
+        // Mock
+
+        SuggestionDTO.Request request = SuggestionDTO.Request.builder()
+                .email("andy@example.com")
+                .limit(5)
+                .build();
+
+        when(friendShipReactiveService.getSuggestions(request))
+                .thenReturn(Mono.just(ResponseEntity.status(HttpStatus.OK).body(expectResponse)));
+
+        // Verify the response
+
+        webClient
+                .post()
+                .uri("/v1/user/suggestions")
+                .accept(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(request))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo("true")
+                .jsonPath("$.result.count").isEqualTo(1)
+                .jsonPath("$.result.partial").isEqualTo(false)
+                .jsonPath("$.result.suggestions[0].email").isEqualTo("kate@example.com")
+                .jsonPath("$.result.suggestions[0].mutualFriends").isEqualTo(3);
+    }
+
+    @Test
+    public void streamFriendList() {
+        // Mock
+
+        FriendListDTO.Request request = FriendListDTO.Request.builder()
+                .email("kate@example.com")
+                .build();
+
+        when(friendShipReactiveService.streamFriendsListByEmail(request))
+                .thenReturn(Mono.just(ResponseEntity.ok(Flux.just(EmailStreamDTO.Row.builder().email("andy@example.com").build(), EmailStreamDTO.Row.builder().email("john@example.com").build()))));
+
+        // Verify the response
+
+        webClient
+                .post()
+                .uri("/v1/user/friends")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .body(BodyInserters.fromValue(request))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .isEqualTo("{\"email\":\"andy@example.com\"}\n{\"email\":\"john@example.com\"}\n");
+    }
+
+    @Test
+    public void streamEligibleEmailAddresses_ServerSentEvents() {
+        // Mock
+
+        EligibleEmailAddressesDTO.Request request = EligibleEmailAddressesDTO.Request.builder()
+                .email("kate@example.com")
+                .build();
+
+        when(friendShipReactiveService.streamEligibleEmailAddresses(request))
+                .thenReturn(Mono.just(ResponseEntity.ok(Flux.just(EmailStreamDTO.Row.builder().email("andy@example.com").build()))));
+
+        // Verify the response
+
+        webClient
+                .post()
+                .uri("/v1/user/updatable")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .body(BodyInserters.fromValue(request))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .expectBody(String.class)
+                .isEqualTo("data:{\"email\":\"andy@example.com\"}\n\n");
+    }
+
+    @Test
+    public void getFriendList_AnyAcceptKeepsTheEnvelope() {
+        // Mock
+
+        FriendListDTO.Request request = FriendListDTO.Request.builder()
+                .email("kate@example.com")
+                .build();
+
+        Response expectResponse = new Response();
+        expectResponse.setMessage("Friend list retrieved successfully.");
+        expectResponse.setSuccess("true");
+
+        when(friendShipReactiveService.getFriendsListByEmail(request))
+                .thenReturn(Mono.just(ResponseEntity.status(HttpStatus.OK).body(expectResponse)));
+
+        // Verify the response
+
+        webClient
+                .post()
+                .uri("/v1/user/friends")
+                .accept(MediaType.ALL)
+                .body(BodyInserters.fromValue(request))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Friend list retrieved successfully.");
+    }
+
+    @Test
+    public void getCommonFriends_RecordsOutcomes() {
+        // Mock
+
+        CommonFriendDTO.Request notFound = CommonFriendDTO.Request.builder()
+                .email1("kate@example.com")
+                .email2("nobody@example.com")
+                .build();
+        CommonFriendDTO.Request invalid = CommonFriendDTO.Request.builder()
+                .email1("kate@example.com")
+                .email2("not-an-email")
+                .build();
+
+        when(friendShipReactiveService.getCommonFriends(notFound))
+                .thenReturn(Mono.just(ResponseEntity.status(HttpStatus.OK).body(Response.builder()
+                        .message("Cannot find email {nobody@example.com}. Please try another email")
+                        .build())));
+        when(friendShipReactiveService.getCommonFriends(invalid))
+                .thenReturn(Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Response.builder()
+                        .message("Invalid email format {not-an-email}. Please provide a valid email.")
+                        .build())));
+
+        // Invoke method
+
+        for (CommonFriendDTO.Request request : Arrays.asList(notFound, invalid, invalid)) {
+            webClient
+                    .post()
+                    .uri("/v1/user/common")
+                    .body(BodyInserters.fromValue(request))
+                    .exchange()
+                    .expectBody();
+        }
+
+        // Verify
+
+        assertEquals(1, meterRegistry.get("friendship.requests").tags("endpoint", "common", "outcome", "not_found").timer().count());
+        assertEquals(2, meterRegistry.get("friendship.requests").tags("endpoint", "common", "outcome", "invalid_email").timer().count());
+    }
 }
@@ -0,0 +1,94 @@
+package org.example.controller;
+
+import org.example.trace.Span;
+import org.example.trace.SpanRecorder;
+import org.example.trace.SpanTrace;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+
+public class TraceControllerTest {
+    private SpanRecorder spanRecorder;
+    private WebTestClient webClient;
+
+    @Before
+    public void setUp() {
+        spanRecorder = new SpanRecorder(10, Duration.ofMinutes(1));
+        webClient = WebTestClient.bindToController(new TraceController(spanRecorder)).build();
+    }
+
+    @Test
+    public void getRecentTraces_BuildsTheSpanTree() {
+        // Prepare for data
+
+        SpanTrace trace = SpanTrace.start("POST /v1/user/connect", 4);
+        Span findUsers = trace.root().child("UserReactiveDao.findByEmail");
+        Span findBlocks = trace.root().child("BlockReactiveRepository.findByBlockerIdAndBlockedId");
+        Span insert = findBlocks.child("FriendshipReactiveDao.insert");
+        // Past the maximum of spans, and so is the child started below it
+        Span save = trace.root().child("SubscriptionReactiveDao.save");
+        Span saveCallback = save.child("UserEmailCache.onAfterSave");
+        findUsers.end(false);
+        insert.end(true);
+        findBlocks.end(false);
+        saveCallback.end(false);
+        save.end(false);
+        trace.root().end(false);
+        spanRecorder.record(trace);
+
+        // Verify the response
+
+        webClient
+                .get()
+                .uri("/internal/traces/recent")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Slowest recent traces retrieved successfully.")
+                .jsonPath("$.result.count").isEqualTo(1)
+                .jsonPath("$.result.traces[0].request").isEqualTo("POST /v1/user/connect")
+                .jsonPath("$.result.traces[0].droppedSpans").isEqualTo(2)
+                .jsonPath("$.result.traces[0].root.name").isEqualTo("POST /v1/user/connect")
+                .jsonPath("$.result.traces[0].root.startMicros").isEqualTo(0)
+                .jsonPath("$.result.traces[0].root.children.length()").isEqualTo(2)
+                .jsonPath("$.result.traces[0].root.children[0].name").isEqualTo("UserReactiveDao.findByEmail")
+                .jsonPath("$.result.traces[0].root.children[0].children").isEmpty()
+                .jsonPath("$.result.traces[0].root.children[1].name").isEqualTo("BlockReactiveRepository.findByBlockerIdAndBlockedId")
+                .jsonPath("$.result.traces[0].root.children[1].error").isEqualTo(false)
+                .jsonPath("$.result.traces[0].root.children[1].children.length()").isEqualTo(1)
+                .jsonPath("$.result.traces[0].root.children[1].children[0].name").isEqualTo("FriendshipReactiveDao.insert")
+                .jsonPath("$.result.traces[0].root.children[1].children[0].error").isEqualTo(true)
+                .jsonPath("$.result.traces[0].root.children[1].children[0].durationMicros").isNumber();
+    }
+
+    @Test
+    public void getRecentTraces_ShowsRunningSpansWithoutDuration() {
+        // Prepare for data
+
+        SpanTrace trace = SpanTrace.start("POST /v1/user/friends", 16);
+        // Cancelled late, the call has not ended when the request did
+        trace.root().child("FriendshipReactiveDao.findFriendIds");
+        trace.root().end(false);
+        spanRecorder.record(trace);
+
+        // Verify the response
+
+        webClient
+                .get()
+                .uri("/internal/traces/recent?limit=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.result.count").isEqualTo(1)
+                .jsonPath("$.result.traces[0].droppedSpans").isEqualTo(0)
+                .jsonPath("$.result.traces[0].root.durationMicros").isNumber()
+                .jsonPath("$.result.traces[0].root.children[0].name").isEqualTo("FriendshipReactiveDao.findFriendIds")
+                .jsonPath("$.result.traces[0].root.children[0].durationMicros").doesNotExist()
+                .jsonPath("$.result.traces[0].root.children[0].error").isEqualTo(false);
+    }
+}
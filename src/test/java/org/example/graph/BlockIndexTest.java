@@ -0,0 +1,142 @@
+package org.example.graph;
+
+import org.example.model.friends.Block;
+import org.example.repository.BlockReactiveRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BlockIndexTest {
+    private BlockReactiveRepository blockReactiveRepository;
+    private BlockIndex blockIndex;
+
+    @Before
+    public void setUp() {
+        blockReactiveRepository = mock(BlockReactiveRepository.class);
+        blockIndex = new BlockIndex(blockReactiveRepository, true, 1000, 0.01, Duration.ofMillis(50));
+    }
+
+    @After
+    public void tearDown() {
+        blockIndex.stop();
+    }
+
+    @Test
+    public void testBloomFilter_HasNoFalseNegatives() {
+        LongBloomFilter filter = new LongBloomFilter(10000, 0.01);
+        for (long key = 0; key < 10000; key++) {
+            filter.put(key * 31);
+        }
+
+        int falsePositives = 0;
+        for (long key = 0; key < 10000; key++) {
+            assertTrue(filter.mightContain(key * 31));
+            if (filter.mightContain(key * 31 + 1)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("false positives: " + falsePositives, falsePositives < 300);
+    }
+
+    @Test
+    public void testIsBlocked_AnswersFromTheIndexOnceLoaded() {
+        // Prepare for data
+
+        when(blockReactiveRepository.findAll()).thenReturn(Flux.just(new Block(1, 2), new Block(3, 1)));
+
+        // Invoke method
+
+        StepVerifier.create(blockIndex.rebuild()).verifyComplete();
+
+        // Verify the result
+
+        assertTrue(blockIndex.isReady());
+        StepVerifier.create(blockIndex.isBlocked(1, 2)).expectNext(true).verifyComplete();
+        StepVerifier.create(blockIndex.isBlocked(2, 1)).expectNext(false).verifyComplete();
+        StepVerifier.create(blockIndex.isBlockedEitherWay(1, 3)).expectNext(true).verifyComplete();
+        StepVerifier.create(blockIndex.isBlockedEitherWay(2, 3)).expectNext(false).verifyComplete();
+        verify(blockReactiveRepository, never()).findByBlockerIdAndBlockedId(anyInt(), anyInt());
+        verify(blockReactiveRepository, never()).findBlockEitherWay(anyInt(), anyInt());
+    }
+
+    @Test
+    public void testOnAfterSave_AddsTheBlock() {
+        // Prepare for data
+
+        when(blockReactiveRepository.findAll()).thenReturn(Flux.empty());
+        StepVerifier.create(blockIndex.rebuild()).verifyComplete();
+
+        // Invoke method
+
+        blockIndex.onAfterSave(new Block(5, 6), null, null);
+
+        // Verify the result
+
+        StepVerifier.create(blockIndex.isBlockedEitherWay(6, 5)).expectNext(true).verifyComplete();
+    }
+
+    @Test
+    public void testIsBlocked_FallsBackToTheDatabaseUntilLoaded() {
+        // Prepare for data
+
+        when(blockReactiveRepository.findByBlockerIdAndBlockedId(1, 2)).thenReturn(Mono.just(new Block(1, 2)));
+        when(blockReactiveRepository.findByBlockerIdAndBlockedId(2, 1)).thenReturn(Mono.empty());
+
+        // Invoke method and verify the result
+
+        assertFalse(blockIndex.isReady());
+        StepVerifier.create(blockIndex.isBlocked(1, 2)).expectNext(true).verifyComplete();
+        StepVerifier.create(blockIndex.isBlocked(2, 1)).expectNext(false).verifyComplete();
+    }
+
+    @Test
+    public void testIsBlockedEitherWay_ChecksBothDirectionsWithOneQueryUntilLoaded() {
+        // Prepare for data
+
+        when(blockReactiveRepository.findBlockEitherWay(2, 1)).thenReturn(Mono.just(1));
+        when(blockReactiveRepository.findBlockEitherWay(2, 3)).thenReturn(Mono.empty());
+
+        // Invoke method and verify the result
+
+        StepVerifier.create(blockIndex.isBlockedEitherWay(2, 1)).expectNext(true).verifyComplete();
+        StepVerifier.create(blockIndex.isBlockedEitherWay(2, 3)).expectNext(false).verifyComplete();
+        verify(blockReactiveRepository, never()).findByBlockerIdAndBlockedId(anyInt(), anyInt());
+    }
+
+    @Test
+    public void testStart_RebuildsPeriodically() throws InterruptedException {
+        // Prepare for data
+
+        // A block written by another instance, after the index was first loaded
+        when(blockReactiveRepository.findAll())
+                .thenReturn(Flux.empty())
+                .thenReturn(Flux.just(new Block(7, 8)));
+        when(blockReactiveRepository.findByBlockerIdAndBlockedId(7, 8)).thenReturn(Mono.empty());
+
+        // Invoke method
+
+        blockIndex.start();
+
+        // Verify the result
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!(blockIndex.isReady() && blockIndex.isBlocked(7, 8).block()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(blockIndex.isReady());
+        StepVerifier.create(blockIndex.isBlocked(7, 8)).expectNext(true).verifyComplete();
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.graph;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.model.friends.Friendship;
+import org.example.repository.FriendshipReactiveDao;
+import org.junit.Before;
+import org.junit.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FriendSetCacheTest {
+    private FriendshipReactiveDao friendshipReactiveDao;
+    private SocialGraph socialGraph;
+    private SimpleMeterRegistry meterRegistry;
+
+    @Before
+    public void setUp() {
+        friendshipReactiveDao = mock(FriendshipReactiveDao.class);
+        socialGraph = mock(SocialGraph.class);
+        meterRegistry = new SimpleMeterRegistry();
+        // User n has the friends 0, n, 2n, ... below 60000
+        when(friendshipReactiveDao.findFriendIdsByUserIdAndStatus(anyInt(), eq("accepted")))
+                .thenAnswer(invocation -> {
+                    int step = invocation.getArgument(0);
+                    return Flux.range(0, 60000 / step).map(i -> i * step);
+                });
+    }
+
+    @Test
+    public void testCommonFriends_IntersectsHighDegreeUsers() {
+        // Prepare for data
+
+        FriendSetCache cache = cache(DataSize.ofMegabytes(64));
+
+        // Invoke method
+
+        StepVerifier.create(cache.commonFriends(2, 3))
+                .assertNext(common -> {
+                    // Multiples of 6 below 60000
+                    assertEquals(10000, common.length);
+                    assertEquals(6, common[1]);
+                })
+                .verifyComplete();
+        StepVerifier.create(cache.commonFriends(2, 3)).expectNextCount(1).verifyComplete();
+
+        // Verify the result
+
+        verify(friendshipReactiveDao, times(1)).findFriendIdsByUserIdAndStatus(2, "accepted");
+        verify(friendshipReactiveDao, times(1)).findFriendIdsByUserIdAndStatus(3, "accepted");
+        assertEquals(2.0, meterRegistry.get("friend.sets.requests").tag("result", "hit").counter().count(), 0.0);
+        assertEquals(2.0, meterRegistry.get("friend.sets.requests").tag("result", "miss").counter().count(), 0.0);
+    }
+
+    @Test
+    public void testFriends_EvictsLeastRecentlyUsedOverMemoryBudget() {
+        // Prepare for data
+
+        FriendSetCache cache = cache(DataSize.ofBytes(1));
+
+        // Invoke method
+
+        StepVerifier.create(cache.friends(2)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.friends(3)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.friends(2)).expectNextCount(1).verifyComplete();
+
+        // Verify the result
+
+        assertEquals(1, cache.size());
+        assertTrue(cache.memoryBytes() > FriendSetCache.ENTRY_OVERHEAD_BYTES);
+        assertEquals(2.0, meterRegistry.get("friend.sets.evictions").counter().count(), 0.0);
+        verify(friendshipReactiveDao, times(2)).findFriendIdsByUserIdAndStatus(2, "accepted");
+    }
+
+    @Test
+    public void testOnAfterSave_ReplacesCachedBitmap() {
+        // Prepare for data
+
+        FriendSetCache cache = cache(DataSize.ofMegabytes(64));
+        RoaringBitmap before = cache.friends(20000).block();
+
+        // Invoke method
+
+        cache.onAfterSave(Friendship.builder().userId(20000).friendId(7).status("accepted").build(), null, null);
+        cache.onAfterSave(Friendship.builder().userId(20000).friendId(9).status("pending").build(), null, null);
+
+        // Verify the result
+
+        assertArrayEquals(new int[]{0, 20000, 40000}, before.toArray());
+        StepVerifier.create(cache.friends(20000).map(RoaringBitmap::toArray))
+                .assertNext(friends -> assertArrayEquals(new int[]{0, 7, 20000, 40000}, friends))
+                .verifyComplete();
+    }
+
+    @Test
+    public void testFriends_UsesSocialGraphWhenLoaded() {
+        // Prepare for data
+
+        FriendSetCache cache = cache(DataSize.ofMegabytes(64));
+        when(socialGraph.isReady()).thenReturn(true);
+        when(socialGraph.friends(1)).thenReturn(new int[]{4, 5});
+
+        // Invoke method and verify the result
+
+        StepVerifier.create(cache.friends(1).map(RoaringBitmap::toArray))
+                .assertNext(friends -> assertArrayEquals(new int[]{4, 5}, friends))
+                .verifyComplete();
+        verify(friendshipReactiveDao, times(0)).findFriendIdsByUserIdAndStatus(1, "accepted");
+    }
+
+    private FriendSetCache cache(DataSize maximumMemory) {
+        return new FriendSetCache(friendshipReactiveDao, socialGraph, meterRegistry, true, maximumMemory);
+    }
+}
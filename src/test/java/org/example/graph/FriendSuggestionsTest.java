@@ -0,0 +1,141 @@
+package org.example.graph;
+
+import org.example.repository.BlockReactiveRepository;
+import org.example.repository.FriendshipReactiveDao;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FriendSuggestionsTest {
+    private SocialGraph socialGraph;
+    private FriendshipReactiveDao friendshipReactiveDao;
+    private BlockReactiveRepository blockReactiveRepository;
+    private FriendSuggestions friendSuggestions;
+
+    @Before
+    public void setUp() {
+        socialGraph = mock(SocialGraph.class);
+        friendshipReactiveDao = mock(FriendshipReactiveDao.class);
+        blockReactiveRepository = mock(BlockReactiveRepository.class);
+        friendSuggestions = suggestions(Duration.ofSeconds(10));
+    }
+
+    @After
+    public void tearDown() {
+        friendSuggestions.shutdown();
+    }
+
+    @Test
+    public void testSuggest_RanksHighDegreeUserFromSocialGraph() {
+        // Prepare for data
+
+        // User 1 has the friends 2..1001; friend f is also a friend of 5000 + f % 10, and of
+        // friend 2, so 2 must not be suggested; 5003 is blocked by user 1
+        int[] friends = new int[1000];
+        for (int i = 0; i < friends.length; i++) {
+            friends[i] = i + 2;
+        }
+        when(socialGraph.isReady()).thenReturn(true);
+        when(socialGraph.friends(anyInt())).thenAnswer(invocation -> {
+            int friendId = invocation.getArgument(0);
+            return friendId == 1 ? friends : new int[]{1, 2, 5000 + friendId % 10};
+        });
+        when(socialGraph.blockPartners(1)).thenReturn(new int[]{5003});
+
+        // Invoke method
+
+        StepVerifier.create(friendSuggestions.suggest(1, 3))
+
+                // Verify the result
+
+                .assertNext(ranking -> {
+                    // Every candidate has 100 mutual friends, equal counts rank the smaller id first
+                    assertArrayEquals(new int[]{5000, 5001, 5002}, ranking.getUserIds());
+                    assertArrayEquals(new int[]{100, 100, 100}, ranking.getMutualFriends());
+                    assertFalse(ranking.isPartial());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void testSuggest_RanksFromDatabase() {
+        // Prepare for data
+
+        when(friendshipReactiveDao.findFriendIdsByUserIdAndStatus(1, "accepted")).thenReturn(Flux.just(3, 2, 4));
+        when(blockReactiveRepository.findBlockPartnerIds(1)).thenReturn(Flux.just(9));
+        // Friends of 2, 3 and 4: 7 is shared by three of them, 8 by two, 9 is blocked
+        when(friendshipReactiveDao.findFriendIdsByUserIdInAndStatus(anyCollection(), eq("accepted")))
+                .thenReturn(Flux.just(1, 7, 8, 9, 1, 7, 8, 9, 9, 1, 7, 3, 6));
+
+        // Invoke method
+
+        StepVerifier.create(friendSuggestions.suggest(1, 10))
+
+                // Verify the result
+
+                .assertNext(ranking -> {
+                    assertArrayEquals(new int[]{7, 8, 6}, ranking.getUserIds());
+                    assertArrayEquals(new int[]{3, 2, 1}, ranking.getMutualFriends());
+                    assertFalse(ranking.isPartial());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void testSuggest_ReturnsPartialRankingWhenBudgetIsSpent() {
+        // Prepare for data
+
+        friendSuggestions.shutdown();
+        friendSuggestions = suggestions(Duration.ofMillis(50));
+        when(friendshipReactiveDao.findFriendIdsByUserIdAndStatus(1, "accepted")).thenReturn(Flux.just(2));
+        when(blockReactiveRepository.findBlockPartnerIds(1)).thenReturn(Flux.empty());
+        when(friendshipReactiveDao.findFriendIdsByUserIdInAndStatus(anyCollection(), eq("accepted")))
+                // One candidate arrives in time, the rest of the result never does
+                .thenReturn(Flux.just(7).concatWith(Flux.never()));
+
+        // Invoke method
+
+        StepVerifier.create(friendSuggestions.suggest(1, 10))
+
+                // Verify the result
+
+                .assertNext(ranking -> {
+                    assertArrayEquals(new int[]{7}, ranking.getUserIds());
+                    assertTrue(ranking.isPartial());
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void testIntIntHashMap_CountsAcrossRehashes() {
+        IntIntHashMap counts = new IntIntHashMap(2);
+        for (int key = 0; key < 10000; key++) {
+            counts.increment(key);
+            counts.addTo(key, key % 3);
+        }
+
+        assertEquals(10000, counts.size());
+        assertEquals(2, counts.get(4));
+        assertEquals(1, counts.get(9999));
+        assertEquals(0, counts.get(123456));
+    }
+
+    private FriendSuggestions suggestions(Duration timeBudget) {
+        return new FriendSuggestions(socialGraph, friendshipReactiveDao, blockReactiveRepository, timeBudget, 4);
+    }
+}
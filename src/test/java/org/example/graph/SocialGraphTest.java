@@ -0,0 +1,129 @@
+package org.example.graph;
+
+import org.example.model.friends.Block;
+import org.example.model.friends.Friendship;
+import org.example.model.friends.Subscription;
+import org.example.repository.BlockReactiveRepository;
+import org.example.repository.FriendshipReactiveDao;
+import org.example.repository.SubscriptionReactiveDao;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SocialGraphTest {
+    private FriendshipReactiveDao friendshipReactiveDao;
+    private SubscriptionReactiveDao subscriptionReactiveDao;
+    private BlockReactiveRepository blockReactiveRepository;
+    private SocialGraph socialGraph;
+
+    @Before
+    public void setUp() {
+        friendshipReactiveDao = mock(FriendshipReactiveDao.class);
+        subscriptionReactiveDao = mock(SubscriptionReactiveDao.class);
+        blockReactiveRepository = mock(BlockReactiveRepository.class);
+        socialGraph = new SocialGraph(friendshipReactiveDao, subscriptionReactiveDao, blockReactiveRepository, true, Duration.ZERO);
+    }
+
+    @Test
+    public void testCsrAdjacency_SortsAndDeduplicatesRows() {
+        CsrAdjacency adjacency = CsrAdjacency.build(new int[]{2, 0, 2, 2, 0}, new int[]{1, 3, 0, 1, 2}, 4);
+
+        assertArrayEquals(new int[]{2, 3}, adjacency.neighbors(0));
+        assertArrayEquals(new int[]{}, adjacency.neighbors(1));
+        assertArrayEquals(new int[]{0, 1}, adjacency.neighbors(2));
+        assertArrayEquals(new int[]{}, adjacency.neighbors(99));
+        assertEquals(4, adjacency.edgeCount());
+        assertTrue(adjacency.contains(2, 1));
+        assertFalse(adjacency.contains(1, 2));
+    }
+
+    @Test
+    public void testRebuild_AnswersFromMemory() {
+        // Prepare for data
+
+        // 1 -> 2, 3, 4 are friends, 5 subscribes to 1, 4 blocks 1
+        mockTables(
+                Flux.just(friendship(1, 2), friendship(1, 3), friendship(1, 4), friendship(6, 3), friendship(6, 4)),
+                Flux.just(new Subscription(5, 1), new Subscription(1, 1)),
+                Flux.just(new Block(4, 1)));
+        assertFalse(socialGraph.isReady());
+
+        // Invoke method
+
+        StepVerifier.create(socialGraph.rebuild()).verifyComplete();
+
+        // Verify the result
+
+        assertTrue(socialGraph.isReady());
+        assertArrayEquals(new int[]{2, 3, 4}, socialGraph.friends(1));
+        assertArrayEquals(new int[]{3, 4}, socialGraph.commonFriends(1, 6));
+        // The sender is never a recipient, even when subscribed to itself
+        assertArrayEquals(new int[]{2, 3, 5}, socialGraph.eligibleRecipients(1));
+        assertArrayEquals(new int[]{}, socialGraph.friends(1000));
+    }
+
+    @Test
+    public void testWrites_UpdateTheOverlay() {
+        // Prepare for data
+
+        mockTables(Flux.just(friendship(1, 2)), Flux.just(new Subscription(3, 1)), Flux.empty());
+        StepVerifier.create(socialGraph.rebuild()).verifyComplete();
+
+        // Invoke method
+
+        socialGraph.addFriendship(1, 7);
+        socialGraph.addFriendship(1, 2);
+        socialGraph.removeSubscription(3, 1);
+        socialGraph.addSubscription(8, 1);
+        socialGraph.addBlock(7, 1);
+
+        // Verify the result
+
+        assertArrayEquals(new int[]{2, 7}, socialGraph.friends(1));
+        assertArrayEquals(new int[]{2, 8}, socialGraph.eligibleRecipients(1));
+    }
+
+    @Test
+    public void testRebuild_ReplaysWritesMadeWhileLoading() {
+        // Prepare for data
+
+        Sinks.Many<Friendship> friendships = Sinks.many().unicast().onBackpressureBuffer();
+        mockTables(friendships.asFlux(), Flux.empty(), Flux.empty());
+
+        // Invoke method
+
+        StepVerifier.create(socialGraph.rebuild())
+                .then(() -> {
+                    friendships.tryEmitNext(friendship(1, 2));
+                    // Saved after the table was read, only the journal knows about it
+                    socialGraph.addFriendship(1, 3);
+                    friendships.tryEmitComplete();
+                })
+                .verifyComplete();
+
+        // Verify the result
+
+        assertArrayEquals(new int[]{2, 3}, socialGraph.friends(1));
+    }
+
+    private void mockTables(Flux<Friendship> friendships, Flux<Subscription> subscriptions, Flux<Block> blocks) {
+        when(friendshipReactiveDao.findByStatus("accepted")).thenReturn(friendships);
+        when(subscriptionReactiveDao.findAll()).thenReturn(subscriptions);
+        when(blockReactiveRepository.findAll()).thenReturn(blocks);
+    }
+
+    private static Friendship friendship(int userId, int friendId) {
+        return Friendship.builder().userId(userId).friendId(friendId).status("accepted").build();
+    }
+}
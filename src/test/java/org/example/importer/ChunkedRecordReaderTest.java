@@ -0,0 +1,124 @@
+package org.example.importer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ChunkedRecordReaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReadCsv_LinesCutByChunks() throws IOException {
+        // Prepare for data
+
+        Path file = write("graph.csv", "type,email1,email2\r\n"
+                + "subscribe,lisa@example.com,john@example.com\r\n"
+                + "\n"
+                + " BLOCK , \"andy@example.com\" , john@example.com\n"
+                + "follow,andy@example.com,john@example.com\n"
+                + "block,andy@example.com\n"
+                + "subscription,kate@example.com,lisa@example.com");
+
+        // Invoke method
+
+        // A 64 byte chunk holds about one line, so most lines are cut by a chunk boundary
+        List<ImportRecord> records = new ArrayList<>();
+        int invalid = 0;
+        try (ChunkedRecordReader reader = new ChunkedRecordReader(file, 0, 64, RecordParser.of(file))) {
+            ChunkedRecordReader.RecordBatch batch;
+            while ((batch = reader.next(2)) != null) {
+                records.addAll(batch.getRecords());
+                invalid += batch.getInvalid();
+            }
+        }
+
+        // Verify the result
+
+        assertEquals(3, records.size());
+        assertRecord(records.get(0), ImportRecord.Kind.SUBSCRIBE, "lisa@example.com", "john@example.com");
+        assertRecord(records.get(1), ImportRecord.Kind.BLOCK, "andy@example.com", "john@example.com");
+        assertRecord(records.get(2), ImportRecord.Kind.SUBSCRIBE, "kate@example.com", "lisa@example.com");
+        assertEquals(2, invalid);
+    }
+
+    @Test
+    public void testReadNdjson() throws IOException {
+        // Prepare for data
+
+        Path file = write("graph.ndjson", "{\"type\":\"subscribe\",\"email1\":\"lisa@example.com\",\"email2\":\"john@example.com\"}\n"
+                + "{ \"email2\" : \"john\\u0040example.com\", \"source\": 42, \"type\": \"block\", \"email1\": \"andy@example.com\" }\n"
+                + "{\"type\":\"block\",\"email1\":\"andy@example.com\"}\n"
+                + "{\"type\":\"block\",\"email1\":\"andy@example.com\",\"email2\":[\"john@example.com\"]}\n"
+                + "not json\n");
+
+        // Invoke method
+
+        ChunkedRecordReader.RecordBatch batch;
+        try (ChunkedRecordReader reader = new ChunkedRecordReader(file, 0, 1024, RecordParser.of(file))) {
+            batch = reader.next(100);
+        }
+
+        // Verify the result
+
+        assertEquals(2, batch.getRecords().size());
+        assertRecord(batch.getRecords().get(0), ImportRecord.Kind.SUBSCRIBE, "lisa@example.com", "john@example.com");
+        assertRecord(batch.getRecords().get(1), ImportRecord.Kind.BLOCK, "andy@example.com", "john@example.com");
+        assertEquals(3, batch.getInvalid());
+        assertEquals(Files.size(file), batch.getEndOffset());
+    }
+
+    @Test
+    public void testNext_ResumesFromEndOffset() throws IOException {
+        // Prepare for data
+
+        Path file = write("graph.csv", "block,a@example.com,b@example.com\n"
+                + "block,c@example.com,d@example.com\n"
+                + "block,e@example.com,f@example.com\n");
+        long endOffset;
+        try (ChunkedRecordReader reader = new ChunkedRecordReader(file, 0, 128, RecordParser.of(file))) {
+            endOffset = reader.next(2).getEndOffset();
+        }
+
+        // Invoke method
+
+        try (ChunkedRecordReader reader = new ChunkedRecordReader(file, endOffset, 128, RecordParser.of(file))) {
+            ChunkedRecordReader.RecordBatch batch = reader.next(2);
+
+            // Verify the result
+
+            assertEquals(1, batch.getRecords().size());
+            assertEquals("e@example.com", batch.getRecords().get(0).getEmail1());
+            assertNull(reader.next(2));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNext_LineLongerThanChunk() throws IOException {
+        Path file = write("graph.csv", "block,a-rather-long-email-address@example.com,another-long-address@example.com\n");
+
+        try (ChunkedRecordReader reader = new ChunkedRecordReader(file, 0, 32, RecordParser.of(file))) {
+            reader.next(10);
+        }
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(folder.getRoot().toPath().resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertRecord(ImportRecord record, ImportRecord.Kind kind, String email1, String email2) {
+        assertEquals(kind, record.getKind());
+        assertEquals(email1, record.getEmail1());
+        assertEquals(email2, record.getEmail2());
+    }
+}
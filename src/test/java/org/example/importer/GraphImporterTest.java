@@ -0,0 +1,145 @@
+package org.example.importer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.repository.RelationBulkDao;
+import org.example.repository.UserReactiveDao;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.example.repository.UserPairs.pair;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GraphImporterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private UserReactiveDao userReactiveDao;
+    private RelationBulkDao relationBulkDao;
+    private SimpleMeterRegistry meterRegistry;
+    private GraphImporter graphImporter;
+
+    @Before
+    public void setUp() {
+        userReactiveDao = mock(UserReactiveDao.class);
+        relationBulkDao = mock(RelationBulkDao.class);
+        meterRegistry = new SimpleMeterRegistry();
+        // Batches of 2 records
+        graphImporter = new GraphImporter(userReactiveDao, relationBulkDao, meterRegistry, 2, DataSize.ofKilobytes(1));
+
+        Map<String, Integer> userIds = new HashMap<>();
+        userIds.put("andy@example.com", 1);
+        userIds.put("john@example.com", 2);
+        userIds.put("lisa@example.com", 3);
+        when(userReactiveDao.findUserIdsByEmails(anyCollection())).thenReturn(Mono.just(userIds));
+        // 3 already subscribes to 1
+        when(relationBulkDao.findExistingSubscriptions(anyCollection()))
+                .thenAnswer(invocation -> Mono.just(retain(invocation.getArgument(0), pair(3, 1))));
+        when(relationBulkDao.findExistingBlocks(anyCollection())).thenReturn(Mono.just(new HashSet<>()));
+        when(relationBulkDao.insertSubscriptions(anyCollection()))
+                .thenAnswer(invocation -> Mono.just(invocation.<Collection<Long>>getArgument(0).size()));
+        when(relationBulkDao.insertBlocks(anyCollection()))
+                .thenAnswer(invocation -> Mono.just(invocation.<Collection<Long>>getArgument(0).size()));
+    }
+
+    @Test
+    public void testImportFile() throws IOException {
+        // Prepare for data
+
+        Path file = write("subscribe,lisa@example.com,andy@example.com\n"
+                + "subscribe,John@example.com,andy@example.com\n"
+                + "block,andy@example.com,lisa@example.com\n"
+                + "block,andy@example.com,nobody@example.com\n"
+                + "block,andy@example.com\n");
+
+        long fileSize = Files.size(file);
+
+        // Invoke method
+
+        StepVerifier.create(graphImporter.importFile(file))
+
+                // Verify the result
+
+                .assertNext(report -> {
+                    assertEquals(0, report.getStartOffset());
+                    assertEquals(fileSize, report.getEndOffset());
+                    assertEquals(1, report.getSubscriptions());
+                    assertEquals(1, report.getBlocks());
+                    assertEquals(1, report.getDuplicates());
+                    assertEquals(1, report.getNotFound());
+                    assertEquals(1, report.getInvalid());
+                })
+                .verifyComplete();
+        verify(relationBulkDao, times(1)).insertSubscriptions(new LinkedHashSet<>(Arrays.asList(pair(2, 1))));
+        verify(relationBulkDao, times(1)).insertBlocks(new LinkedHashSet<>(Arrays.asList(pair(1, 3))));
+        assertEquals(Long.toString(fileSize), readCheckpoint(file));
+        assertEquals(1.0, meterRegistry.get("import.records").tag("outcome", "duplicate").counter().count(), 0.0);
+        assertEquals(fileSize, meterRegistry.get("import.bytes").counter().count(), 0.0);
+    }
+
+    @Test
+    public void testImportFile_ResumesFromCheckpoint() throws IOException {
+        // Prepare for data
+
+        String firstLine = "subscribe,lisa@example.com,andy@example.com\n";
+        Path file = write(firstLine + "block,andy@example.com,lisa@example.com\n");
+        Files.write(GraphImporter.checkpointOf(file), Integer.toString(firstLine.length()).getBytes(StandardCharsets.US_ASCII));
+
+        // Invoke method
+
+        StepVerifier.create(graphImporter.importFile(file))
+
+                // Verify the result
+
+                .assertNext(report -> {
+                    assertEquals(firstLine.length(), report.getStartOffset());
+                    assertEquals(0, report.getSubscriptions());
+                    assertEquals(1, report.getBlocks());
+                    assertEquals(0, report.getDuplicates());
+                })
+                .verifyComplete();
+
+        // The checkpoint is at the end of the file, another run has nothing left to import
+        StepVerifier.create(graphImporter.importFile(file))
+                .assertNext(report -> assertEquals(0, report.getBlocks()))
+                .verifyComplete();
+        verify(relationBulkDao, times(1)).insertBlocks(anyCollection());
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.write(folder.getRoot().toPath().resolve("graph.csv"), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readCheckpoint(Path file) throws IOException {
+        return new String(Files.readAllBytes(GraphImporter.checkpointOf(file)), StandardCharsets.US_ASCII);
+    }
+
+    private static Set<Long> retain(Collection<Long> pairs, long existing) {
+        Set<Long> found = new HashSet<>();
+        if (pairs.contains(existing)) {
+            found.add(existing);
+        }
+        return found;
+    }
+}
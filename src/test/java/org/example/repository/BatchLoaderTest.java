@@ -0,0 +1,149 @@
+package org.example.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.model.friends.User;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchLoaderTest {
+    private final List<Collection<Integer>> batches = new CopyOnWriteArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void testLoad_CoalescesConcurrentKeysIntoOneBatch() {
+        // Prepare for data
+
+        BatchLoader<Integer, User> loader = loader(Duration.ofMillis(50), 100, this::findUsers);
+
+        // Invoke method
+
+        List<Mono<User>> lookups = new ArrayList<>();
+        for (int userId = 1; userId <= 10; userId++) {
+            lookups.add(loader.load(userId));
+        }
+        // A duplicated key shares the result of the first one
+        lookups.add(loader.load(3));
+
+        // Verify the result
+
+        StepVerifier.create(Flux.merge(lookups).map(User::getEmail).collectList())
+                .assertNext(emails -> {
+                    assertEquals(11, emails.size());
+                    assertTrue(emails.contains("user3@example.com"));
+                })
+                .verifyComplete();
+        assertEquals(1, batches.size());
+        assertEquals(10, batches.get(0).size());
+        assertEquals(1, meterRegistry.get("user.loader.batch.size").summary().count());
+        assertEquals(10.0, meterRegistry.get("user.loader.batch.size").summary().totalAmount(), 0.0);
+        assertEquals(10, meterRegistry.get("user.loader.wait").timer().count());
+    }
+
+    @Test
+    public void testLoad_DispatchesWhenBatchIsFull() {
+        // Prepare for data
+
+        BatchLoader<Integer, User> loader = loader(Duration.ofSeconds(30), 4, this::findUsers);
+
+        // Invoke method
+
+        Flux<User> users = Flux.range(1, 8).flatMap(loader::load);
+
+        // Verify the result
+
+        StepVerifier.create(users.count())
+                .expectNext(8L)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+        assertEquals(2, batches.size());
+    }
+
+    @Test
+    public void testLoad_UnknownKeyCompletesEmpty() {
+        // Prepare for data
+
+        BatchLoader<Integer, User> loader = loader(Duration.ofMillis(10), 100,
+                keys -> findUsers(keys).filter(user -> user.getUserId() != 2));
+
+        // Invoke method
+
+        Mono<User> unknown = loader.load(2);
+        Mono<User> known = loader.load(1);
+
+        // Verify the result
+
+        StepVerifier.create(Mono.zip(unknown.map(User::getEmail).defaultIfEmpty("none"), known.map(User::getEmail)))
+                .assertNext(emails -> {
+                    assertEquals("none", emails.getT1());
+                    assertEquals("user1@example.com", emails.getT2());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void testLoad_ErrorReachesEveryKeyOfTheBatch() {
+        // Prepare for data
+
+        BatchLoader<Integer, User> loader = loader(Duration.ofMillis(10), 100,
+                keys -> Flux.error(new IllegalStateException("connection reset")));
+
+        // Invoke method
+
+        Mono<User> first = loader.load(1);
+        Mono<User> second = loader.load(2);
+
+        // Verify the result
+
+        StepVerifier.create(first).expectError(IllegalStateException.class).verify();
+        StepVerifier.create(second).expectError(IllegalStateException.class).verify();
+    }
+
+    @Test
+    public void testLoad_ZeroWindowDisablesCoalescing() {
+        // Prepare for data
+
+        BatchLoader<Integer, User> loader = loader(Duration.ZERO, 100, this::findUsers);
+
+        // Invoke method
+
+        Flux<User> users = Flux.range(1, 3).concatMap(loader::load);
+
+        // Verify the result
+
+        StepVerifier.create(users.count())
+                .expectNext(3L)
+                .verifyComplete();
+        assertEquals(3, batches.size());
+    }
+
+    private BatchLoader<Integer, User> loader(Duration window, int maxBatchSize, Function<Collection<Integer>, Flux<User>> batchFunction) {
+        return new BatchLoader<>("userId", batchFunction, User::getUserId, window, maxBatchSize, Schedulers.parallel(), meterRegistry);
+    }
+
+    private Flux<User> findUsers(Collection<Integer> userIds) {
+        batches.add(new ArrayList<>(userIds));
+        return Flux.fromIterable(userIds.stream()
+                .map(userId -> User.builder().userId(userId).email("user" + userId + "@example.com").build())
+                .collect(Collectors.toList()));
+    }
+}
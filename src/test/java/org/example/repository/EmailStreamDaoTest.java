@@ -0,0 +1,52 @@
+package org.example.repository;
+
+import org.junit.Before;
+import org.junit.Test;
+import reactor.test.StepVerifier;
+
+import static org.junit.Assert.assertEquals;
+
+public class EmailStreamDaoTest {
+    private EmbeddedDatabase database;
+    private EmailStreamDao emailStreamDao;
+
+    @Before
+    public void setUp() {
+        database = new EmbeddedDatabase();
+        emailStreamDao = new EmailStreamDao(database.databaseClient(), 16);
+        database.insertUser(1, "andy@example.com");
+        for (int friendId = 2; friendId <= 301; friendId++) {
+            database.insertUser(friendId, "friend" + friendId + "@example.com");
+            database.insertFriendship(1, friendId, "accepted");
+        }
+        database.insertBlock(2, 1);
+        database.insertUser(2000, "subscriber@example.com");
+        database.insertSubscription(2000, 1);
+        database.resetStatementCount();
+    }
+
+    @Test
+    public void testStreamFriendEmails() {
+        StepVerifier.create(emailStreamDao.streamFriendEmails("andy@example.com", "accepted").count())
+                .expectNext(300L)
+                .verifyComplete();
+        assertEquals(1, database.statementCount());
+    }
+
+    @Test
+    public void testStreamFriendEmails_ClientCancelsEarly() {
+        StepVerifier.create(emailStreamDao.streamFriendEmails("andy@example.com", "accepted"), 5)
+                .expectNextCount(5)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void testStreamEligibleRecipientEmails() {
+        // 300 friends minus the blocking friend 2, plus the subscriber
+        StepVerifier.create(emailStreamDao.streamEligibleRecipientEmails(1, "accepted").count())
+                .expectNext(300L)
+                .verifyComplete();
+        assertEquals(1, database.statementCount());
+    }
+}
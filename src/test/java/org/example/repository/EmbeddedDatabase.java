@@ -0,0 +1,114 @@
+package org.example.repository;
+
+import io.r2dbc.proxy.ProxyConnectionFactory;
+import io.r2dbc.proxy.core.QueryExecutionInfo;
+import io.r2dbc.proxy.core.QueryInfo;
+import io.r2dbc.proxy.listener.ProxyExecutionListener;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.fail;
+
+/**
+ * A private in-memory H2 database (MySQL mode) with the friendsmanagement schema,
+ * whose connection factory records every statement that reaches the driver.
+ */
+public class EmbeddedDatabase {
+    private final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+    private final DatabaseClient databaseClient;
+    private final R2dbcRepositoryFactory repositoryFactory;
+
+    public EmbeddedDatabase() {
+        ConnectionFactory h2 = ConnectionFactories.get("r2dbc:h2:mem:///" + UUID.randomUUID()
+                + ";DB_CLOSE_DELAY=-1;MODE=MySQL;NON_KEYWORDS=USER");
+        ConnectionFactory connectionFactory = ProxyConnectionFactory.builder(h2)
+                .listener(new ProxyExecutionListener() {
+                    @Override
+                    public void beforeQuery(QueryExecutionInfo execInfo) {
+                        execInfo.getQueries().stream().map(QueryInfo::getQuery).forEach(statements::add);
+                    }
+                })
+                .build();
+        new ResourceDatabasePopulator(new ClassPathResource("db/schema.sql")).populate(connectionFactory).block();
+        this.databaseClient = DatabaseClient.create(connectionFactory);
+        this.repositoryFactory = new R2dbcRepositoryFactory(new R2dbcEntityTemplate(connectionFactory));
+    }
+
+    public DatabaseClient databaseClient() {
+        return databaseClient;
+    }
+
+    public <T> T repository(Class<T> repositoryInterface) {
+        return repositoryFactory.getRepository(repositoryInterface);
+    }
+
+    /**
+     * @return The number of statements executed since the last reset
+     */
+    public int statementCount() {
+        return statements.size();
+    }
+
+    public void resetStatementCount() {
+        statements.clear();
+    }
+
+    /**
+     * Fails when more than {@code budget} statements were executed since the last reset. The
+     * message lists them, so a batched query that turned into one query per row is easy to spot.
+     */
+    public void assertStatementBudget(int budget) {
+        List<String> executed;
+        synchronized (statements) {
+            executed = new ArrayList<>(statements);
+        }
+        if (executed.size() > budget) {
+            fail(String.format("Expected at most %d statements but %d were executed:%n%s", budget, executed.size(),
+                    executed.stream().map(sql -> "  " + sql).collect(Collectors.joining(System.lineSeparator()))));
+        }
+    }
+
+    public void insertUser(int userId, String email) {
+        databaseClient.sql("INSERT INTO user (user_id, email) VALUES (:id, :email)")
+                .bind("id", userId)
+                .bind("email", email)
+                .then()
+                .block();
+    }
+
+    public void insertFriendship(int userId, int friendId, String status) {
+        databaseClient.sql("INSERT INTO friendship (user_id, friend_id, status) VALUES (:userId, :friendId, :status)")
+                .bind("userId", userId)
+                .bind("friendId", friendId)
+                .bind("status", status)
+                .then()
+                .block();
+    }
+
+    public void insertSubscription(int subscriberId, int targetId) {
+        databaseClient.sql("INSERT INTO subscription (subscriber_id, target_id) VALUES (:subscriberId, :targetId)")
+                .bind("subscriberId", subscriberId)
+                .bind("targetId", targetId)
+                .then()
+                .block();
+    }
+
+    public void insertBlock(int blockerId, int blockedId) {
+        databaseClient.sql("INSERT INTO block (blocker_id, blocked_id) VALUES (:blockerId, :blockedId)")
+                .bind("blockerId", blockerId)
+                .bind("blockedId", blockedId)
+                .then()
+                .block();
+    }
+}
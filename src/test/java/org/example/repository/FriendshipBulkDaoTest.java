@@ -0,0 +1,141 @@
+package org.example.repository;
+
+import org.example.model.friends.Friendship;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.data.mapping.callback.ReactiveEntityCallbacks;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.example.repository.UserPairs.pair;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class FriendshipBulkDaoTest {
+    private EmbeddedDatabase database;
+    private FriendshipBulkDao friendshipBulkDao;
+    private final List<Friendship> saved = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        database = new EmbeddedDatabase();
+        ReactiveEntityCallbacks entityCallbacks = ReactiveEntityCallbacks.create();
+        entityCallbacks.addEntityCallback(new AfterSaveCallback<Friendship>() {
+            @Override
+            public Publisher<Friendship> onAfterSave(Friendship entity, OutboundRow outboundRow, SqlIdentifier table) {
+                saved.add(entity);
+                return Mono.just(entity);
+            }
+        });
+        TransactionalOperator transactionalOperator = TransactionalOperator.create(
+                new R2dbcTransactionManager(database.databaseClient().getConnectionFactory()));
+        // Batches of 2 pairs, so 5 pairs take 3 statements
+        friendshipBulkDao = new FriendshipBulkDao(database.databaseClient(), transactionalOperator, entityCallbacks, 2);
+        for (int userId = 1; userId <= 6; userId++) {
+            database.insertUser(userId, "user" + userId + "@example.com");
+        }
+        database.insertFriendship(1, 2, "accepted");
+        database.insertFriendship(3, 4, "pending");
+        database.insertBlock(6, 5);
+        database.resetStatementCount();
+    }
+
+    @Test
+    public void testFindExistingFriendships() {
+        List<Long> pairs = Arrays.asList(pair(1, 2), pair(2, 1), pair(3, 4), pair(1, 3), pair(5, 6));
+
+        StepVerifier.create(friendshipBulkDao.findExistingFriendships(pairs))
+                .expectNext(new HashSet<>(Arrays.asList(pair(1, 2), pair(3, 4))))
+                .verifyComplete();
+        assertEquals(3, database.statementCount());
+    }
+
+    @Test
+    public void testFindBlockedPairs_EitherWay() {
+        List<Long> pairs = Arrays.asList(pair(1, 2), pair(5, 6), pair(6, 5), pair(1, 5), pair(2, 6));
+
+        StepVerifier.create(friendshipBulkDao.findBlockedPairs(pairs))
+                .expectNext(new HashSet<>(Arrays.asList(pair(5, 6), pair(6, 5))))
+                .verifyComplete();
+        assertEquals(3, database.statementCount());
+    }
+
+    @Test
+    public void testInsertFriendships_OneStatementPerBatch() {
+        List<Long> pairs = Arrays.asList(pair(1, 3), pair(1, 4), pair(2, 3), pair(2, 4), pair(5, 1));
+
+        StepVerifier.create(friendshipBulkDao.insertFriendships(pairs, "accepted"))
+                .expectNext(5)
+                .verifyComplete();
+        assertEquals(3, database.statementCount());
+
+        Set<Long> stored = friendshipBulkDao.findExistingFriendships(pairs).block();
+        assertEquals(new HashSet<>(pairs), stored);
+        // Every inserted row went through the after-save callbacks
+        assertEquals(5, saved.size());
+        assertEquals("accepted", saved.get(4).getStatus());
+        assertEquals(Integer.valueOf(5), saved.get(4).getUserId());
+    }
+
+    @Test
+    public void testInsertFriendships_NothingToInsert() {
+        StepVerifier.create(friendshipBulkDao.insertFriendships(new ArrayList<>(), "accepted"))
+                .expectNext(0)
+                .verifyComplete();
+        assertEquals(0, database.statementCount());
+    }
+
+    @Test
+    public void testInsertFriendshipIfAbsent_OneStatement() {
+        StepVerifier.create(friendshipBulkDao.insertFriendshipIfAbsent(1, 3, "accepted"))
+                .assertNext(friendship -> {
+                    assertNotNull(friendship.getFriendshipId());
+                    assertEquals(Integer.valueOf(3), friendship.getFriendId());
+                })
+                .verifyComplete();
+        assertEquals(1, database.statementCount());
+        assertEquals(1, saved.size());
+
+        // The unique pair key skips the second insert, whatever the status of the stored row
+        StepVerifier.create(friendshipBulkDao.insertFriendshipIfAbsent(1, 3, "accepted"))
+                .verifyComplete();
+        StepVerifier.create(friendshipBulkDao.insertFriendshipIfAbsent(3, 4, "accepted"))
+                .verifyComplete();
+        assertEquals(3, database.statementCount());
+        assertEquals(1, saved.size());
+    }
+
+    @Test
+    public void testInsertFriendships_SkipsStoredPairs() {
+        // (3, 4) is stored as pending and must not reach the callbacks as accepted
+        List<Long> pairs = Arrays.asList(pair(1, 2), pair(1, 3), pair(3, 4));
+
+        StepVerifier.create(friendshipBulkDao.insertFriendships(pairs, "accepted"))
+                .expectNext(1)
+                .verifyComplete();
+
+        // Both batches skipped a stored pair, so each is rolled back and redone as a select and,
+        // for the pair left, an insert
+        assertEquals(5, database.statementCount());
+        assertEquals(1, saved.size());
+        assertEquals(Integer.valueOf(1), saved.get(0).getUserId());
+        assertEquals(Integer.valueOf(3), saved.get(0).getFriendId());
+        assertEquals(1, database.databaseClient().sql("SELECT COUNT(*) FROM friendship WHERE user_id = 1 AND friend_id = 3")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .block()
+                .intValue());
+    }
+}
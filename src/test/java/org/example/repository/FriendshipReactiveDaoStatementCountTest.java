@@ -0,0 +1,181 @@
+package org.example.repository;
+
+import org.example.model.friends.User;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the projection queries of {@link FriendshipReactiveDao} against an embedded
+ * H2 database (MySQL mode) and counts the statements that reach the driver.
+ */
+public class FriendshipReactiveDaoStatementCountTest {
+    private EmbeddedDatabase database;
+    private FriendshipReactiveDao friendshipReactiveDao;
+
+    @Before
+    public void setUp() {
+        database = new EmbeddedDatabase();
+        friendshipReactiveDao = database.repository(FriendshipReactiveDao.class);
+    }
+
+    @Test
+    public void testFindFriendEmailsByEmailAndStatus_SmallGraph() {
+        assertFriendListIsOneStatement(5);
+    }
+
+    @Test
+    public void testFindFriendEmailsByEmailAndStatus_LargeGraph() {
+        assertFriendListIsOneStatement(500);
+    }
+
+    @Test
+    public void testFindCommonFriendEmails() {
+        // Prepare for data
+
+        seedUserWithFriends("andy@example.com", 300);
+        // john (id 400) shares every third friend of andy
+        database.insertUser(400, "john@example.com");
+        int expectedCommon = 0;
+        for (int friendId = 2; friendId <= 301; friendId += 3) {
+            database.insertFriendship(400, friendId, "accepted");
+            expectedCommon++;
+        }
+        database.resetStatementCount();
+
+        // Invoke method
+
+        Flux<String> actualEmails = friendshipReactiveDao.findCommonFriendEmails(1, 400, "accepted");
+
+        // Verify the result
+
+        int finalExpectedCommon = expectedCommon;
+        StepVerifier.create(actualEmails.collectList())
+                .assertNext(emails -> assertEquals(finalExpectedCommon, emails.size()))
+                .verifyComplete();
+        assertEquals(1, database.statementCount());
+    }
+
+    @Test
+    public void testFriendOfFriendQueries() {
+        // Prepare for data
+
+        seedUserWithFriends("andy@example.com", 3);
+        // Friends 2 and 3 are both friends of 10, 4 blocks andy and andy blocks 11
+        database.insertUser(10, "candidate@example.com");
+        database.insertUser(11, "blocked@example.com");
+        database.insertFriendship(2, 10, "accepted");
+        database.insertFriendship(3, 10, "accepted");
+        database.insertFriendship(4, 10, "pending");
+        database.insertBlock(4, 1);
+        database.insertBlock(1, 11);
+        BlockReactiveRepository blockReactiveRepository = database.repository(BlockReactiveRepository.class);
+        database.resetStatementCount();
+
+        // Invoke method
+
+        Flux<Integer> candidates = friendshipReactiveDao.findFriendIdsByUserIdInAndStatus(Arrays.asList(2, 3, 4), "accepted");
+        Flux<Integer> blockPartners = blockReactiveRepository.findBlockPartnerIds(1);
+
+        // Verify the result
+
+        StepVerifier.create(candidates.collectList())
+                .assertNext(ids -> assertEquals(Arrays.asList(10, 10), ids))
+                .verifyComplete();
+        StepVerifier.create(blockPartners.sort().collectList())
+                .assertNext(ids -> assertEquals(Arrays.asList(4, 11), ids))
+                .verifyComplete();
+        assertEquals(2, database.statementCount());
+    }
+
+    @Test
+    public void testFindFriendPageByEmailAndStatus_WalksPagesWithOneStatementEach() {
+        // Prepare for data
+
+        seedUserWithFriends("andy@example.com", 25);
+        database.resetStatementCount();
+
+        // Invoke method
+
+        List<Integer> seen = new ArrayList<>();
+        int afterId = 0;
+        int pages = 0;
+        List<User> page;
+        do {
+            page = friendshipReactiveDao.findFriendPageByEmailAndStatus("andy@example.com", "accepted", afterId, 10)
+                    .collectList()
+                    .block();
+            page.forEach(user -> seen.add(user.getUserId()));
+            afterId = page.isEmpty() ? afterId : page.get(page.size() - 1).getUserId();
+            pages++;
+        } while (page.size() == 10);
+
+        // Verify the result
+
+        assertEquals(IntStream.rangeClosed(2, 26).boxed().collect(Collectors.toList()), seen);
+        assertEquals(3, pages);
+        assertEquals(3, database.statementCount());
+    }
+
+    @Test
+    public void testFindCommonFriendPage() {
+        // Prepare for data
+
+        seedUserWithFriends("andy@example.com", 10);
+        database.insertUser(400, "john@example.com");
+        for (int friendId = 2; friendId <= 11; friendId += 2) {
+            database.insertFriendship(400, friendId, "accepted");
+        }
+        database.resetStatementCount();
+
+        // Invoke method
+
+        Flux<Integer> actualIds = friendshipReactiveDao.findCommonFriendPage(1, 400, "accepted", 4, 2)
+                .map(User::getUserId);
+
+        // Verify the result
+
+        StepVerifier.create(actualIds.collectList())
+                .assertNext(ids -> assertEquals(Arrays.asList(6, 8), ids))
+                .verifyComplete();
+        assertEquals(1, database.statementCount());
+    }
+
+    private void assertFriendListIsOneStatement(int friendCount) {
+        // Prepare for data
+
+        seedUserWithFriends("andy@example.com", friendCount);
+        database.resetStatementCount();
+
+        // Invoke method
+
+        Flux<String> actualEmails = friendshipReactiveDao.findFriendEmailsByEmailAndStatus("andy@example.com", "accepted");
+
+        // Verify the result
+
+        StepVerifier.create(actualEmails.collectList())
+                .assertNext(emails -> assertEquals(friendCount, emails.size()))
+                .verifyComplete();
+        assertEquals(1, database.statementCount());
+    }
+
+    private void seedUserWithFriends(String email, int friendCount) {
+        database.insertUser(1, email);
+        for (int friendId = 2; friendId <= friendCount + 1; friendId++) {
+            database.insertUser(friendId, "friend" + friendId + "@example.com");
+            database.insertFriendship(1, friendId, "accepted");
+        }
+        // A pending request must not show up in the friend list
+        database.insertUser(friendCount + 2, "pending@example.com");
+        database.insertFriendship(1, friendCount + 2, "pending");
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.R2dbcTimeoutException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class MeteredConnectionPoolTest {
+    private SimpleMeterRegistry meterRegistry;
+    private MeteredConnectionPool connectionPool;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // A single connection, so a second acquire has to wait for it
+        connectionPool = new MeteredConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(
+                                "r2dbc:h2:mem:///" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"))
+                        .initialSize(1)
+                        .maxSize(1)
+                        .maxAcquireTime(Duration.ofMillis(100))
+                        .build(),
+                "test", meterRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        connectionPool.dispose();
+    }
+
+    @Test
+    public void testWarmup_OpensInitialConnections() {
+        // Invoke method
+
+        StepVerifier.create(connectionPool.warmup()).expectNext(1).verifyComplete();
+
+        // Verify the result
+
+        assertEquals(1, connectionPool.getMetrics().get().allocatedSize());
+        assertEquals(1, connectionPool.getMetrics().get().idleSize());
+    }
+
+    @Test
+    public void testCreate_TimesAcquiresByOutcome() {
+        // Prepare for data
+
+        Connection held = connectionPool.create().block();
+
+        // Invoke method
+
+        Mono<Connection> waiting = connectionPool.create();
+
+        // Verify the result
+
+        StepVerifier.create(waiting).expectError(R2dbcTimeoutException.class).verify();
+        Mono.from(held.close()).block();
+        StepVerifier.create(connectionPool.create().flatMap(connection -> Mono.from(connection.close())))
+                .verifyComplete();
+        assertEquals(2, acquires("success"));
+        assertEquals(1, acquires("timeout"));
+        assertEquals(0, acquires("error"));
+    }
+
+    @Test
+    public void testCreate_CancelAfterConnectionIsASuccess() {
+        // Prepare for data
+
+        AtomicReference<Connection> received = new AtomicReference<>();
+
+        // Invoke method
+
+        connectionPool.create().subscribe(new BaseSubscriber<Connection>() {
+            @Override
+            protected void hookOnNext(Connection connection) {
+                received.set(connection);
+                cancel();
+            }
+        });
+
+        // Verify the result
+
+        assertNotNull(received.get());
+        Mono.from(received.get().close()).block();
+        assertEquals(1, acquires("success"));
+        assertEquals(0, acquires("cancelled"));
+    }
+
+    private long acquires(String outcome) {
+        return meterRegistry.get("r2dbc.pool.acquire").tag("name", "test").tag("outcome", outcome).timer().count();
+    }
+}
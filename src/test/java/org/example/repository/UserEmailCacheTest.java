@@ -0,0 +1,134 @@
+package org.example.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.model.friends.User;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+public class UserEmailCacheTest {
+    private final AtomicInteger loads = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private UserEmailCache userEmailCache;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userEmailCache = new UserEmailCache(meterRegistry, 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    public void testGet_LoadsOnceThenHits() {
+        // Prepare for data
+
+        User andy = User.builder().userId(1).email("andy@example.com").build();
+
+        // Invoke method
+
+        Mono<User> first = userEmailCache.get("andy@example.com", email -> load(andy));
+        Mono<User> second = userEmailCache.get("andy@example.com", email -> load(andy));
+
+        // Verify the result
+
+        StepVerifier.create(first).expectNext(andy).verifyComplete();
+        StepVerifier.create(second).expectNext(andy).verifyComplete();
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "user.email").tag("result", "hit").functionCounter().count(), 0.0);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "user.email").tag("result", "miss").functionCounter().count(), 0.0);
+    }
+
+    @Test
+    public void testGet_MissIsNotCached() {
+        // Invoke method
+
+        Mono<User> first = userEmailCache.get("ghost@example.com", email -> load(null));
+        Mono<User> second = userEmailCache.get("ghost@example.com", email -> load(null));
+
+        // Verify the result
+
+        StepVerifier.create(first).verifyComplete();
+        StepVerifier.create(second).verifyComplete();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testOnAfterSave_InvalidatesOldAndNewEmail() {
+        // Prepare for data
+
+        User andy = User.builder().userId(1).email("andy@example.com").build();
+        StepVerifier.create(userEmailCache.get("andy@example.com", email -> load(andy))).expectNext(andy).verifyComplete();
+
+        // Invoke method
+
+        User renamed = User.builder().userId(1).email("Andrew@example.com").build();
+        StepVerifier.create(userEmailCache.onAfterSave(renamed, null, null)).expectNext(renamed).verifyComplete();
+
+        // Verify the result
+
+        StepVerifier.create(userEmailCache.get("andy@example.com", email -> load(null))).verifyComplete();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testOnAfterSave_KeepsOtherUsers() {
+        // Prepare for data
+
+        User andy = User.builder().userId(1).email("andy@example.com").build();
+        User john = User.builder().userId(2).email("john@example.com").build();
+        StepVerifier.create(userEmailCache.get("andy@example.com", email -> load(andy))).expectNext(andy).verifyComplete();
+        StepVerifier.create(userEmailCache.get("john@example.com", email -> load(john))).expectNext(john).verifyComplete();
+
+        // Invoke method
+
+        User renamed = User.builder().userId(1).email("Andrew@example.com").build();
+        StepVerifier.create(userEmailCache.onAfterSave(renamed, null, null)).expectNext(renamed).verifyComplete();
+
+        // Verify the result
+
+        StepVerifier.create(userEmailCache.get("john@example.com", email -> load(null))).expectNext(john).verifyComplete();
+        StepVerifier.create(userEmailCache.get("andy@example.com", email -> load(null))).verifyComplete();
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testOnAfterSave_AfterExpiryAndReload() {
+        // Prepare for data
+
+        AtomicLong now = new AtomicLong();
+        // Holds back the removal notifications until the email has been loaded again
+        List<Runnable> pending = new ArrayList<>();
+        UserEmailCache expiringCache = new UserEmailCache(meterRegistry, 100, Duration.ofMinutes(10), now::get, pending::add);
+        User andy = User.builder().userId(1).email("andy@example.com").build();
+        StepVerifier.create(expiringCache.get("andy@example.com", email -> load(andy))).expectNext(andy).verifyComplete();
+        now.addAndGet(Duration.ofMinutes(11).toNanos());
+        StepVerifier.create(expiringCache.get("andy@example.com", email -> load(andy))).expectNext(andy).verifyComplete();
+        // The maintenance run queues the notification of the expired entry in turn
+        while (!pending.isEmpty()) {
+            pending.remove(0).run();
+        }
+
+        // Invoke method
+
+        User renamed = User.builder().userId(1).email("Andrew@example.com").build();
+        StepVerifier.create(expiringCache.onAfterSave(renamed, null, null)).expectNext(renamed).verifyComplete();
+
+        // Verify the result
+
+        StepVerifier.create(expiringCache.get("andy@example.com", email -> load(null))).verifyComplete();
+        assertEquals(3, loads.get());
+    }
+
+    private Mono<User> load(User user) {
+        loads.incrementAndGet();
+        return Mono.justOrEmpty(user);
+    }
+}
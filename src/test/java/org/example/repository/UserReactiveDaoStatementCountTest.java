@@ -0,0 +1,201 @@
+package org.example.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.model.friends.User;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the projection and batch queries of {@link UserReactiveDao} against an embedded
+ * H2 database (MySQL mode) and counts the statements that reach the driver.
+ */
+public class UserReactiveDaoStatementCountTest {
+    private EmbeddedDatabase database;
+    private UserReactiveDao userReactiveDao;
+
+    @Before
+    public void setUp() {
+        database = new EmbeddedDatabase();
+        userReactiveDao = database.repository(UserReactiveDao.class);
+    }
+
+    @Test
+    public void testFindEligibleRecipientEmails() {
+        // Prepare for data
+
+        database.insertUser(1, "john@example.com");
+        database.insertUser(2, "friend@example.com");
+        database.insertUser(3, "subscriber@example.com");
+        database.insertUser(4, "both@example.com");
+        database.insertUser(5, "blocker@example.com");
+        database.insertUser(6, "target@example.com");
+        database.insertUser(7, "pending@example.com");
+        database.insertUser(8, "unrelated-blocker@example.com");
+
+        database.insertFriendship(1, 2, "accepted");
+        database.insertFriendship(1, 4, "accepted");
+        database.insertFriendship(1, 5, "accepted");
+        database.insertFriendship(1, 7, "pending");
+        database.insertFriendship(1, 8, "accepted");
+        // Subscribers of john receive his updates, the users john subscribed to do not
+        database.insertSubscription(3, 1);
+        database.insertSubscription(4, 1);
+        database.insertSubscription(1, 6);
+        // blocker blocks john, unrelated-blocker only blocks someone else
+        database.insertBlock(5, 1);
+        database.insertBlock(8, 2);
+        database.resetStatementCount();
+
+        // Invoke method
+
+        Flux<String> actualEmails = userReactiveDao.findEligibleRecipientEmails(1, "accepted").sort();
+
+        // Verify the result
+
+        StepVerifier.create(actualEmails.collectList())
+                .expectNext(List.of("both@example.com", "friend@example.com", "subscriber@example.com", "unrelated-blocker@example.com"))
+                .verifyComplete();
+        assertEquals(1, database.statementCount());
+    }
+
+    @Test
+    public void testFindEligibleRecipientPage_WalksThePagesInIdOrder() {
+        // Prepare for data
+
+        database.insertUser(1, "john@example.com");
+        database.insertUser(2, "friend@example.com");
+        database.insertUser(3, "subscriber@example.com");
+        database.insertUser(4, "both@example.com");
+        database.insertUser(5, "blocker@example.com");
+        database.insertUser(7, "pending@example.com");
+        database.insertUser(8, "late-friend@example.com");
+        database.insertUser(9, "late-subscriber@example.com");
+
+        database.insertFriendship(1, 2, "accepted");
+        database.insertFriendship(1, 4, "accepted");
+        database.insertFriendship(1, 5, "accepted");
+        database.insertFriendship(1, 7, "pending");
+        database.insertFriendship(1, 8, "accepted");
+        database.insertSubscription(3, 1);
+        database.insertSubscription(4, 1);
+        database.insertSubscription(9, 1);
+        database.insertBlock(5, 1);
+        database.resetStatementCount();
+
+        // Invoke method
+
+        Flux<Integer> firstPage = userReactiveDao.findEligibleRecipientPage(1, "accepted", 0, 2).map(User::getUserId);
+        Flux<Integer> secondPage = userReactiveDao.findEligibleRecipientPage(1, "accepted", 3, 2).map(User::getUserId);
+        Flux<Integer> lastPage = userReactiveDao.findEligibleRecipientPage(1, "accepted", 8, 2).map(User::getUserId);
+
+        // Verify the result
+
+        // Each branch stops at its own limit, the union still yields the lowest ids of both
+        StepVerifier.create(firstPage.collectList()).expectNext(List.of(2, 3)).verifyComplete();
+        // both is a friend and a subscriber but comes once
+        StepVerifier.create(secondPage.collectList()).expectNext(List.of(4, 8)).verifyComplete();
+        StepVerifier.create(lastPage.collectList()).expectNext(List.of(9)).verifyComplete();
+        assertEquals(3, database.statementCount());
+    }
+
+    @Test
+    public void testFindEligibleRecipientEmails_LargeAudience() {
+        // Prepare for data
+
+        int subscriberCount = 1000;
+        database.insertUser(1, "john@example.com");
+        for (int subscriberId = 2; subscriberId <= subscriberCount + 1; subscriberId++) {
+            database.insertUser(subscriberId, "subscriber" + subscriberId + "@example.com");
+            database.insertSubscription(subscriberId, 1);
+        }
+        database.resetStatementCount();
+
+        // Invoke method
+
+        Flux<String> actualEmails = userReactiveDao.findEligibleRecipientEmails(1, "accepted");
+
+        // Verify the result
+
+        StepVerifier.create(actualEmails.count())
+                .expectNext((long) subscriberCount)
+                .verifyComplete();
+        assertEquals(1, database.statementCount());
+    }
+
+    @Test
+    public void testFindEmailsByUserIds_ChunksIdsAndPreservesOrder() {
+        // Prepare for data
+
+        int userCount = 1200;
+        for (int userId = 1; userId <= userCount; userId++) {
+            database.insertUser(userId, "user" + userId + "@example.com");
+        }
+        List<Integer> requestedIds = new ArrayList<>();
+        for (int userId = userCount; userId >= 1; userId--) {
+            requestedIds.add(userId);
+        }
+        // Unknown and repeated ids are skipped
+        requestedIds.add(5000);
+        requestedIds.add(7);
+        database.resetStatementCount();
+
+        // Invoke method
+
+        Mono<Map<Integer, String>> actualEmails = userReactiveDao.findEmailsByUserIds(requestedIds);
+
+        // Verify the result
+
+        StepVerifier.create(actualEmails)
+                .assertNext(emailsById -> {
+                    assertEquals(userCount, emailsById.size());
+                    assertEquals(requestedIds.subList(0, userCount), new ArrayList<>(emailsById.keySet()));
+                    assertEquals("user42@example.com", emailsById.get(42));
+                })
+                .verifyComplete();
+        // 1201 distinct ids in chunks of 500
+        assertEquals(3, database.statementCount());
+    }
+
+    @Test
+    public void testUserBatchLoader_ConcurrentEmailLookupsShareOneStatementThenHitCache() {
+        // Prepare for data
+
+        for (int userId = 1; userId <= 50; userId++) {
+            database.insertUser(userId, "user" + userId + "@example.com");
+        }
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserEmailCache userEmailCache = new UserEmailCache(meterRegistry, 1000, Duration.ofMinutes(10));
+        // The batch is dispatched once it holds all 50 keys, not by a timer racing the subscriptions
+        UserBatchLoader userBatchLoader = new UserBatchLoader(userReactiveDao, userEmailCache, meterRegistry, Duration.ofSeconds(30), 50);
+        database.resetStatementCount();
+
+        // Invoke method
+
+        Flux<User> actualUsers = Flux.range(1, 50)
+                .flatMap(userId -> userBatchLoader.findByEmail("USER" + userId + "@example.com"));
+
+        // Verify the result
+
+        StepVerifier.create(actualUsers.count())
+                .expectNext(50L)
+                .verifyComplete();
+        assertEquals(1, database.statementCount());
+
+        // The second round is served from the email cache
+
+        StepVerifier.create(Flux.range(1, 50).flatMap(userId -> userBatchLoader.findByEmail("user" + userId + "@example.com")).count())
+                .expectNext(50L)
+                .verifyComplete();
+        assertEquals(1, database.statementCount());
+    }
+}
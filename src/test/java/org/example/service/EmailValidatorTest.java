@@ -0,0 +1,77 @@
+package org.example.service;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EmailValidatorTest {
+    // The pattern the service used before EmailValidator, the reference for the differential tests
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^(?=.{1,64}@)[A-Za-z0-9_-]+(\\.[A-Za-z0-9_-]+)*@"
+            + "[^-][A-Za-z0-9-]+(\\.[A-Za-z0-9-]+)*(\\.[A-Za-z]{2,})$");
+
+    private static final List<String> CORPUS = Arrays.asList(
+            "username@domain.com", "user.name@domain.com", "user-name@domain.com", "username@domain.co.in",
+            "user_name@domain.com", "username.@domain.com", ".user.name@domain.com", "user-name@domain.com.",
+            "username@.com", "andy@example.com", "a@bb.cc", "a@b.cc", "a@bb.c", "a@-b.com", "a@b-.com",
+            "a@bb-.com", "a@.bb.com", "a@@bb.com", "a@\nbb.com", "a@😀bb.com", "a@\uD83Dbb.com",
+            "a@\uDE00bb.com", "a@bb.com\n", "\na@bb.com", "a@bb..com", "a..b@bb.com", "a@bb.c0m", "a@bb.com1",
+            "a@b1.co-m", "a@bb.co.m", "@bb.com", "a@", "a", "", "a@bb", "a@b.b.b.b.bb", "A_-9@X-9.ORG",
+            "a b@bb.com", "a@bb.com ", "a+b@bb.com", "a@b_b.com", "ü@bb.com", "a@bü.com",
+            repeat('a', 64) + "@bb.com", repeat('a', 65) + "@bb.com", repeat('a', 63) + ".@bb.com",
+            repeat('a', 32) + "." + repeat('a', 31) + "@bb.com", repeat('a', 70) + "@" + repeat('b', 70) + ".com");
+
+    @Test
+    public void testIsValid_AgreesWithPatternOnCorpus() {
+        for (String email : CORPUS) {
+            assertEquals(email, EMAIL_PATTERN.matcher(email).matches(), EmailValidator.isValid(email));
+        }
+    }
+
+    @Test
+    public void testIsValid_AgreesWithPatternOnRandomInputs() {
+        // Mostly email chars so that many inputs get deep into the pattern
+        char[] alphabet = "aZ9_-..@@@ \n+😀".toCharArray();
+        Random random = new Random(42);
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 200000; i++) {
+            char[] chars = new char[random.nextInt(80)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            inputs.add(new String(chars));
+            // Mutations of valid addresses
+            StringBuilder valid = new StringBuilder(repeat('a', 1 + random.nextInt(70)))
+                    .append('@').append(repeat('b', 1 + random.nextInt(3)))
+                    .append(".c").append(repeat('o', random.nextInt(3)));
+            valid.setCharAt(random.nextInt(valid.length()), alphabet[random.nextInt(alphabet.length)]);
+            inputs.add(valid.toString());
+        }
+        for (String input : inputs) {
+            assertEquals(input, EMAIL_PATTERN.matcher(input).matches(), EmailValidator.isValid(input));
+        }
+    }
+
+    @Test
+    public void testIsValid_Range() {
+        String text = "mail:andy@example.com.";
+
+        assertTrue(EmailValidator.isValid(text, 5, text.length() - 1));
+        assertFalse(EmailValidator.isValid(text, 4, text.length() - 1));
+        assertFalse(EmailValidator.isValid(text, 5, text.length()));
+        assertFalse(EmailValidator.isValid(null));
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
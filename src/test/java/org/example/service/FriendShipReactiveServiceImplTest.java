@@ -1,20 +1,32 @@
 package org.example.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import junit.framework.TestCase;
 import org.example.dto.*;
+import org.example.graph.BlockIndex;
+import org.example.graph.FriendSetCache;
+import org.example.graph.FriendSuggestions;
+import org.example.graph.SocialGraph;
 import org.example.model.Response;
 import org.example.model.friends.Block;
 import org.example.model.friends.Friendship;
 import org.example.model.friends.Subscription;
 import org.example.model.friends.User;
 import org.example.repository.BlockReactiveRepository;
+import org.example.repository.EmailStreamDao;
+import org.example.repository.FriendshipBulkDao;
 import org.example.repository.FriendshipReactiveDao;
+import org.example.repository.RelationBulkDao;
 import org.example.repository.SubscriptionReactiveDao;
+import org.example.repository.UserBatchLoader;
+import org.example.repository.UserPairs;
 import org.example.repository.UserReactiveDao;
+import org.example.trace.PipelineTracer;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
@@ -25,7 +37,12 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -36,11 +53,29 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
     @Mock
     private UserReactiveDao userReactiveDao;
     @Mock
+    private UserBatchLoader userBatchLoader;
+    @Mock
     private FriendshipReactiveDao friendshipReactiveDao;
     @Mock
     private SubscriptionReactiveDao subscriptionReactiveDao;
     @Mock
     private BlockReactiveRepository blockReactiveRepository;
+    @Mock
+    private SocialGraph socialGraph;
+    @Mock
+    private FriendSetCache friendSetCache;
+    @Mock
+    private BlockIndex blockIndex;
+    @Mock
+    private FriendSuggestions friendSuggestions;
+    @Mock
+    private EmailStreamDao emailStreamDao;
+    @Mock
+    private FriendshipBulkDao friendshipBulkDao;
+    @Mock
+    private RelationBulkDao relationBulkDao;
+    @Spy
+    private PipelineTracer pipelineTracer = new PipelineTracer(new SimpleMeterRegistry(), false, 0.01, 1024);
     @InjectMocks
     private FriendShipReactiveServiceImpl friendShipReactiveService;
 
@@ -50,32 +85,12 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
 
         String email = "andy@example.com";
 
-        User expectedUser = User.builder()
-                .userId(1)
-                .email(email)
-                .build();
-
-        Friendship expectedFriendShip = Friendship.builder()
-                .friendshipId(1)
-                .userId(1)
-                .friendId(2)
-                .build();
-
-        User expectedFriend = User.builder()
-                .userId(2)
-                .email("friend1@example.com")
-                .build();
+        String expectedFriendEmail = "friend1@example.com";
 
         // Mock
 
-        when(userReactiveDao.findByEmail(email))
-                .thenReturn(Mono.just(expectedUser));
-
-        when(friendshipReactiveDao.findByUserIdAndStatus(1, "accepted"))
-                .thenReturn(Flux.just(expectedFriendShip));
-
-        when(userReactiveDao.findByUserId(2))
-                .thenReturn(Mono.just(expectedFriend));
+        when(friendshipReactiveDao.findFriendEmailsByEmailAndStatus(email, "accepted"))
+                .thenReturn(Flux.just(expectedFriendEmail));
 
         // Invoke method
 
@@ -86,7 +101,7 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
 
         // Verify
 
-        List<String> expectedFriends = Arrays.asList("friend1@example.com");
+        List<String> expectedFriends = Arrays.asList(expectedFriendEmail);
 
         FriendListDTO.Response expectedResponseDTO = FriendListDTO.Response.builder()
                 .friends(expectedFriends)
@@ -104,6 +119,8 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
         StepVerifier.create(actualResponseEntity)
                 .expectNext(expectedResponseEntity)
                 .verifyComplete();
+        verify(friendshipReactiveDao, times(1)).findFriendEmailsByEmailAndStatus(email, "accepted");
+        verifyNoInteractions(userReactiveDao);
     }
 
     @Test
@@ -136,10 +153,77 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
 
         // Verify that the methods were not called
 
-        verifyNoInteractions(userReactiveDao, friendshipReactiveDao);
+        verifyNoInteractions(userReactiveDao, userBatchLoader, friendshipReactiveDao);
         verify(userReactiveDao, never()).findByEmail(invalidEmail);
     }
 
+    @Test
+    public void testGetFriendsListByEmail_Paged() {
+        // Prepare for data
+
+        String email = "andy@example.com";
+        String cursor = PageCursor.encode(5);
+
+        // Mock
+
+        // One row more than the page size tells that another page follows
+        when(friendshipReactiveDao.findFriendPageByEmailAndStatus(email, "accepted", 5, 3))
+                .thenReturn(Flux.just(
+                        User.builder().userId(6).email("friend6@example.com").build(),
+                        User.builder().userId(8).email("friend8@example.com").build(),
+                        User.builder().userId(9).email("friend9@example.com").build()));
+
+        // Invoke method
+
+        FriendListDTO.Request request = FriendListDTO.Request.builder()
+                .email(email)
+                .limit(2)
+                .cursor(cursor)
+                .build();
+        Mono<ResponseEntity<Response>> actualResponseEntity = friendShipReactiveService.getFriendsListByEmail(request);
+
+        // Verify
+
+        List<String> expectedFriends = Arrays.asList("friend6@example.com", "friend8@example.com");
+
+        FriendListDTO.Response expectedResponseDTO = FriendListDTO.Response.builder()
+                .friends(expectedFriends)
+                .count(expectedFriends.size())
+                .nextCursor(PageCursor.encode(8))
+                .build();
+
+        StepVerifier.create(actualResponseEntity)
+                .assertNext(responseEntity -> {
+                    assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+                    assertEquals(expectedResponseDTO, responseEntity.getBody().getResult());
+                })
+                .verifyComplete();
+        verify(friendshipReactiveDao, never()).findFriendEmailsByEmailAndStatus(anyString(), anyString());
+    }
+
+    @Test
+    public void testGetFriendsListByEmail_InvalidCursor() {
+        // Invoke method
+
+        FriendListDTO.Request request = FriendListDTO.Request.builder()
+                .email("andy@example.com")
+                .limit(10)
+                .cursor("not-a-cursor")
+                .build();
+        Mono<ResponseEntity<Response>> actualResponseEntity = friendShipReactiveService.getFriendsListByEmail(request);
+
+        // Verify the result
+
+        Response expectedResponse = Response.builder()
+                .message("Invalid cursor {not-a-cursor}. Please pass the nextCursor of a previous page.")
+                .build();
+
+        StepVerifier.create(actualResponseEntity)
+                .expectNext(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(expectedResponse))
+                .verifyComplete();
+        verifyNoInteractions(friendshipReactiveDao, userBatchLoader);
+    }
+
     @Test
     public void testGetCommonFriends() {
         // Prepare data
@@ -157,36 +241,136 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
                 .build();
 
 
-        Friendship friendship1 = new Friendship();
-        friendship1.setUserId(1);
-        friendship1.setFriendId(3);
-        friendship1.setStatus("ACCEPTED");
+        // Mock
+
+        when(userBatchLoader.findByEmail(email1))
+                .thenReturn(Mono.just(user1));
+
+        when(userBatchLoader.findByEmail(email2))
+                .thenReturn(Mono.just(user2));
+
+        when(friendshipReactiveDao.findCommonFriendEmails(1, 2, "accepted"))
+                .thenReturn(Flux.just("user3@example.com"));
+
+        // Invoke Method
+
+        CommonFriendDTO.Request actualRequest = CommonFriendDTO.Request.builder()
+                .email1(email1)
+                .email2(email2)
+                .build();
+
+        Mono<ResponseEntity<Response>> actualCommonFriends = friendShipReactiveService.getCommonFriends(actualRequest);
+
+        // Verify the result
+
+        String expectedEmail = "user3@example.com";
+
+        List<String> expectListOfCommonFriends = List.of(expectedEmail);
+
+        CommonFriendDTO.Response expectedResponse = CommonFriendDTO.Response.builder()
+                .friends(expectListOfCommonFriends)
+                .count(expectListOfCommonFriends.size())
+                .build();
+
+        Response expectResponse = Response.builder()
+                .success("true")
+                .message("Common Friend list retrieved successfully.")
+                .result(expectedResponse)
+                .build();
+
+        ResponseEntity<Response> expectResEntity = ResponseEntity.status(HttpStatus.OK).body(expectResponse);
 
-        Friendship friendship2 = new Friendship();
-        friendship2.setUserId(2);
-        friendship2.setFriendId(3);
-        friendship2.setStatus("ACCEPTED");
+        StepVerifier.create(actualCommonFriends)
+                .expectNext(expectResEntity)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testGetCommonFriends_MultipleCommonFriends() {
+        // Prepare data
+
+        String email1 = "andy@example.com";
+        String email2 = "john@example.com";
 
-        User user3 = new User();
-        user3.setUserId(3);
-        user3.setEmail("user3@example.com");
+        User user1 = User.builder()
+                .userId(1)
+                .email(email1)
+                .build();
+        User user2 = User.builder()
+                .userId(2)
+                .email(email2)
+                .build();
 
         // Mock
 
-        when(userReactiveDao.findByEmail(email1))
+        when(userBatchLoader.findByEmail(email1))
                 .thenReturn(Mono.just(user1));
 
-        when(userReactiveDao.findByEmail(email2))
+        when(userBatchLoader.findByEmail(email2))
                 .thenReturn(Mono.just(user2));
 
-        when(friendshipReactiveDao.findByUserIdAndStatus(1, "accepted"))
-                .thenReturn(Flux.just(friendship1));
+        when(friendshipReactiveDao.findCommonFriendEmails(1, 2, "accepted"))
+                .thenReturn(Flux.just("user3@example.com", "user4@example.com", "user5@example.com"));
+
+        // Invoke Method
+
+        CommonFriendDTO.Request actualRequest = CommonFriendDTO.Request.builder()
+                .email1(email1)
+                .email2(email2)
+                .build();
+
+        Mono<ResponseEntity<Response>> actualCommonFriends = friendShipReactiveService.getCommonFriends(actualRequest);
 
-        when(friendshipReactiveDao.findByUserIdAndStatus(2, "accepted"))
-                .thenReturn(Flux.just(friendship2));
+        // Verify the result
+
+        List<String> expectListOfCommonFriends = List.of("user3@example.com", "user4@example.com", "user5@example.com");
 
-        when(userReactiveDao.findByUserId(3))
-                .thenReturn(Mono.just(user3));
+        CommonFriendDTO.Response expectedResponse = CommonFriendDTO.Response.builder()
+                .friends(expectListOfCommonFriends)
+                .count(expectListOfCommonFriends.size())
+                .build();
+
+        Response expectResponse = Response.builder()
+                .success("true")
+                .message("Common Friend list retrieved successfully.")
+                .result(expectedResponse)
+                .build();
+
+        ResponseEntity<Response> expectResEntity = ResponseEntity.status(HttpStatus.OK).body(expectResponse);
+
+        StepVerifier.create(actualCommonFriends)
+                .expectNext(expectResEntity)
+                .verifyComplete();
+        verify(friendshipReactiveDao, never()).findByUserIdAndStatus(anyInt(), anyString());
+        verify(userReactiveDao, never()).findByUserId(anyInt());
+    }
+
+    @Test
+    public void testGetCommonFriends_FromSocialGraph() {
+        // Prepare data
+
+        String email1 = "andy@example.com";
+        String email2 = "john@example.com";
+
+        Map<Integer, String> commonFriendEmails = new LinkedHashMap<>();
+        commonFriendEmails.put(3, "user3@example.com");
+        commonFriendEmails.put(4, "user4@example.com");
+
+        // Mock
+
+        when(userBatchLoader.findByEmail(email1))
+                .thenReturn(Mono.just(User.builder().userId(1).email(email1).build()));
+
+        when(userBatchLoader.findByEmail(email2))
+                .thenReturn(Mono.just(User.builder().userId(2).email(email2).build()));
+
+        when(socialGraph.isReady()).thenReturn(true);
+
+        when(socialGraph.commonFriends(1, 2))
+                .thenReturn(new int[]{3, 4});
+
+        when(userReactiveDao.findEmailsByUserIds(List.of(3, 4)))
+                .thenReturn(Mono.just(commonFriendEmails));
 
         // Invoke Method
 
@@ -199,9 +383,7 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
 
         // Verify the result
 
-        String expectedEmail = "user3@example.com";
-
-        List<String> expectListOfCommonFriends = List.of(expectedEmail);
+        List<String> expectListOfCommonFriends = List.of("user3@example.com", "user4@example.com");
 
         CommonFriendDTO.Response expectedResponse = CommonFriendDTO.Response.builder()
                 .friends(expectListOfCommonFriends)
@@ -219,6 +401,60 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
         StepVerifier.create(actualCommonFriends)
                 .expectNext(expectResEntity)
                 .verifyComplete();
+        verify(friendshipReactiveDao, never()).findCommonFriendEmails(anyInt(), anyInt(), anyString());
+    }
+
+    @Test
+    public void testGetCommonFriends_FromSocialGraph_PageWithMissingUsers() {
+        // Prepare data
+
+        String email1 = "andy@example.com";
+        String email2 = "john@example.com";
+
+        // User 4 has no user row, the page holds one email but more ids follow
+        Map<Integer, String> commonFriendEmails = new LinkedHashMap<>();
+        commonFriendEmails.put(3, "user3@example.com");
+
+        // Mock
+
+        when(userBatchLoader.findByEmail(email1))
+                .thenReturn(Mono.just(User.builder().userId(1).email(email1).build()));
+
+        when(userBatchLoader.findByEmail(email2))
+                .thenReturn(Mono.just(User.builder().userId(2).email(email2).build()));
+
+        when(socialGraph.isReady()).thenReturn(true);
+
+        when(socialGraph.commonFriends(1, 2))
+                .thenReturn(new int[]{3, 4, 5, 6});
+
+        when(userReactiveDao.findEmailsByUserIds(List.of(3, 4)))
+                .thenReturn(Mono.just(commonFriendEmails));
+
+        // Invoke Method
+
+        CommonFriendDTO.Request actualRequest = CommonFriendDTO.Request.builder()
+                .email1(email1)
+                .email2(email2)
+                .limit(2)
+                .build();
+
+        Mono<ResponseEntity<Response>> actualCommonFriends = friendShipReactiveService.getCommonFriends(actualRequest);
+
+        // Verify the result
+
+        CommonFriendDTO.Response expectedResponse = CommonFriendDTO.Response.builder()
+                .friends(List.of("user3@example.com"))
+                .count(1)
+                .nextCursor(PageCursor.encode(4))
+                .build();
+
+        StepVerifier.create(actualCommonFriends)
+                .assertNext(responseEntity -> {
+                    assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+                    assertEquals(expectedResponse, responseEntity.getBody().getResult());
+                })
+                .verifyComplete();
     }
 
     @Test
@@ -267,10 +503,10 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
 
         // Mock
 
-        when(userReactiveDao.findByEmail(email1))
+        when(userBatchLoader.findByEmail(email1))
                 .thenReturn(Mono.empty());
 
-        when(userReactiveDao.findByEmail(email2))
+        when(userBatchLoader.findByEmail(email2))
                 .thenReturn(Mono.just(user2));
 
 
@@ -312,10 +548,10 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
 
         // Mock
 
-        when(userReactiveDao.findByEmail(email1))
+        when(userBatchLoader.findByEmail(email1))
                 .thenReturn(Mono.just(user1));
 
-        when(userReactiveDao.findByEmail(email2))
+        when(userBatchLoader.findByEmail(email2))
                 .thenReturn(Mono.empty());
 
         // Invoke Method
@@ -367,16 +603,16 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
 
         // Mock
 
-        when(userReactiveDao.findByEmail(email1))
+        when(userBatchLoader.findByEmail(email1))
                 .thenReturn(Mono.just(user1));
 
-        when(userReactiveDao.findByEmail(email2))
+        when(userBatchLoader.findByEmail(email2))
                 .thenReturn(Mono.just(user2));
 
-        when(friendshipReactiveDao.findByUserIdAndFriendId(1, 2))
-                .thenReturn(Mono.empty());
+        when(blockIndex.isBlockedEitherWay(1, 2))
+                .thenReturn(Mono.just(false));
 
-        when(friendshipReactiveDao.save(any()))
+        when(friendshipBulkDao.insertFriendshipIfAbsent(1, 2, "accepted"))
                 .thenReturn(Mono.just(friendship));
 
         // Invoke method
@@ -408,6 +644,112 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
                 .verifyComplete();
     }
 
+    @Test
+    public void testCreateFriendConnections() {
+        // Prepare for data
+
+        BulkFriendConnectionDTO.Request request = BulkFriendConnectionDTO.Request.builder()
+                .connections(Arrays.asList(
+                        connection("andy@example.com", "john@example.com"),
+                        connection("andy@example.com", "lisa@example.com"),
+                        connection("andy@example.com", "kate@example.com"),
+                        connection("andy@example.com", "nobody@example.com"),
+                        connection("andy@example.com", "invalid-email"),
+                        connection("Andy@example.com", "JOHN@example.com")))
+                .build();
+        Map<String, Integer> userIds = new LinkedHashMap<>();
+        userIds.put("andy@example.com", 1);
+        userIds.put("john@example.com", 2);
+        userIds.put("lisa@example.com", 3);
+        userIds.put("kate@example.com", 4);
+
+        // Mock
+
+        when(userReactiveDao.findUserIdsByEmails(anyCollection())).thenReturn(Mono.just(userIds));
+        when(friendshipBulkDao.findExistingFriendships(anyCollection()))
+                .thenReturn(Mono.just(new HashSet<>(Arrays.asList(UserPairs.pair(1, 3)))));
+        when(blockIndex.isReady()).thenReturn(false);
+        when(friendshipBulkDao.findBlockedPairs(anyCollection()))
+                .thenReturn(Mono.just(new HashSet<>(Arrays.asList(UserPairs.pair(1, 4)))));
+        when(friendshipBulkDao.insertFriendships(anyCollection(), eq("accepted"))).thenReturn(Mono.just(1));
+
+        // Invoke method
+
+        Mono<ResponseEntity<Response>> actualResponseEntity = friendShipReactiveService.createFriendConnections(request);
+
+        // Verify the result
+
+        StepVerifier.create(actualResponseEntity)
+                .assertNext(responseEntity -> {
+                    assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+                    BulkFriendConnectionDTO.Response result = (BulkFriendConnectionDTO.Response) responseEntity.getBody().getResult();
+                    assertEquals(Integer.valueOf(6), result.getCount());
+                    assertEquals(Integer.valueOf(1), result.getCreated());
+                    assertEquals(Arrays.asList(
+                                    BulkFriendConnectionDTO.Status.CREATED,
+                                    BulkFriendConnectionDTO.Status.ALREADY_FRIENDS,
+                                    BulkFriendConnectionDTO.Status.BLOCKED,
+                                    BulkFriendConnectionDTO.Status.EMAIL_NOT_FOUND,
+                                    BulkFriendConnectionDTO.Status.INVALID_EMAIL,
+                                    // The same pair as the first one, in another case
+                                    BulkFriendConnectionDTO.Status.ALREADY_FRIENDS),
+                            result.getOutcomes().stream().map(BulkFriendConnectionDTO.Outcome::getStatus).collect(Collectors.toList()));
+                })
+                .verifyComplete();
+        verify(friendshipBulkDao, times(1)).insertFriendships(
+                new LinkedHashSet<>(Arrays.asList(UserPairs.pair(1, 2))), "accepted");
+        verifyNoInteractions(friendshipReactiveDao, userBatchLoader);
+    }
+
+    @Test
+    public void testCreateFriendConnections_NullConnection() {
+        // Prepare for data
+
+        // As deserialized from {"connections":[null, {...}, {...}]}
+        BulkFriendConnectionDTO.Request request = BulkFriendConnectionDTO.Request.builder()
+                .connections(Arrays.asList(
+                        null,
+                        connection("andy@example.com", "john@example.com"),
+                        connection("andy@example.com", "lisa@example.com")))
+                .build();
+        Map<String, Integer> userIds = new LinkedHashMap<>();
+        userIds.put("andy@example.com", 1);
+        userIds.put("john@example.com", 2);
+        userIds.put("lisa@example.com", 3);
+
+        // Mock
+
+        when(userReactiveDao.findUserIdsByEmails(anyCollection())).thenReturn(Mono.just(userIds));
+        when(friendshipBulkDao.findExistingFriendships(anyCollection())).thenReturn(Mono.just(new HashSet<>()));
+        when(blockIndex.isReady()).thenReturn(false);
+        when(friendshipBulkDao.findBlockedPairs(anyCollection())).thenReturn(Mono.just(new HashSet<>()));
+        when(friendshipBulkDao.insertFriendships(anyCollection(), eq("accepted"))).thenReturn(Mono.just(2));
+
+        // Invoke method
+
+        Mono<ResponseEntity<Response>> actualResponseEntity = friendShipReactiveService.createFriendConnections(request);
+
+        // Verify the result
+
+        StepVerifier.create(actualResponseEntity)
+                .assertNext(responseEntity -> {
+                    assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+                    BulkFriendConnectionDTO.Response result = (BulkFriendConnectionDTO.Response) responseEntity.getBody().getResult();
+                    assertEquals(Integer.valueOf(3), result.getCount());
+                    assertEquals(Integer.valueOf(2), result.getCreated());
+                    assertEquals(Arrays.asList(
+                                    BulkFriendConnectionDTO.Status.INVALID_EMAIL,
+                                    BulkFriendConnectionDTO.Status.CREATED,
+                                    BulkFriendConnectionDTO.Status.CREATED),
+                            result.getOutcomes().stream().map(BulkFriendConnectionDTO.Outcome::getStatus).collect(Collectors.toList()));
+                    assertNull(result.getOutcomes().get(0).getEmail1());
+                    assertNull(result.getOutcomes().get(0).getEmail2());
+                })
+                .verifyComplete();
+        verify(friendshipBulkDao, times(1)).insertFriendships(
+                new LinkedHashSet<>(Arrays.asList(UserPairs.pair(1, 2), UserPairs.pair(1, 3))), "accepted");
+    }
+
     @Test
     public void testCreateFriendConnection_InvalidEmail() {
         // Prepare for data
@@ -455,22 +797,20 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
                 .email(email2)
                 .build();
 
-        Friendship friendship = Friendship.builder()
-                .friendshipId(1)
-                .userId(1)
-                .friendId(2)
-                .build();
-
         // Mock
 
-        when(userReactiveDao.findByEmail(email1))
+        when(userBatchLoader.findByEmail(email1))
                 .thenReturn(Mono.just(user1));
 
-        when(userReactiveDao.findByEmail(email2))
+        when(userBatchLoader.findByEmail(email2))
                 .thenReturn(Mono.just(user2));
 
-        when(friendshipReactiveDao.findByUserIdAndFriendId(1, 2))
-                .thenReturn(Mono.just(friendship));
+        when(blockIndex.isBlockedEitherWay(1, 2))
+                .thenReturn(Mono.just(false));
+
+        // The unique pair key skips the insert
+        when(friendshipBulkDao.insertFriendshipIfAbsent(1, 2, "accepted"))
+                .thenReturn(Mono.empty());
 
         // Invoke method
 
@@ -496,6 +836,45 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
                 .verifyComplete();
     }
 
+    @Test
+    public void testCreateFriendConnection_BlockedPair() {
+        // Prepare for data
+
+        String email1 = "andy@example.com";
+        String email2 = "john@example.com";
+
+        // Mock
+
+        when(userBatchLoader.findByEmail(email1))
+                .thenReturn(Mono.just(User.builder().userId(1).email(email1).build()));
+
+        when(userBatchLoader.findByEmail(email2))
+                .thenReturn(Mono.just(User.builder().userId(2).email(email2).build()));
+
+        when(blockIndex.isBlockedEitherWay(1, 2))
+                .thenReturn(Mono.just(true));
+
+        // Invoke method
+
+        FriendConnectionDTO.Request request = FriendConnectionDTO.Request.builder()
+                .email1(email1)
+                .email2(email2)
+                .build();
+        Mono<ResponseEntity<Response>> actualResponseEntity = friendShipReactiveService.createFriendConnection(request);
+
+        // Verify the result
+
+        Response expectedResponse = Response.builder()
+                .message("{andy@example.com} and {john@example.com} cannot be connected because one of them blocks the other.")
+                .success("false")
+                .build();
+
+        StepVerifier.create(actualResponseEntity)
+                .expectNext(ResponseEntity.status(HttpStatus.OK).body(expectedResponse))
+                .verifyComplete();
+        verify(friendshipReactiveDao, never()).save(any());
+    }
+
     @Test
     public void testCreateFriendConnection_NotFoundEmail1() {
         // Prepare for data
@@ -505,7 +884,7 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
 
         // Mock
 
-        when(userReactiveDao.findByEmail(email1))
+        when(userBatchLoader.findByEmail(email1))
                 .thenReturn(Mono.empty());
 
         // Invoke method
@@ -544,10 +923,10 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
                 .email(email1)
                 .build();
         // Mock
-        when(userReactiveDao.findByEmail(email1))
+        when(userBatchLoader.findByEmail(email1))
                 .thenReturn(Mono.just(user1));
 
-        when(userReactiveDao.findByEmail(email2))
+        when(userBatchLoader.findByEmail(email2))
                 .thenReturn(Mono.empty());
 
         // Invoke method
@@ -599,16 +978,13 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
 
         // Mock
 
-        when(userReactiveDao.findByEmail(email1))
+        when(userBatchLoader.findByEmail(email1))
                 .thenReturn(Mono.just(subscriberUser));
 
-        when(userReactiveDao.findByEmail(email2))
+        when(userBatchLoader.findByEmail(email2))
                 .thenReturn(Mono.just(targetUser));
 
-        when(subscriptionReactiveDao.findBySubscriberIdAndTargetId(1, 2))
-                .thenReturn(Mono.empty());
-
-        when(subscriptionReactiveDao.save(any()))
+        when(relationBulkDao.insertSubscriptionIfAbsent(1, 2))
                 .thenReturn(Mono.just(newSub));
 
         // Invoke method
@@ -703,16 +1079,17 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
 
         // Moc
 
-        when(userReactiveDao.findByEmail(email1))
+        when(userBatchLoader.findByEmail(email1))
                 .thenReturn(Mono.just(expectedSubscriberUser));
 
-        when(userReactiveDao.findByEmail(email2))
+        when(userBatchLoader.findByEmail(email2))
                 .thenReturn(Mono.just(expectedTargetUser));
 
-        when(subscriptionReactiveDao.findBySubscriberIdAndTargetId(anyInt(), anyInt()))
-                .thenReturn(Mono.just(expectedExistSub));
+        // The unique pair key skips the insert
+        when(relationBulkDao.insertSubscriptionIfAbsent(anyInt(), anyInt()))
+                .thenReturn(Mono.empty());
 
-        when(subscriptionReactiveDao.save(any()))
+        when(subscriptionReactiveDao.findBySubscriberIdAndTargetId(anyInt(), anyInt()))
                 .thenReturn(Mono.just(expectedExistSub));
         // Invoke method
 
@@ -753,10 +1130,10 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
 
         // Mock
 
-        when(userReactiveDao.findByEmail(email1))
+        when(userBatchLoader.findByEmail(email1))
                 .thenReturn(Mono.empty());
 
-        when(userReactiveDao.findByEmail(email2))
+        when(userBatchLoader.findByEmail(email2))
                 .thenReturn(Mono.just(targetUser));
 
         // Invoke method
@@ -796,10 +1173,10 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
 
         // Mock
 
-        when(userReactiveDao.findByEmail(email1))
+        when(userBatchLoader.findByEmail(email1))
                 .thenReturn(Mono.just(subscriberUser));
 
-        when(userReactiveDao.findByEmail(email2))
+        when(userBatchLoader.findByEmail(email2))
                 .thenReturn(Mono.empty());
         // Invoke method
 
@@ -837,61 +1214,86 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
         String targetEmail1 = "kate@example.com";
         String targetEmail2 = "john@example.com";
 
-        User targetUser1 = User.builder()
-                .userId(3)
-                .email(targetEmail1)
+        // Mock
+
+        when(userBatchLoader.findByEmail(email))
+                .thenReturn(Mono.just(user));
+
+        when(userReactiveDao.findEligibleRecipientEmails(user.getUserId(), "accepted"))
+                .thenReturn(Flux.just(targetEmail1, targetEmail2));
+
+
+        // Invoke method
+
+        EligibleEmailAddressesDTO.Request request = EligibleEmailAddressesDTO.Request
+                .builder()
+                .email(email)
                 .build();
 
-        User targetUser2 = User.builder()
-                .userId(4)
-                .email(targetEmail2)
+        Mono<ResponseEntity<Response>> actualResponseEntity = friendShipReactiveService.getEligibleEmailAddresses(request);
+
+
+        // Verify the result
+
+        Response expectedResponse = Response.builder()
+                .message("Retrieves the list successfully.")
+                .success("true")
+                .result(
+                        EligibleEmailAddressesDTO.Response.builder()
+                                .friends(Arrays.asList(targetEmail1, targetEmail2))
+                                .count(2)
+                                .build()
+                )
                 .build();
 
-        Friendship friendship = Friendship.builder()
-                .friendshipId(1)
+        ResponseEntity<Response> expectResponseEntity = ResponseEntity.status(HttpStatus.OK).body(expectedResponse);
+
+
+        StepVerifier.create(actualResponseEntity)
+                .expectNext(expectResponseEntity)
+                .verifyComplete();
+        verifyNoInteractions(blockReactiveRepository);
+    }
+
+    @Test
+    public void getEligibleEmailAddresses_WithMentions() {
+        // Prepare for data
+
+        String email = "andy@example.com";
+        User user = User.builder()
                 .userId(1)
-                .friendId(2)
+                .email(email)
                 .build();
 
-        Subscription subscription = Subscription.builder()
-                .subscriptionId(1)
-                .subscriberId(1)
-                .targetId(2)
-                .build();
+        String friendEmail = "john@example.com";
+        User mentioned = User.builder().userId(4).email("kate@example.com").build();
+        User mentionedFriend = User.builder().userId(2).email(friendEmail).build();
+        User mentionedBlocker = User.builder().userId(5).email("lisa@example.com").build();
 
         // Mock
 
-        when(userReactiveDao.findByEmail(email))
+        when(userBatchLoader.findByEmail(email))
                 .thenReturn(Mono.just(user));
 
-        when(friendshipReactiveDao.findByUserId(user.getUserId()))
-                .thenReturn(Flux.just(friendship));
+        when(userReactiveDao.findEligibleRecipientEmails(user.getUserId(), "accepted"))
+                .thenReturn(Flux.just(friendEmail));
 
-        when(subscriptionReactiveDao.findBySubscriberId(user.getUserId()))
-                .thenReturn(Flux.just(subscription));
-
-        when(blockReactiveRepository.findByBlockerId(friendship.getFriendId()))
-                .thenReturn(Mono.empty());
-        when(blockReactiveRepository.findByBlockerId(subscription.getTargetId()))
-                .thenReturn(Mono.empty());
-
-        when(userReactiveDao.findByUserId(friendship.getFriendId()))
-                .thenReturn(Mono.just(targetUser1));
-
-        when(userReactiveDao.findByUserId(subscription.getTargetId()))
-                .thenReturn(Mono.just(targetUser2));
+        when(userReactiveDao.findByEmailsInChunks(Arrays.asList("kate@example.com", "John@example.com", "lisa@example.com", email)))
+                .thenReturn(Flux.just(mentioned, mentionedFriend, mentionedBlocker, user));
 
+        when(blockReactiveRepository.findBlockerIds(user.getUserId(), Arrays.asList(4, 2, 5)))
+                .thenReturn(Flux.just(5));
 
         // Invoke method
 
         EligibleEmailAddressesDTO.Request request = EligibleEmailAddressesDTO.Request
                 .builder()
                 .email(email)
+                .text("Hello World! @kate@example.com, John@example.com and lisa@example.com, from andy@example.com. user+x@example.com")
                 .build();
 
         Mono<ResponseEntity<Response>> actualResponseEntity = friendShipReactiveService.getEligibleEmailAddresses(request);
 
-
         // Verify the result
 
         Response expectedResponse = Response.builder()
@@ -899,14 +1301,46 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
                 .success("true")
                 .result(
                         EligibleEmailAddressesDTO.Response.builder()
-                                .friends(Arrays.asList(targetEmail2))
-                                .count(1)
+                                .friends(Arrays.asList(friendEmail, "kate@example.com"))
+                                .count(2)
                                 .build()
                 )
                 .build();
 
         ResponseEntity<Response> expectResponseEntity = ResponseEntity.status(HttpStatus.OK).body(expectedResponse);
 
+        StepVerifier.create(actualResponseEntity)
+                .expectNext(expectResponseEntity)
+                .verifyComplete();
+    }
+
+    @Test
+    public void getEligibleEmailAddresses_NotFoundEmail() {
+        // Prepare for data
+
+        String email = "andy@example.com";
+
+        // Mock
+
+        when(userBatchLoader.findByEmail(email))
+                .thenReturn(Mono.empty());
+
+        // Invoke method
+
+        EligibleEmailAddressesDTO.Request request = EligibleEmailAddressesDTO.Request.builder()
+                .email(email)
+                .build();
+
+        Mono<ResponseEntity<Response>> actualResponseEntity = friendShipReactiveService.getEligibleEmailAddresses(request);
+
+        // Verify the result
+
+        Response expectedResponse = Response.builder()
+                .success("true")
+                .message(String.format("Cannot find email {%s}. Please try another email", email))
+                .build();
+
+        ResponseEntity<Response> expectResponseEntity = ResponseEntity.status(HttpStatus.OK).body(expectedResponse);
 
         StepVerifier.create(actualResponseEntity)
                 .expectNext(expectResponseEntity)
@@ -965,10 +1399,10 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
 
         // Mock
 
-        when(userReactiveDao.findByEmail(email1))
+        when(userBatchLoader.findByEmail(email1))
                 .thenReturn(Mono.just(expectedUser1));
 
-        when(userReactiveDao.findByEmail(email2))
+        when(userBatchLoader.findByEmail(email2))
                 .thenReturn(Mono.just(expectedUser2));
 
         when(friendshipReactiveDao.findByUserIdAndFriendId(1, 2))
@@ -1016,25 +1450,20 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
                 .userId(2)
                 .email(email2)
                 .build();
-
-        Block expectedBlock = Block.builder()
-                .blockId(1)
-                .blockerId(1)
-                .blockedId(2)
-                .build();
         // Mock
 
-        when(userReactiveDao.findByEmail(email1))
+        when(userBatchLoader.findByEmail(email1))
                 .thenReturn(Mono.just(expectedUser1));
 
-        when(userReactiveDao.findByEmail(email2))
+        when(userBatchLoader.findByEmail(email2))
                 .thenReturn(Mono.just(expectedUser2));
 
         when(friendshipReactiveDao.findByUserIdAndFriendId(1, 2))
                 .thenReturn(Mono.empty());
 
-        when(blockReactiveRepository.findByBlockerIdAndBlockedId(1, 2))
-                .thenReturn(Mono.just(expectedBlock));
+        // The unique pair key skips the insert
+        when(relationBulkDao.insertBlockIfAbsent(1, 2))
+                .thenReturn(Mono.empty());
 
         // Invoke method
 
@@ -1082,19 +1511,16 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
                 .build();
         // Mock
 
-        when(userReactiveDao.findByEmail(email1))
+        when(userBatchLoader.findByEmail(email1))
                 .thenReturn(Mono.just(expectedUser1));
 
-        when(userReactiveDao.findByEmail(email2))
+        when(userBatchLoader.findByEmail(email2))
                 .thenReturn(Mono.just(expectedUser2));
 
         when(friendshipReactiveDao.findByUserIdAndFriendId(anyInt(), anyInt()))
                 .thenReturn(Mono.empty());
 
-        when(blockReactiveRepository.findByBlockerIdAndBlockedId(anyInt(), anyInt()))
-                .thenReturn(Mono.empty());
-
-        when(blockReactiveRepository.save(any()))
+        when(relationBulkDao.insertBlockIfAbsent(anyInt(), anyInt()))
                 .thenReturn(Mono.just(expectedBlock));
         // Invoke method
 
@@ -1133,10 +1559,10 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
 
         // Mock
 
-        when(userReactiveDao.findByEmail(email1))
+        when(userBatchLoader.findByEmail(email1))
                 .thenReturn(Mono.empty());
 
-        when(userReactiveDao.findByEmail(email2))
+        when(userBatchLoader.findByEmail(email2))
                 .thenReturn(Mono.just(expectedUser2));
 
         // Invoke method
@@ -1175,10 +1601,10 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
 
         // Mock
 
-        when(userReactiveDao.findByEmail(email1))
+        when(userBatchLoader.findByEmail(email1))
                 .thenReturn(Mono.just(expectedUser1));
 
-        when(userReactiveDao.findByEmail(email2))
+        when(userBatchLoader.findByEmail(email2))
                 .thenReturn(Mono.empty());
 
         // Invoke method
@@ -1233,4 +1659,132 @@ public class FriendShipReactiveServiceImplTest extends TestCase {
                 .expectNext(expectResponseEntity)
                 .verifyComplete();
     }
+
+    @Test
+    public void testGetSuggestions() {
+        // Prepare for data
+
+        String email = "andy@example.com";
+
+        Map<Integer, String> emailsById = new LinkedHashMap<>();
+        emailsById.put(7, "kate@example.com");
+        emailsById.put(8, "lisa@example.com");
+
+        // Mock
+
+        when(userBatchLoader.findByEmail(email))
+                .thenReturn(Mono.just(User.builder().userId(1).email(email).build()));
+
+        when(friendSuggestions.suggest(1, 2))
+                .thenReturn(Mono.just(new FriendSuggestions.Ranking(new int[]{7, 8}, new int[]{3, 2}, false)));
+
+        when(userReactiveDao.findEmailsByUserIds(List.of(7, 8)))
+                .thenReturn(Mono.just(emailsById));
+
+        // Invoke method
+
+        SuggestionDTO.Request request = SuggestionDTO.Request.builder()
+                .email(email)
+                .limit(2)
+                .build();
+        Mono<ResponseEntity<Response>> actualResponseEntity = friendShipReactiveService.getSuggestions(request);
+
+        // Verify the result
+
+        SuggestionDTO.Response expectedSuggestions = SuggestionDTO.Response.builder()
+                .suggestions(List.of(
+                        SuggestionDTO.Suggestion.builder().email("kate@example.com").mutualFriends(3).build(),
+                        SuggestionDTO.Suggestion.builder().email("lisa@example.com").mutualFriends(2).build()))
+                .count(2)
+                .partial(false)
+                .build();
+
+        Response expectedResponse = Response.builder()
+                .success("true")
+                .message("Friend suggestions retrieved successfully.")
+                .result(expectedSuggestions)
+                .build();
+
+        StepVerifier.create(actualResponseEntity)
+                .expectNext(ResponseEntity.status(HttpStatus.OK).body(expectedResponse))
+                .verifyComplete();
+    }
+
+    @Test
+    public void testStreamFriendsListByEmail() {
+        // Prepare for data
+
+        String email = "andy@example.com";
+
+        // Mock
+
+        when(userBatchLoader.findByEmail(email))
+                .thenReturn(Mono.just(User.builder().userId(1).email(email).build()));
+
+        when(emailStreamDao.streamFriendEmails(email, "accepted"))
+                .thenReturn(Flux.just("kate@example.com", "lisa@example.com"));
+
+        when(userBatchLoader.findByEmail("nobody@example.com"))
+                .thenReturn(Mono.empty());
+
+        // Invoke method and verify the result
+
+        StepVerifier.create(friendShipReactiveService.streamFriendsListByEmail(FriendListDTO.Request.builder().email(email).build())
+                        .flatMapMany(ResponseEntity::getBody)
+                        .map(EmailStreamDTO.Row::getEmail))
+                .expectNext("kate@example.com", "lisa@example.com")
+                .verifyComplete();
+
+        StepVerifier.create(friendShipReactiveService.streamFriendsListByEmail(FriendListDTO.Request.builder().email("nobody@example.com").build()))
+                .assertNext(response -> assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode()))
+                .verifyComplete();
+
+        StepVerifier.create(friendShipReactiveService.streamFriendsListByEmail(FriendListDTO.Request.builder().email("invalid").build()))
+                .assertNext(response -> assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode()))
+                .verifyComplete();
+    }
+
+    @Test
+    public void testStreamEligibleEmailAddresses_WithMentions() {
+        // Prepare for data
+
+        String email = "andy@example.com";
+        User user = User.builder().userId(1).email(email).build();
+        User mentioned = User.builder().userId(4).email("kate@example.com").build();
+        User mentionedFriend = User.builder().userId(2).email("john@example.com").build();
+        User mentionedBlocker = User.builder().userId(5).email("lisa@example.com").build();
+
+        // Mock
+
+        when(userBatchLoader.findByEmail(email))
+                .thenReturn(Mono.just(user));
+
+        when(emailStreamDao.streamEligibleRecipientEmails(user.getUserId(), "accepted"))
+                .thenReturn(Flux.just("john@example.com", "mike@example.com"));
+
+        when(userReactiveDao.findByEmailsInChunks(Arrays.asList("kate@example.com", "John@example.com", "lisa@example.com")))
+                .thenReturn(Flux.just(mentioned, mentionedFriend, mentionedBlocker));
+
+        when(blockReactiveRepository.findBlockerIds(user.getUserId(), Arrays.asList(4, 2, 5)))
+                .thenReturn(Flux.just(5));
+
+        // Invoke method
+
+        EligibleEmailAddressesDTO.Request request = EligibleEmailAddressesDTO.Request.builder()
+                .email(email)
+                .text("Hello @kate@example.com, John@example.com and lisa@example.com")
+                .build();
+
+        // Verify the result
+
+        StepVerifier.create(friendShipReactiveService.streamEligibleEmailAddresses(request)
+                        .flatMapMany(ResponseEntity::getBody)
+                        .map(EmailStreamDTO.Row::getEmail))
+                .expectNext("john@example.com", "mike@example.com", "kate@example.com")
+                .verifyComplete();
+    }
+
+    private static FriendConnectionDTO.Request connection(String email1, String email2) {
+        return FriendConnectionDTO.Request.builder().email1(email1).email2(email2).build();
+    }
 }
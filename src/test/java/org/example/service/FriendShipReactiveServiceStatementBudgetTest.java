@@ -0,0 +1,220 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.dto.*;
+import org.example.graph.BlockIndex;
+import org.example.graph.FriendSetCache;
+import org.example.graph.FriendSuggestions;
+import org.example.graph.SocialGraph;
+import org.example.model.Response;
+import org.example.repository.BlockReactiveRepository;
+import org.example.repository.EmailStreamDao;
+import org.example.repository.EmbeddedDatabase;
+import org.example.repository.FriendshipBulkDao;
+import org.example.repository.FriendshipReactiveDao;
+import org.example.repository.RelationBulkDao;
+import org.example.repository.SubscriptionReactiveDao;
+import org.example.repository.UserBatchLoader;
+import org.example.repository.UserEmailCache;
+import org.example.repository.UserReactiveDao;
+import org.example.trace.PipelineTracer;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Runs the service methods over real repositories on an embedded H2 database (MySQL mode) and
+ * holds each of them to a statement budget that must not grow with the size of the graph. The
+ * in-memory graph, the friend set cache and the block index are not loaded, so every answer
+ * comes from the database. A batched query that turns back into one query per row fails here.
+ */
+public class FriendShipReactiveServiceStatementBudgetTest {
+    // Friends of andy, the large graph spans several pages and is past any per-row tolerance
+    private static final int[] GRAPH_SIZES = {5, 300};
+    private static final int ANDY = 1;
+    private static final int JOHN = 2;
+    private static final int KATE = 3;
+    private static final int FIRST_FRIEND = 10;
+
+    @Test
+    public void testGetFriendsListByEmail() {
+        assertStatementBudget(1, service -> service.getFriendsListByEmail(FriendListDTO.Request.builder()
+                .email("andy@example.com")
+                .build()));
+    }
+
+    @Test
+    public void testGetFriendsListByEmail_Page() {
+        assertStatementBudget(1, service -> service.getFriendsListByEmail(FriendListDTO.Request.builder()
+                .email("andy@example.com")
+                .limit(50)
+                .build()));
+    }
+
+    @Test
+    public void testGetCommonFriends() {
+        // One lookup per user, then the self-join
+        assertStatementBudget(3, service -> service.getCommonFriends(CommonFriendDTO.Request.builder()
+                .email1("andy@example.com")
+                .email2("john@example.com")
+                .build()));
+    }
+
+    @Test
+    public void testGetCommonFriends_Page() {
+        assertStatementBudget(3, service -> service.getCommonFriends(CommonFriendDTO.Request.builder()
+                .email1("andy@example.com")
+                .email2("john@example.com")
+                .limit(50)
+                .build()));
+    }
+
+    @Test
+    public void testGetEligibleEmailAddresses() {
+        assertStatementBudget(2, service -> service.getEligibleEmailAddresses(EligibleEmailAddressesDTO.Request.builder()
+                .email("andy@example.com")
+                .build()));
+    }
+
+    @Test
+    public void testGetEligibleEmailAddresses_WithMentions() {
+        // Plus one lookup of all mentioned users and one of those among them blocking the sender
+        assertStatementBudget(4, service -> service.getEligibleEmailAddresses(EligibleEmailAddressesDTO.Request.builder()
+                .email("andy@example.com")
+                .text("Hello @kate@example.com and @john@example.com")
+                .build()));
+    }
+
+    @Test
+    public void testCreateFriendConnection() {
+        // One lookup per user, one block check for both directions and the conditional insert
+        assertStatementBudget(4, service -> service.createFriendConnection(FriendConnectionDTO.Request.builder()
+                .email1("andy@example.com")
+                .email2("kate@example.com")
+                .build()));
+    }
+
+    @Test
+    public void testCreateFriendConnections() {
+        List<FriendConnectionDTO.Request> connections = IntStream.range(FIRST_FRIEND, FIRST_FRIEND + 5)
+                .mapToObj(friendId -> FriendConnectionDTO.Request.builder()
+                        .email1("kate@example.com")
+                        .email2("friend" + friendId + "@example.com")
+                        .build())
+                .collect(Collectors.toList());
+        // The id lookup, the existing and the blocked pairs and one insert batch, whatever the number of pairs
+        assertStatementBudget(4, service -> service.createFriendConnections(BulkFriendConnectionDTO.Request.builder()
+                .connections(connections)
+                .build()));
+    }
+
+    @Test
+    public void testSubscribeToUpdates() {
+        assertStatementBudget(3, service -> service.subscribeToUpdates(SubscribeUpdatesDTO.Request.builder()
+                .email1("kate@example.com")
+                .email2("andy@example.com")
+                .build()));
+    }
+
+    @Test
+    public void testBlockUpdates() {
+        // One lookup per user, the friendship check and the conditional insert
+        assertStatementBudget(4, service -> service.blockUpdates(BlockUpdateDTO.Request.builder()
+                .email1("kate@example.com")
+                .email2("andy@example.com")
+                .build()));
+    }
+
+    /**
+     * Calls the service on a fresh database for every graph size and fails when a call takes
+     * more than {@code budget} statements.
+     */
+    private void assertStatementBudget(int budget, Function<FriendShipReactiveServiceImpl, Mono<ResponseEntity<Response>>> call) {
+        for (int friendCount : GRAPH_SIZES) {
+            // Prepare for data
+
+            EmbeddedDatabase database = seedGraph(friendCount);
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            FriendshipReactiveDao friendshipReactiveDao = database.repository(FriendshipReactiveDao.class);
+            SubscriptionReactiveDao subscriptionReactiveDao = database.repository(SubscriptionReactiveDao.class);
+            BlockReactiveRepository blockReactiveRepository = database.repository(BlockReactiveRepository.class);
+            UserReactiveDao userReactiveDao = database.repository(UserReactiveDao.class);
+            SocialGraph socialGraph = new SocialGraph(friendshipReactiveDao, subscriptionReactiveDao, blockReactiveRepository, false, Duration.ZERO);
+            FriendSuggestions friendSuggestions = new FriendSuggestions(socialGraph, friendshipReactiveDao, blockReactiveRepository, Duration.ofMillis(200), 1);
+            R2dbcTransactionManager transactionManager = new R2dbcTransactionManager(database.databaseClient().getConnectionFactory());
+            DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+            FriendShipReactiveServiceImpl service = new FriendShipReactiveServiceImpl(
+                    userReactiveDao,
+                    new UserBatchLoader(userReactiveDao, new UserEmailCache(meterRegistry, 1000, Duration.ofMinutes(10)), meterRegistry, Duration.ofMillis(1), UserReactiveDao.USER_ID_CHUNK_SIZE),
+                    friendshipReactiveDao,
+                    subscriptionReactiveDao,
+                    blockReactiveRepository,
+                    socialGraph,
+                    new FriendSetCache(friendshipReactiveDao, socialGraph, meterRegistry, false, DataSize.ofMegabytes(1)),
+                    new BlockIndex(blockReactiveRepository, false, 1000, 0.01, Duration.ZERO),
+                    friendSuggestions,
+                    new EmailStreamDao(database.databaseClient(), 256),
+                    new FriendshipBulkDao(database.databaseClient(), transactionManager, beanFactory, 500),
+                    new RelationBulkDao(database.databaseClient(), transactionManager, beanFactory, 500),
+                    database.databaseClient(),
+                    new PipelineTracer(meterRegistry, false, 0.01, 1024));
+            database.resetStatementCount();
+
+            try {
+                // Invoke method
+
+                Mono<ResponseEntity<Response>> actualResponseEntity = call.apply(service);
+
+                // Verify the result
+
+                StepVerifier.create(actualResponseEntity)
+                        .assertNext(responseEntity -> {
+                            assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+                            assertFalse(responseEntity.getBody().getMessage(), responseEntity.getBody().getMessage().startsWith("Cannot find email"));
+                        })
+                        .verifyComplete();
+                database.assertStatementBudget(budget);
+            } finally {
+                friendSuggestions.shutdown();
+            }
+        }
+    }
+
+    /**
+     * andy with {@code friendCount} friends, who all subscribe to andy except the first, who
+     * blocks andy instead. john is a friend of every other friend of andy, kate knows nobody.
+     */
+    private static EmbeddedDatabase seedGraph(int friendCount) {
+        EmbeddedDatabase database = new EmbeddedDatabase();
+        database.insertUser(ANDY, "andy@example.com");
+        database.insertUser(JOHN, "john@example.com");
+        database.insertUser(KATE, "kate@example.com");
+        for (int friendId = FIRST_FRIEND; friendId < FIRST_FRIEND + friendCount; friendId++) {
+            database.insertUser(friendId, "friend" + friendId + "@example.com");
+            database.insertFriendship(ANDY, friendId, "accepted");
+            if (friendId % 2 == 0) {
+                database.insertFriendship(JOHN, friendId, "accepted");
+            }
+            if (friendId == FIRST_FRIEND) {
+                database.insertBlock(friendId, ANDY);
+            } else {
+                database.insertSubscription(friendId, ANDY);
+            }
+        }
+        return database;
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.service;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class MentionExtractorTest {
+
+    @Test
+    public void testExtract_WithAndWithoutMarker() {
+        assertEquals(Arrays.asList("kate@example.com", "john@example.com", "lisa.m@mail.example.org"),
+                MentionExtractor.extract("Hello @kate@example.com, ping john@example.com. (cc: lisa.m@mail.example.org)", 10));
+    }
+
+    @Test
+    public void testExtract_SkipsTokensThatAreNotAddresses() {
+        assertEquals(Collections.emptyList(), MentionExtractor.extract(
+                "@andy hi, mail me at user+tag@example.com or a@b@example.com, price 1.5 @ noon, x@localhost", 10));
+        assertEquals(Collections.emptyList(), MentionExtractor.extract(null, 10));
+        assertEquals(Collections.emptyList(), MentionExtractor.extract("", 10));
+    }
+
+    @Test
+    public void testExtract_StopsAtMaxMentions() {
+        assertEquals(Arrays.asList("a@example.com", "b@example.com"),
+                MentionExtractor.extract("a@example.com b@example.com a@example.com", 2));
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.service;
+
+import org.example.model.Response;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.Assert.assertEquals;
+
+public class OutcomeTest {
+
+    @Test
+    public void testOf_ServiceMessages() {
+        assertEquals(Outcome.SUCCESS, Outcome.of(ok("Friend list retrieved successfully.")));
+        assertEquals(Outcome.SUCCESS, Outcome.of(ok("{kate@example.com} blocks {john@example.com} successfully.")));
+        assertEquals(Outcome.NOT_FOUND, Outcome.of(ok("Cannot find email {kate@example.com}. Please try another email")));
+        assertEquals(Outcome.NOT_FOUND, Outcome.of(ok("Target user {kate@example.com} not found, please try another email.")));
+        assertEquals(Outcome.INVALID_EMAIL, Outcome.of(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Response.builder()
+                .message("Invalid email format {kate}. Please provide a valid email.")
+                .build())));
+        assertEquals(Outcome.ERROR, Outcome.of(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Response.builder()
+                .message("Failed to obtain R2DBC Connection")
+                .build())));
+    }
+
+    @Test
+    public void testOf_StatusOnlyAndEmpty() {
+        assertEquals(Outcome.INVALID_EMAIL, Outcome.of(ResponseEntity.badRequest().build()));
+        assertEquals(Outcome.NOT_FOUND, Outcome.of(ResponseEntity.notFound().build()));
+        assertEquals(Outcome.ERROR, Outcome.of(ResponseEntity.internalServerError().build()));
+        assertEquals(Outcome.ERROR, Outcome.of(null));
+    }
+
+    private static ResponseEntity<Response> ok(String message) {
+        return ResponseEntity.ok(Response.builder().message(message).build());
+    }
+}
@@ -0,0 +1,157 @@
+package org.example.trace;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PipelineTracerTest {
+    private final BlockingQueue<PipelineTrace> written = new LinkedBlockingQueue<>();
+    private SimpleMeterRegistry meterRegistry;
+    private PipelineTracer tracer;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @After
+    public void tearDown() {
+        if (tracer != null) {
+            tracer.shutdown();
+        }
+    }
+
+    @Test
+    public void testStart_NotSampled() {
+        // Prepare for data
+
+        tracer = new PipelineTracer(meterRegistry, false, 1.0, 16, written::add);
+        PipelineTracer unsampled = new PipelineTracer(meterRegistry, true, 0.0, 16, written::add);
+
+        // Invoke method
+
+        PipelineTrace trace = tracer.start("friends");
+
+        // Verify the result
+
+        assertSame(PipelineTrace.DISABLED, trace);
+        assertSame(PipelineTrace.DISABLED, unsampled.start("friends"));
+        assertFalse(trace.isSampled());
+        // The operators of an unsampled trace leave the chain as it is
+        Mono<String> mono = Mono.just("andy@example.com");
+        assertSame(mono, mono.transform(trace.after(Stage.VALIDATION)));
+        assertSame(mono, mono.transform(trace.finish(Stage.SERIALIZATION)));
+    }
+
+    @Test
+    public void testFinish_WritesStageTimings() throws InterruptedException {
+        // Prepare for data
+
+        tracer = new PipelineTracer(meterRegistry, true, 1.0, 16, written::add);
+        PipelineTrace trace = tracer.start("common");
+
+        // Invoke method
+
+        Mono<String> pipeline = Mono.just("andy@example.com")
+                .transform(trace.after(Stage.VALIDATION))
+                .flatMap(email -> Mono.just(1).transform(trace.after(Stage.USER_RESOLUTION)))
+                .flatMap(userId -> Mono.just(2).transform(trace.after(Stage.USER_RESOLUTION)))
+                .map(String::valueOf)
+                .transform(trace.finish(Stage.SERIALIZATION));
+
+        // Verify the result
+
+        StepVerifier.create(pipeline).expectNext("2").verifyComplete();
+        PipelineTrace traced = written.poll(5, TimeUnit.SECONDS);
+        assertSame(trace, traced);
+        assertEquals("common", traced.pipeline());
+        assertFalse(traced.failed());
+        assertTrue(traced.stageNanos(Stage.VALIDATION) >= 0);
+        assertTrue(traced.stageNanos(Stage.USER_RESOLUTION) >= 0);
+        assertEquals(-1, traced.stageNanos(Stage.RELATIONSHIP_QUERY));
+        assertEquals(-1, traced.stageNanos(Stage.EMAIL_RESOLUTION));
+        long stages = traced.stageNanos(Stage.VALIDATION) + traced.stageNanos(Stage.USER_RESOLUTION)
+                + traced.stageNanos(Stage.SERIALIZATION);
+        assertEquals(traced.totalNanos(), stages);
+        String line = traced.toString();
+        assertTrue(line, line.startsWith("pipeline=common total_us="));
+        assertTrue(line, line.contains(" validation_us="));
+        assertTrue(line, line.contains(" user_resolution_us="));
+        assertFalse(line, line.contains("relationship_query_us"));
+        assertFalse(line, line.contains("failed"));
+    }
+
+    @Test
+    public void testFinish_FlagsFailedPipeline() throws InterruptedException {
+        // Prepare for data
+
+        tracer = new PipelineTracer(meterRegistry, true, 1.0, 16, written::add);
+        PipelineTrace trace = tracer.start("friends");
+
+        // Invoke method
+
+        Mono<String> pipeline = Mono.<String>error(new IllegalStateException("Connection refused"))
+                .transform(trace.after(Stage.VALIDATION))
+                .transform(trace.finish(Stage.SERIALIZATION));
+
+        // Verify the result
+
+        StepVerifier.create(pipeline).verifyError(IllegalStateException.class);
+        PipelineTrace traced = written.poll(5, TimeUnit.SECONDS);
+        assertNotNull(traced);
+        assertTrue(traced.failed());
+        assertTrue(traced.toString().endsWith(" failed=true"));
+    }
+
+    @Test
+    public void testPublish_DropsWhenBufferIsFull() throws InterruptedException {
+        // Prepare for data
+
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        tracer = new PipelineTracer(meterRegistry, true, 1.0, 2, trace -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written.add(trace);
+        });
+
+        // Invoke method
+
+        // The writer holds the first trace, the next two fill the buffer and the last two are dropped
+        complete(tracer.start("block"));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 4; i++) {
+            complete(tracer.start("block"));
+        }
+        release.countDown();
+
+        // Verify the result
+
+        assertEquals(2.0, meterRegistry.get("pipeline.traces.dropped").counter().count(), 0.0);
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(written.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void complete(PipelineTrace trace) {
+        Mono.just("kate@example.com").transform(trace.finish(Stage.SERIALIZATION)).block();
+    }
+}
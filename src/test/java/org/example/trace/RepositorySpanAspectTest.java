@@ -0,0 +1,76 @@
+package org.example.trace;
+
+import org.example.model.friends.User;
+import org.example.repository.UserReactiveDao;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RepositorySpanAspectTest {
+    private UserReactiveDao userReactiveDao;
+
+    @Before
+    public void setUp() {
+        UserReactiveDao target = mock(UserReactiveDao.class);
+        when(target.findByEmail("andy@example.com")).thenReturn(Mono.just(User.builder().userId(1).email("andy@example.com").build()));
+        when(target.findEligibleRecipientEmails(1, "accepted")).thenReturn(Flux.error(new IllegalStateException("Connection refused")));
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addInterface(UserReactiveDao.class);
+        factory.addAspect(new RepositorySpanAspect());
+        userReactiveDao = factory.getProxy();
+    }
+
+    @Test
+    public void testTrace_AddsChildSpans() {
+        // Prepare for data
+
+        SpanTrace trace = SpanTrace.start("POST /v1/user/updatable", 16);
+
+        // Invoke method
+
+        Mono<List<String>> request = userReactiveDao.findByEmail("andy@example.com")
+                .flatMapMany(user -> userReactiveDao.findEligibleRecipientEmails(user.getUserId(), "accepted"))
+                .onErrorResume(ex -> Flux.empty())
+                .collectList()
+                .contextWrite(Context.of(Span.CONTEXT_KEY, trace.root()));
+
+        // Verify the result
+
+        StepVerifier.create(request).expectNext(List.of()).verifyComplete();
+        List<Span> spans = trace.spans();
+        assertEquals(3, spans.size());
+        Span lookup = spans.get(1);
+        Span recipients = spans.get(2);
+        assertEquals("UserReactiveDao.findByEmail", lookup.name());
+        assertSame(trace.root(), lookup.parent());
+        assertTrue(lookup.isEnded());
+        assertFalse(lookup.isError());
+        assertEquals("UserReactiveDao.findEligibleRecipientEmails", recipients.name());
+        assertSame(trace.root(), recipients.parent());
+        assertTrue(recipients.isError());
+    }
+
+    @Test
+    public void testTrace_PassesThroughOutsideRequests() {
+        // Invoke method
+
+        Mono<User> lookup = userReactiveDao.findByEmail("andy@example.com");
+
+        // Verify the result
+
+        StepVerifier.create(lookup.map(User::getUserId)).expectNext(1).verifyComplete();
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.trace;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ServerTimingFilterTest {
+    private static final String TOKEN = "s3cret";
+
+    private ServerTimingFilter serverTimingFilter;
+    private AtomicReference<RequestTiming> timingSeen;
+    private AtomicReference<String> headerBeforeCommit;
+    private WebFilterChain chain;
+
+    @Before
+    public void setUp() {
+        serverTimingFilter = new ServerTimingFilter(new String[]{" other ", TOKEN});
+        timingSeen = new AtomicReference<>();
+        headerBeforeCommit = new AtomicReference<>();
+        // Runs two statements fetching five rows, then commits the response
+        chain = exchange -> Mono.deferContextual(context -> {
+            RequestTiming timing = context.getOrDefault(RequestTiming.CONTEXT_KEY, null);
+            timingSeen.set(timing);
+            if (timing != null) {
+                timing.addStatements(2);
+                for (int row = 0; row < 5; row++) {
+                    timing.addRow();
+                }
+            }
+            headerBeforeCommit.set(exchange.getResponse().getHeaders().getFirst(ServerTimingFilter.SERVER_TIMING));
+            return exchange.getResponse().setComplete();
+        });
+    }
+
+    @Test
+    public void testFilter_WritesHeadersOnCommit() {
+        // Prepare for data
+
+        MockServerWebExchange exchange = exchange("/v1/friends", TOKEN);
+
+        // Invoke method
+
+        StepVerifier.create(serverTimingFilter.filter(exchange, chain)).verifyComplete();
+
+        // Verify the result
+
+        assertNotNull(timingSeen.get());
+        assertNull(headerBeforeCommit.get());
+        String serverTiming = exchange.getResponse().getHeaders().getFirst(ServerTimingFilter.SERVER_TIMING);
+        assertNotNull(serverTiming);
+        assertTrue(serverTiming, serverTiming.matches("db;dur=\\d+\\.\\d\\d, queue;dur=\\d+\\.\\d\\d, cpu;dur=\\d+\\.\\d\\d, total;dur=\\d+\\.\\d\\d"));
+        assertEquals("2", exchange.getResponse().getHeaders().getFirst(ServerTimingFilter.STATEMENT_COUNT));
+        assertEquals("5", exchange.getResponse().getHeaders().getFirst(ServerTimingFilter.ROWS_FETCHED));
+    }
+
+    @Test
+    public void testFilter_PassesThroughWithoutToken() {
+        assertUntimed(serverTimingFilter, exchange("/v1/friends", null));
+    }
+
+    @Test
+    public void testFilter_PassesThroughWithWrongToken() {
+        assertUntimed(serverTimingFilter, exchange("/v1/friends", "s3cre"));
+    }
+
+    @Test
+    public void testFilter_PassesThroughWithoutAllowedTokens() {
+        ServerTimingFilter withoutTokens = new ServerTimingFilter(new String[]{"", "  "});
+
+        assertUntimed(withoutTokens, exchange("/v1/friends", ""));
+        assertUntimed(withoutTokens, exchange("/v1/friends", TOKEN));
+    }
+
+    @Test
+    public void testFilter_PassesThroughOutsideTimedPath() {
+        assertUntimed(serverTimingFilter, exchange("/internal/traces/recent", TOKEN));
+        assertUntimed(serverTimingFilter, exchange("/v1", TOKEN));
+    }
+
+    private void assertUntimed(ServerTimingFilter filter, MockServerWebExchange exchange) {
+        // Invoke method
+
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+        // Verify the result
+
+        assertNull(timingSeen.get());
+        assertNull(exchange.getResponse().getHeaders().getFirst(ServerTimingFilter.SERVER_TIMING));
+        assertNull(exchange.getResponse().getHeaders().getFirst(ServerTimingFilter.STATEMENT_COUNT));
+        assertNull(exchange.getResponse().getHeaders().getFirst(ServerTimingFilter.ROWS_FETCHED));
+    }
+
+    private static MockServerWebExchange exchange(String path, String token) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(path);
+        if (token != null) {
+            request.header(ServerTimingFilter.REQUEST_HEADER, token);
+        }
+        return MockServerWebExchange.from(request);
+    }
+}
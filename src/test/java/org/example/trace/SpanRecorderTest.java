@@ -0,0 +1,68 @@
+package org.example.trace;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SpanRecorderTest {
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void testSlowest_KeepsTheSlowestTraces() throws InterruptedException {
+        // Prepare for data
+
+        SpanRecorder recorder = new SpanRecorder(3, Duration.ofMinutes(1), now::get);
+
+        // Invoke method
+
+        for (int millis : new int[]{4, 1, 6, 2, 5, 3}) {
+            recorder.record(trace("POST /v1/user/friends", millis));
+        }
+
+        // Verify the result
+
+        List<SpanTrace> slowest = recorder.slowest(10);
+        assertEquals(3, slowest.size());
+        List<Long> durations = slowest.stream().map(SpanTrace::durationNanos).collect(Collectors.toList());
+        assertTrue(durations.toString(), durations.get(0) >= durations.get(1) && durations.get(1) >= durations.get(2));
+        assertTrue(durations.get(2) >= TimeUnit.MILLISECONDS.toNanos(4));
+        assertEquals(1, recorder.slowest(1).size());
+    }
+
+    @Test
+    public void testSlowest_ForgetsOldWindows() throws InterruptedException {
+        // Prepare for data
+
+        SpanRecorder recorder = new SpanRecorder(2, Duration.ofMinutes(1), now::get);
+        recorder.record(trace("POST /v1/user/common", 3));
+
+        // Invoke method
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(90));
+        recorder.record(trace("POST /v1/user/connect", 1));
+
+        // Verify the result
+
+        // The previous window is still shown
+        assertEquals(2, recorder.slowest(10).size());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertEquals(1, recorder.slowest(10).size());
+        assertEquals("POST /v1/user/connect", recorder.slowest(10).get(0).root().name());
+        now.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        assertTrue(recorder.slowest(10).isEmpty());
+    }
+
+    private static SpanTrace trace(String name, int millis) throws InterruptedException {
+        SpanTrace trace = SpanTrace.start(name, 16);
+        Thread.sleep(millis);
+        trace.root().end(false);
+        return trace;
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.trace;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.Result;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimedConnectionFactoryTest {
+    private DatabaseClient databaseClient;
+
+    @Before
+    public void setUp() {
+        TimedConnectionFactory connectionFactory = new TimedConnectionFactory(ConnectionFactories.get(
+                "r2dbc:h2:mem:///" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL;NON_KEYWORDS=USER"));
+        databaseClient = DatabaseClient.create(connectionFactory);
+        databaseClient.sql("CREATE TABLE user (user_id INT PRIMARY KEY, email VARCHAR(255))").then().block();
+        databaseClient.sql("INSERT INTO user (user_id, email) VALUES (1, 'andy@example.com'), (2, 'john@example.com'), (3, 'kate@example.com')")
+                .then()
+                .block();
+    }
+
+    @Test
+    public void testExecute_AccountsStatementsAndRows() {
+        // Prepare for data
+
+        RequestTiming timing = new RequestTiming();
+
+        // Invoke method
+
+        Mono<List<String>> request = databaseClient.sql("SELECT email FROM user WHERE user_id > :id ORDER BY user_id")
+                .bind("id", 0)
+                .map(row -> row.get("email", String.class))
+                .all()
+                .collectList()
+                .flatMap(emails -> databaseClient.sql("UPDATE user SET email = email WHERE user_id = 1")
+                        .fetch()
+                        .rowsUpdated()
+                        .thenReturn(emails))
+                .contextWrite(Context.of(RequestTiming.CONTEXT_KEY, timing));
+
+        // Verify the result
+
+        StepVerifier.create(request)
+                .expectNext(List.of("andy@example.com", "john@example.com", "kate@example.com"))
+                .verifyComplete();
+        assertEquals(2, timing.statements());
+        assertEquals(3, timing.rows());
+        assertTrue(timing.dbNanos() > 0);
+        assertTrue(timing.queueNanos() > 0);
+        String serverTiming = timing.serverTiming();
+        assertTrue(serverTiming, serverTiming.matches("db;dur=\\d+\\.\\d\\d, queue;dur=\\d+\\.\\d\\d, cpu;dur=\\d+\\.\\d\\d, total;dur=\\d+\\.\\d\\d"));
+    }
+
+    @Test
+    public void testExecute_CountsEveryBinding() {
+        // Prepare for data
+
+        RequestTiming timing = new RequestTiming();
+
+        // Invoke method
+
+        Mono<Long> inserted = databaseClient.inConnectionMany(connection -> Flux.from(connection
+                                .createStatement("INSERT INTO user (user_id, email) VALUES ($1, $2)")
+                                .bind("$1", 4).bind("$2", "mike@example.com").add()
+                                .bind("$1", 5).bind("$2", "lisa@example.com").add()
+                                .bind("$1", 6).bind("$2", "paul@example.com")
+                                .execute())
+                        .flatMap(Result::getRowsUpdated))
+                .map(Integer::longValue)
+                .reduce(0L, Long::sum)
+                .contextWrite(Context.of(RequestTiming.CONTEXT_KEY, timing));
+
+        // Verify the result
+
+        StepVerifier.create(inserted).expectNext(3L).verifyComplete();
+        assertEquals(3, timing.statements());
+    }
+
+    @Test
+    public void testExecute_PassesThroughUntimedRequests() {
+        // Invoke method
+
+        Mono<Long> count = databaseClient.sql("SELECT COUNT(*) AS users FROM user")
+                .map(row -> row.get("users", Long.class))
+                .one();
+
+        // Verify the result
+
+        StepVerifier.create(count).expectNext(3L).verifyComplete();
+    }
+}
@@ -0,0 +1,41 @@
+-- Embedded (H2, MySQL mode) copy of the friendsmanagement schema used by the repository tests.
+-- status is a varchar here because r2dbc-h2 binds strings as CLOB, which H2 cannot compare to an ENUM.
+create table if not exists user
+(
+    user_id int primary key auto_increment,
+    email   varchar(255) not null unique
+);
+
+create table if not exists friendship
+(
+    friendship_id int primary key auto_increment,
+    user_id       int                          not null,
+    friend_id     int                          not null,
+    status        varchar(16)                  not null,
+    foreign key (user_id) references user (user_id),
+    foreign key (friend_id) references user (user_id)
+);
+
+create table if not exists subscription
+(
+    subscription_id int primary key auto_increment,
+    subscriber_id   int not null,
+    target_id       int not null,
+    foreign key (subscriber_id) references user (user_id),
+    foreign key (target_id) references user (user_id)
+);
+
+create table if not exists block
+(
+    block_id   int primary key auto_increment,
+    blocker_id int not null,
+    blocked_id int not null,
+    foreign key (blocker_id) references user (user_id),
+    foreign key (blocked_id) references user (user_id)
+);
+
+create index if not exists idx_friendship_user_status_friend on friendship (user_id, status, friend_id);
+create index if not exists idx_subscription_target_subscriber on subscription (target_id, subscriber_id);
+create unique index if not exists uq_friendship_pair on friendship (user_id, friend_id);
+create unique index if not exists uq_subscription_pair on subscription (subscriber_id, target_id);
+create unique index if not exists uq_block_pair on block (blocker_id, blocked_id);